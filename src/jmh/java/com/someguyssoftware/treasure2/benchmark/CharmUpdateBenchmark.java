@@ -0,0 +1,83 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.treasure2.item.charm.ICharm;
+import com.someguyssoftware.treasure2.item.charm.ICharmInstance;
+import com.someguyssoftware.treasure2.item.charm.TreasureCharms;
+import com.someguyssoftware.treasure2.testsupport.MemoryPlayer;
+import com.someguyssoftware.treasure2.testsupport.MemoryWorld;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+
+import net.minecraft.init.Biomes;
+import net.minecraftforge.event.entity.living.LivingEvent.LivingUpdateEvent;
+
+/**
+ * The per tick charm updates of a player carrying a typical set of charms (the charms of a charmed item
+ * in each hand and a pouch). The player is hurt and hungry and the charms recharged before every update,
+ * so every charm does its work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharmUpdateBenchmark {
+	private MemoryWorld world;
+	private MemoryPlayer player;
+	private ICharmInstance[] instances;
+	private LivingUpdateEvent event;
+	private ICoords coords;
+	private Random random;
+
+	@Setup
+	public void setup() {
+		TreasureBootstrap.bootstrap();
+		world = MemoryWorld.flat(42L, Biomes.PLAINS, 64);
+		world.loadChunks(-1, -1, 1, 1);
+		player = new MemoryPlayer(world);
+		player.setPosition(8.5, 65, 8.5);
+		world.spawnEntity(player);
+		ICharm[] charms = new ICharm[] {TreasureCharms.HEALING, TreasureCharms.GREATER_HEALING, TreasureCharms.DURABLE_SHIELDING,
+				TreasureCharms.FULLNESS, TreasureCharms.ILLUMINATION, TreasureCharms.FIRE_RESISTENCE_2};
+		instances = new ICharmInstance[charms.length];
+		for (int i = 0; i < charms.length; i++) {
+			instances[i] = charms[i].createInstance();
+		}
+		event = new LivingUpdateEvent(player);
+		coords = new Coords(player.getPosition());
+		random = new Random(42L);
+	}
+
+	@Benchmark
+	public int update() {
+		player.setHealth(1F);
+		player.getFoodStats().setFoodLevel(1);
+		int updated = 0;
+		for (ICharmInstance instance : instances) {
+			instance.getData().setValue(instance.getCharm().getMaxValue());
+			if (instance.getCharm().update(world, random, coords, player, event, instance.getData())) {
+				updated++;
+			}
+		}
+		return updated;
+	}
+}
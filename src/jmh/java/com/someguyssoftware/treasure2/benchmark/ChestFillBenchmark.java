@@ -0,0 +1,80 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.someguyssoftware.treasure2.generator.chest.CommonChestGenerator;
+import com.someguyssoftware.treasure2.generator.chest.IChestGenerator;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+
+import net.minecraft.init.Items;
+import net.minecraft.inventory.InventoryBasic;
+import net.minecraft.item.ItemStack;
+
+/**
+ * The inventory fill of the chest generators, for a single chest sized (27 slots) inventory. The fill includes
+ * clearing the inventory, as every chest is filled from empty.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChestFillBenchmark {
+	private static final int SLOTS = 27;
+
+	private IChestGenerator generator;
+	private InventoryBasic inventory;
+	private List<ItemStack> stacks;
+	private Random random;
+
+	@Setup
+	public void setup() {
+		TreasureBootstrap.bootstrap();
+		generator = new CommonChestGenerator();
+		inventory = new InventoryBasic("chest", false, SLOTS);
+		random = new Random(42L);
+		// a typical roll of the loot tables
+		stacks = new ArrayList<>();
+		stacks.add(new ItemStack(Items.GOLD_INGOT, 8));
+		stacks.add(new ItemStack(Items.IRON_INGOT, 12));
+		stacks.add(new ItemStack(Items.DIAMOND, 2));
+		stacks.add(new ItemStack(Items.EMERALD, 3));
+		stacks.add(new ItemStack(Items.BREAD, 6));
+		stacks.add(new ItemStack(Items.BONE, 10));
+		stacks.add(new ItemStack(Items.ARROW, 16));
+		stacks.add(new ItemStack(Items.IRON_SWORD));
+		stacks.add(new ItemStack(Items.BOOK, 2));
+		stacks.add(new ItemStack(Items.ENDER_PEARL));
+	}
+
+	@Benchmark
+	public InventoryBasic fillInventory() {
+		inventory.clear();
+		// fillInventory consumes the list
+		generator.fillInventory(inventory, random, new ArrayList<>(stacks));
+		return inventory;
+	}
+
+	@Benchmark
+	public List<Integer> getEmptySlotsRandomized() {
+		return generator.getEmptySlotsRandomized(inventory, random);
+	}
+}
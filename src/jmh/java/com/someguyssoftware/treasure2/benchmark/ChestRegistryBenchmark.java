@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.enums.Rarity;
+import com.someguyssoftware.treasure2.registry.ChestRegistry;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+
+/**
+ * The min. distance check of the chest generators against a registry of the size of a long played world.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChestRegistryBenchmark {
+	private static final int DIMENSION = 0;
+	private static final int QUERIES = 1024;
+	// about one chest per 8 x 8 chunks
+	private static final int BLOCKS_PER_CHEST = 128;
+
+	@Param({"1000", "10000", "100000"})
+	public int entries;
+
+	@Param({"75", "300"})
+	public int distance;
+
+	private ICoords[] queries;
+	private int index;
+
+	@Setup
+	public void setup() {
+		TreasureBootstrap.bootstrap();
+		Random random = new Random(42L);
+		int side = (int) Math.sqrt(entries) * BLOCKS_PER_CHEST;
+		// the registries are created with the configured size (the oldest entries are dropped beyond it)
+		TreasureConfig.CHESTS.chestRegistrySize = Math.max(TreasureConfig.CHESTS.chestRegistrySize, entries);
+		ChestRegistry registry = ChestRegistry.getInstance();
+		registry.clear();
+		// a duplicate coords replaces its entry, so the coords are drawn until the registry is full
+		for (int i = 0; i < entries * 2 && registry.size() < entries; i++) {
+			registry.register(DIMENSION, new Coords(random.nextInt(side) - side / 2, 64, random.nextInt(side) - side / 2),
+					Rarity.values()[random.nextInt(Rarity.values().length)]);
+		}
+		if (registry.size() != entries) {
+			throw new IllegalStateException("The registry holds " + registry.size() + " of " + entries + " entries");
+		}
+		queries = new ICoords[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = new Coords(random.nextInt(side) - side / 2, 64, random.nextInt(side) - side / 2);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		ChestRegistry.getInstance().clear();
+	}
+
+	@Benchmark
+	public boolean withinDistance() {
+		return ChestRegistry.getInstance().withinDistance(DIMENSION, queries[index++ & (QUERIES - 1)], distance);
+	}
+}
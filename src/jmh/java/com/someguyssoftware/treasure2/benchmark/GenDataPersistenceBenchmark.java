@@ -0,0 +1,84 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.enums.Rarity;
+import com.someguyssoftware.treasure2.persistence.GenDataPersistence;
+import com.someguyssoftware.treasure2.registry.ChestRegistry;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * The save and load of the generation data (the generator counters and the registries).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenDataPersistenceBenchmark {
+	@Param({"1000", "10000", "100000"})
+	public int entries;
+
+	private GenDataPersistence persistence;
+	private NBTTagCompound saved;
+
+	@Setup
+	public void setup() {
+		TreasureBootstrap.bootstrap();
+		Random random = new Random(42L);
+		// the registries are created with the configured size (the oldest entries are dropped beyond it)
+		TreasureConfig.CHESTS.chestRegistrySize = Math.max(TreasureConfig.CHESTS.chestRegistrySize, entries);
+		ChestRegistry registry = ChestRegistry.getInstance();
+		registry.clear();
+		// a duplicate coords replaces its entry, so the coords are drawn until the registry is full
+		for (int i = 0; i < entries * 2 && registry.size() < entries; i++) {
+			registry.register(0, new Coords(random.nextInt(200000) - 100000, 64, random.nextInt(200000) - 100000),
+					Rarity.values()[random.nextInt(Rarity.values().length)]);
+		}
+		if (registry.size() != entries) {
+			throw new IllegalStateException("The registry holds " + registry.size() + " of " + entries + " entries");
+		}
+		persistence = new GenDataPersistence();
+		saved = persistence.writeToNBT(new NBTTagCompound());
+	}
+
+	@TearDown
+	public void tearDown() {
+		ChestRegistry.getInstance().clear();
+	}
+
+	@Benchmark
+	public NBTTagCompound writeToNBT() {
+		return persistence.writeToNBT(new NBTTagCompound());
+	}
+
+	@Benchmark
+	public GenDataPersistence readFromNBT() {
+		// the registry is cleared on a world load
+		ChestRegistry.getInstance().clear();
+		persistence.readFromNBT(saved);
+		return persistence;
+	}
+}
@@ -0,0 +1,48 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
+import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.pit.IPitGenerator;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+import com.someguyssoftware.treasure2.worldgen.SurfaceChestWorldGenerator;
+
+/**
+ * The pit generator selection of the surface chests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PitSelectionBenchmark {
+	private Random random;
+
+	@Setup
+	public void setup() {
+		TreasureBootstrap.bootstrap();
+		random = new Random(42L);
+	}
+
+	@Benchmark
+	public IPitGenerator<GeneratorResult<ChestGeneratorData>> selectPitGenerator() {
+		return SurfaceChestWorldGenerator.selectPitGenerator(random);
+	}
+}
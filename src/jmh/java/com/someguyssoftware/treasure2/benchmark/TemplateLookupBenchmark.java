@@ -0,0 +1,81 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.meta.StructureArchetype;
+import com.someguyssoftware.treasure2.meta.StructureType;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+import com.someguyssoftware.treasure2.world.gen.structure.TemplateHolder;
+import com.someguyssoftware.treasure2.world.gen.structure.TreasureTemplateManager;
+
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.datafix.DataFixesManager;
+import net.minecraft.world.biome.Biome;
+
+/**
+ * The template selection of the structure generators, over a table of synthetic holders (the templates
+ * themselves aren't touched by the lookup).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateLookupBenchmark {
+	@Param({"5", "50"})
+	public int templatesPerKey;
+
+	private TreasureTemplateManager manager;
+	private Biome[] biomes;
+	private StructureArchetype[] archetypes;
+	private Random random;
+	private int index;
+
+	@Setup
+	public void setup() {
+		TreasureBootstrap.bootstrap();
+		manager = new TreasureTemplateManager(Treasure.instance, "/structures", DataFixesManager.createFixer());
+		List<Biome> biomeList = new ArrayList<>();
+		for (Biome biome : Biome.REGISTRY) {
+			biomeList.add(biome);
+		}
+		biomes = biomeList.toArray(new Biome[0]);
+		archetypes = new StructureArchetype[] {StructureArchetype.SURFACE, StructureArchetype.SUBMERGED};
+
+		for (StructureArchetype archetype : archetypes) {
+			for (Biome biome : biomes) {
+				for (int i = 0; i < templatesPerKey; i++) {
+					ResourceLocation location = new ResourceLocation(Treasure.MODID, archetype.getName() + "/ruin" + i);
+					manager.mapTemplate(archetype, StructureType.RUIN, Biome.getIdForBiome(biome), new TemplateHolder().setLocation(location).setMetaLocation(location));
+				}
+			}
+		}
+		random = new Random(42L);
+	}
+
+	@Benchmark
+	public TemplateHolder getTemplate() {
+		int i = index++;
+		return manager.getTemplate(null, random, archetypes[i & 1], StructureType.RUIN, biomes[(i >>> 1) % biomes.length]);
+	}
+}
@@ -0,0 +1,329 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.IntBinaryOperator;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
+import com.someguyssoftware.treasure2.registry.ChestRegistry;
+import com.someguyssoftware.treasure2.registry.OasisRegistry;
+import com.someguyssoftware.treasure2.testsupport.MemoryBiomeProvider;
+import com.someguyssoftware.treasure2.testsupport.MemoryWorld;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics;
+import com.someguyssoftware.treasure2.worldgen.GenerationScheduler;
+import com.someguyssoftware.treasure2.worldgen.ITreasureWorldGenerator;
+import com.someguyssoftware.treasure2.worldgen.PopulationTrace;
+import com.someguyssoftware.treasure2.worldgen.SitePlan;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.init.Biomes;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.biome.Biome;
+
+/**
+ * The end-to-end world gen benchmark: replays a sequence of chunk populations through all the registered world
+ * generators against a MemoryWorld, in the recorded order (see PopulationTrace and the t2-trace command), and reports
+ * the chunks/s, the p50/p99 population latency per chunk, the bytes allocated per chunk and the blocks written.
+ * Without a trace, a player exploration (a random walk with a view distance of 8 chunks) is synthesized from the seed.
+ * <p>
+ * The world is made of biome cells of 256 x 256 blocks over a gently rolling terrain, so that all the generators
+ * find their biomes. The latency is the population (the generators) of a chunk; the throughput includes the
+ * queued builds and deferred placements, run once per chunk as the world ticks would. The warm-up passes replay
+ * the whole trace into a new world first.
+ * </p>
+ * <p>
+ * The chests are the successes of the chest generators. The cascaded chunks are the chunks generated while
+ * populating, outside of the populated chunk and its +x, +z neighbours.
+ * </p>
+ * Usage: WorldGenReplay [trace file | -] [seed | -] [warm-up passes] [report file]. A trace is replayed with the seed
+ * of its header; a different seed is refused.
+ */
+public final class WorldGenReplay {
+	private static final long DEFAULT_SEED = 42L;
+	private static final int EXPLORATION_STEPS = 300;
+	private static final int VIEW_DISTANCE = 8;
+	private static final int CELL_SHIFT = 8;
+	// the chunks not used by the last populations are dropped, to bound the memory
+	private static final int CHUNK_WINDOW = 2048;
+	private static final int SWEEP_INTERVAL = 256;
+	private static final double NANOS_PER_SECOND = 1E9;
+	private static final long NANOS_PER_MICRO = 1000L;
+
+	// the world generators that build a chest
+	private static final WorldGeneratorType[] CHEST_GENERATORS = {WorldGeneratorType.SURFACE_CHEST, WorldGeneratorType.SUBMERGED_CHEST,
+			WorldGeneratorType.WITHER_TREE};
+
+	private static final Biome[] BIOMES = {Biomes.PLAINS, Biomes.FOREST, Biomes.DESERT, Biomes.OCEAN, Biomes.DEEP_OCEAN,
+			Biomes.SWAMPLAND, Biomes.ROOFED_FOREST, Biomes.TAIGA, Biomes.JUNGLE, Biomes.SAVANNA, Biomes.BIRCH_FOREST,
+			Biomes.EXTREME_HILLS};
+
+	private final long seed;
+	private final LongList trace;
+
+	/**
+	 *
+	 * @param seed
+	 * @param trace
+	 */
+	public WorldGenReplay(long seed, LongList trace) {
+		this.seed = seed;
+		this.trace = trace;
+	}
+
+	/**
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		File traceFile = args.length > 0 && !args[0].isEmpty() && !args[0].equals("-") ? new File(args[0]) : null;
+		Long traceSeed = traceFile == null ? null : PopulationTrace.readSeed(traceFile);
+		Long argSeed = args.length > 1 && !args[1].equals("-") ? Long.valueOf(args[1]) : null;
+		if (traceSeed != null && argSeed != null && !traceSeed.equals(argSeed)) {
+			throw new IllegalArgumentException("The trace was recorded with the seed " + traceSeed + ", not " + argSeed);
+		}
+		long seed = traceSeed != null ? traceSeed : argSeed != null ? argSeed : DEFAULT_SEED;
+		int warmups = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		LongList trace = traceFile != null ? PopulationTrace.read(traceFile) : explore(seed, EXPLORATION_STEPS);
+
+		TreasureBootstrap.bootstrap();
+		WorldGenReplay replay = new WorldGenReplay(seed, trace);
+		for (int pass = 0; pass < warmups; pass++) {
+			replay.run();
+		}
+		Result result = replay.run();
+
+		for (String line : result.toLines()) {
+			System.out.println(line);
+		}
+		for (String line : GenerationMetrics.report()) {
+			System.out.println(line);
+		}
+		if (args.length > 3) {
+			File file = new File(args[3]);
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			try (PrintWriter writer = new PrintWriter(file)) {
+				writer.println(result.toJson());
+			}
+		}
+		// the world generators may have left non-daemon threads
+		System.exit(0);
+	}
+
+	/**
+	 * Replays the trace into a new world.
+	 * @return
+	 */
+	public Result run() {
+		reset();
+		MemoryWorld world = new MemoryWorld(seed, new MemoryBiomeProvider(this::getBiome), createHeightFunction());
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		long[] latencies = new long[trace.size()];
+		long allocated = 0;
+		long workNanos = 0;
+		int cascadedChunks = 0;
+		Long2IntMap lastUse = new Long2IntOpenHashMap();
+		Random random = new Random(seed);
+		long xSeed = random.nextLong() >> 2 + 1L;
+		long zSeed = random.nextLong() >> 2 + 1L;
+
+		for (int index = 0; index < trace.size(); index++) {
+			long chunk = trace.getLong(index);
+			int chunkX = (int) chunk;
+			int chunkZ = (int) (chunk >> 32);
+			// a populating chunk has its +x, +z neighbours (the terrain isn't part of the measure)
+			world.loadChunks(chunkX, chunkZ, chunkX + 1, chunkZ + 1);
+			int generatedChunks = world.getChunkProvider().getGeneratedChunks();
+			for (int x = chunkX - 1; x <= chunkX + 1; x++) {
+				for (int z = chunkZ - 1; z <= chunkZ + 1; z++) {
+					lastUse.put(ChunkPos.asLong(x, z), index);
+				}
+			}
+
+			long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			// the randoms the population uses (see GameRegistry.generateWorld())
+			long chunkSeed = (xSeed * chunkX + zSeed * chunkZ) ^ seed;
+			for (ITreasureWorldGenerator generator : Treasure.WORLD_GENERATORS.values()) {
+				random.setSeed(chunkSeed);
+				generator.generate(random, chunkX, chunkZ, world, null, world.getChunkProvider());
+			}
+			long populated = System.nanoTime();
+			GenerationScheduler.getInstance().tick(world);
+			DeferredPlacementQueue.getInstance().flushReady(world);
+			long end = System.nanoTime();
+			allocated += threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+			latencies[index] = populated - start;
+			workNanos += end - start;
+			cascadedChunks += world.getChunkProvider().getGeneratedChunks() - generatedChunks;
+
+			if (index % SWEEP_INTERVAL == SWEEP_INTERVAL - 1) {
+				unloadUnused(world, lastUse, index - CHUNK_WINDOW);
+			}
+		}
+		int generatedChunks = world.getChunkProvider().getGeneratedChunks();
+		long drainStart = System.nanoTime();
+		GenerationScheduler.getInstance().drain(world);
+		DeferredPlacementQueue.getInstance().flushReady(world);
+		workNanos += System.nanoTime() - drainStart;
+		cascadedChunks += world.getChunkProvider().getGeneratedChunks() - generatedChunks;
+
+		// the registry may hold reserved sites (and is bounded), the successes are the chests built
+		long chests = 0;
+		for (WorldGeneratorType type : CHEST_GENERATORS) {
+			chests += GenerationMetrics.getSuccesses(type.getValue());
+		}
+		return new Result(latencies, workNanos, allocated, world.getChunkProvider().getBlocksWritten(), chests, cascadedChunks);
+	}
+
+	/**
+	 * Resets the state a world load resets (see WorldEventHandler.onWorldLoad()).
+	 */
+	private void reset() {
+		for (ITreasureWorldGenerator generator : Treasure.WORLD_GENERATORS.values()) {
+			generator.init();
+		}
+		ChestRegistry.getInstance().clear();
+		OasisRegistry.getInstance().clear();
+		DeferredPlacementQueue.getInstance().clear();
+		GenerationScheduler.getInstance().clear();
+		SitePlan.clear();
+		GenerationMetrics.reset();
+	}
+
+	private static void unloadUnused(MemoryWorld world, Long2IntMap lastUse, int before) {
+		for (Long2IntMap.Entry entry : lastUse.long2IntEntrySet()) {
+			if (entry.getIntValue() < before) {
+				world.getChunkProvider().unload((int) entry.getLongKey(), (int) (entry.getLongKey() >> 32));
+			}
+		}
+		lastUse.values().removeIf(lastIndex -> lastIndex < before);
+	}
+
+	/**
+	 * A player exploring: a random walk of a chunk per step, turning now and then. A chunk is populated once its
+	 * +x, +z neighbours are loaded, as on a server.
+	 * @param seed
+	 * @param steps
+	 * @return the populated chunks, in order
+	 */
+	public static LongList explore(long seed, int steps) {
+		Random random = new Random(seed);
+		LongSet loaded = new LongOpenHashSet();
+		LongSet populated = new LongOpenHashSet();
+		LongList order = new LongArrayList();
+		int playerX = 0;
+		int playerZ = 0;
+		int direction = 0;
+		for (int step = 0; step < steps; step++) {
+			for (int x = playerX - VIEW_DISTANCE; x <= playerX + VIEW_DISTANCE; x++) {
+				for (int z = playerZ - VIEW_DISTANCE; z <= playerZ + VIEW_DISTANCE; z++) {
+					if (loaded.add(ChunkPos.asLong(x, z))) {
+						// the chunks this chunk may complete
+						for (int dx = -1; dx <= 0; dx++) {
+							for (int dz = -1; dz <= 0; dz++) {
+								populate(loaded, populated, order, x + dx, z + dz);
+							}
+						}
+					}
+				}
+			}
+			if (random.nextInt(8) == 0) {
+				direction = (direction + (random.nextBoolean() ? 1 : 3)) & 3;
+			}
+			playerX += direction == 0 ? 1 : direction == 2 ? -1 : 0;
+			playerZ += direction == 1 ? 1 : direction == 3 ? -1 : 0;
+		}
+		return order;
+	}
+
+	private static void populate(LongSet loaded, LongSet populated, LongList order, int chunkX, int chunkZ) {
+		long chunk = ChunkPos.asLong(chunkX, chunkZ);
+		if (!populated.contains(chunk) && loaded.contains(chunk) && loaded.contains(ChunkPos.asLong(chunkX + 1, chunkZ))
+				&& loaded.contains(ChunkPos.asLong(chunkX, chunkZ + 1)) && loaded.contains(ChunkPos.asLong(chunkX + 1, chunkZ + 1))) {
+			populated.add(chunk);
+			order.add(chunk);
+		}
+	}
+
+	private Biome getBiome(int x, int z) {
+		long cell = ChunkPos.asLong(x >> CELL_SHIFT, z >> CELL_SHIFT) * 0x9E3779B97F4A7C15L ^ seed;
+		return BIOMES[(int) ((cell ^ cell >>> 31) & Long.MAX_VALUE) % BIOMES.length];
+	}
+
+	private IntBinaryOperator createHeightFunction() {
+		return (x, z) -> {
+			Biome biome = getBiome(x, z);
+			int base = biome == Biomes.DEEP_OCEAN ? 30 : biome == Biomes.OCEAN ? 45 : biome == Biomes.SWAMPLAND ? 62 : 66;
+			return base + (int) (4 * Math.sin(x / 23.0) * Math.cos(z / 29.0));
+		};
+	}
+
+	/**
+	 * The measures of a replay.
+	 */
+	public static class Result {
+		private final int chunks;
+		private final long p50;
+		private final long p99;
+		private final long max;
+		private final double chunksPerSecond;
+		private final long allocatedPerChunk;
+		private final long blocksWritten;
+		private final long chests;
+		private final int cascadedChunks;
+
+		Result(long[] latencies, long workNanos, long allocated, long blocksWritten, long chests, int cascadedChunks) {
+			long[] sorted = latencies.clone();
+			Arrays.sort(sorted);
+			this.chunks = sorted.length;
+			this.p50 = percentile(sorted, 0.5);
+			this.p99 = percentile(sorted, 0.99);
+			this.max = chunks == 0 ? 0 : sorted[chunks - 1];
+			this.chunksPerSecond = workNanos == 0 ? 0 : chunks * NANOS_PER_SECOND / workNanos;
+			this.allocatedPerChunk = chunks == 0 ? 0 : allocated / chunks;
+			this.blocksWritten = blocksWritten;
+			this.chests = chests;
+			this.cascadedChunks = cascadedChunks;
+		}
+
+		private static long percentile(long[] sorted, double percentile) {
+			return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+		}
+
+		public String[] toLines() {
+			return new String[] {
+					String.format(Locale.ROOT, "chunks=%d, chunks/s=%.1f", chunks, chunksPerSecond),
+					String.format(Locale.ROOT, "population: p50=%dus, p99=%dus, max=%dus", p50 / NANOS_PER_MICRO, p99 / NANOS_PER_MICRO, max / NANOS_PER_MICRO),
+					String.format(Locale.ROOT, "allocated/chunk=%d bytes, blocks written=%d (%.1f/chunk), chests=%d, cascaded chunks=%d",
+							allocatedPerChunk, blocksWritten, chunks == 0 ? 0.0 : (double) blocksWritten / chunks, chests, cascadedChunks)
+			};
+		}
+
+		public String toJson() {
+			return String.format(Locale.ROOT, "{\"chunks\": %d, \"chunksPerSecond\": %.1f, \"p50Nanos\": %d, \"p99Nanos\": %d, \"maxNanos\": %d, "
+					+ "\"allocatedBytesPerChunk\": %d, \"blocksWritten\": %d, \"chests\": %d, \"cascadedChunks\": %d}",
+					chunks, chunksPerSecond, p50, p99, max, allocatedPerChunk, blocksWritten, chests, cascadedChunks);
+		}
+	}
+}
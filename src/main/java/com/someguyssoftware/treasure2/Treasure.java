@@ -33,6 +33,10 @@ import com.someguyssoftware.treasure2.capability.IKeyRingCapability;
 import com.someguyssoftware.treasure2.capability.KeyRingCapability;
 import com.someguyssoftware.treasure2.capability.KeyRingStorage;
 import com.someguyssoftware.treasure2.client.gui.GuiHandler;
+import com.someguyssoftware.treasure2.command.MetricsCommand;
+import com.someguyssoftware.treasure2.command.PlanSitesCommand;
+import com.someguyssoftware.treasure2.command.RetroGenCommand;
+import com.someguyssoftware.treasure2.command.TraceCommand;
 import com.someguyssoftware.treasure2.command.SpawnChestCommand;
 import com.someguyssoftware.treasure2.command.SpawnOasisCommand;
 import com.someguyssoftware.treasure2.command.SpawnPitCommand;
@@ -237,6 +241,10 @@ public class Treasure extends AbstractMod {
 		event.registerServerCommand(new SpawnWitherTreeCommand());
 		event.registerServerCommand(new SpawnRuinsCommand());
 		event.registerServerCommand(new SpawnOasisCommand());
+		event.registerServerCommand(new MetricsCommand());
+		event.registerServerCommand(new PlanSitesCommand());
+		event.registerServerCommand(new RetroGenCommand());
+		event.registerServerCommand(new TraceCommand());
 	}
 
 	/**
@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.biome;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.someguyssoftware.gottschcore.biome.BiomeTypeHolder;
+
+import net.minecraft.world.biome.Biome;
+import net.minecraftforge.fml.common.registry.ForgeRegistries;
+
+/**
+ * A precompiled table of the biomes a generator is allowed to spawn in, indexed by biome id.
+ * The white/black lists and biome dictionary checks only depend on the biome and the config, so they are
+ * evaluated once for every registered biome when the table is compiled, and the per-chunk check is a single bit test.
+ */
+public class BiomeEligibility {
+	private final BitSet allowed;
+
+	/**
+	 *
+	 * @param allowed
+	 */
+	private BiomeEligibility(BitSet allowed) {
+		this.allowed = allowed;
+	}
+
+	/**
+	 * Evaluates the predicate against all the registered biomes.
+	 * @param predicate
+	 * @return
+	 */
+	public static BiomeEligibility compile(Predicate<Biome> predicate) {
+		BitSet allowed = new BitSet(256);
+		for (Biome biome : ForgeRegistries.BIOMES.getValuesCollection()) {
+			int biomeID = Biome.getIdForBiome(biome);
+			if (biomeID >= 0 && predicate.test(biome)) {
+				allowed.set(biomeID);
+			}
+		}
+		return new BiomeEligibility(allowed);
+	}
+
+	/**
+	 * Compiles the biome and biome type white/black lists of a config.
+	 * @param whiteList
+	 * @param blackList
+	 * @param typeWhiteList
+	 * @param typeBlackList
+	 * @return
+	 */
+	public static BiomeEligibility compile(List<Biome> whiteList, List<Biome> blackList,
+			List<BiomeTypeHolder> typeWhiteList, List<BiomeTypeHolder> typeBlackList) {
+		return compile(biome -> TreasureBiomeHelper.isBiomeAllowed(biome, whiteList, blackList, typeWhiteList, typeBlackList));
+	}
+
+	/**
+	 *
+	 * @param biome
+	 * @return
+	 */
+	public boolean isAllowed(Biome biome) {
+		return isAllowed(Biome.getIdForBiome(biome));
+	}
+
+	/**
+	 *
+	 * @param biomeID
+	 * @return
+	 */
+	public boolean isAllowed(int biomeID) {
+		return biomeID >= 0 && allowed.get(biomeID);
+	}
+
+	/**
+	 *
+	 * @return the number of allowed biomes
+	 */
+	public int size() {
+		return allowed.cardinality();
+	}
+}
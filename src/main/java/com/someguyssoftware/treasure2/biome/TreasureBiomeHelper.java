@@ -7,8 +7,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import com.someguyssoftware.gottschcore.biome.BiomeHelper;
+import com.someguyssoftware.gottschcore.biome.BiomeTypeHolder;
+
+import net.minecraft.init.Biomes;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.world.biome.Biome;
+import net.minecraftforge.common.BiomeDictionary;
 import net.minecraftforge.fml.common.registry.ForgeRegistries;
 
 /**
@@ -85,6 +90,38 @@ public class TreasureBiomeHelper {
     	// neither white list nor black list have values = all biomes are valid
     	return Result.OK;
 	}
+
+	/**
+	 * Combines the biome white/black list check with the biome type white/black list check.
+	 * A white listed biome is always allowed, a black listed biome never is, otherwise the biome types decide.
+	 * @param biome
+	 * @param whiteList
+	 * @param blackList
+	 * @param typeWhiteList
+	 * @param typeBlackList
+	 * @return
+	 */
+	public static boolean isBiomeAllowed(Biome biome, List<Biome> whiteList, List<Biome> blackList,
+			List<BiomeTypeHolder> typeWhiteList, List<BiomeTypeHolder> typeBlackList) {
+		Result result = isBiomeAllowed(biome, whiteList, blackList);
+		if (result == Result.BLACK_LISTED) {
+			return false;
+		}
+		else if (result == Result.OK) {
+			return BiomeHelper.isBiomeAllowed(biome, typeWhiteList, typeBlackList);
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param biome
+	 * @return
+	 */
+	public static boolean isOcean(Biome biome) {
+		return biome == Biomes.OCEAN || biome == Biomes.DEEP_OCEAN || biome == Biomes.FROZEN_OCEAN ||
+				BiomeDictionary.hasType(biome, BiomeDictionary.Type.OCEAN);
+	}
 	
 /*
  Ocean	ocean	0
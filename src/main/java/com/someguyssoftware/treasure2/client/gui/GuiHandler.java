@@ -5,11 +5,11 @@ package com.someguyssoftware.treasure2.client.gui;
 
 import static com.someguyssoftware.treasure2.Treasure.logger;
 
-import java.util.Random;
 import java.util.function.Supplier;
 
 import com.someguyssoftware.gottschcore.loot.LootContext;
 import com.someguyssoftware.gottschcore.loot.LootTable;
+import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.client.gui.inventory.CompressorChestGui;
 import com.someguyssoftware.treasure2.client.gui.inventory.KeyRingGui;
@@ -33,6 +33,7 @@ import com.someguyssoftware.treasure2.inventory.WitherChestContainer;
 import com.someguyssoftware.treasure2.item.IPouch;
 import com.someguyssoftware.treasure2.item.KeyRingItem;
 import com.someguyssoftware.treasure2.item.PouchItem;
+import com.someguyssoftware.treasure2.random.RandomSource;
 import com.someguyssoftware.treasure2.tileentity.ITreasureChestTileEntity;
 
 import net.minecraft.client.gui.inventory.GuiContainer;
@@ -87,8 +88,8 @@ public class GuiHandler implements IGuiHandler {
                 IChestGenerator chestGenerator = chestTileEntity.getGenerationContext().getChestGeneratorType().getChestGenerator();
                 logger.debug("chest gen  -> {}", chestTileEntity.getGenerationContext().getChestGeneratorType().getChestGenerator().getClass().getSimpleName());
                 
-                // fill the chest with loot
-                chestGenerator.fillChest(world, new Random(), tileEntity, chestTileEntity.getGenerationContext().getLootRarity(), player);
+                // fill the chest with loot, from the chest's own stream so the seed and the coords reproduce it
+                chestGenerator.fillChest(world, RandomSource.forChest(world.getSeed(), new Coords(x, y, z)), tileEntity, chestTileEntity.getGenerationContext().getLootRarity(), player);
 
 			}
 		}
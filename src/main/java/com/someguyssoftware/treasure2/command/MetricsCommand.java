@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.command;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+
+/**
+ * Reports the world gen metrics, writes them to the CSV file or resets them.
+ *
+ */
+public class MetricsCommand extends CommandBase {
+	private static final String DUMP_ARG = "dump";
+	private static final String RESET_ARG = "reset";
+
+	@Override
+	public String getName() {
+		return "t2-metrics";
+	}
+
+	@Override
+	public String getUsage(ICommandSender var1) {
+		return "/t2-metrics [dump | reset]: reports the Treasure! world gen metrics, writes them to the csv file or resets them";
+	}
+
+	@Override
+	public void execute(MinecraftServer server, ICommandSender commandSender, String[] args) {
+		try {
+			if (args.length > 0 && args[0].equalsIgnoreCase(DUMP_ARG)) {
+				File file = GenerationMetrics.getCsvFile(server.getEntityWorld());
+				GenerationMetrics.writeCsv(file);
+				commandSender.sendMessage(new TextComponentString("World gen metrics written to " + file.getPath()));
+			}
+			else if (args.length > 0 && args[0].equalsIgnoreCase(RESET_ARG)) {
+				GenerationMetrics.reset();
+				commandSender.sendMessage(new TextComponentString("World gen metrics reset"));
+			}
+			else {
+				List<String> lines = GenerationMetrics.report();
+				if (lines.isEmpty()) {
+					commandSender.sendMessage(new TextComponentString("No world gen metrics recorded"));
+				}
+				for (String line : lines) {
+					commandSender.sendMessage(new TextComponentString(line));
+				}
+			}
+		}
+		catch(Exception e) {
+			Treasure.logger.error("Error reporting Treasure! metrics:", e);
+		}
+	}
+
+    /**
+     * Get a list of options for when the user presses the TAB key
+     */
+	@Override
+    public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos targetPos) {
+		if (args.length == 1) {
+			return getListOfStringsMatchingLastWord(args, DUMP_ARG, RESET_ARG);
+		}
+		return Collections.emptyList();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.command;
+
+import java.io.File;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.worldgen.SitePlan;
+import com.someguyssoftware.treasure2.worldgen.SitePlanner;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.World;
+import net.minecraft.world.biome.BiomeProvider;
+
+/**
+ * Plans the Treasure! sites of a region of the sender's dimension (see SitePlanner) and writes the plan file.
+ * The region should be planned before its chunks are generated - the plan only applies to the chunks populated afterwards.
+ *
+ */
+public class PlanSitesCommand extends CommandBase {
+
+	@Override
+	public String getName() {
+		return "t2-plan-sites";
+	}
+
+	@Override
+	public String getUsage(ICommandSender var1) {
+		return "/t2-plan-sites <min chunk x> <min chunk z> <max chunk x> <max chunk z>: plans the Treasure! sites of the region";
+	}
+
+	@Override
+	public void execute(MinecraftServer server, ICommandSender commandSender, String[] args) {
+		if (args.length < 4) {
+			commandSender.sendMessage(new TextComponentString(getUsage(commandSender)));
+			return;
+		}
+		try {
+			int minChunkX = Integer.parseInt(args[0]);
+			int minChunkZ = Integer.parseInt(args[1]);
+			int maxChunkX = Integer.parseInt(args[2]);
+			int maxChunkZ = Integer.parseInt(args[3]);
+
+			World world = commandSender.getEntityWorld();
+			int dimension = world.provider.getDimension();
+			long seed = world.getSeed();
+			File file = SitePlan.getFile(world, dimension);
+
+			commandSender.sendMessage(new TextComponentString("Planning the Treasure! sites..."));
+			if (dimension != 0) {
+				// the dimension's biome provider is shared with the world (and its caches are not thread-safe), so it's sampled on the server thread
+				SitePlan plan = SitePlanner.plan(seed, dimension, world.getBiomeProvider(), minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+				plan.write(file);
+				SitePlan.put(plan);
+				commandSender.sendMessage(new TextComponentString(plan.size() + " sites planned to " + file.getPath()));
+				return;
+			}
+
+			// the overworld gets its own biome provider, of the world's type, so it can be sampled off the server thread
+			BiomeProvider biomeProvider = world.getWorldType().getBiomeProvider(world);
+			Thread thread = new Thread(() -> {
+				try {
+					SitePlan plan = SitePlanner.plan(seed, dimension, biomeProvider, minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+					plan.write(file);
+					server.addScheduledTask(() -> {
+						SitePlan.put(plan);
+						commandSender.sendMessage(new TextComponentString(plan.size() + " sites planned to " + file.getPath()));
+					});
+				}
+				catch(Exception e) {
+					Treasure.logger.error("Error planning the Treasure! sites:", e);
+				}
+			}, "Treasure site planner");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		catch(Exception e) {
+			Treasure.logger.error("Error planning the Treasure! sites:", e);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.command;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.worldgen.RetroGenJob;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.WorldServer;
+
+/**
+ * Starts, resumes, restarts or stops the retro-gen of the sender's dimension, or reports its progress.
+ *
+ */
+public class RetroGenCommand extends CommandBase {
+	private static final String START_ARG = "start";
+	private static final String RESTART_ARG = "restart";
+	private static final String STOP_ARG = "stop";
+	private static final String STATUS_ARG = "status";
+	private static final String UNMARKED_ARG = "unmarked";
+
+	@Override
+	public String getName() {
+		return "t2-retrogen";
+	}
+
+	@Override
+	public String getUsage(ICommandSender var1) {
+		return "/t2-retrogen [start | restart | stop | status] [unmarked]: generates Treasure! into the existing chunks of the dimension"
+				+ " (unmarked: incl. the chunks saved before the generated marker, for a world that never had Treasure!)";
+	}
+
+	@Override
+	public void execute(MinecraftServer server, ICommandSender commandSender, String[] args) {
+		try {
+			WorldServer world = (WorldServer) commandSender.getEntityWorld();
+			RetroGenJob job = RetroGenJob.get(world);
+			if (args.length > 0 && (args[0].equalsIgnoreCase(START_ARG) || args[0].equalsIgnoreCase(RESTART_ARG))) {
+				job = RetroGenJob.start(world, args[0].equalsIgnoreCase(RESTART_ARG), args.length > 1 && args[1].equalsIgnoreCase(UNMARKED_ARG));
+			}
+			else if (args.length > 0 && args[0].equalsIgnoreCase(STOP_ARG) && job != null) {
+				job.stop(world);
+			}
+			commandSender.sendMessage(new TextComponentString(job == null ? "No retro-gen in this dimension" : job.getStatus()));
+		}
+		catch(Exception e) {
+			Treasure.logger.error("Error running the Treasure! retro-gen:", e);
+		}
+	}
+
+    /**
+     * Get a list of options for when the user presses the TAB key
+     */
+	@Override
+    public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos targetPos) {
+		if (args.length == 1) {
+			return getListOfStringsMatchingLastWord(args, START_ARG, RESTART_ARG, STOP_ARG, STATUS_ARG);
+		}
+		if (args.length == 2 && (args[0].equalsIgnoreCase(START_ARG) || args[0].equalsIgnoreCase(RESTART_ARG))) {
+			return getListOfStringsMatchingLastWord(args, UNMARKED_ARG);
+		}
+		return Collections.emptyList();
+    }
+}
@@ -195,7 +195,7 @@ public class SpawnChestCommand extends CommandBase {
 			SurfaceChestWorldGenerator chestGens = (SurfaceChestWorldGenerator) Treasure.WORLD_GENERATORS
 					.get(WorldGeneratorType.SURFACE_CHEST);
 				// get the rarity chest generator
-				gen = chestGens.getChestGenMap().get(rarity).next();
+				gen = chestGens.getChestGenMap().get(rarity).next(random);
 			}
 			
 			// select the chest
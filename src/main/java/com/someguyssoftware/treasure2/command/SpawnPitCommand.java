@@ -85,7 +85,7 @@ public class SpawnPitCommand extends CommandBase {
 			GeneratorResult<ChestGeneratorData> result = SurfaceChestWorldGenerator.generatePit(world, random, rarity, new Coords(x, y, z), TreasureConfig.CHESTS.surfaceChests.configMap.get(rarity));
 			if (result.isSuccess()) {
 				SurfaceChestWorldGenerator chestGens = (SurfaceChestWorldGenerator) Treasure.WORLD_GENERATORS.get(WorldGeneratorType.SURFACE_CHEST);
-				IChestGenerator gen = chestGens.getChestGenMap().get(rarity).next();
+				IChestGenerator gen = chestGens.getChestGenMap().get(rarity).next(random);
 				ICoords chestCoords = result.getData().getChestContext().getCoords();
 				if (chestCoords != null) {
 					GeneratorResult<ChestGeneratorData> chestResult = gen.generate(world, random, chestCoords, rarity, result.getData().getChestContext().getState());
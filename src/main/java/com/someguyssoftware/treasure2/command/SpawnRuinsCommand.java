@@ -152,7 +152,7 @@ public class SpawnRuinsCommand extends CommandBase {
 			GeneratorResult<ChestGeneratorData> result = worldGen.generateSurfaceRuins(world, random,coords, holder, ruleSet, null);
 			Treasure.logger.debug("result from t2-ruins -> {}", result);
 			if (result.isSuccess() && result.getData().getChestContext().getCoords() != null) {
-				IChestGenerator chestGen = worldGen.getChestGenMap().get(rarity).next();
+				IChestGenerator chestGen = worldGen.getChestGenMap().get(rarity).next(random);
 				ICoords chestCoords = result.getData().getChestContext().getCoords();
 				Treasure.logger.debug("chestCoords -> {}", chestCoords);
 				// move the chest coords to the first dry land beneath it.
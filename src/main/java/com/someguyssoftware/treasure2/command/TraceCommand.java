@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.command;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.worldgen.PopulationTrace;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.World;
+
+/**
+ * Starts or stops recording the chunk populations of the sender's dimension (see PopulationTrace).
+ *
+ */
+public class TraceCommand extends CommandBase {
+	private static final String START_ARG = "start";
+	private static final String STOP_ARG = "stop";
+
+	@Override
+	public String getName() {
+		return "t2-trace";
+	}
+
+	@Override
+	public String getUsage(ICommandSender var1) {
+		return "/t2-trace [start | stop]: records the chunk populations of the dimension for the world gen replay";
+	}
+
+	@Override
+	public void execute(MinecraftServer server, ICommandSender commandSender, String[] args) {
+		try {
+			World world = commandSender.getEntityWorld();
+			PopulationTrace trace = PopulationTrace.get(world);
+			if (args.length > 0 && args[0].equalsIgnoreCase(START_ARG)) {
+				trace = PopulationTrace.start(world);
+				commandSender.sendMessage(new TextComponentString("Recording the chunk populations to " + trace.getFile().getPath()));
+			}
+			else if (args.length > 0 && args[0].equalsIgnoreCase(STOP_ARG) && trace != null) {
+				PopulationTrace.stop(world);
+				commandSender.sendMessage(new TextComponentString(trace.size() + " chunk populations recorded to " + trace.getFile().getPath()));
+			}
+			else {
+				commandSender.sendMessage(new TextComponentString(trace == null ? "No recording in this dimension"
+						: "Recorded " + trace.size() + " chunk populations to " + trace.getFile().getPath()));
+			}
+		}
+		catch(Exception e) {
+			Treasure.logger.error("Error recording the chunk populations:", e);
+		}
+	}
+
+    /**
+     * Get a list of options for when the user presses the TAB key
+     */
+	@Override
+    public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos targetPos) {
+		if (args.length == 1) {
+			return getListOfStringsMatchingLastWord(args, START_ARG, STOP_ARG);
+		}
+		return Collections.emptyList();
+    }
+}
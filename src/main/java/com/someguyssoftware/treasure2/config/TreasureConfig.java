@@ -976,6 +976,42 @@ public class TreasureConfig implements IConfig, ILoggerConfig {
 			@Ignore
 			public List<Integer> dimensionsWhiteList = new ArrayList<>(3);
 
+			@Comment({ "The time (in milliseconds) per world tick spent building the queued structures (pits, ruins, wither trees, oases).",
+			"The sites are decided during chunk population and the structures are built on the following ticks.",
+			"Set to 0 to build the structures during chunk population." })
+			@Name("06. Generation tick budget (ms):")
+			@RangeInt(min = 0, max = 50)
+			public int generationTickBudget = 5;
+
+			@Comment({ "The interval (in minutes) at which the world gen metrics are appended to treasure2-metrics.csv in the world folder.",
+			"Set to 0 to disable. The metrics can also be written with the t2-metrics command." })
+			@Name("07. Metrics csv interval (minutes):")
+			@RangeInt(min = 0, max = 1440)
+			public int metricsCsvInterval = 0;
+
+			@Comment({ "Enable/Disable the grid placement of chests, pits, wells, wither trees, gem ores and oases.",
+			"If enabled, each placement is decided from the world seed and the chunk only (a jittered grid sized from the chunks per x properties),",
+			"so it doesn't depend on the order the chunks are generated in. The min. distance of a grid is kept by its separation, not by a check",
+			"against the chests already generated. If disabled, the chunk counters (chunks since last x) and the distance checks are used." })
+			@Name("08. Enable grid placement:")
+			public boolean enableGridPlacement = false;
+
+			@Comment({ "The time (in milliseconds) per world tick spent generating Treasure! into existing chunks (see the t2-retrogen command)." })
+			@Name("09. Retro-gen tick budget (ms):")
+			@RangeInt(min = 1, max = 50)
+			public int retroGenTickBudget = 10;
+
+			@Comment({ "The max. size (in blocks) of the loaded structure templates. The templates are loaded on first use",
+			"and the least recently used templates are unloaded when the loaded templates exceed this size.",
+			"Set to 0 to keep every loaded template." })
+			@Name("10. Template cache size (blocks):")
+			@RangeInt(min = 0)
+			public int templateCacheSize = 500000;
+
+			@Comment({ "Enable/Disable loading the templates of the biomes around the players ahead of their use, on a background thread." })
+			@Name("11. Enable template prefetch:")
+			public boolean enableTemplatePrefetch = false;
+
 			/**
 			 * 
 			 */
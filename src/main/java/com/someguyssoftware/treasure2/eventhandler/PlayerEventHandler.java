@@ -6,7 +6,6 @@ package com.someguyssoftware.treasure2.eventhandler;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Random;
 
 import com.someguyssoftware.gottschcore.mod.IMod;
 import com.someguyssoftware.gottschcore.positional.Coords;
@@ -333,7 +332,7 @@ public class PlayerEventHandler {
             
             // Treasure.logger.debug("is charm {} updatable -> {}", charm.getName(), isCharmUpdatable);
 			if (isCharmUpdatable && 
-					charmInstance.getCharm().update(player.world, new Random(), new Coords((int)player.posX, (int)player.posY, (int)player.posZ), player, event, charmInstance.getData())) {
+					charmInstance.getCharm().update(player.world, player.getRNG(), new Coords((int)player.posX, (int)player.posY, (int)player.posZ), player, event, charmInstance.getData())) {
 				// send state message to client
 				CharmMessageToClient message = new CharmMessageToClient(player.getName(), charmInstance, context.hand, context.slot);
 //				Treasure.logger.debug("Message to client -> {}", message);
@@ -10,11 +10,20 @@ import java.util.Map.Entry;
 import com.someguyssoftware.gottschcore.mod.IMod;
 import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.config.TreasureConfig;
 import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.loot.TreasureLootTableRegistry;
 import com.someguyssoftware.treasure2.persistence.GenDataPersistence;
 import com.someguyssoftware.treasure2.registry.ChestRegistry;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics;
+import com.someguyssoftware.treasure2.worldgen.GenerationScheduler;
+import com.someguyssoftware.treasure2.worldgen.GeneratedChunks;
 import com.someguyssoftware.treasure2.worldgen.ITreasureWorldGenerator;
+import com.someguyssoftware.treasure2.worldgen.PopulationTrace;
+import com.someguyssoftware.treasure2.worldgen.RetroGenJob;
+import com.someguyssoftware.treasure2.worldgen.SitePlan;
 
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.world.WorldServer;
@@ -26,15 +35,22 @@ import net.minecraft.world.storage.loot.LootTableList;
 import net.minecraft.world.storage.loot.RandomValueRange;
 import net.minecraft.world.storage.loot.conditions.LootCondition;
 import net.minecraftforge.event.LootTableLoadEvent;
+import net.minecraftforge.event.terraingen.PopulateChunkEvent;
+import net.minecraftforge.event.world.ChunkDataEvent;
+import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.eventhandler.EventPriority;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.relauncher.Side;
 
 /**
  * @author Mark Gottschling on Jun 29, 2018
  *
  */
 public class WorldEventHandler {
+	private static final long TICKS_PER_MINUTE = 1200L;
+	private static final long TEMPLATE_PREFETCH_INTERVAL = 100L;
 
 	// reference to the mod.
 	private IMod mod;
@@ -78,13 +94,99 @@ public class WorldEventHandler {
 			/*
 			 * un-load the chest registry
 			 */
-			Treasure.logger.debug("Chest registry size BEFORE cleaning -> {}", ChestRegistry.getInstance().getValues().size());
+			Treasure.logger.debug("Chest registry size BEFORE cleaning -> {}", ChestRegistry.getInstance().size());
 			ChestRegistry.getInstance().clear();	
-			Treasure.logger.debug("Chest registry size AFTER cleaning -> {}", ChestRegistry.getInstance().getValues().size());
+			DeferredPlacementQueue.getInstance().clear();
+			GenerationScheduler.getInstance().clear();
+			SitePlan.clear();
+			RetroGenJob.clear();
+			PopulationTrace.clear();
+			Treasure.logger.debug("Chest registry size AFTER cleaning -> {}", ChestRegistry.getInstance().size());
 
 			GenDataPersistence.get(world);			
-			Treasure.logger.debug("Chest registry size after world event load -> {}", ChestRegistry.getInstance().getValues().size());
+			Treasure.logger.debug("Chest registry size after world event load -> {}", ChestRegistry.getInstance().size());
 		}	
+
+		// load the site plan and the retro-gen checkpoint of the dimension (if any)
+		if (WorldInfo.isServerSide(event.getWorld())) {
+			SitePlan.load(event.getWorld());
+			RetroGenJob.load(event.getWorld());
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event) {
+		// release the surface caches of the world left open on this thread
+		SurfaceCache.clear(event.getWorld());
+		DeferredPlacementQueue.getInstance().endAll(event.getWorld());
+		if (WorldInfo.isServerSide(event.getWorld())) {
+			PopulationTrace.stop(event.getWorld());
+			GeneratedChunks.clear(event.getWorld());
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldSave(WorldEvent.Save event) {
+		if (WorldInfo.isServerSide(event.getWorld())) {
+			RetroGenJob.checkpoint(event.getWorld());
+			PopulationTrace.flush(event.getWorld());
+		}
+	}
+
+	@SubscribeEvent
+	public void onChunkLoad(ChunkEvent.Load event) {
+		if (WorldInfo.isServerSide(event.getWorld())) {
+			// placements parked for an already populated chunk are flushed on the next tick
+			DeferredPlacementQueue.getInstance().onChunkLoad(event.getWorld(), event.getChunk());
+			RetroGenJob.onChunkLoad(event.getWorld(), event.getChunk());
+		}
+	}
+
+	@SubscribeEvent
+	public void onChunkDataLoad(ChunkDataEvent.Load event) {
+		if (WorldInfo.isServerSide(event.getWorld())) {
+			GeneratedChunks.onLoad(event.getWorld(), event.getChunk(), event.getData());
+		}
+	}
+
+	@SubscribeEvent
+	public void onChunkDataSave(ChunkDataEvent.Save event) {
+		if (WorldInfo.isServerSide(event.getWorld())) {
+			GeneratedChunks.onSave(event.getWorld(), event.getChunk(), event.getData());
+		}
+	}
+
+	@SubscribeEvent
+	public void onPopulateChunk(PopulateChunkEvent.Post event) {
+		if (WorldInfo.isServerSide(event.getWorld())) {
+			// the chunks populated during a retro-gen already have Treasure!
+			GeneratedChunks.mark(event.getWorld(), event.getChunkX(), event.getChunkZ());
+			RetroGenJob.markPopulated(event.getWorld(), event.getChunkX(), event.getChunkZ());
+			PopulationTrace.record(event.getWorld(), event.getChunkX(), event.getChunkZ());
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldTick(TickEvent.WorldTickEvent event) {
+		if (event.phase == TickEvent.Phase.END && event.side == Side.SERVER) {
+			GenerationScheduler.getInstance().tick(event.world);
+			DeferredPlacementQueue.getInstance().flushReady(event.world);
+			RetroGenJob.tick((WorldServer) event.world);
+
+			// the metrics are global, so they are written on the overworld's ticks only
+			int interval = TreasureConfig.WORLD_GEN.getGeneralProperties().metricsCsvInterval;
+			if (interval > 0 && event.world.provider.getDimension() == 0
+					&& event.world.getTotalWorldTime() % (interval * TICKS_PER_MINUTE) == 0) {
+				GenerationMetrics.writeCsv(GenerationMetrics.getCsvFile(event.world));
+			}
+
+			if (TreasureConfig.WORLD_GEN.getGeneralProperties().enableTemplatePrefetch && event.world.provider.getDimension() == 0) {
+				if (event.world.getTotalWorldTime() % TEMPLATE_PREFETCH_INTERVAL == 0) {
+					Treasure.TEMPLATE_MANAGER.prefetch(event.world);
+				}
+				Treasure.TEMPLATE_MANAGER.loadPrefetched();
+			}
+		}
 	}
 
 	@SubscribeEvent
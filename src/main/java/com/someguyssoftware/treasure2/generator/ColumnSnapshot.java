@@ -0,0 +1,206 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.gottschcore.world.WorldInfo;
+import com.someguyssoftware.treasure2.world.gen.structure.TemplateTransforms;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+/**
+ * The columns that a structure plan reads (the surfaces and the blocks around them) and the transforms of the
+ * structure's template, captured on the server thread. A plan reads only the snapshot, so it can be computed off
+ * the server thread; the world is accessed again when the plan is applied.
+ * <p>
+ * The snapshot is captured by footprint (see addFootprint()): the surface of the footprint's corner column is searched
+ * down from the footprint's coords, and the blocks of the footprint are read from a few blocks below that surface to a
+ * few above it, enough for the base checks of the ruin generators. The snapshot must not be changed once it is handed
+ * to a plan.
+ * </p>
+ */
+public class ColumnSnapshot {
+	// the layers of blocks captured below and above the surface of a footprint
+	private static final int DEPTH_BELOW = 4;
+	private static final int HEIGHT_ABOVE = 2;
+
+	public enum SurfaceType {
+		DRY_LAND,
+		OCEAN_FLOOR
+	}
+
+	private final SurfaceType surfaceType;
+	private final TemplateTransforms transforms;
+
+	// the surface coords keyed by column (x, z)
+	private final Long2ObjectMap<ICoords> surfaces = new Long2ObjectOpenHashMap<>();
+	private final List<Footprint> footprints = new ArrayList<>(4);
+
+	/**
+	 *
+	 * @param surfaceType the surface searched for the footprints
+	 * @param transforms the transforms of the loaded template
+	 */
+	public ColumnSnapshot(SurfaceType surfaceType, TemplateTransforms transforms) {
+		this.surfaceType = surfaceType;
+		this.transforms = transforms;
+	}
+
+	/**
+	 * Captures the surface of the coords' column and the blocks of the area around it. Call on the server thread.
+	 * @param world
+	 * @param coords the min corner of the area, the surface is searched down from its y
+	 * @param width
+	 * @param depth
+	 * @return
+	 */
+	public ColumnSnapshot addFootprint(World world, ICoords coords, int width, int depth) {
+		long key = ChunkPos.asLong(coords.getX(), coords.getZ());
+		ICoords surfaceCoords = surfaces.get(key);
+		if (surfaceCoords == null) {
+			surfaceCoords = surfaceType == SurfaceType.DRY_LAND ? SurfaceCache.getDryLandSurfaceCoords(world, coords)
+					: WorldInfo.getOceanFloorSurfaceCoords(world, coords);
+			surfaces.put(key, surfaceCoords);
+		}
+		if (surfaceCoords == WorldInfo.EMPTY_COORDS || !WorldInfo.isValidY(surfaceCoords)) {
+			return this;
+		}
+
+		Footprint footprint = new Footprint(coords.getX(), surfaceCoords.getY() - DEPTH_BELOW, coords.getZ(),
+				width, DEPTH_BELOW + HEIGHT_ABOVE + 1, depth);
+		BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		for (int y = 0; y < footprint.height; y++) {
+			for (int z = 0; z < depth; z++) {
+				for (int x = 0; x < width; x++) {
+					pos.setPos(footprint.x + x, footprint.y + y, footprint.z + z);
+					footprint.states[footprint.index(x, y, z)] = world.getBlockState(pos);
+				}
+			}
+		}
+		footprints.add(footprint);
+		return this;
+	}
+
+	/**
+	 *
+	 * @param coords
+	 * @return the surface captured for the coords' column, or WorldInfo.EMPTY_COORDS
+	 */
+	public ICoords getSurfaceCoords(ICoords coords) {
+		ICoords surfaceCoords = surfaces.get(ChunkPos.asLong(coords.getX(), coords.getZ()));
+		return surfaceCoords == null ? WorldInfo.EMPTY_COORDS : surfaceCoords;
+	}
+
+	/**
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return the captured block state, or null if the block wasn't captured
+	 */
+	public IBlockState getBlockState(int x, int y, int z) {
+		for (Footprint footprint : footprints) {
+			if (footprint.contains(x, y, z)) {
+				return footprint.states[footprint.index(x - footprint.x, y - footprint.y, z - footprint.z)];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The snapshot's WorldInfo.isSolidBase(): the percent of solid blocks in the layer below the coords.
+	 * The blocks that weren't captured are not solid.
+	 * @param coords
+	 * @param width
+	 * @param depth
+	 * @param percentRequired
+	 * @return
+	 */
+	public boolean isSolidBase(ICoords coords, int width, int depth, double percentRequired) {
+		int solid = 0;
+		for (int x = 0; x < width; x++) {
+			for (int z = 0; z < depth; z++) {
+				IBlockState state = getBlockState(coords.getX() + x, coords.getY() - 1, coords.getZ() + z);
+				if (state != null && state.getMaterial().isSolid()) {
+					solid++;
+				}
+			}
+		}
+		return isPercentMet(solid, width * depth, percentRequired);
+	}
+
+	/**
+	 * The snapshot's WorldInfo.isAirBase(): the percent of air (or replaceable) blocks in the layer of the coords.
+	 * The blocks that weren't captured are not air.
+	 * @param coords
+	 * @param width
+	 * @param depth
+	 * @param percentRequired
+	 * @return
+	 */
+	public boolean isAirBase(ICoords coords, int width, int depth, double percentRequired) {
+		int air = 0;
+		for (int x = 0; x < width; x++) {
+			for (int z = 0; z < depth; z++) {
+				IBlockState state = getBlockState(coords.getX() + x, coords.getY(), coords.getZ() + z);
+				if (state != null && (state.getMaterial() == Material.AIR || state.getMaterial().isReplaceable())) {
+					air++;
+				}
+			}
+		}
+		return isPercentMet(air, width * depth, percentRequired);
+	}
+
+	private static boolean isPercentMet(int count, int size, double percentRequired) {
+		return size > 0 && count * 100D / size >= percentRequired;
+	}
+
+	/**
+	 *
+	 * @return the transforms of the template, loaded on the server thread
+	 */
+	public TemplateTransforms getTransforms() {
+		return transforms;
+	}
+
+	/*
+	 * The block states of a box, indexed by x, then z, then y.
+	 */
+	private static class Footprint {
+		final int x;
+		final int y;
+		final int z;
+		final int width;
+		final int height;
+		final int depth;
+		final IBlockState[] states;
+
+		Footprint(int x, int y, int z, int width, int height, int depth) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.width = width;
+			this.height = height;
+			this.depth = depth;
+			this.states = new IBlockState[width * height * depth];
+		}
+
+		boolean contains(int x, int y, int z) {
+			return x >= this.x && x < this.x + width && y >= this.y && y < this.y + height && z >= this.z && z < this.z + depth;
+		}
+
+		int index(int x, int y, int z) {
+			return (y * depth + z) * width + x;
+		}
+	}
+}
@@ -21,8 +21,10 @@ import com.someguyssoftware.treasure2.block.FogBlock;
 import com.someguyssoftware.treasure2.block.ITreasureBlock;
 import com.someguyssoftware.treasure2.block.SkeletonBlock;
 import com.someguyssoftware.treasure2.block.TreasureBlocks;
-import com.someguyssoftware.treasure2.chest.ChestInfo;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.generator.placement.DeferredFeature;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.item.TreasureItems;
 import com.someguyssoftware.treasure2.registry.ChestRegistry;
 import com.someguyssoftware.treasure2.tileentity.AbstractTreasureChestTileEntity;
@@ -98,7 +100,7 @@ public class GenUtil {
 		Cube cube = new Cube(world, coords);
 		if (cube.isAir())
 			return false;
-		world.setBlockState(coords.toPos(), block.getDefaultState());
+		BlockWriteBuffer.setBlockState(world, coords, block.getDefaultState());
 		return true;
 	}
 
@@ -114,7 +116,7 @@ public class GenUtil {
 		Cube cube = new Cube(world, coords);
 		if (cube.isAir())
 			return false;
-		world.setBlockState(coords.toPos(), blockState);
+		BlockWriteBuffer.setBlockState(world, coords, blockState);
 		return true;
 	}
 
@@ -189,7 +191,7 @@ public class GenUtil {
 			BlockPos pos = coords.toPos();
 			// create and place the chest
 			// world.setBlockState(pos, chest.getStateFromMeta(meta), 3);
-			world.setBlockState(pos, chest.getDefaultState().withProperty(FACING, facing), 3);
+			BlockWriteBuffer.setBlockState(world, pos, chest.getDefaultState().withProperty(FACING, facing));
 			Treasure.logger.debug("placed chest -> {} into world at coords -> {} with prop -> {}",
 					chest.getClass().getSimpleName(), coords.toShortString(), facing);
 			// world.setBlockMetadataWithNotify(coords.getX(), coords.getY(), coords.getZ(),
@@ -204,7 +206,7 @@ public class GenUtil {
 
 			if (te == null) {
 				// remove the chest block
-				world.setBlockState(pos, Blocks.AIR.getDefaultState());
+				BlockWriteBuffer.setBlockState(world, pos, Blocks.AIR.getDefaultState());
 				Treasure.logger.warn("Unable to create ChestConfig's TileEntity, removing ChestConfig.");
 				return false;
 			}
@@ -270,7 +272,7 @@ public class GenUtil {
 			int zSpawn = z + (random.nextInt(gridSize) * (random.nextInt(3) - 1)); // -1|0|1
 
 			// get the "surface" y
-			int ySpawn = WorldInfo.getHeightValue(world, new Coords(xSpawn, 0, zSpawn));
+			int ySpawn = SurfaceCache.getHeightValue(world, new Coords(xSpawn, 0, zSpawn));
 			ICoords spawnCoords = new Coords(xSpawn, ySpawn, zSpawn);
 
 			// determine if valid y
@@ -282,7 +284,7 @@ public class GenUtil {
 
 			// get a valid surface location
 //			Treasure.logger.debug("Getting dry land coords for @ {}", spawnCoords.toShortString());
-			spawnCoords = WorldInfo.getDryLandSurfaceCoords(world, spawnCoords);
+			spawnCoords = SurfaceCache.getDryLandSurfaceCoords(world, spawnCoords);
 			if (spawnCoords == null) {
 				Treasure.logger.debug(String.format("Not a valid surface @ %s", coords));
 				continue;
@@ -351,7 +353,7 @@ public class GenUtil {
 //			}
 
 			// place the block
-			world.setBlockState(spawnCoords.toPos(),
+			BlockWriteBuffer.setBlockState(world, spawnCoords.toPos(),
 					marker.getDefaultState().withProperty(AbstractChestBlock.FACING, facing));
 
 			// add fog around the block
@@ -359,7 +361,7 @@ public class GenUtil {
 					TreasureConfig.WORLD_GEN.getMarkerProperties().gravestoneFogProbability)) {
 				List<FogBlock> fogDensity = new ArrayList<>(5);
 				// randomize the size of the fog
-				int fogSize = RandomHelper.randomInt(1, 4);
+				int fogSize = RandomHelper.randomInt(random, 1, 4);
 				// populate the fog density list
 //				for (int f = 0; f < fogSize; f++)
 //					fogDensity.add(TreasureBlocks.MED_FOG_BLOCK);
@@ -406,9 +408,9 @@ public class GenUtil {
 					.withProperty(SkeletonBlock.FACING, facing.getOpposite())
 					.withProperty(SkeletonBlock.PART, SkeletonBlock.EnumPartType.BOTTOM);
 
-			world.setBlockState(coords.toPos(), skeletonState, 3);
-			world.setBlockState(coords2.toPos(),
-					skeletonState.withProperty(SkeletonBlock.PART, SkeletonBlock.EnumPartType.TOP), 3);
+			BlockWriteBuffer.setBlockState(world, coords.toPos(), skeletonState);
+			BlockWriteBuffer.setBlockState(world, coords2.toPos(),
+					skeletonState.withProperty(SkeletonBlock.PART, SkeletonBlock.EnumPartType.TOP));
 
 			world.notifyNeighborsRespectDebug(coords.toPos(), cube.getState().getBlock(), false);
 			world.notifyNeighborsRespectDebug(coords2.toPos(), cube.getState().getBlock(), false);
@@ -421,7 +423,7 @@ public class GenUtil {
 	 * @param coords
 	 */
 	public static void addFog(World world, Random random, ICoords coords, FogBlock[] fogDensity) {
-		ICoords fogCoords = null;
+		DeferredPlacementQueue queue = DeferredPlacementQueue.getInstance();
 
 		// add fog around the given coords with a 5 block radius
 		for (int xOffset = -5; xOffset <= 5; xOffset++) {
@@ -434,63 +436,75 @@ public class GenUtil {
 						continue;
 					}
 
-					int yHeight = WorldInfo.getHeightValue(world, coords.add(xOffset, 255, zOffset));
-//					Treasure.logger.debug("Wither Tree Clearing yOffset: " + yHeight);
-//					fogCoords = GenUtil.getAnySurfacePos(world, new BlockPos(coords.getX() + xOffset, yHeight, coords.getZ() + zOffset));
-
-					fogCoords = WorldInfo.getDryLandSurfaceCoords(world,
-							new Coords(coords.getX() + xOffset, yHeight, coords.getZ() + zOffset));
-//					Treasure.logger.debug("1. fog coords @ {}", fogCoords);
-
-					// ensure that the fog isn't resting on a Treasure2!-related block
-					if (world.getBlockState(fogCoords.down(1).toPos()).getBlock() instanceof ITreasureBlock) {
-//						Treasure.logger.debug("eXit - ITreasureBlock at coords");
-						continue;
-					}
-
-					// additional check that it's not a tree and within 2 y-blocks of original
-					ICoords deltaCoords = fogCoords.delta(coords);
-					Block block = null;
-					if (Math.abs(deltaCoords.getY()) > VERTICAL_MAX_DIFF) {
-//						Treasure.logger.debug("eXit - delta too great at coords");
-						continue;
-					}
-
-					Cube cube = new Cube(world, fogCoords);
-					// ensure location of fog coords is air.
-					if (!cube.isAir() && !cube.isReplaceable() && !cube.equalsMaterial(TreasureItems.FOG)) {
-//						Treasure.logger.debug("eXit - block at coords is {}", cube.getState().getBlock().toString());
-						continue;
-					}
-
 					// select the fog block from the density array
 					if (radius > fogDensity.length)
 						radius = fogDensity.length;
 					if (radius < 1)
 						radius = 1;
-					block = fogDensity[radius - 1];
-
-//					Treasure.logger.debug("2. selecting {} fog", ((FogBlock)block).getFog().getSize());
-
-					if (cube.equalsMaterial(TreasureItems.FOG)) {
-						// test if the block at fog coords is already fog, then whichever is bigger
-						// remains
-						FogBlock origBlock = (FogBlock) cube.getState().getBlock();
-//						Treasure.logger.debug("3. orig block IS {} at coords", origBlock.getFog().getSize());
-						if (origBlock.getFogHeight().getSize() > ((FogBlock) block).getFogHeight().getSize()) {
-//							Treasure.logger.debug("eXit - orig block is bigger than block");
-							continue;
-						}
-					}
+					Block block = fogDensity[radius - 1];
 
-					// place the fog block
-					world.setBlockState(fogCoords.toPos(), block.getDefaultState());
-//					Treasure.logger.debug("Placed fog block @ {}", fogCoords.toShortString());
+					// the column is parked if its chunk is not populated yet
+					queue.generate(world, random, DeferredFeature.FOG,
+							new BlockPos(coords.getX() + xOffset, coords.getY(), coords.getZ() + zOffset),
+							Block.getStateId(block.getDefaultState()));
 				}
 			}
 		}
 	}
 
+	/**
+	 * Adds the fog block to the surface of the column.
+	 * 
+	 * @param world
+	 * @param coords the x/z of the column and the y of the fog origin
+	 * @param block
+	 */
+	public static void addFogColumn(World world, ICoords coords, Block block) {
+		int yHeight = SurfaceCache.getHeightValue(world, coords.add(0, 255, 0));
+//		Treasure.logger.debug("Wither Tree Clearing yOffset: " + yHeight);
+//		fogCoords = GenUtil.getAnySurfacePos(world, new BlockPos(coords.getX() + xOffset, yHeight, coords.getZ() + zOffset));
+
+		ICoords fogCoords = SurfaceCache.getDryLandSurfaceCoords(world, coords.withY(yHeight));
+//		Treasure.logger.debug("1. fog coords @ {}", fogCoords);
+
+		// ensure that the fog isn't resting on a Treasure2!-related block
+		if (world.getBlockState(fogCoords.down(1).toPos()).getBlock() instanceof ITreasureBlock) {
+//			Treasure.logger.debug("eXit - ITreasureBlock at coords");
+			return;
+		}
+
+		// additional check that it's not a tree and within 2 y-blocks of original
+		ICoords deltaCoords = fogCoords.delta(coords);
+		if (Math.abs(deltaCoords.getY()) > VERTICAL_MAX_DIFF) {
+//			Treasure.logger.debug("eXit - delta too great at coords");
+			return;
+		}
+
+		Cube cube = new Cube(world, fogCoords);
+		// ensure location of fog coords is air.
+		if (!cube.isAir() && !cube.isReplaceable() && !cube.equalsMaterial(TreasureItems.FOG)) {
+//			Treasure.logger.debug("eXit - block at coords is {}", cube.getState().getBlock().toString());
+			return;
+		}
+
+//		Treasure.logger.debug("2. selecting {} fog", ((FogBlock)block).getFog().getSize());
+
+		if (cube.equalsMaterial(TreasureItems.FOG)) {
+			// test if the block at fog coords is already fog, then whichever is bigger
+			// remains
+			FogBlock origBlock = (FogBlock) cube.getState().getBlock();
+//			Treasure.logger.debug("3. orig block IS {} at coords", origBlock.getFog().getSize());
+			if (origBlock.getFogHeight().getSize() > ((FogBlock) block).getFogHeight().getSize()) {
+//				Treasure.logger.debug("eXit - orig block is bigger than block");
+				return;
+			}
+		}
+
+		// place the fog block
+		BlockWriteBuffer.setBlockState(world, fogCoords.toPos(), block.getDefaultState());
+//		Treasure.logger.debug("Placed fog block @ {}", fogCoords.toShortString());
+	}
+
 	/**
 	 * Returns a <b>valid</b> pos underground.
 	 * 
@@ -509,7 +523,7 @@ public class GenUtil {
 
 			spawnCoords = new Coords(surfaceCoords.getX(), ySpawn, surfaceCoords.getZ());
 			// get floor pos (if in a cavern or tunnel etc)
-			spawnCoords = WorldInfo.getDryLandSurfaceCoords(world, spawnCoords);
+			spawnCoords = SurfaceCache.getDryLandSurfaceCoords(world, spawnCoords);
 		}
 		return spawnCoords;
 	}
@@ -575,7 +589,7 @@ public class GenUtil {
 //				world.setBlockState(replaceCoords.toPos(), Blocks.PLANKS.getDefaultState(), 1);
 				blockState = Blocks.LOG.getDefaultState();
 
-			world.setBlockState(replaceCoords.toPos(), blockState, 3);
+			BlockWriteBuffer.setBlockState(world, replaceCoords, blockState);
 		}
 	}
 
@@ -589,7 +603,7 @@ public class GenUtil {
 		final int ABOVE_CHEST_SIZE = 3; // above chests are always fill with logs, sand, and planks
 		final int BELOW_SURFACE_SIZE = 5; // the number of blocks below the surface
 		for (int i = coords.getY() + (ABOVE_CHEST_SIZE + 1); i <= surfaceCoords.getY() - BELOW_SURFACE_SIZE; i++) {
-			world.setBlockState(new BlockPos(coords.getX(), i, coords.getZ()), Blocks.AIR.getDefaultState(), 3);
+			BlockWriteBuffer.setBlockState(world, new BlockPos(coords.getX(), i, coords.getZ()), Blocks.AIR.getDefaultState());
 		}
 	}
 
@@ -601,28 +615,7 @@ public class GenUtil {
 	 * @return
 	 */
 	public static boolean isRegisteredChestWithinDistance(World world, ICoords coords, int minDistance) {
-
-		double minDistanceSq = minDistance * minDistance;
-
-		// get a list of chests
-		List<ChestInfo> infos = ChestRegistry.getInstance().getValues();
-
-		if (infos == null || infos.size() == 0) {
-			Treasure.logger
-					.debug("Unable to locate the ChestConfig Registry or the Registry doesn't contain any values");
-			return false;
-		}
-
-		Treasure.logger.debug("Min distance Sq -> {}", minDistanceSq);
-		for (ChestInfo info : infos) {
-			// calculate the distance to the poi
-			double distance = coords.getDistanceSq(info.getCoords());
-			Treasure.logger.debug("ChestConfig dist^2: " + distance);
-			if (distance < minDistanceSq) {
-				return true;
-			}
-		}
-		return false;
+		return ChestRegistry.getInstance().withinDistance(world.provider.getDimension(), coords, minDistance);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,304 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.generator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.gottschcore.world.WorldInfo;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+/**
+ * A short-lived cache of surface scans (dry land surface, height value, solid/air base) shared by the stages of
+ * a world generator (site checks, structure, markers) during the population of a single chunk. The world generator
+ * opens the pass with begin() and closes it with end() in a finally block; the passes nest, so a chunk populated
+ * from within another chunk's population (a cascade) gets its own cache and the outer cache is restored after it.
+ * <p>
+ * The cached values are dropped whenever Treasure writes blocks through the BlockWriteBuffer or pastes a template
+ * (see invalidate()), so the scans after a structure is built read the world again.
+ * </p>
+ * Outside of a pass, or for a different world, the calls go straight to WorldInfo.
+ */
+public class SurfaceCache {
+	// the cache of the innermost population pass running on this thread
+	private static final ThreadLocal<SurfaceCache> CURRENT = new ThreadLocal<>();
+
+	private final World world;
+	private final int chunkX;
+	private final int chunkZ;
+	// the pass this pass is nested in, restored when this one ends
+	private final SurfaceCache outer;
+	private int depth;
+
+	// keyed by column (x, z)
+	private final Long2ObjectMap<ICoords> dryLandSurfaces = new Long2ObjectOpenHashMap<>();
+	private final Long2IntMap heightValues = new Long2IntOpenHashMap();
+	private final Map<BaseKey, Boolean> solidBases = new HashMap<>();
+	private final Map<BaseKey, Boolean> airBases = new HashMap<>();
+
+	private int hits;
+	private int misses;
+
+	/**
+	 *
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 * @param outer
+	 */
+	private SurfaceCache(World world, int chunkX, int chunkZ, SurfaceCache outer) {
+		this.world = world;
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		this.outer = outer;
+		this.heightValues.defaultReturnValue(Integer.MIN_VALUE);
+	}
+
+	/**
+	 * Opens the population pass of a chunk. If the innermost pass is already the chunk's, it is shared,
+	 * otherwise a nested pass is opened. Every begin() must be matched by an end().
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	public static void begin(World world, int chunkX, int chunkZ) {
+		SurfaceCache cache = CURRENT.get();
+		if (cache == null || cache.world != world || cache.chunkX != chunkX || cache.chunkZ != chunkZ) {
+			cache = new SurfaceCache(world, chunkX, chunkZ, cache);
+			CURRENT.set(cache);
+		}
+		cache.depth++;
+	}
+
+	/**
+	 * Closes the innermost population pass, restoring the pass it was nested in when it is fully closed.
+	 * @param world
+	 */
+	public static void end(World world) {
+		SurfaceCache cache = CURRENT.get();
+		if (cache == null || cache.world != world) {
+			return;
+		}
+		if (--cache.depth <= 0) {
+			if (cache.outer != null) {
+				CURRENT.set(cache.outer);
+			}
+			else {
+				CURRENT.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drops the passes of the world left open on this thread, ex. when the world unloads.
+	 * @param world
+	 */
+	public static void clear(World world) {
+		SurfaceCache cache = CURRENT.get();
+		while (cache != null && cache.world == world) {
+			cache = cache.outer;
+		}
+		if (cache != null) {
+			CURRENT.set(cache);
+		}
+		else {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Drops the cached values of the world's passes, after blocks of the world have been written.
+	 * @param world
+	 */
+	public static void invalidate(World world) {
+		for (SurfaceCache cache = CURRENT.get(); cache != null; cache = cache.outer) {
+			if (cache.world == world && (!cache.dryLandSurfaces.isEmpty() || !cache.heightValues.isEmpty()
+					|| !cache.solidBases.isEmpty() || !cache.airBases.isEmpty())) {
+				cache.dryLandSurfaces.clear();
+				cache.heightValues.clear();
+				cache.solidBases.clear();
+				cache.airBases.clear();
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @return the cache of the current pass if it belongs to the world, else null
+	 */
+	private static SurfaceCache get(World world) {
+		SurfaceCache cache = CURRENT.get();
+		return cache != null && cache.world == world ? cache : null;
+	}
+
+	/**
+	 * Cached WorldInfo.getDryLandSurfaceCoords()
+	 * @param world
+	 * @param coords
+	 * @return
+	 */
+	public static ICoords getDryLandSurfaceCoords(World world, ICoords coords) {
+		SurfaceCache cache = get(world);
+		if (cache == null) {
+			return WorldInfo.getDryLandSurfaceCoords(world, coords);
+		}
+		long key = ChunkPos.asLong(coords.getX(), coords.getZ());
+		ICoords surfaceCoords = cache.dryLandSurfaces.get(key);
+		if (surfaceCoords != null) {
+			cache.hits++;
+			return surfaceCoords;
+		}
+		cache.misses++;
+		surfaceCoords = WorldInfo.getDryLandSurfaceCoords(world, coords);
+		cache.dryLandSurfaces.put(key, surfaceCoords);
+		return surfaceCoords;
+	}
+
+	/**
+	 * Cached WorldInfo.getHeightValue()
+	 * @param world
+	 * @param coords
+	 * @return
+	 */
+	public static int getHeightValue(World world, ICoords coords) {
+		SurfaceCache cache = get(world);
+		if (cache == null) {
+			return WorldInfo.getHeightValue(world, coords);
+		}
+		long key = ChunkPos.asLong(coords.getX(), coords.getZ());
+		int height = cache.heightValues.get(key);
+		if (height != Integer.MIN_VALUE) {
+			cache.hits++;
+			return height;
+		}
+		cache.misses++;
+		height = WorldInfo.getHeightValue(world, coords);
+		cache.heightValues.put(key, height);
+		return height;
+	}
+
+	/**
+	 * Cached WorldInfo.isSolidBase()
+	 * @param world
+	 * @param coords
+	 * @param width
+	 * @param depth
+	 * @param percentRequired
+	 * @return
+	 */
+	public static boolean isSolidBase(World world, ICoords coords, int width, int depth, double percentRequired) {
+		SurfaceCache cache = get(world);
+		if (cache == null) {
+			return WorldInfo.isSolidBase(world, coords, width, depth, percentRequired);
+		}
+		BaseKey key = new BaseKey(coords, width, depth, percentRequired);
+		Boolean result = cache.solidBases.get(key);
+		if (result != null) {
+			cache.hits++;
+			return result;
+		}
+		cache.misses++;
+		result = WorldInfo.isSolidBase(world, coords, width, depth, percentRequired);
+		cache.solidBases.put(key, result);
+		return result;
+	}
+
+	/**
+	 * Cached WorldInfo.isAirBase()
+	 * @param world
+	 * @param coords
+	 * @param width
+	 * @param depth
+	 * @param percentRequired
+	 * @return
+	 */
+	public static boolean isAirBase(World world, ICoords coords, int width, int depth, double percentRequired) {
+		SurfaceCache cache = get(world);
+		if (cache == null) {
+			return WorldInfo.isAirBase(world, coords, width, depth, percentRequired);
+		}
+		BaseKey key = new BaseKey(coords, width, depth, percentRequired);
+		Boolean result = cache.airBases.get(key);
+		if (result != null) {
+			cache.hits++;
+			return result;
+		}
+		cache.misses++;
+		result = WorldInfo.isAirBase(world, coords, width, depth, percentRequired);
+		cache.airBases.put(key, result);
+		return result;
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @return the number of cache hits of the current pass
+	 */
+	public static int getHits(World world) {
+		SurfaceCache cache = get(world);
+		return cache == null ? 0 : cache.hits;
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @return the number of cache misses of the current pass
+	 */
+	public static int getMisses(World world) {
+		SurfaceCache cache = get(world);
+		return cache == null ? 0 : cache.misses;
+	}
+
+	/*
+	 * The base checks read the blocks below the coords, so the y is part of the key.
+	 */
+	private static class BaseKey {
+		final int x;
+		final int y;
+		final int z;
+		final int width;
+		final int depth;
+		final double percentRequired;
+
+		BaseKey(ICoords coords, int width, int depth, double percentRequired) {
+			this.x = coords.getX();
+			this.y = coords.getY();
+			this.z = coords.getZ();
+			this.width = width;
+			this.depth = depth;
+			this.percentRequired = percentRequired;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof BaseKey)) {
+				return false;
+			}
+			BaseKey other = (BaseKey) obj;
+			return x == other.x && y == other.y && z == other.z
+					&& width == other.width && depth == other.depth && percentRequired == other.percentRequired;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = x;
+			result = 31 * result + y;
+			result = 31 * result + z;
+			result = 31 * result + width;
+			result = 31 * result + depth;
+			return 31 * result + Double.hashCode(percentRequired);
+		}
+	}
+}
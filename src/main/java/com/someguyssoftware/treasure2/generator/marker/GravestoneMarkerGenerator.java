@@ -20,6 +20,7 @@ import com.someguyssoftware.treasure2.config.TreasureConfig;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
 import com.someguyssoftware.treasure2.item.TreasureItems;
 import com.someguyssoftware.treasure2.tileentity.GravestoneProximitySpawnerTileEntity;
 
@@ -79,7 +80,7 @@ public class GravestoneMarkerGenerator implements IMarkerGenerator<GeneratorResu
 			int zSpawn = z + (random.nextInt(gridSize) * (random.nextInt(3) - 1)); // -1|0|1
 
 			// get the "surface" y
-			int ySpawn = WorldInfo.getHeightValue(world, new Coords(xSpawn, 0, zSpawn));
+			int ySpawn = SurfaceCache.getHeightValue(world, new Coords(xSpawn, 0, zSpawn));
 			ICoords spawnCoords = new Coords(xSpawn, ySpawn, zSpawn);
 
 			// determine if valid y
@@ -89,7 +90,7 @@ public class GravestoneMarkerGenerator implements IMarkerGenerator<GeneratorResu
 			}
 
 			// get a valid surface location
-			spawnCoords = WorldInfo.getDryLandSurfaceCoords(world, spawnCoords);
+			spawnCoords = SurfaceCache.getDryLandSurfaceCoords(world, spawnCoords);
 			if (spawnCoords == null) {
 				logger.debug(String.format("Not a valid surface @ %s", coords));
 				continue;
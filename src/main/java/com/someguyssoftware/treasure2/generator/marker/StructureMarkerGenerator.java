@@ -9,7 +9,6 @@ import java.util.Random;
 import com.someguyssoftware.gottschcore.measurement.Quantity;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
-import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.gottschcore.world.gen.structure.BlockContext;
 import com.someguyssoftware.gottschcore.world.gen.structure.GottschTemplate;
 import com.someguyssoftware.gottschcore.world.gen.structure.StructureMarkers;
@@ -18,6 +17,7 @@ import com.someguyssoftware.treasure2.block.TreasureBlocks;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
 import com.someguyssoftware.treasure2.generator.TemplateGeneratorData;
 import com.someguyssoftware.treasure2.meta.StructureArchetype;
 import com.someguyssoftware.treasure2.meta.StructureType;
@@ -62,13 +62,13 @@ public class StructureMarkerGenerator implements IMarkerGenerator<GeneratorResul
 		// TODO could move offset to TemplateGenerator : getOffset() which checks both the offsetblock and the meta
 		// get the offset
 		int offset = 0;
-		ICoords offsetCoords = ((GottschTemplate)holder.getTemplate()).findCoords(random, GenUtil.getMarkerBlock(StructureMarkers.OFFSET));
+		ICoords offsetCoords = holder.findCoords(random, GenUtil.getMarkerBlock(StructureMarkers.OFFSET));
 		if (offsetCoords != null) {
 			offset = -offsetCoords.getY();
 		}
 		
 		// find entrance
-		ICoords entranceCoords =((GottschTemplate)holder. getTemplate()).findCoords(random, GenUtil.getMarkerBlock(StructureMarkers.ENTRANCE));
+		ICoords entranceCoords =holder.findCoords(random, GenUtil.getMarkerBlock(StructureMarkers.ENTRANCE));
 		if (entranceCoords == null) {
 			Treasure.logger.debug("Unable to locate entrance position.");
 			return result.fail();
@@ -94,7 +94,7 @@ public class StructureMarkerGenerator implements IMarkerGenerator<GeneratorResul
 				
 		// if offset is 2 or less, then determine if the solid ground percentage is valid
 		if (offset >= -2) {
-			if (!WorldInfo.isSolidBase(world, spawnCoords, transformedSize.getX(), transformedSize.getZ(), 70)) {
+			if (!SurfaceCache.isSolidBase(world, spawnCoords, transformedSize.getX(), transformedSize.getZ(), 70)) {
 				Treasure.logger.debug("Coords -> [{}] does not meet {}% solid base requirements for size -> {} x {}", 70, spawnCoords.toShortString(), transformedSize.getX(), transformedSize.getY());
 				 GeneratorResult<GeneratorData> genResult = new GravestoneMarkerGenerator().generate(world, random, coords);
 				 return genResult;
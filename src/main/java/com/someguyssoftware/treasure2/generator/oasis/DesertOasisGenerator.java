@@ -12,7 +12,6 @@ import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
 import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.treasure2.Treasure;
-import com.someguyssoftware.treasure2.chest.ChestInfo;
 import com.someguyssoftware.treasure2.config.IOasisConfig;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
 import com.someguyssoftware.treasure2.enums.Rarity;
@@ -20,8 +19,12 @@ import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
 import com.someguyssoftware.treasure2.generator.TemplateGeneratorData;
 import com.someguyssoftware.treasure2.generator.chest.IChestGenerator;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.generator.placement.DeferredFeature;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.generator.well.IWellGenerator;
 import com.someguyssoftware.treasure2.generator.well.WellGenerator;
 import com.someguyssoftware.treasure2.meta.StructureArchetype;
@@ -39,6 +42,7 @@ import net.minecraft.init.Biomes;
 import net.minecraft.init.Blocks;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.gen.feature.WorldGenAbstractTree;
 import net.minecraft.world.gen.feature.WorldGenFlowers;
@@ -52,6 +56,10 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 
 	private static final int MIN_OASIS_RADIUS = 8;
 	private static final int MAX_OASIS_RADIUS = 20;
+	// the reach of a (forest) tree around its trunk
+	public static final int TREE_RADIUS = 5;
+	// the reach of the vanilla grass and flower generators around their pos
+	public static final int PLANT_RADIUS = 7;
 
 	/**
 	 * 
@@ -69,7 +77,7 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 		GeneratorResult<GeneratorData> result = new GeneratorResult<>(GeneratorData.class);
 
 		// 1. collect location data points
-		ICoords surfaceCoords = WorldInfo.getDryLandSurfaceCoords(world, coords);
+		ICoords surfaceCoords = SurfaceCache.getDryLandSurfaceCoords(world, coords);
 		Treasure.logger.debug("surface coords -> {}", surfaceCoords.toShortString());
 		if (!WorldInfo.isValidY(surfaceCoords)) {
 			Treasure.logger.debug("surface coords are invalid @ {}", surfaceCoords.toShortString());
@@ -83,7 +91,7 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 		int depth = Math.abs((int) (oasisBounds.maxZ - oasisBounds.minZ));
 		ICoords centerCoords = new Coords((int)(oasisBounds.minX + width * 0.5D), (int)oasisBounds.minY, (int)(oasisBounds.minZ + depth * 0.5D));
 
-		centerCoords = WorldInfo.getDryLandSurfaceCoords(world, centerCoords);
+		centerCoords = SurfaceCache.getDryLandSurfaceCoords(world, centerCoords);
 		
 		generateBase(world, random, coords, radius);
 		generateTrees(world, random, centerCoords, radius);
@@ -140,11 +148,11 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 		// select a random facing
 		IBlockState chestState = Blocks.CHEST.getDefaultState().withProperty(BlockChest.FACING, EnumFacing.HORIZONTALS[random.nextInt(EnumFacing.HORIZONTALS.length)]);
 		SurfaceChestWorldGenerator chestWorldGen = (SurfaceChestWorldGenerator) Treasure.WORLD_GENERATORS.get(WorldGeneratorType.SURFACE_CHEST);
-		IChestGenerator chestGen = chestWorldGen.getChestGenMap().get(rarity).next();
-		Optional<GeneratorResult<ChestGeneratorData>> result = Optional.ofNullable(chestGen.generate(world, random, chestCoords, rarity, chestState));
+		IChestGenerator chestGen = chestWorldGen.getChestGenMap().get(rarity).next(random);
+		Optional<GeneratorResult<ChestGeneratorData>> result = Optional.ofNullable(SurfaceChestWorldGenerator.generateChest(world, random, chestGen, chestCoords, rarity, chestState));
 		if (result.isPresent() && result.get().isSuccess()) {
 			// add to chest registry as the rarity will be unknown to passed up to caller
-			ChestRegistry.getInstance().register(chestCoords.toShortString(), new ChestInfo(rarity, chestCoords));
+			ChestRegistry.getInstance().register(world.provider.getDimension(), chestCoords, rarity);
 		}
 		return result.get();
 	}
@@ -157,6 +165,7 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 	 * @param radius
 	 */
 	private void generateBase(World world, Random random, ICoords coords, int radius) {
+		DeferredPlacementQueue queue = DeferredPlacementQueue.getInstance();
 		int radiusSquared = radius * radius;
 		Integer[] distancesMet = new Integer[radius + 1];
 		ICoords spawnCoords = null;
@@ -177,21 +186,31 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 				}
 
 				if (isDistanceMet) {
-					spawnCoords = WorldInfo.getDryLandSurfaceCoords(world, spawnCoords.withY(255));
-					// replace to a depth of 3 blocks
-					for (int i = 0; i < 3; i++) {
-						Cube grassCube = new Cube(world, spawnCoords);
-						spawnCoords = spawnCoords.down(1);			
-						Cube sandCube = new Cube(world, spawnCoords.down(1));
-						if (sandCube.equalsBlock(Blocks.SAND) || (i > 0 && grassCube.equalsBlock(Blocks.GRASS))) {
-							world.setBlockState(spawnCoords.toPos(), Blocks.GRASS.getDefaultState(), 3);
-						}
-					}
+					// the column is parked if its chunk is not populated yet
+					queue.generate(world, random, DeferredFeature.OASIS_BASE, spawnCoords.withY(255).toPos(), 0);
 				}
 			}
 		}		
 	}
 
+	/**
+	 * Replaces the sand of the column with grass.
+	 * @param world
+	 * @param coords
+	 */
+	public static void generateBaseColumn(World world, ICoords coords) {
+		ICoords spawnCoords = SurfaceCache.getDryLandSurfaceCoords(world, coords);
+		// replace to a depth of 3 blocks
+		for (int i = 0; i < 3; i++) {
+			Cube grassCube = new Cube(world, spawnCoords);
+			spawnCoords = spawnCoords.down(1);			
+			Cube sandCube = new Cube(world, spawnCoords.down(1));
+			if (sandCube.equalsBlock(Blocks.SAND) || (i > 0 && grassCube.equalsBlock(Blocks.GRASS))) {
+				BlockWriteBuffer.setBlockState(world, spawnCoords, Blocks.GRASS.getDefaultState());
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @param world
@@ -200,7 +219,9 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 	 * @param radius
 	 */
 	private void generateTrees(World world, Random random, ICoords centerCoords, int radius) {
-		WorldGenAbstractTree treeWorldGenerator = Biomes.FOREST.getRandomTreeFeature(random);
+		DeferredPlacementQueue queue = DeferredPlacementQueue.getInstance();
+		// all the trees of the oasis are of the same kind
+		int treeSeed = random.nextInt();
 		int diameter = radius * 2;		
 		int diameterSquared = diameter * diameter;
 		
@@ -212,11 +233,23 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 			int xOffset = (int) (random.nextFloat() * diameter - radius);
 			int zOffset = (int) (random.nextFloat() * diameter - radius);
 			Treasure.logger.debug("attempting oasis tree @ -> {}", centerCoords.add(xOffset, 0, zOffset).toShortString());
-			boolean treeResult = treeWorldGenerator.generate(world, random, centerCoords.add(xOffset, 0, zOffset).toPos());
-			Treasure.logger.debug("tree result -> {}", treeResult);
+			boolean treeResult = queue.generate(world, random, DeferredFeature.OASIS_TREE, centerCoords.add(xOffset, 0, zOffset).toPos(), treeSeed);
+			Treasure.logger.debug("tree generated (not parked) -> {}", treeResult);
 
 		}
 	}
+
+	/**
+	 * 
+	 * @param world
+	 * @param random
+	 * @param pos
+	 * @param treeSeed selects the kind of tree
+	 */
+	public static void generateTree(World world, Random random, BlockPos pos, int treeSeed) {
+		WorldGenAbstractTree treeWorldGenerator = Biomes.FOREST.getRandomTreeFeature(new Random(treeSeed));
+		treeWorldGenerator.generate(world, random, pos);
+	}
 	
 	/**
 	 * 
@@ -226,16 +259,27 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 	 * @param radius
 	 */
 	private void generateGrass(World world, Random random, ICoords centerCoords, int radius) {
-		WorldGenerator grassWorldGenerator = Biomes.FOREST.getRandomWorldGenForGrass(random);
+		DeferredPlacementQueue queue = DeferredPlacementQueue.getInstance();
 		int diameter = radius * 2;		
 		
 		for (int grassIndex = 0; grassIndex < 5; grassIndex++) {
 			// find a random location within the oasis
 			int xOffset = (int) (random.nextFloat() * diameter - radius);
 			int zOffset = (int) (random.nextFloat() * diameter - radius);
-			grassWorldGenerator.generate(world, random, centerCoords.add(xOffset, 0, zOffset).toPos());
+			queue.generate(world, random, DeferredFeature.OASIS_GRASS, centerCoords.add(xOffset, 0, zOffset).toPos(), 0);
 		}
 	}
+
+	/**
+	 * 
+	 * @param world
+	 * @param random
+	 * @param pos
+	 */
+	public static void generateGrass(World world, Random random, BlockPos pos) {
+		WorldGenerator grassWorldGenerator = Biomes.FOREST.getRandomWorldGenForGrass(random);
+		grassWorldGenerator.generate(world, random, pos);
+	}
 	
 	/**
 	 * 
@@ -245,22 +289,31 @@ public class DesertOasisGenerator implements IOasisGenerator<GeneratorResult<Che
 	 * @param radius
 	 */
 	private void generateFlowers(World world, Random random, ICoords centerCoords, int radius) {
-		WorldGenFlowers worldGenerator = new WorldGenFlowers(Blocks.YELLOW_FLOWER, BlockFlower.EnumFlowerType.DANDELION);
+		DeferredPlacementQueue queue = DeferredPlacementQueue.getInstance();
 		int diameter = radius * 2;		
 		
 		for (int grassIndex = 0; grassIndex < 3; grassIndex++) {
 			// find a random location within the oasis
 			int xOffset = (int) (random.nextFloat() * diameter - radius);
 			int zOffset = (int) (random.nextFloat() * diameter - radius);
+			queue.generate(world, random, DeferredFeature.OASIS_FLOWER, centerCoords.add(xOffset, 0, zOffset).toPos(), 0);
+		}
+	}
 
-			ICoords blockpos1 = centerCoords.add(xOffset, 0, zOffset);
-            BlockFlower.EnumFlowerType blockflower$enumflowertype = Biomes.FOREST.pickRandomFlower(random, blockpos1.toPos());
-            BlockFlower blockflower = blockflower$enumflowertype.getBlockType().getBlock();
+	/**
+	 * 
+	 * @param world
+	 * @param random
+	 * @param pos
+	 */
+	public static void generateFlower(World world, Random random, BlockPos pos) {
+		WorldGenFlowers worldGenerator = new WorldGenFlowers(Blocks.YELLOW_FLOWER, BlockFlower.EnumFlowerType.DANDELION);
+		BlockFlower.EnumFlowerType blockflower$enumflowertype = Biomes.FOREST.pickRandomFlower(random, pos);
+		BlockFlower blockflower = blockflower$enumflowertype.getBlockType().getBlock();
 
-            if (blockflower.getDefaultState().getMaterial() != Material.AIR) {
-                worldGenerator.setGeneratedBlock(blockflower, blockflower$enumflowertype);
-                worldGenerator.generate(world, random, blockpos1.toPos());
-            }
+		if (blockflower.getDefaultState().getMaterial() != Material.AIR) {
+			worldGenerator.setGeneratedBlock(blockflower, blockflower$enumflowertype);
+			worldGenerator.generate(world, random, pos);
 		}
 	}
 
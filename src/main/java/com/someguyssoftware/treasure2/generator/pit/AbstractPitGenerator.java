@@ -6,12 +6,12 @@ import com.someguyssoftware.gottschcore.cube.Cube;
 import com.someguyssoftware.gottschcore.measurement.Quantity;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
-import com.someguyssoftware.gottschcore.random.RandomWeightedCollection;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.block.TreasureBlocks;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.random.WeightedSampler;
 import com.someguyssoftware.treasure2.tileentity.ProximitySpawnerTileEntity;
 
 import net.minecraft.block.Block;
@@ -35,7 +35,7 @@ public abstract class AbstractPitGenerator implements IPitGenerator<GeneratorRes
 	protected static final int OFFSET_Y = 5;
 	protected static final int SURFACE_OFFSET_Y = 6;
 
-	private RandomWeightedCollection<Block> blockLayers = new RandomWeightedCollection<>();
+	private WeightedSampler<Block> blockLayers = new WeightedSampler<>();
 	private int offsetY = OFFSET_Y;
 
 	/**
@@ -169,7 +169,7 @@ public abstract class AbstractPitGenerator implements IPitGenerator<GeneratorRes
 	 * @param surfaceCoords
 	 * @return
 	 */
-	public ICoords buildPit(World world, Random random, ICoords coords, ICoords surfaceCoords, RandomWeightedCollection<Block> col) {
+	public ICoords buildPit(World world, Random random, ICoords coords, ICoords surfaceCoords, WeightedSampler<Block> col) {
 		ICoords nextCoords = null;
 		ICoords expectedCoords = null;
 		
@@ -183,7 +183,7 @@ public abstract class AbstractPitGenerator implements IPitGenerator<GeneratorRes
 			}
 			
 			// get the next type of block layer to build
-			Block block = col.next();
+			Block block = col.next(random);
 			if (block == Blocks.LOG) {
 				// special log build layer
 				nextCoords = buildLogLayer(world, random, cube.getCoords(), block); // could have difference classes and implement buildLayer differently
@@ -320,14 +320,14 @@ public abstract class AbstractPitGenerator implements IPitGenerator<GeneratorRes
 	/**
 	 * @return the blockLayers
 	 */
-	public RandomWeightedCollection<Block> getBlockLayers() {
+	public WeightedSampler<Block> getBlockLayers() {
 		return blockLayers;
 	}
 
 	/**
 	 * @param blockLayers the blockLayers to set
 	 */
-	public void setBlockLayers(RandomWeightedCollection<Block> blockLayers) {
+	public void setBlockLayers(WeightedSampler<Block> blockLayers) {
 		this.blockLayers = blockLayers;
 	}
 
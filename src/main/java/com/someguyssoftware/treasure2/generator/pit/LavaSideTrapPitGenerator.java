@@ -6,11 +6,11 @@ import com.someguyssoftware.gottschcore.cube.Cube;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
-import com.someguyssoftware.gottschcore.random.RandomWeightedCollection;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.random.WeightedSampler;
 
 import net.minecraft.block.Block;
 import net.minecraft.init.Blocks;
@@ -59,7 +59,7 @@ public class LavaSideTrapPitGenerator extends AbstractPitGenerator {
 	 * @return
 	 */
 	@Override
-	public ICoords buildPit(World world, Random random, ICoords coords, ICoords surfaceCoords, RandomWeightedCollection<Block> col) {
+	public ICoords buildPit(World world, Random random, ICoords coords, ICoords surfaceCoords, WeightedSampler<Block> col) {
 		ICoords nextCoords = null;
 		ICoords expectedCoords = null;
 		
@@ -73,7 +73,7 @@ public class LavaSideTrapPitGenerator extends AbstractPitGenerator {
 			}
 
 			// get the next type of block layer to build
-			Block block = col.next();
+			Block block = col.next(random);
 			if (block == Blocks.LOG) {
 				// special log build layer
 				nextCoords = buildLogLayer(world, random, cube.getCoords(), block); // could have difference classes and implement buildLayer differently
@@ -131,7 +131,7 @@ public class LavaSideTrapPitGenerator extends AbstractPitGenerator {
 		// for a number of blocks to replace
 		for (int i =0; i < MAX_REPLACES; i++) {
 			// randomly select a coord from the array
-			int x = RandomHelper.randomInt(0, matrix.length-1);
+			int x = random.nextInt(matrix.length);
 			GenUtil.replaceWithBlockState(world, matrix[x], block.getDefaultState());
 		}		
 		return coords;
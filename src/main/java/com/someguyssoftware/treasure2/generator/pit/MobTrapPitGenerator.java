@@ -5,11 +5,11 @@ import java.util.Random;
 import com.someguyssoftware.gottschcore.cube.Cube;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
-import com.someguyssoftware.gottschcore.random.RandomWeightedCollection;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.random.WeightedSampler;
 
 import net.minecraft.block.Block;
 import net.minecraft.init.Blocks;
@@ -57,7 +57,7 @@ public class MobTrapPitGenerator extends AbstractPitGenerator {
 	 * @return
 	 */
 	@Override
-	public ICoords buildPit(World world, Random random, ICoords coords, ICoords surfaceCoords, RandomWeightedCollection<Block> col) {
+	public ICoords buildPit(World world, Random random, ICoords coords, ICoords surfaceCoords, WeightedSampler<Block> col) {
 		ICoords nextCoords = null;
 		ICoords expectedCoords = null;
 		
@@ -83,7 +83,7 @@ public class MobTrapPitGenerator extends AbstractPitGenerator {
 			}
 			else {
 				// get the next type of block layer to build
-				Block block = col.next();
+				Block block = col.next(random);
 				if (block == Blocks.LOG) {
 					// special log build layer
 					nextCoords = buildLogLayer(world, random, cube.getCoords(), block); // could have difference classes and implement buildLayer differently
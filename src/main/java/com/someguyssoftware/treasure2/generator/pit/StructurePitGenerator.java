@@ -31,6 +31,7 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.gen.structure.template.PlacementSettings;
+import net.minecraft.world.gen.structure.template.Template;
 import net.minecraftforge.common.DungeonHooks;
 
 
@@ -113,26 +114,22 @@ public class StructurePitGenerator extends AbstractPitGenerator {
 		if (yDist > 6) {
 			Treasure.logger.debug("generating structure room at -> {}", spawnCoords.toShortString());
 			
-			// get structure by archetype (subterranean) and type (room)
-			String key = StructureArchetype.SUBTERRANEAN.getName()
-					+ ":" + StructureType.ROOM.getName();
-			
 			// get the biome
 			Biome biome = world.getBiome(spawnCoords.toPos());
-			Integer biomeID = Biome.getIdForBiome(biome);
-			List<TemplateHolder> templateHolders = Treasure.TEMPLATE_MANAGER.getTemplatesByArchetypeTypeBiomeTable().get(key, biomeID);
-			if (templateHolders == null || templateHolders.isEmpty()) {
-				Treasure.logger.debug("could not find template holders for archetype:type, biome -> {} [{}]:[]", key, biomeID, biome.toString());
+			// get structure by archetype (subterranean) and type (room)
+			TemplateHolder[] templateHolders = Treasure.TEMPLATE_MANAGER.getTemplates(StructureArchetype.SUBTERRANEAN, StructureType.ROOM, biome);
+			if (templateHolders.length == 0) {
+				Treasure.logger.debug("could not find template holders for archetype:type, biome -> {}:{} [{}]", StructureArchetype.SUBTERRANEAN, StructureType.ROOM, biome);
 				return result.fail();
 			}
 			
-			TemplateHolder holder = templateHolders.get(random.nextInt(templateHolders.size()));
+			TemplateHolder holder = templateHolders[random.nextInt(templateHolders.length)];
 			if (holder == null) {
 				Treasure.logger.debug("could not find random template holder.");
 				return result.fail();
 			}
 			
-			GottschTemplate template = (GottschTemplate) holder.getTemplate();
+			Template template = holder.getTemplate();
 			Treasure.logger.debug("selected template holder -> {} : {}", holder.getLocation(), holder.getMetaLocation());
 			if (template == null) {
 				Treasure.logger.debug("could not find random template");
@@ -141,7 +138,7 @@ public class StructurePitGenerator extends AbstractPitGenerator {
 			
 			// find the offset block
 			int offset = 0;
-			ICoords offsetCoords = template.findCoords(random, GenUtil.getMarkerBlock(StructureMarkers.OFFSET));
+			ICoords offsetCoords = holder.findCoords(random, GenUtil.getMarkerBlock(StructureMarkers.OFFSET));
 			if (offsetCoords != null) {
 				offset = -offsetCoords.getY();
 			}
@@ -166,7 +163,7 @@ public class StructurePitGenerator extends AbstractPitGenerator {
 			}
 	
 			// find the entrance block
-			ICoords entranceCoords = template.findCoords(random, GenUtil.getMarkerBlock(StructureMarkers.ENTRANCE));
+			ICoords entranceCoords = holder.findCoords(random, GenUtil.getMarkerBlock(StructureMarkers.ENTRANCE));
 			if (entranceCoords == null) {
 				Treasure.logger.debug("Unable to locate entrance position.");
 				return result.fail();
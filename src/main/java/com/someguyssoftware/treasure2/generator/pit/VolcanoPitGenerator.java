@@ -7,11 +7,12 @@ import com.someguyssoftware.gottschcore.cube.Cube;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
-import com.someguyssoftware.gottschcore.random.RandomWeightedCollection;
 import com.someguyssoftware.treasure2.block.TreasureBlocks;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.random.WeightedSampler;
 import com.sun.media.jfxmedia.logging.Logger;
 
 import net.minecraft.block.Block;
@@ -67,7 +68,7 @@ public class VolcanoPitGenerator extends AbstractPitGenerator {
 	 * @return
 	 */
 	@Override
-	public ICoords buildPit(World world, Random random, ICoords coords, ICoords surfaceCoords, RandomWeightedCollection<Block> col) {
+	public ICoords buildPit(World world, Random random, ICoords coords, ICoords surfaceCoords, WeightedSampler<Block> col) {
 		ICoords nextCoords = null;
 		ICoords expectedCoords = null;
         
@@ -78,16 +79,16 @@ public class VolcanoPitGenerator extends AbstractPitGenerator {
 		int shaftStartY = coords.getY() + ((surfaceCoords.getY() - coords.getY()) / 3 * 2);
 
 		// build lava around base
-		buildLavaBaseLayer(world, coords.down(1), radius);
+		buildLavaBaseLayer(world, random, coords.down(1), radius);
 
         nextCoords = coords;
         while (nextCoords.getY() < (shaftStartY - 4)) {
-            nextCoords = buildLayer(world, nextCoords, radius, Blocks.AIR, true);
+            nextCoords = buildLayer(world, random, nextCoords, radius, Blocks.AIR, true);
         }
 
         // taper in until 2/3 point is reached
         while (nextCoords.getY() < shaftStartY && radius > 1) {
-            nextCoords = buildLayer(world, nextCoords, radius--, Blocks.AIR, false);
+            nextCoords = buildLayer(world, random, nextCoords, radius--, Blocks.AIR, false);
         }
 
         // build one layer of logs
@@ -102,7 +103,7 @@ public class VolcanoPitGenerator extends AbstractPitGenerator {
 			}
 
 			// get the next type of block layer to build
-			Block block = col.next();
+			Block block = col.next(random);
 			if (block == Blocks.LOG) {
 				// special log build layer
 				nextCoords = buildLogLayer(world, random, cube.getCoords(), block); // could have difference classes and implement buildLayer differently
@@ -131,7 +132,7 @@ public class VolcanoPitGenerator extends AbstractPitGenerator {
     /**
      * 
      */
-    private ICoords buildLayer(World world, ICoords coords, int radius, Block block, boolean addDecorations) {
+    private ICoords buildLayer(World world, Random random, ICoords coords, int radius, Block block, boolean addDecorations) {
 		int radiusSquared = radius * radius;
 		Integer[] distancesMet = new Integer[radius + 1];
 		ICoords spawnCoords = null;
@@ -152,7 +153,6 @@ public class VolcanoPitGenerator extends AbstractPitGenerator {
 				}
 
 				if (isDistanceMet) {
-					Random random = new Random();
                     GenUtil.replaceWithBlock(world, spawnCoords, block);
                     
                     if (addDecorations) {
@@ -187,10 +187,10 @@ public class VolcanoPitGenerator extends AbstractPitGenerator {
     private void addDecorations(World world, Random random, ICoords coords) {
         if (world.getBlockState(coords.toPos()).getBlock() != Blocks.AIR) {
             if (RandomHelper.checkProbability(random, 30)) {
-                world.setBlockState(coords.toPos(), TreasureBlocks.BLACKSTONE.getDefaultState());
+                BlockWriteBuffer.setBlockState(world, coords, TreasureBlocks.BLACKSTONE.getDefaultState());
             }
             else if (RandomHelper.checkProbability(random, 10)) {
-            	world.setBlockState(coords.toPos(), Blocks.LAVA.getDefaultState());
+            	BlockWriteBuffer.setBlockState(world, coords, Blocks.LAVA.getDefaultState());
             }
         }
     }
@@ -198,13 +198,14 @@ public class VolcanoPitGenerator extends AbstractPitGenerator {
 	/**
 	 * 
 	 * @param world
+	 * @param random
 	 * @param coords
 	 */
-	private void buildLavaBaseLayer(World world, ICoords coords, int radius) {
+	private void buildLavaBaseLayer(World world, Random random, ICoords coords, int radius) {
         logger.debug("Building lava baselayer from @ {} ", coords.toShortString());
 
         // for circular chamber
-        buildLayer(world, coords, radius, Blocks.LAVA, false);
+        buildLayer(world, random, coords, radius, Blocks.LAVA, false);
 
         // add the chest
         GenUtil.replaceWithBlock(world, coords, Blocks.STONE);	
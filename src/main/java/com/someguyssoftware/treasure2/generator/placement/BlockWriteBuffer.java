@@ -0,0 +1,307 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.generator.placement;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockFalling;
+import net.minecraft.block.BlockLiquid;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.fluids.IFluidBlock;
+
+/**
+ * Writes the blocks of the world generators directly into the chunk sections (ExtendedBlockStorage), without the
+ * per-block neighbour updates, client notifications and relighting of World.setBlockState(). Reads see the
+ * written blocks immediately. When the outermost buffer of the thread ends, the height map of every touched
+ * chunk is regenerated, the chunk is flagged for a (single, deferred) relight and marked dirty, and the
+ * clients watching a touched section are notified.
+ * <p>
+ * Blocks with tile entities, falling blocks, fluids and the blocks that act in onBlockAdded() always go through
+ * World.setBlockState(). A write into a chunk that isn't loaded is routed to the DeferredPlacementQueue instead of
+ * loading (or generating) the chunk. Outside of a buffer, or for a different world, the writes go straight to the world.
+ * </p>
+ */
+public class BlockWriteBuffer {
+	// the buffer opened on this thread
+	private static final ThreadLocal<BlockWriteBuffer> CURRENT = new ThreadLocal<>();
+
+	private static final int FLAGS = 3;
+
+	// Block.onBlockAdded(), by its deobfuscated or srg name, to find the blocks that override it
+	private static final Method ON_BLOCK_ADDED = findOnBlockAdded();
+	// whether a block must be set through the world, by block
+	private static final Map<Block, Boolean> WORLD_UPDATED_BLOCKS = new ConcurrentHashMap<>();
+
+	private final World world;
+	private int depth;
+
+	// touched chunks, and the changed positions of each touched section
+	private final Long2ObjectMap<Chunk> chunks = new Long2ObjectOpenHashMap<>();
+	private final Long2ObjectMap<LongArrayList> sections = new Long2ObjectOpenHashMap<>();
+	// chunks that had a light opacity or light value change
+	private final Long2ObjectMap<Chunk> relightChunks = new Long2ObjectOpenHashMap<>();
+
+	// the blocks written into the sections, and through the world or the placement queue
+	private int directWrites;
+	private int fallbackWrites;
+	// the counts when each nested begin() was called, so the counts are per pass
+	private final IntArrayList directMarks = new IntArrayList();
+	private final IntArrayList fallbackMarks = new IntArrayList();
+
+	/**
+	 *
+	 * @param world
+	 */
+	private BlockWriteBuffer(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Opens a buffer for the world. Buffers nest; only the outermost end() flushes.
+	 * If a buffer of another world is open, it is flushed and replaced.
+	 * @param world
+	 */
+	public static void begin(World world) {
+		BlockWriteBuffer buffer = CURRENT.get();
+		if (buffer != null && buffer.world != world) {
+			buffer.flush();
+			buffer = null;
+		}
+		if (buffer == null) {
+			buffer = new BlockWriteBuffer(world);
+			CURRENT.set(buffer);
+		}
+		buffer.depth++;
+		buffer.directMarks.add(buffer.directWrites);
+		buffer.fallbackMarks.add(buffer.fallbackWrites);
+	}
+
+	/**
+	 * Closes the buffer of the world, flushing it if it is the outermost.
+	 * @param world
+	 */
+	public static void end(World world) {
+		BlockWriteBuffer buffer = CURRENT.get();
+		if (buffer == null || buffer.world != world) {
+			return;
+		}
+		buffer.directMarks.removeInt(buffer.directMarks.size() - 1);
+		buffer.fallbackMarks.removeInt(buffer.fallbackMarks.size() - 1);
+		if (--buffer.depth <= 0) {
+			CURRENT.remove();
+			buffer.flush();
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param coords
+	 * @param state
+	 */
+	public static void setBlockState(World world, ICoords coords, IBlockState state) {
+		setBlockState(world, coords.toPos(), state);
+	}
+
+	/**
+	 * Sets the block state through the open buffer of the world, otherwise directly in the world.
+	 * @param world
+	 * @param pos
+	 * @param state
+	 */
+	public static void setBlockState(World world, BlockPos pos, IBlockState state) {
+		// the cached surface scans may no longer hold
+		SurfaceCache.invalidate(world);
+		BlockWriteBuffer buffer = CURRENT.get();
+		if (buffer == null || buffer.world != world) {
+			world.setBlockState(pos, state, FLAGS);
+		}
+		else if (!buffer.write(pos, state)) {
+			buffer.fallbackWrites++;
+			world.setBlockState(pos, state, FLAGS);
+		}
+	}
+
+	/**
+	 *
+	 * @param pos
+	 * @param state
+	 * @return false if the block must be set through the world
+	 */
+	private boolean write(BlockPos pos, IBlockState state) {
+		if (world.isOutsideBuildHeight(pos)) {
+			return true;
+		}
+		Chunk chunk = world.getChunkProvider().getLoadedChunk(pos.getX() >> 4, pos.getZ() >> 4);
+		if (chunk == null) {
+			// parked until the chunk populates, rather than loading (or generating) it
+			fallbackWrites++;
+			DeferredPlacementQueue.getInstance().setBlockState(world, pos, state);
+			return true;
+		}
+		ExtendedBlockStorage[] storageArray = chunk.getBlockStorageArray();
+		int sectionIndex = pos.getY() >> 4;
+		ExtendedBlockStorage storage = storageArray[sectionIndex];
+		int x = pos.getX() & 15;
+		int y = pos.getY() & 15;
+		int z = pos.getZ() & 15;
+
+		IBlockState oldState = storage == Chunk.NULL_BLOCK_STORAGE ? Blocks.AIR.getDefaultState() : storage.get(x, y, z);
+		if (oldState == state) {
+			return true;
+		}
+		if (oldState.getBlock().hasTileEntity(oldState) || state.getBlock().hasTileEntity(state)
+				|| isWorldUpdated(state.getBlock())) {
+			return false;
+		}
+		if (storage == Chunk.NULL_BLOCK_STORAGE) {
+			storage = new ExtendedBlockStorage(sectionIndex << 4, world.provider.hasSkyLight());
+			storageArray[sectionIndex] = storage;
+		}
+		storage.set(x, y, z, state);
+		directWrites++;
+
+		long chunkKey = ChunkPos.asLong(chunk.x, chunk.z);
+		chunks.put(chunkKey, chunk);
+		if (oldState.getLightOpacity(world, pos) != state.getLightOpacity(world, pos)
+				|| oldState.getLightValue(world, pos) != state.getLightValue(world, pos)) {
+			relightChunks.put(chunkKey, chunk);
+		}
+
+		long sectionKey = BlockPos.toLong(chunk.x, sectionIndex, chunk.z);
+		LongArrayList positions = sections.get(sectionKey);
+		if (positions == null) {
+			positions = new LongArrayList();
+			sections.put(sectionKey, positions);
+		}
+		positions.add(pos.toLong());
+		return true;
+	}
+
+	/**
+	 * Regenerates the height map and schedules the relight of the touched chunks, marks them dirty and
+	 * notifies the watching clients of the changed blocks.
+	 */
+	private void flush() {
+		for (Chunk chunk : relightChunks.values()) {
+			chunk.generateSkylightMap();
+			// relit on the chunk's next tick (new chunks are always lit on their first tick)
+			chunk.setLightPopulated(false);
+		}
+		for (Chunk chunk : chunks.values()) {
+			chunk.markDirty();
+		}
+
+		if (world instanceof WorldServer) {
+			WorldServer worldServer = (WorldServer) world;
+			for (Long2ObjectMap.Entry<LongArrayList> entry : sections.long2ObjectEntrySet()) {
+				BlockPos sectionPos = BlockPos.fromLong(entry.getLongKey());
+				// not sent to any client yet (ex. during population)
+				if (!worldServer.getPlayerChunkMap().contains(sectionPos.getX(), sectionPos.getZ())) {
+					continue;
+				}
+				LongArrayList positions = entry.getValue();
+				for (int index = 0; index < positions.size(); index++) {
+					BlockPos pos = BlockPos.fromLong(positions.getLong(index));
+					IBlockState state = world.getBlockState(pos);
+					world.notifyBlockUpdate(pos, state, state, FLAGS);
+				}
+			}
+		}
+		chunks.clear();
+		sections.clear();
+		relightChunks.clear();
+	}
+
+	/**
+	 * Falling blocks and fluids must be scheduled for an update, and the blocks that override onBlockAdded()
+	 * (ex. to schedule a tick or to check their surroundings) must be told they were placed.
+	 * @param block
+	 * @return true if the block must be set through the world
+	 */
+	private static boolean isWorldUpdated(Block block) {
+		Boolean isWorldUpdated = WORLD_UPDATED_BLOCKS.get(block);
+		if (isWorldUpdated == null) {
+			isWorldUpdated = block instanceof BlockFalling || block instanceof BlockLiquid || block instanceof IFluidBlock
+					|| overridesOnBlockAdded(block);
+			WORLD_UPDATED_BLOCKS.put(block, isWorldUpdated);
+		}
+		return isWorldUpdated;
+	}
+
+	/**
+	 * Looks the method up by its signature and either name, as ReflectionHelper needs the launcher's blackboard
+	 * (so it fails on a plain JVM, ex. the tests).
+	 * @return
+	 */
+	private static Method findOnBlockAdded() {
+		for (Method method : Block.class.getDeclaredMethods()) {
+			if ((method.getName().equals("onBlockAdded") || method.getName().equals("func_176213_c"))
+					&& Arrays.equals(method.getParameterTypes(), new Class<?>[] {World.class, BlockPos.class, IBlockState.class})) {
+				return method;
+			}
+		}
+		throw new IllegalStateException("Unable to find Block.onBlockAdded");
+	}
+
+	/**
+	 *
+	 * @param block
+	 * @return
+	 */
+	private static boolean overridesOnBlockAdded(Block block) {
+		try {
+			return block.getClass().getMethod(ON_BLOCK_ADDED.getName(), ON_BLOCK_ADDED.getParameterTypes()).getDeclaringClass() != Block.class;
+		}
+		catch(NoSuchMethodException e) {
+			Treasure.logger.warn("Unable to find onBlockAdded of block -> {}", block.getRegistryName());
+			return true;
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @return the number of blocks written directly into the sections by the current pass of the world's buffer
+	 */
+	public static int getDirectWrites(World world) {
+		BlockWriteBuffer buffer = CURRENT.get();
+		if (buffer == null || buffer.world != world || buffer.directMarks.isEmpty()) {
+			return 0;
+		}
+		return buffer.directWrites - buffer.directMarks.getInt(buffer.directMarks.size() - 1);
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @return the number of blocks set through the world or parked by the current pass of the world's buffer
+	 */
+	public static int getFallbackWrites(World world) {
+		BlockWriteBuffer buffer = CURRENT.get();
+		if (buffer == null || buffer.world != world || buffer.fallbackMarks.isEmpty()) {
+			return 0;
+		}
+		return buffer.fallbackWrites - buffer.fallbackMarks.getInt(buffer.fallbackMarks.size() - 1);
+	}
+}
@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.generator.placement;
+
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Thrown by DeferredPlacementQueue.requireWritable() to defer a scheduled build until a chunk populates.
+ */
+public class DeferredBuildException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final ChunkPos chunkPos;
+
+	/**
+	 *
+	 * @param chunkPos the chunk that blocked the build
+	 */
+	public DeferredBuildException(ChunkPos chunkPos) {
+		super("deferred until chunk " + chunkPos + " populates", null, false, false);
+		this.chunkPos = chunkPos;
+	}
+
+	public ChunkPos getChunkPos() {
+		return chunkPos;
+	}
+}
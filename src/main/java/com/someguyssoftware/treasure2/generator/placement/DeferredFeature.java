@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.generator.placement;
+
+import java.util.Random;
+
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+import com.someguyssoftware.treasure2.generator.GenUtil;
+import com.someguyssoftware.treasure2.generator.oasis.DesertOasisGenerator;
+import com.someguyssoftware.treasure2.worldgen.WitherTreeWorldGenerator;
+
+import net.minecraft.block.Block;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * The world gen features that read the world before writing to it, and thus can only be parked as a whole
+ * by the DeferredPlacementQueue. The radius is the reach (in blocks) of the feature around its pos.
+ * The constants are saved by name with the parked placements, so don't rename them.
+ */
+public enum DeferredFeature {
+	// data = the state id of the fog block
+	FOG(0) {
+		@Override
+		public void generate(World world, Random random, BlockPos pos, int data) {
+			GenUtil.addFogColumn(world, new Coords(pos), Block.getStateById(data).getBlock());
+		}
+	},
+	// data = 1 if the column is podzol
+	WITHER_CLEARING(0) {
+		@Override
+		public void generate(World world, Random random, BlockPos pos, int data) {
+			getWitherTreeGenerator().buildClearingColumn(world, random, new Coords(pos), data == 1);
+		}
+	},
+	WITHER_SUPPORTING_TREE(WitherTreeWorldGenerator.SUPPORTING_TREE_RADIUS) {
+		@Override
+		public void generate(World world, Random random, BlockPos pos, int data) {
+			getWitherTreeGenerator().buildSupportingTree(world, random, new Coords(pos), TreasureConfig.WITHER_TREE);
+		}
+	},
+	WITHER_ROCKS(1) {
+		@Override
+		public void generate(World world, Random random, BlockPos pos, int data) {
+			getWitherTreeGenerator().buildRock(world, random, new Coords(pos));
+		}
+	},
+	WITHER_SCRUB(0) {
+		@Override
+		public void generate(World world, Random random, BlockPos pos, int data) {
+			getWitherTreeGenerator().buildScrubColumn(world, random, new Coords(pos));
+		}
+	},
+	OASIS_BASE(0) {
+		@Override
+		public void generate(World world, Random random, BlockPos pos, int data) {
+			DesertOasisGenerator.generateBaseColumn(world, new Coords(pos));
+		}
+	},
+	// data = the seed that selects the kind of tree
+	OASIS_TREE(DesertOasisGenerator.TREE_RADIUS) {
+		@Override
+		public void generate(World world, Random random, BlockPos pos, int data) {
+			DesertOasisGenerator.generateTree(world, random, pos, data);
+		}
+	},
+	OASIS_GRASS(DesertOasisGenerator.PLANT_RADIUS) {
+		@Override
+		public void generate(World world, Random random, BlockPos pos, int data) {
+			DesertOasisGenerator.generateGrass(world, random, pos);
+		}
+	},
+	OASIS_FLOWER(DesertOasisGenerator.PLANT_RADIUS) {
+		@Override
+		public void generate(World world, Random random, BlockPos pos, int data) {
+			DesertOasisGenerator.generateFlower(world, random, pos);
+		}
+	};
+
+	private int radius;
+
+	/**
+	 *
+	 * @param radius
+	 */
+	DeferredFeature(int radius) {
+		this.radius = radius;
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param random
+	 * @param pos
+	 * @param data
+	 */
+	public abstract void generate(World world, Random random, BlockPos pos, int data);
+
+	/**
+	 *
+	 * @return
+	 */
+	private static WitherTreeWorldGenerator getWitherTreeGenerator() {
+		return (WitherTreeWorldGenerator) Treasure.WORLD_GENERATORS.get(WorldGeneratorType.WITHER_TREE);
+	}
+
+	/**
+	 * @return the radius
+	 */
+	public int getRadius() {
+		return radius;
+	}
+}
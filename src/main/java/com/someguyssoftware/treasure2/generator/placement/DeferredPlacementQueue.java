@@ -0,0 +1,551 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.generator.placement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.persistence.GenDataPersistence;
+import com.someguyssoftware.treasure2.random.RandomSource;
+import com.someguyssoftware.treasure2.worldgen.GenerationScheduler;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Routes world gen block writes (and the features that read the world before writing) by their target chunk
+ * to avoid cascading chunk generation. A chunk is writable if it is loaded and either already populated or
+ * part of the population pass in progress (the populating chunk and its +x/+z neighbours, which are guaranteed loaded).
+ * Writes into writable chunks are applied immediately, the rest are parked by chunk and flushed when
+ * that chunk populates (see begin()) or is loaded already populated (see onChunkLoad() and flushReady()).
+ * The population passes nest: a chunk populated from within another chunk's population (a cascade) opens an inner pass,
+ * and the chunks of all the open passes are writable.
+ * <p>
+ * A template structure can't be parked block by block, as its placement reads the world. If its footprint isn't
+ * writable, the whole scheduled build is parked instead (see requireWritable()) and is scheduled again, with the same
+ * random, when the blocking chunk populates.
+ * </p>
+ * <p>
+ * Parked placements and builds are saved with the gen data, so they survive a restart.
+ * </p>
+ * <p>
+ * The population passes are per thread, so chunks populated on other threads (ex. by pre-generation tools) only see
+ * their own passes as writable. The parked placements are shared and the methods are synchronized; the flushes
+ * write to the world while holding the lock.
+ * </p>
+ */
+public class DeferredPlacementQueue {
+	private static DeferredPlacementQueue instance = new DeferredPlacementQueue();
+
+	private static final int FLAGS = 3;
+	private static final int PASS_CHUNKS = 2;
+
+	private static final String DIMENSION_ID_TAG_NAME = "dimensionID";
+	private static final String CHUNKS_TAG_NAME = "chunks";
+	private static final String CHUNK_X_TAG_NAME = "chunkX";
+	private static final String CHUNK_Z_TAG_NAME = "chunkZ";
+	private static final String POSITIONS_TAG_NAME = "positions";
+	private static final String STATES_TAG_NAME = "states";
+	private static final String FEATURES_TAG_NAME = "features";
+	private static final String FEATURE_TAG_NAME = "feature";
+	private static final String POS_TAG_NAME = "pos";
+	private static final String SEED_TAG_NAME = "seed";
+	private static final String DATA_TAG_NAME = "data";
+	private static final String BUILDS_TAG_NAME = "builds";
+
+	// parked placements by dimension
+	private Map<Integer, DimensionQueue> queues;
+
+	// the population passes in progress on this thread, innermost first
+	private final ThreadLocal<Deque<Pass>> passes = ThreadLocal.withInitial(ArrayDeque::new);
+
+	// number of parked placements that targeted a chunk that was not generated yet
+	private long cascadesAvoided;
+
+	/**
+	 *
+	 */
+	private DeferredPlacementQueue() {
+		queues = new HashMap<>();
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public static DeferredPlacementQueue getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Starts the population pass of a chunk and flushes the placements parked for the chunk. If the innermost
+	 * pass is already the chunk's, it is shared, otherwise a nested pass is opened. Every begin() must be matched
+	 * by an end(), ex. in a finally block.
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	public synchronized void begin(World world, int chunkX, int chunkZ) {
+		Deque<Pass> passes = this.passes.get();
+		Pass pass = passes.peekFirst();
+		if (pass != null && pass.world == world && pass.chunkX == chunkX && pass.chunkZ == chunkZ) {
+			pass.depth++;
+			return;
+		}
+		passes.addFirst(new Pass(world, chunkX, chunkZ));
+		flush(world, chunkX, chunkZ);
+	}
+
+	/**
+	 * Ends the innermost population pass, if it belongs to the world.
+	 * @param world
+	 */
+	public synchronized void end(World world) {
+		Deque<Pass> passes = this.passes.get();
+		Pass pass = passes.peekFirst();
+		if (pass != null && pass.world == world && --pass.depth <= 0) {
+			passes.removeFirst();
+		}
+	}
+
+	/**
+	 * Drops the population passes of the world left open on this thread, ex. when the world unloads.
+	 * @param world
+	 */
+	public synchronized void endAll(World world) {
+		passes.get().removeIf(pass -> pass.world == world);
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return true if a block can be written into the chunk without generating a chunk
+	 */
+	public synchronized boolean isWritable(World world, int chunkX, int chunkZ) {
+		Chunk chunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+		if (chunk == null) {
+			return false;
+		}
+		if (chunk.isTerrainPopulated()) {
+			return true;
+		}
+		for (Pass pass : passes.get()) {
+			if (pass.world == world
+					&& chunkX >= pass.chunkX && chunkX < pass.chunkX + PASS_CHUNKS
+					&& chunkZ >= pass.chunkZ && chunkZ < pass.chunkZ + PASS_CHUNKS) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the block state if the target chunk is writable, otherwise parks the write until the chunk populates.
+	 * @param world
+	 * @param pos
+	 * @param state
+	 * @return true if the block state was set immediately
+	 */
+	public synchronized boolean setBlockState(World world, BlockPos pos, IBlockState state) {
+		int chunkX = pos.getX() >> 4;
+		int chunkZ = pos.getZ() >> 4;
+		if (isWritable(world, chunkX, chunkZ)) {
+			world.setBlockState(pos, state, FLAGS);
+			return true;
+		}
+		ChunkPlacements placements = park(world, chunkX, chunkZ);
+		placements.positions.add(pos.toLong());
+		placements.states.add(Block.getStateId(state));
+		return false;
+	}
+
+	/**
+	 * Generates the feature if all the chunks within its radius are writable, otherwise parks the feature
+	 * until they are. A parked feature is seeded from its position, so parking doesn't draw from the random.
+	 * @param world
+	 * @param random
+	 * @param feature
+	 * @param pos
+	 * @param data feature specific data, ex. a block state id
+	 * @return true if the feature was generated immediately
+	 */
+	public synchronized boolean generate(World world, Random random, DeferredFeature feature, BlockPos pos, int data) {
+		ChunkPos blocked = findUnwritableChunk(world, pos, feature.getRadius());
+		if (blocked == null) {
+			feature.generate(world, random, pos, data);
+			return true;
+		}
+		long seed = RandomSource.structureSeed(world.getSeed(), new Coords(pos), feature.ordinal());
+		park(world, blocked.x, blocked.z).features.add(new FeaturePlacement(feature, pos.toLong(), seed, data));
+		return false;
+	}
+
+	/**
+	 * Defers the scheduled build in progress if any chunk of the area (x/z) is not writable. Use before a structure,
+	 * which can't be parked, reads or writes the area. The build must not have written any block yet, as it is run
+	 * again from the start. Outside of a population pass (ex. a command) the area is not checked.
+	 * @param world
+	 * @param coords the min corner of the area
+	 * @param width
+	 * @param depth
+	 * @throws DeferredBuildException if the area is not writable, caught by the GenerationScheduler
+	 */
+	public synchronized void requireWritable(World world, ICoords coords, int width, int depth) {
+		Pass pass = passes.get().peekFirst();
+		if (pass == null || pass.world != world) {
+			return;
+		}
+		ChunkPos blocked = findUnwritableChunk(world, coords.getX(), coords.getZ(), width, depth);
+		if (blocked != null) {
+			throw new DeferredBuildException(blocked);
+		}
+	}
+
+	/**
+	 * Parks a scheduled build until the chunk populates.
+	 * @param world
+	 * @param chunk the chunk that blocked the build
+	 * @param build the build, as saved by the GenerationScheduler
+	 */
+	public synchronized void parkBuild(World world, ChunkPos chunk, NBTTagCompound build) {
+		park(world, chunk.x, chunk.z).builds.add(build);
+	}
+
+	/**
+	 * Flags the chunk as ready to flush if it was loaded already populated and has parked placements.
+	 * @param world
+	 * @param chunk
+	 */
+	public synchronized void onChunkLoad(World world, Chunk chunk) {
+		DimensionQueue queue = queues.get(world.provider.getDimension());
+		if (queue == null || !chunk.isTerrainPopulated()) {
+			return;
+		}
+		long key = ChunkPos.asLong(chunk.x, chunk.z);
+		if (queue.chunks.containsKey(key)) {
+			queue.ready.add(key);
+		}
+	}
+
+	/**
+	 * Flushes the placements of the ready chunks. Call outside of chunk loading, ex. at the end of a world tick.
+	 * @param world
+	 */
+	public synchronized void flushReady(World world) {
+		DimensionQueue queue = queues.get(world.provider.getDimension());
+		if (queue == null || queue.ready.isEmpty()) {
+			return;
+		}
+		LongArrayList ready = new LongArrayList(queue.ready);
+		queue.ready.clear();
+		for (int index = 0; index < ready.size(); index++) {
+			long key = ready.getLong(index);
+			int chunkX = (int) key;
+			int chunkZ = (int) (key >> 32);
+			// the chunk may have been unloaded since, it will be flagged again on its next load
+			if (isWritable(world, chunkX, chunkZ)) {
+				flush(world, chunkX, chunkZ);
+			}
+		}
+	}
+
+	/**
+	 * Applies the placements parked for the chunk. Features that still can't be generated are parked again.
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	private void flush(World world, int chunkX, int chunkZ) {
+		Integer dimensionID = world.provider.getDimension();
+		DimensionQueue queue = queues.get(dimensionID);
+		if (queue == null) {
+			return;
+		}
+		long key = ChunkPos.asLong(chunkX, chunkZ);
+		ChunkPlacements placements = queue.chunks.remove(key);
+		if (placements == null) {
+			return;
+		}
+		queue.ready.remove(key);
+		if (queue.chunks.isEmpty()) {
+			queues.remove(dimensionID);
+		}
+
+		Treasure.logger.debug("flushing {} parked blocks, {} parked features and {} parked builds in chunk -> [{}, {}]",
+				placements.positions.size(), placements.features.size(), placements.builds.size(), chunkX, chunkZ);
+		for (int index = 0; index < placements.positions.size(); index++) {
+			world.setBlockState(BlockPos.fromLong(placements.positions.getLong(index)),
+					Block.getStateById(placements.states.getInt(index)), FLAGS);
+		}
+		for (FeaturePlacement feature : placements.features) {
+			generate(world, new Random(feature.seed), feature.feature, BlockPos.fromLong(feature.pos), feature.data);
+		}
+		for (NBTTagCompound build : placements.builds) {
+			GenerationScheduler.getInstance().schedule(world, build);
+		}
+
+		GenDataPersistence savedData = GenDataPersistence.get(world);
+		if (savedData != null) {
+			savedData.markDirty();
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return the placements of the chunk, created as needed
+	 */
+	private ChunkPlacements park(World world, int chunkX, int chunkZ) {
+		if (!world.getChunkProvider().isChunkGeneratedAt(chunkX, chunkZ)) {
+			cascadesAvoided++;
+		}
+		Integer dimensionID = world.provider.getDimension();
+		DimensionQueue queue = queues.get(dimensionID);
+		if (queue == null) {
+			queue = new DimensionQueue();
+			queues.put(dimensionID, queue);
+		}
+		long key = ChunkPos.asLong(chunkX, chunkZ);
+		ChunkPlacements placements = queue.chunks.get(key);
+		if (placements == null) {
+			placements = new ChunkPlacements();
+			queue.chunks.put(key, placements);
+		}
+		return placements;
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param pos
+	 * @param radius
+	 * @return the first chunk within the radius of the pos that is not writable, or null
+	 */
+	private ChunkPos findUnwritableChunk(World world, BlockPos pos, int radius) {
+		for (int chunkX = (pos.getX() - radius) >> 4; chunkX <= (pos.getX() + radius) >> 4; chunkX++) {
+			for (int chunkZ = (pos.getZ() - radius) >> 4; chunkZ <= (pos.getZ() + radius) >> 4; chunkZ++) {
+				if (!isWritable(world, chunkX, chunkZ)) {
+					return new ChunkPos(chunkX, chunkZ);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param x
+	 * @param z
+	 * @param width
+	 * @param depth
+	 * @return the first chunk of the area that is not writable, or null
+	 */
+	private ChunkPos findUnwritableChunk(World world, int x, int z, int width, int depth) {
+		for (int chunkX = x >> 4; chunkX <= (x + width - 1) >> 4; chunkX++) {
+			for (int chunkZ = z >> 4; chunkZ <= (z + depth - 1) >> 4; chunkZ++) {
+				if (!isWritable(world, chunkX, chunkZ)) {
+					return new ChunkPos(chunkX, chunkZ);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @return the number of placements that were parked instead of generating a chunk
+	 */
+	public synchronized long getCascadesAvoided() {
+		return cascadesAvoided;
+	}
+
+	/**
+	 *
+	 * @param dimensionID
+	 * @return the number of chunks with parked placements in the dimension
+	 */
+	public synchronized int size(Integer dimensionID) {
+		DimensionQueue queue = queues.get(dimensionID);
+		return queue == null ? 0 : queue.chunks.size();
+	}
+
+	/**
+	 *
+	 */
+	public synchronized void clear() {
+		queues.clear();
+		passes.remove();
+	}
+
+	/**
+	 * Loads the parked placements of all the dimensions.
+	 * @param dimTagList
+	 */
+	public synchronized void readFromNBT(NBTTagList dimTagList) {
+		queues.clear();
+		for (int dimIndex = 0; dimIndex < dimTagList.tagCount(); dimIndex++) {
+			NBTTagCompound dimTag = dimTagList.getCompoundTagAt(dimIndex);
+			DimensionQueue queue = new DimensionQueue();
+			NBTTagList chunkTagList = dimTag.getTagList(CHUNKS_TAG_NAME, 10);
+			for (int chunkIndex = 0; chunkIndex < chunkTagList.tagCount(); chunkIndex++) {
+				NBTTagCompound chunkTag = chunkTagList.getCompoundTagAt(chunkIndex);
+				ChunkPlacements placements = new ChunkPlacements();
+				// positions are saved as x, y, z triples
+				int[] positions = chunkTag.getIntArray(POSITIONS_TAG_NAME);
+				int[] states = chunkTag.getIntArray(STATES_TAG_NAME);
+				for (int index = 0; index < states.length && index * 3 + 2 < positions.length; index++) {
+					placements.positions.add(new BlockPos(positions[index * 3], positions[index * 3 + 1], positions[index * 3 + 2]).toLong());
+					placements.states.add(states[index]);
+				}
+				NBTTagList featureTagList = chunkTag.getTagList(FEATURES_TAG_NAME, 10);
+				for (int featureIndex = 0; featureIndex < featureTagList.tagCount(); featureIndex++) {
+					NBTTagCompound featureTag = featureTagList.getCompoundTagAt(featureIndex);
+					try {
+						DeferredFeature feature = DeferredFeature.valueOf(featureTag.getString(FEATURE_TAG_NAME));
+						placements.features.add(new FeaturePlacement(feature, featureTag.getLong(POS_TAG_NAME),
+								featureTag.getLong(SEED_TAG_NAME), featureTag.getInteger(DATA_TAG_NAME)));
+					}
+					catch(IllegalArgumentException e) {
+						Treasure.logger.warn("Unable to load parked feature -> {}", featureTag.getString(FEATURE_TAG_NAME));
+					}
+				}
+				NBTTagList buildTagList = chunkTag.getTagList(BUILDS_TAG_NAME, 10);
+				for (int buildIndex = 0; buildIndex < buildTagList.tagCount(); buildIndex++) {
+					placements.builds.add(buildTagList.getCompoundTagAt(buildIndex));
+				}
+				queue.chunks.put(ChunkPos.asLong(chunkTag.getInteger(CHUNK_X_TAG_NAME), chunkTag.getInteger(CHUNK_Z_TAG_NAME)), placements);
+			}
+			if (!queue.chunks.isEmpty()) {
+				queues.put(dimTag.getInteger(DIMENSION_ID_TAG_NAME), queue);
+			}
+		}
+	}
+
+	/**
+	 * Saves the parked placements of all the dimensions.
+	 * @return
+	 */
+	public synchronized NBTTagList writeToNBT() {
+		NBTTagList dimTagList = new NBTTagList();
+		for (Map.Entry<Integer, DimensionQueue> dimEntry : queues.entrySet()) {
+			NBTTagCompound dimTag = new NBTTagCompound();
+			dimTag.setInteger(DIMENSION_ID_TAG_NAME, dimEntry.getKey());
+			NBTTagList chunkTagList = new NBTTagList();
+			for (Long2ObjectMap.Entry<ChunkPlacements> chunkEntry : dimEntry.getValue().chunks.long2ObjectEntrySet()) {
+				ChunkPlacements placements = chunkEntry.getValue();
+				NBTTagCompound chunkTag = new NBTTagCompound();
+				chunkTag.setInteger(CHUNK_X_TAG_NAME, (int) chunkEntry.getLongKey());
+				chunkTag.setInteger(CHUNK_Z_TAG_NAME, (int) (chunkEntry.getLongKey() >> 32));
+
+				int[] positions = new int[placements.positions.size() * 3];
+				for (int index = 0; index < placements.positions.size(); index++) {
+					BlockPos pos = BlockPos.fromLong(placements.positions.getLong(index));
+					positions[index * 3] = pos.getX();
+					positions[index * 3 + 1] = pos.getY();
+					positions[index * 3 + 2] = pos.getZ();
+				}
+				chunkTag.setIntArray(POSITIONS_TAG_NAME, positions);
+				chunkTag.setIntArray(STATES_TAG_NAME, placements.states.toIntArray());
+
+				NBTTagList featureTagList = new NBTTagList();
+				for (FeaturePlacement feature : placements.features) {
+					NBTTagCompound featureTag = new NBTTagCompound();
+					featureTag.setString(FEATURE_TAG_NAME, feature.feature.name());
+					featureTag.setLong(POS_TAG_NAME, feature.pos);
+					featureTag.setLong(SEED_TAG_NAME, feature.seed);
+					featureTag.setInteger(DATA_TAG_NAME, feature.data);
+					featureTagList.appendTag(featureTag);
+				}
+				chunkTag.setTag(FEATURES_TAG_NAME, featureTagList);
+
+				NBTTagList buildTagList = new NBTTagList();
+				for (NBTTagCompound build : placements.builds) {
+					buildTagList.appendTag(build);
+				}
+				chunkTag.setTag(BUILDS_TAG_NAME, buildTagList);
+				chunkTagList.appendTag(chunkTag);
+			}
+			dimTag.setTag(CHUNKS_TAG_NAME, chunkTagList);
+			dimTagList.appendTag(dimTag);
+		}
+		return dimTagList;
+	}
+
+	/*
+	 * A population pass, the chunks of which are writable.
+	 */
+	private static class Pass {
+		final World world;
+		final int chunkX;
+		final int chunkZ;
+		int depth = 1;
+
+		Pass(World world, int chunkX, int chunkZ) {
+			this.world = world;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+	}
+
+	/*
+	 *
+	 */
+	private static class DimensionQueue {
+		final Long2ObjectMap<ChunkPlacements> chunks = new Long2ObjectOpenHashMap<>();
+		// chunks that were loaded already populated and can be flushed
+		final LongSet ready = new LongOpenHashSet();
+	}
+
+	/*
+	 * The parked block writes (packed positions and block state ids), features and builds of a chunk.
+	 */
+	private static class ChunkPlacements {
+		final LongArrayList positions = new LongArrayList();
+		final IntArrayList states = new IntArrayList();
+		final List<FeaturePlacement> features = new ArrayList<>(2);
+		final List<NBTTagCompound> builds = new ArrayList<>(1);
+	}
+
+	/*
+	 *
+	 */
+	private static class FeaturePlacement {
+		final DeferredFeature feature;
+		final long pos;
+		final long seed;
+		final int data;
+
+		FeaturePlacement(DeferredFeature feature, long pos, long seed, int data) {
+			this.feature = feature;
+			this.pos = pos;
+			this.seed = seed;
+			this.data = data;
+		}
+	}
+}
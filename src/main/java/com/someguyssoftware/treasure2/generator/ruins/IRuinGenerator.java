@@ -10,14 +10,18 @@ import com.someguyssoftware.gottschcore.measurement.Quantity;
 import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.world.gen.structure.BlockContext;
 import com.someguyssoftware.gottschcore.world.gen.structure.IDecayRuleSet;
+import com.someguyssoftware.gottschcore.world.gen.structure.StructureMarkers;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.block.TreasureBlocks;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
+import com.someguyssoftware.treasure2.generator.ColumnSnapshot;
+import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
 import com.someguyssoftware.treasure2.generator.IGeneratorResult;
 import com.someguyssoftware.treasure2.meta.StructureArchetype;
 import com.someguyssoftware.treasure2.meta.StructureType;
 import com.someguyssoftware.treasure2.tileentity.ProximitySpawnerTileEntity;
+import com.someguyssoftware.treasure2.world.gen.structure.StructurePlan;
 import com.someguyssoftware.treasure2.world.gen.structure.TemplateHolder;
 
 import net.minecraft.init.Blocks;
@@ -41,6 +45,68 @@ public interface IRuinGenerator<RESULT extends IGeneratorResult<?>> {
 	GeneratorResult<ChestGeneratorData> generate(World world, Random random, ICoords originalSpawnCoords,
 			TemplateHolder holder, IDecayRuleSet decayRuleSet);
 
+	/**
+	 * Captures the columns that the plans of the template can read (the footprints of all the rotations).
+	 * Call on the server thread, after the template is selected and loaded. Defers the scheduled build in progress if
+	 * a footprint isn't writable (see DeferredPlacementQueue.requireWritable()).
+	 * @param world
+	 * @param originalSpawnCoords
+	 * @param holder a holder whose template is loaded
+	 * @return
+	 */
+	ColumnSnapshot capture(World world, ICoords originalSpawnCoords, TemplateHolder holder);
+
+	/**
+	 * Selects the rotation and position of the ruin and checks the site. Reads the snapshot only, so it can run off
+	 * the server thread.
+	 * @param snapshot the site, see capture()
+	 * @param random
+	 * @param originalSpawnCoords
+	 * @param holder the template, the snapshot's
+	 * @param decayRuleSet the rule set or null to select one
+	 * @return the plan or null if the site isn't suitable
+	 */
+	StructurePlan plan(ColumnSnapshot snapshot, Random random, ICoords originalSpawnCoords, TemplateHolder holder, IDecayRuleSet decayRuleSet);
+
+	/**
+	 * Builds a planned ruin.
+	 * @param world
+	 * @param random
+	 * @param plan
+	 * @return
+	 */
+	GeneratorResult<ChestGeneratorData> apply(World world, Random random, StructurePlan plan);
+
+	/**
+	 *
+	 * @param plan
+	 * @return true if the plan has a chest (or boss chest) marker
+	 */
+	default public boolean hasChestContext(StructurePlan plan) {
+		return !plan.getMarkers().get(GenUtil.getMarkerBlock(StructureMarkers.BOSS_CHEST)).isEmpty()
+				|| !plan.getMarkers().get(GenUtil.getMarkerBlock(StructureMarkers.CHEST)).isEmpty();
+	}
+
+	/**
+	 * Selects the chest marker of a plan, a boss chest first. NOTE currently only 1 chest is allowed per structure.
+	 * @param random
+	 * @param plan
+	 * @return a copy of the chest marker or null
+	 */
+	default public BlockContext selectChestContext(Random random, StructurePlan plan) {
+		List<BlockContext> chestContexts = plan.getMarkers().get(GenUtil.getMarkerBlock(StructureMarkers.BOSS_CHEST));
+		// if a boss chest wasn't found, search for regular chests
+		if (chestContexts.isEmpty()) {
+			chestContexts = plan.getMarkers().get(GenUtil.getMarkerBlock(StructureMarkers.CHEST));
+		}
+		if (chestContexts.isEmpty()) {
+			return null;
+		}
+		BlockContext chestContext = chestContexts.size() > 1 ? chestContexts.get(random.nextInt(chestContexts.size())) : chestContexts.get(0);
+		// the plan's markers are shared
+		return new BlockContext(chestContext.getCoords(), chestContext.getState());
+	}
+
 	default public TemplateHolder selectTemplate(World world, Random random, ICoords coords, StructureArchetype archetype, StructureType type) {
 		// get the biome ID
 		Biome biome = world.getBiome(coords.toPos());
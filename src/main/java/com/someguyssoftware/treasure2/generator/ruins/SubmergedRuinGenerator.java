@@ -9,7 +9,6 @@ import java.util.Random;
 import com.someguyssoftware.gottschcore.measurement.Quantity;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
-import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.gottschcore.world.gen.structure.BlockContext;
 import com.someguyssoftware.gottschcore.world.gen.structure.DecayProcessor;
 import com.someguyssoftware.gottschcore.world.gen.structure.IDecayProcessor;
@@ -17,12 +16,16 @@ import com.someguyssoftware.gottschcore.world.gen.structure.IDecayRuleSet;
 import com.someguyssoftware.gottschcore.world.gen.structure.StructureMarkers;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
+import com.someguyssoftware.treasure2.generator.ColumnSnapshot;
+import com.someguyssoftware.treasure2.generator.ColumnSnapshot.SurfaceType;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
 import com.someguyssoftware.treasure2.generator.TemplateGeneratorData;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.meta.StructureArchetype;
 import com.someguyssoftware.treasure2.meta.StructureMeta;
 import com.someguyssoftware.treasure2.meta.StructureType;
+import com.someguyssoftware.treasure2.world.gen.structure.StructurePlan;
 import com.someguyssoftware.treasure2.world.gen.structure.TemplateGenerator;
 import com.someguyssoftware.treasure2.world.gen.structure.TemplateHolder;
 
@@ -39,10 +42,15 @@ public class SubmergedRuinGenerator implements IRuinGenerator<GeneratorResult<Ch
 
 	private static final double REQUIRED_BASE_SIZE = 50;
 
+	// the template generator of the plans and their builds
+	private final TemplateGenerator generator = new TemplateGenerator();
+
 	/**
 	 * 
 	 */
-	public SubmergedRuinGenerator() {}
+	public SubmergedRuinGenerator() {
+		generator.setNullBlock(Blocks.AIR);
+	}
 
 	@Override
 	public GeneratorResult<ChestGeneratorData> generate(World world, Random random,
@@ -65,23 +73,46 @@ public class SubmergedRuinGenerator implements IRuinGenerator<GeneratorResult<Ch
 	@Override
 	public GeneratorResult<ChestGeneratorData> generate(World world, Random random,
 			ICoords originalSpawnCoords, TemplateHolder holder, IDecayRuleSet decayRuleSet) {
-		GeneratorResult<ChestGeneratorData> result = new GeneratorResult<>(ChestGeneratorData.class);
-
 		// TODO create a method selectTemplate() in abstract that will be overridden by concrete classes, provided the archetype and type
 
-		/*
-		 * Setup
-		 */
-		// create the generator
-		TemplateGenerator generator = new TemplateGenerator();
-		generator.setNullBlock(Blocks.AIR);
-
 		// get the template holder from the given archetype, type and biome
 		if (holder == null) {
 			holder = selectTemplate(world, random, originalSpawnCoords, StructureArchetype.SUBMERGED, StructureType.RUIN);
 		}
-		if (holder == null) return result.fail();		
+		// a given holder's template may fail to load
+		if (holder == null || holder.getTransforms() == null) {
+			return new GeneratorResult<>(ChestGeneratorData.class).fail();
+		}
 
+		StructurePlan plan = plan(capture(world, originalSpawnCoords, holder), random, originalSpawnCoords, holder, decayRuleSet);
+		if (plan == null) {
+			return new GeneratorResult<>(ChestGeneratorData.class).fail();
+		}
+		return apply(world, random, plan);
+	}
+
+	@Override
+	public ColumnSnapshot capture(World world, ICoords originalSpawnCoords, TemplateHolder holder) {
+		ColumnSnapshot snapshot = new ColumnSnapshot(SurfaceType.OCEAN_FLOOR, holder.getTransforms());
+		// the rotation is selected by the plan
+		for (Rotation rotation : Rotation.values()) {
+			PlacementSettings placement = new PlacementSettings().setRotation(rotation);
+			ICoords templateSize = snapshot.getTransforms().get(rotation, placement.getMirror()).getSize();
+			ICoords actualSpawnCoords = generator.getTransformedSpawnCoords(originalSpawnCoords, templateSize, placement);
+
+			// a template can't be parked, so defer the whole build until its footprint is writable (prevents cascading chunk generation)
+			DeferredPlacementQueue.getInstance().requireWritable(world, actualSpawnCoords, templateSize.getX(), templateSize.getZ());
+			snapshot.addFootprint(world, actualSpawnCoords, templateSize.getX(), templateSize.getZ());
+		}
+		return snapshot;
+	}
+
+	@Override
+	public StructurePlan plan(ColumnSnapshot snapshot, Random random,
+			ICoords originalSpawnCoords, TemplateHolder holder, IDecayRuleSet decayRuleSet) {
+		/*
+		 * Setup
+		 */
 		// select a random rotation
 		Rotation rotation = Rotation.values()[random.nextInt(Rotation.values().length)];
 		Treasure.logger.debug("rotation used -> {}", rotation);
@@ -91,7 +122,7 @@ public class SubmergedRuinGenerator implements IRuinGenerator<GeneratorResult<Ch
 		placement.setRotation(rotation).setRandom(random);
 
 		// determine the actual spawn coords
-		ICoords templateSize = new Coords(holder.getTemplate().transformedSize(placement.getRotation()));
+		ICoords templateSize = snapshot.getTransforms().get(rotation, placement.getMirror()).getSize();
 		ICoords actualSpawnCoords = generator.getTransformedSpawnCoords(originalSpawnCoords, templateSize, placement);
 
 		// NOTE these checks don't really belong in a generator as their task is to just generate.
@@ -99,15 +130,15 @@ public class SubmergedRuinGenerator implements IRuinGenerator<GeneratorResult<Ch
 		/**
 		 * Environment Checks
 		 */
-		actualSpawnCoords = WorldInfo.getOceanFloorSurfaceCoords(world, actualSpawnCoords);
+		actualSpawnCoords = snapshot.getSurfaceCoords(actualSpawnCoords);
 		Treasure.logger.debug("ocean floor coords -> {}", actualSpawnCoords.toShortString());
 
 		// check if it has % land
 		for (int i = 0; i < 3; i++) {
-			if (!WorldInfo.isSolidBase(world, actualSpawnCoords, templateSize.getX(), templateSize.getZ(), REQUIRED_BASE_SIZE)) {
+			if (!snapshot.isSolidBase(actualSpawnCoords, templateSize.getX(), templateSize.getZ(), REQUIRED_BASE_SIZE)) {
 				if (i == 2) {
 					Treasure.logger.debug("Coords -> [{}] does not meet {}% solid base requirements for size -> {} x {}", REQUIRED_BASE_SIZE, originalSpawnCoords.toShortString(), templateSize.getX(), templateSize.getY());
-					return result.fail();
+					return null;
 				}
 				else {
 					actualSpawnCoords = actualSpawnCoords.add(0, -1, 0);
@@ -131,85 +162,51 @@ public class SubmergedRuinGenerator implements IRuinGenerator<GeneratorResult<Ch
 		StructureMeta meta = (StructureMeta) Treasure.META_MANAGER.getMetaMap().get(holder.getMetaLocation().toString());
 		if (meta == null) {
 			Treasure.logger.debug("Unable to locate meta data for template -> {}", holder.getLocation());
-			return result.fail();
+			return null;
 		}
 
-		// setup the decay ruleset and processor
-		IDecayProcessor decayProcessor = null;
+		// setup the decay ruleset
 		if (decayRuleSet == null && holder.getDecayRuleSetLocation() != null && holder.getDecayRuleSetLocation().size() > 0) {
 			// create a decay processor with a random rule set
 			decayRuleSet = Treasure.DECAY_MANAGER.getRuleSetMap().get(holder.getDecayRuleSetLocation().get(random.nextInt(holder.getDecayRuleSetLocation().size())).toString());
 			Treasure.logger.debug("decayRuleSet -> {}", decayRuleSet.getName());
 			// if decayRuleSet is null the processor should be null
 		}
-		if (decayRuleSet != null) {
-			decayProcessor = new DecayProcessor(Treasure.instance.getInstance(), decayRuleSet);
+		return generator.plan(random, decayRuleSet, holder, snapshot.getTransforms(), placement, originalSpawnCoords);
+	}
+
+	@Override
+	public GeneratorResult<ChestGeneratorData> apply(World world, Random random, StructurePlan plan) {
+		GeneratorResult<ChestGeneratorData> result = new GeneratorResult<>(ChestGeneratorData.class);
+
+		// setup the decay processor
+		IDecayProcessor decayProcessor = null;
+		if (plan.getDecayRuleSet() != null) {
+			decayProcessor = new DecayProcessor(Treasure.instance.getInstance(), plan.getDecayRuleSet());
 			decayProcessor.setBackFillBlockLayer1(Blocks.GRAVEL.getDefaultState());
 		}
 
-		GeneratorResult<TemplateGeneratorData> genResult = generator.generate(world, random, decayProcessor, holder, placement, originalSpawnCoords);
+		GeneratorResult<TemplateGeneratorData> genResult = generator.apply(world, random, decayProcessor, plan);
 		if (!genResult.isSuccess()) return result.fail();
 
 		Treasure.logger.debug("submerged gen result -> {}", genResult);
 
-		// interrogate info for spawners and any other special block processing (except chests that are handler by caller
-		List<BlockContext> bossChestContexts =
-				(List<BlockContext>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.BOSS_CHEST));
-		List<BlockContext> chestContexts =
-				(List<BlockContext>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.CHEST));
-		List<BlockContext> spawnerContexts =
-				(List<BlockContext>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.SPAWNER));
-		List<BlockContext> proximityContexts =
-				(List<BlockContext>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.PROXIMITY_SPAWNER));
-		//		List<ICoords> spawnerCoords = (List<ICoords>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.SPAWNER));
-		//		List<ICoords> proximityCoords = (List<ICoords>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.PROXIMITY_SPAWNER));
-
 		/*
 		 *  NOTE currently only 1 chest is allowed per structure - the rest are ignored.
 		 */
-		// check if there is a boss chest(s)
-		BlockContext chestContext = null;
-		if (bossChestContexts != null && bossChestContexts.size() > 0) {
-			if (bossChestContexts.size() > 1) {
-				chestContext = bossChestContexts.get(random.nextInt(bossChestContexts.size()));
-			}
-			else {
-				chestContext = bossChestContexts.get(0);
-			}			
-		}
-		
-		// TODO turn these checks into methods
-		// if a boss chest wasn't found, search for regular chests
-		if (chestContext == null) {
-			if (chestContexts != null && chestContexts.size() > 0) {
-				if (chestContexts.size() > 1) {
-					chestContext = chestContexts.get(random.nextInt(chestContexts.size()));
-				}
-				else {
-					chestContext = chestContexts.get(0);
-				}			
-			}			
-		}
-	
-//		ICoords chestCoords = null;
-//		if (chestContext != null) {
-//			chestCoords = chestContext.getCoords();
-//		}
-		
-		// populate vanilla spawners
-//		buildVanillaSpawners(world, random, spawnerCoords);
+		// selected after the build, as the random was always drawn in this order
+		BlockContext chestContext = selectChestContext(random, plan);
 
-		// populate proximity spawners
-//		buildOneTimeSpawners(world, random, proximityCoords, new Quantity(1,2), 5D);
+		// interrogate info for spawners and any other special block processing (except chests that are handler by caller
+		List<BlockContext> spawnerContexts = plan.getMarkers(GenUtil.getMarkerBlock(StructureMarkers.SPAWNER));
+		List<BlockContext> proximityContexts = plan.getMarkers(GenUtil.getMarkerBlock(StructureMarkers.PROXIMITY_SPAWNER));
 
 		buildVanillaSpawners(world, random, spawnerContexts);
 		
 		// populate proximity spawners
 		buildOneTimeSpawners(world, random, proximityContexts, new Quantity(1,2), 5D);
 		
-//		result.setData(genResult.getData());
 		// copy all data from genResult
-//		result.setData((ChestGeneratorData2) genResult.getData());
 		result.getData().setSpawnCoords(genResult.getData().getSpawnCoords());
 		
 		// update with chest context
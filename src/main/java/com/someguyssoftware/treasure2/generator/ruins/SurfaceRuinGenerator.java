@@ -18,12 +18,16 @@ import com.someguyssoftware.gottschcore.world.gen.structure.IDecayRuleSet;
 import com.someguyssoftware.gottschcore.world.gen.structure.StructureMarkers;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
+import com.someguyssoftware.treasure2.generator.ColumnSnapshot;
+import com.someguyssoftware.treasure2.generator.ColumnSnapshot.SurfaceType;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
 import com.someguyssoftware.treasure2.generator.TemplateGeneratorData;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.meta.StructureArchetype;
 import com.someguyssoftware.treasure2.meta.StructureMeta;
 import com.someguyssoftware.treasure2.meta.StructureType;
+import com.someguyssoftware.treasure2.world.gen.structure.StructurePlan;
 import com.someguyssoftware.treasure2.world.gen.structure.TemplateGenerator;
 import com.someguyssoftware.treasure2.world.gen.structure.TemplateHolder;
 
@@ -42,6 +46,9 @@ public class SurfaceRuinGenerator implements IRuinGenerator<GeneratorResult<Ches
 	private static final double REQUIRED_BASE_SIZE = 45;
 	private static final double REQUIRED_AIR_SIZE = 30;
 
+	// the template generator of the plans and their builds
+	private final TemplateGenerator generator = new TemplateGenerator();
+
 	/**
 	 * 
 	 */
@@ -68,20 +75,44 @@ public class SurfaceRuinGenerator implements IRuinGenerator<GeneratorResult<Ches
 	@Override
 	public GeneratorResult<ChestGeneratorData> generate(World world, Random random,
 			ICoords originalSpawnCoords, TemplateHolder holder, IDecayRuleSet decayRuleSet) {		
-		GeneratorResult<ChestGeneratorData> result = new GeneratorResult<>(ChestGeneratorData.class);
-
-		/*
-		 * Setup
-		 */
-		// create the generator
-		TemplateGenerator generator = new TemplateGenerator();
-		
 		// get the template holder from the given archetype, type and biome
 		if (holder == null) {
 			holder = selectTemplate(world, random, originalSpawnCoords, StructureArchetype.SURFACE, StructureType.RUIN);
 		}
-		if (holder == null) return result.fail();		
+		// a given holder's template may fail to load
+		if (holder == null || holder.getTransforms() == null) {
+			return new GeneratorResult<>(ChestGeneratorData.class).fail();
+		}
+
+		StructurePlan plan = plan(capture(world, originalSpawnCoords, holder), random, originalSpawnCoords, holder, decayRuleSet);
+		if (plan == null) {
+			return new GeneratorResult<>(ChestGeneratorData.class).fail();
+		}
+		return apply(world, random, plan);
+	}
 
+	@Override
+	public ColumnSnapshot capture(World world, ICoords originalSpawnCoords, TemplateHolder holder) {
+		ColumnSnapshot snapshot = new ColumnSnapshot(SurfaceType.DRY_LAND, holder.getTransforms());
+		// the rotation is selected by the plan
+		for (Rotation rotation : Rotation.values()) {
+			PlacementSettings placement = new PlacementSettings().setRotation(rotation);
+			ICoords templateSize = snapshot.getTransforms().get(rotation, placement.getMirror()).getSize();
+			ICoords actualSpawnCoords = generator.getTransformedSpawnCoords(originalSpawnCoords, templateSize, placement);
+
+			// a template can't be parked, so defer the whole build until its footprint is writable (prevents cascading chunk generation)
+			DeferredPlacementQueue.getInstance().requireWritable(world, actualSpawnCoords, templateSize.getX(), templateSize.getZ());
+			snapshot.addFootprint(world, actualSpawnCoords, templateSize.getX(), templateSize.getZ());
+		}
+		return snapshot;
+	}
+
+	@Override
+	public StructurePlan plan(ColumnSnapshot snapshot, Random random,
+			ICoords originalSpawnCoords, TemplateHolder holder, IDecayRuleSet decayRuleSet) {
+		/*
+		 * Setup
+		 */
 		// select a random rotation
 		Rotation rotation = Rotation.values()[random.nextInt(Rotation.values().length)];
 		Treasure.logger.debug("rotation used -> {}", rotation);
@@ -91,7 +122,7 @@ public class SurfaceRuinGenerator implements IRuinGenerator<GeneratorResult<Ches
 		placement.setRotation(rotation).setRandom(random);
 	
 		// determine the actual spawn coords
-		ICoords templateSize = new Coords(holder.getTemplate().transformedSize(placement.getRotation()));
+		ICoords templateSize = snapshot.getTransforms().get(rotation, placement.getMirror()).getSize();
 		ICoords actualSpawnCoords = generator.getTransformedSpawnCoords(originalSpawnCoords, templateSize, placement);
 
 		Treasure.logger.debug("original coords -> {}",originalSpawnCoords.toShortString());
@@ -102,19 +133,19 @@ public class SurfaceRuinGenerator implements IRuinGenerator<GeneratorResult<Ches
 		/**
 		 * Environment Checks
 		 */
-		actualSpawnCoords = WorldInfo.getDryLandSurfaceCoords(world, actualSpawnCoords);
+		actualSpawnCoords = snapshot.getSurfaceCoords(actualSpawnCoords);
 		Treasure.logger.debug("surface coords -> {}", actualSpawnCoords.toShortString());
 		if (actualSpawnCoords == WorldInfo.EMPTY_COORDS) {
-			return result.fail();
+			return null;
 		}
 		
 		// check if it has % land base
 		for (int i = 0; i < 3; i++) {
 			Treasure.logger.debug("finding solid base index -> {} at coords -> {}", i, actualSpawnCoords.toShortString());
-			if (!WorldInfo.isSolidBase(world, actualSpawnCoords, templateSize.getX(), templateSize.getZ(), REQUIRED_BASE_SIZE)) {
+			if (!snapshot.isSolidBase(actualSpawnCoords, templateSize.getX(), templateSize.getZ(), REQUIRED_BASE_SIZE)) {
 				if (i == 2) {
 					Treasure.logger.debug("Coords -> [{}] does not meet {}% solid base requirements for size -> {} x {}", originalSpawnCoords.toShortString(), REQUIRED_BASE_SIZE, templateSize.getX(), templateSize.getZ());
-					return result.fail();
+					return null;
 				}
 				else {
 					actualSpawnCoords = actualSpawnCoords.add(0, -1, 0);
@@ -129,9 +160,9 @@ public class SurfaceRuinGenerator implements IRuinGenerator<GeneratorResult<Ches
 		
 		// check if the plane above the actual spawn coords is % air
 		Treasure.logger.debug("checking for {} % air at coords -> {} for dimensions -> {} x {}", REQUIRED_AIR_SIZE, actualSpawnCoords.add(0, 1, 0), templateSize.getX(), templateSize.getZ());
-		if (!WorldInfo.isAirBase(world, actualSpawnCoords.add(0, 1, 0), templateSize.getX(), templateSize.getZ(), REQUIRED_AIR_SIZE)) {
+		if (!snapshot.isAirBase(actualSpawnCoords.add(0, 1, 0), templateSize.getX(), templateSize.getZ(), REQUIRED_AIR_SIZE)) {
 			Treasure.logger.debug("Coords -> [{}] does not meet {} % air base requirements for size -> {} x {}", originalSpawnCoords.toShortString(), REQUIRED_AIR_SIZE, templateSize.getX(), templateSize.getZ());
-			return result.fail();
+			return null;
 		}
 		
 		/**
@@ -147,80 +178,57 @@ public class SurfaceRuinGenerator implements IRuinGenerator<GeneratorResult<Ches
 		StructureMeta meta = (StructureMeta) Treasure.META_MANAGER.getMetaMap().get(holder.getMetaLocation().toString());
 		if (meta == null) {
 			Treasure.logger.debug("Unable to locate meta data for template -> {}", holder.getLocation());
-			return result.fail();
+			return null;
 		}
 		
-		// setup the decay ruleset and processor
-		IDecayProcessor decayProcessor = null;
+		// setup the decay ruleset
 		if (decayRuleSet == null && holder.getDecayRuleSetLocation() != null && holder.getDecayRuleSetLocation().size() > 0) {
 			// create a decay processor
 			decayRuleSet = Treasure.DECAY_MANAGER.getRuleSetMap().get(holder.getDecayRuleSetLocation().get(random.nextInt(holder.getDecayRuleSetLocation().size())).toString());
 			Treasure.logger.debug("decayRuleSet -> {}", decayRuleSet.getName());
 			// if decayRuleSet is null the processor should be null
 		}
-		if (decayRuleSet != null) {
-			decayProcessor = new DecayProcessor(Treasure.instance.getInstance(), decayRuleSet);
+		return generator.plan(random, decayRuleSet, holder, snapshot.getTransforms(), placement, originalSpawnCoords);
+	}
+
+	@Override
+	public GeneratorResult<ChestGeneratorData> apply(World world, Random random, StructurePlan plan) {
+		GeneratorResult<ChestGeneratorData> result = new GeneratorResult<>(ChestGeneratorData.class);
+
+		// a plan without a chest is never built
+		if (!hasChestContext(plan)) {
+			return result.fail();
+		}
+
+		// setup the decay processor
+		IDecayProcessor decayProcessor = null;
+		if (plan.getDecayRuleSet() != null) {
+			decayProcessor = new DecayProcessor(Treasure.instance.getInstance(), plan.getDecayRuleSet());
 		}
 		
-		GeneratorResult<TemplateGeneratorData> genResult = generator.generate(world, random, decayProcessor, holder, placement, originalSpawnCoords);
+		GeneratorResult<TemplateGeneratorData> genResult = generator.apply(world, random, decayProcessor, plan);
 		 if (!genResult.isSuccess()) return result.fail();
 
 		Treasure.logger.debug("surface gen result -> {}", genResult);
 
-		// interrogate info for spawners and any other special block processing (except chests that are handler by caller
-		List<BlockContext> bossChestContexts =
-					(List<BlockContext>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.BOSS_CHEST));
-		List<BlockContext> chestContexts =
-				(List<BlockContext>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.CHEST));
-		List<BlockContext> spawnerContexts =
-				(List<BlockContext>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.SPAWNER));
-		List<BlockContext> proximityContexts =
-				(List<BlockContext>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.PROXIMITY_SPAWNER));
-//		List<ICoords> spawnerCoords = (List<ICoords>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.SPAWNER));
-//		List<ICoords> proximityCoords = (List<ICoords>) genResult.getData().getMap().get(GenUtil.getMarkerBlock(StructureMarkers.PROXIMITY_SPAWNER));
-
 		/*
 		 *  NOTE currently only 1 chest is allowed per structure - the rest are ignored.
 		 */
-		// check if there is a boss chest(s)
-		// TODO turn these checks into methods --> getChestContext();
-		BlockContext chestContext = null;
-		if (bossChestContexts != null && bossChestContexts.size() > 0) {
-			if (bossChestContexts.size() > 1) {
-				chestContext = bossChestContexts.get(random.nextInt(bossChestContexts.size()));
-			}
-			else {
-				chestContext = bossChestContexts.get(0);
-			}			
-		}		
+		// selected after the build, as the random was always drawn in this order
+		BlockContext chestContext = selectChestContext(random, plan);
 
-		// if a boss chest wasn't found, search for regular chests
-		if (chestContext == null) {
-			if (chestContexts != null && chestContexts.size() > 0) {
-				if (chestContexts.size() > 1) {
-					chestContext = chestContexts.get(random.nextInt(chestContexts.size()));
-				}
-				else {
-					chestContext = chestContexts.get(0);
-				}			
-			}			
-		}
+		// interrogate info for spawners and any other special block processing (except chests that are handler by caller
+		List<BlockContext> spawnerContexts = plan.getMarkers(GenUtil.getMarkerBlock(StructureMarkers.SPAWNER));
+		List<BlockContext> proximityContexts = plan.getMarkers(GenUtil.getMarkerBlock(StructureMarkers.PROXIMITY_SPAWNER));
 
-		ICoords chestCoords = null;
-		if (chestContext != null) {
-			// move the chest coords to the first solid block beneath it.
-			chestCoords = getSolidSurfaceCoords(world, chestContext.getCoords());
-			if (chestCoords == WorldInfo.EMPTY_COORDS) chestCoords = null;
-			chestContext.setCoords(chestCoords);
-		}
-		if (chestCoords == null) {
+		// move the chest coords to the first solid block beneath it.
+		ICoords chestCoords = getSolidSurfaceCoords(world, chestContext.getCoords());
+		if (chestCoords == WorldInfo.EMPTY_COORDS) {
 			return result.fail();
 		}
+		chestContext.setCoords(chestCoords);
 		
-		if (proximityContexts != null)
-			Treasure.logger.debug("Proximity spawners size -> {}", proximityContexts.size());
-		else
-			Treasure.logger.debug("No proximity spawners found.");
+		Treasure.logger.debug("Proximity spawners size -> {}", proximityContexts.size());
 		
 		// populate vanilla spawners
 		buildVanillaSpawners(world, random, spawnerContexts);
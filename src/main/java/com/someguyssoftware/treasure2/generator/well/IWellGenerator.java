@@ -15,6 +15,8 @@ import com.someguyssoftware.treasure2.config.TreasureConfig;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
 import com.someguyssoftware.treasure2.generator.IGeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
 import com.someguyssoftware.treasure2.world.gen.structure.TemplateHolder;
 
 import net.minecraft.block.Block;
@@ -86,7 +88,7 @@ public interface IWellGenerator<RESULT extends IGeneratorResult<?>> {
 		for (int i = 0; i < 16; i++) {
 			if (random.nextInt(2) == 0) {
 				// check if the block is dry land
-				ICoords markerCoords = WorldInfo.getDryLandSurfaceCoords(world, circle[i]);
+				ICoords markerCoords = SurfaceCache.getDryLandSurfaceCoords(world, circle[i]);
 				if (markerCoords == null || markerCoords == WorldInfo.EMPTY_COORDS) {
 					Treasure.logger.debug("Returning due to marker coords == null or EMPTY_COORDS");
 					continue; 
@@ -94,36 +96,36 @@ public interface IWellGenerator<RESULT extends IGeneratorResult<?>> {
 				Cube markerCube = new Cube(world, markerCoords.add(0, -1, 0));
 //				Treasure.logger.debug("Marker on block: {}", markerCube.getState());
 				if (markerCube.equalsBlock(Blocks.GRASS)) {
-					blockState = getDecorationBlockState(world, Blocks.RED_FLOWER);
+					blockState = getDecorationBlockState(world, random, Blocks.RED_FLOWER);
 				}
 				else if (markerCube.equalsBlock(Blocks.DIRT)) {
 					DirtType dirtType = markerCube.getState().getValue(BlockDirt.VARIANT);
 					if (dirtType == DirtType.DIRT) {
-						blockState = getDecorationBlockState(world, Blocks.RED_FLOWER);
+						blockState = getDecorationBlockState(world, random, Blocks.RED_FLOWER);
 					}
 					else if (dirtType == DirtType.PODZOL) {
 //						Treasure.logger.debug("On podzol block");
 						Block mushBlock = random.nextInt(2) == 0 ? Blocks.BROWN_MUSHROOM : Blocks.RED_MUSHROOM;
-						blockState = getDecorationBlockState(world, mushBlock);
+						blockState = getDecorationBlockState(world, random, mushBlock);
 					}
 					else {
 //						Treasure.logger.debug("On coarse dirt block");
 //						Block grassBlock = Blocks.TALLGRASS;
 //						blockState = grassBlock.getDefaultState().withProperty(BlockTallGrass.TYPE, BlockTallGrass.EnumType.values()[meta]);			
-						blockState = getDecorationBlockState(world, Blocks.TALLGRASS);
+						blockState = getDecorationBlockState(world, random, Blocks.TALLGRASS);
 					}
 				}
 				else if (markerCube.equalsBlock(Blocks.MYCELIUM)) {
 //					Treasure.logger.debug("On mycelium block");
 					Block mushBlock = random.nextInt(2) == 0 ? Blocks.BROWN_MUSHROOM_BLOCK : Blocks.RED_MUSHROOM;
-					blockState = getDecorationBlockState(world, mushBlock);					
+					blockState = getDecorationBlockState(world, random, mushBlock);					
 				}
 				else {
 //					Treasure.logger.debug("On other block");
-					blockState = getDecorationBlockState(world, Blocks.TALLGRASS);
+					blockState = getDecorationBlockState(world, random, Blocks.TALLGRASS);
 			}				
 				// set the block state
-				world.setBlockState(circle[i].toPos(), blockState, 3);
+				BlockWriteBuffer.setBlockState(world, circle[i], blockState);
 //				Treasure.logger.debug("Generating blockstate: {}", blockState);
 			}
 		}
@@ -132,11 +134,10 @@ public interface IWellGenerator<RESULT extends IGeneratorResult<?>> {
 	/**
 	 * 
 	 * @param world
+	 * @param random
 	 * @param block
-	 * @param meta
 	 */
-	public default IBlockState getDecorationBlockState(World world, Block block) {
-		Random random = new Random();
+	public default IBlockState getDecorationBlockState(World world, Random random, Block block) {
 		if (block == Blocks.RED_FLOWER) {
 			return getRedFlowerBlockState(world, random, block);
 		}
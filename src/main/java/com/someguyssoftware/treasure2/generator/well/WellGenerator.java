@@ -8,13 +8,14 @@ import java.util.Random;
 import com.someguyssoftware.gottschcore.cube.Cube;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
-import com.someguyssoftware.gottschcore.random.RandomHelper;
 import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.config.IWellConfig;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
 import com.someguyssoftware.treasure2.generator.TemplateGeneratorData;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
 import com.someguyssoftware.treasure2.meta.StructureArchetype;
 import com.someguyssoftware.treasure2.meta.StructureType;
 import com.someguyssoftware.treasure2.world.gen.structure.TemplateGenerator;
@@ -61,7 +62,7 @@ public class WellGenerator implements IWellGenerator<GeneratorResult<GeneratorDa
 		if (templateHolder == null) {
 			templateHolder = Treasure.TEMPLATE_MANAGER.getTemplate(world, random, StructureArchetype.SURFACE, StructureType.WELL, biome);
 		}
-		if (templateHolder == null) return result.fail();
+		if (templateHolder == null || templateHolder.getTemplate() == null) return result.fail();
 				
 		// select a random rotation
 		Rotation rotation = Rotation.values()[random.nextInt(Rotation.values().length)];
@@ -78,7 +79,7 @@ public class WellGenerator implements IWellGenerator<GeneratorResult<GeneratorDa
 		 */
 		// 1. determine y-coord of land surface for the actual spawn coords
 //		actualSpawnCoords = WorldInfo.getDryLandSurfaceCoords(world, new Coords(actualSpawnCoords.getX(), 255, actualSpawnCoords.getZ()));
-		actualSpawnCoords = WorldInfo.getDryLandSurfaceCoords(world, actualSpawnCoords.withY(255));
+		actualSpawnCoords = SurfaceCache.getDryLandSurfaceCoords(world, actualSpawnCoords.withY(255));
 		if (actualSpawnCoords == null || actualSpawnCoords == WorldInfo.EMPTY_COORDS) {
 			Treasure.logger.debug("Returning due to marker coords == null or EMPTY_COORDS");
 			return result.fail(); 
@@ -86,7 +87,7 @@ public class WellGenerator implements IWellGenerator<GeneratorResult<GeneratorDa
 		Treasure.logger.debug("actual spawn coords after dry land surface check -> {}", actualSpawnCoords);
 		
 		// 2. check if it has 50% land
-		if (!WorldInfo.isSolidBase(world, actualSpawnCoords, 3, 3, 50)) {
+		if (!SurfaceCache.isSolidBase(world, actualSpawnCoords, 3, 3, 50)) {
 			Treasure.logger.debug("Coords [{}] does not meet solid base requires for {} x {}", actualSpawnCoords.toShortString(), 3, 3);
 			return result.fail();
 		}	
@@ -139,7 +140,7 @@ public class WellGenerator implements IWellGenerator<GeneratorResult<GeneratorDa
 		
 		// north of well
 		for (int widthIndex = 0; widthIndex <= width + 1; widthIndex++) {
-			if (RandomHelper.randomInt(0, 1) == 0) {
+			if (random.nextInt(2) == 0) {
 //				ICoords decoCoords = startCoords.add(widthIndex, 0, 0);
 				addDecoration(world, random, startCoords.add(widthIndex, 0, 0));
 			}
@@ -148,7 +149,7 @@ public class WellGenerator implements IWellGenerator<GeneratorResult<GeneratorDa
 		// south of well
 		startCoords = coords.add(-1, 0, depth);
 		for (int widthIndex = 0; widthIndex <= width + 1; widthIndex++) {
-			if (RandomHelper.randomInt(0,  1) == 0) {
+			if (random.nextInt(2) == 0) {
 				addDecoration(world, random, startCoords.add(widthIndex, 0, 0));
 			}
 		}
@@ -156,7 +157,7 @@ public class WellGenerator implements IWellGenerator<GeneratorResult<GeneratorDa
 		// west of well
 		startCoords = coords.add(-1, 0, 0);
 		for (int depthIndex = 0; depthIndex < depth-1; depthIndex++) {
-			if (RandomHelper.randomInt(0,  1) == 0) {
+			if (random.nextInt(2) == 0) {
 				addDecoration(world, random, startCoords.add(0, 0, depthIndex));
 			}
 		}
@@ -164,7 +165,7 @@ public class WellGenerator implements IWellGenerator<GeneratorResult<GeneratorDa
 		// east of well
 		startCoords = coords.add(width, 0, 0);
 		for (int depthIndex = 0; depthIndex < depth-1; depthIndex++) {
-			if (RandomHelper.randomInt(0,  1) == 0) {
+			if (random.nextInt(2) == 0) {
 				addDecoration(world, random, startCoords.add(0, 0, depthIndex));
 			}
 		}
@@ -173,7 +174,7 @@ public class WellGenerator implements IWellGenerator<GeneratorResult<GeneratorDa
 	@Override
 	public void addDecoration(World world, Random random, ICoords coords) {
 		IBlockState blockState = null;
-		ICoords markerCoords = WorldInfo.getDryLandSurfaceCoords(world, coords);
+		ICoords markerCoords = SurfaceCache.getDryLandSurfaceCoords(world, coords);
 		
 		if (markerCoords == null || markerCoords == WorldInfo.EMPTY_COORDS) {
 			Treasure.logger.debug("Returning due to marker coords == null or EMPTY_COORDS");
@@ -188,36 +189,36 @@ public class WellGenerator implements IWellGenerator<GeneratorResult<GeneratorDa
 		markerCube = new Cube(world, markerCoords.add(0, -1, 0));
 //		Treasure.logger.debug("Marker on block: {}", markerCube.getState());
 		if (markerCube.equalsBlock(Blocks.GRASS)) {
-			blockState = getDecorationBlockState(world, Blocks.RED_FLOWER);
+			blockState = getDecorationBlockState(world, random, Blocks.RED_FLOWER);
 		}
 		else if (markerCube.equalsBlock(Blocks.DIRT)) {
 			DirtType dirtType = markerCube.getState().getValue(BlockDirt.VARIANT);
 			if (dirtType == DirtType.DIRT) {
-				blockState = getDecorationBlockState(world, Blocks.RED_FLOWER);
+				blockState = getDecorationBlockState(world, random, Blocks.RED_FLOWER);
 			}
 			else if (dirtType == DirtType.PODZOL) {
 //				Treasure.logger.debug("On podzol block");
 				Block mushBlock = random.nextInt(2) == 0 ? Blocks.BROWN_MUSHROOM : Blocks.RED_MUSHROOM;
-				blockState = getDecorationBlockState(world, mushBlock);
+				blockState = getDecorationBlockState(world, random, mushBlock);
 			}
 			else {
 //				Treasure.logger.debug("On coarse dirt block");
 //				Block grassBlock = Blocks.TALLGRASS;
 //				blockState = grassBlock.getDefaultState().withProperty(BlockTallGrass.TYPE, BlockTallGrass.EnumType.values()[meta]);			
-				blockState = getDecorationBlockState(world, Blocks.TALLGRASS);
+				blockState = getDecorationBlockState(world, random, Blocks.TALLGRASS);
 			}
 		}
 		else if (markerCube.equalsBlock(Blocks.MYCELIUM)) {
 //			Treasure.logger.debug("On mycelium block");
 			Block mushBlock = random.nextInt(2) == 0 ? Blocks.BROWN_MUSHROOM : Blocks.RED_MUSHROOM;
-			blockState = getDecorationBlockState(world, mushBlock);					
+			blockState = getDecorationBlockState(world, random, mushBlock);					
 		}
 		else {
 //			Treasure.logger.debug("On other block");
-			blockState = getDecorationBlockState(world, Blocks.TALLGRASS);
+			blockState = getDecorationBlockState(world, random, Blocks.TALLGRASS);
 	}				
 		// set the block state
-		world.setBlockState(coords.toPos(), blockState, 3);
+		BlockWriteBuffer.setBlockState(world, coords, blockState);
 //		Treasure.logger.debug("Generating blockstate: {}", blockState);
 	}
 }
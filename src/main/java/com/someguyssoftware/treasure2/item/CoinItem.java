@@ -114,7 +114,7 @@ public class CoinItem extends ModItem implements IWishable, IPouchable {
 			}
 			
 			if (numWishingWellBlocks >=2) {
-				Random random = new Random();
+				Random random = world.rand;
 				for (int itemIndex = 0; itemIndex < entityItemStack.getCount(); itemIndex++) {
 					// generate an item for each item in the stack
 					generateLootItem(world, random, entityItem, coords);
@@ -198,7 +198,7 @@ public class CoinItem extends ModItem implements IWishable, IPouchable {
 			}
 			
 			// select one item randomly
-			stack = itemStacks.get(RandomHelper.randomInt(0, itemStacks.size()-1));
+			stack = itemStacks.get(RandomHelper.randomInt(random, 0, itemStacks.size()-1));
 		}				
 		
 		// spawn the item 
@@ -112,7 +112,7 @@ public class PearlItem extends ModItem implements IWishable, IPouchable {
 			}
 
 			if (numWishingWellBlocks >=2) {
-				Random random = new Random();
+				Random random = world.rand;
 				for (int itemIndex = 0; itemIndex < entityItemStack.getCount(); itemIndex++) {
 					// generate an item for each item in the stack
 					generateLootItem(world, random, entityItem, coords);
@@ -195,7 +195,7 @@ public class PearlItem extends ModItem implements IWishable, IPouchable {
 		}
 			
 			// select one item randomly
-			stack = itemStacks.get(RandomHelper.randomInt(0, itemStacks.size()-1));
+			stack = itemStacks.get(RandomHelper.randomInt(random, 0, itemStacks.size()-1));
 
 		}				
 		
@@ -3,20 +3,21 @@
  */
 package com.someguyssoftware.treasure2.persistence;
 
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.google.common.collect.ListMultimap;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.chest.ChestInfo;
 import com.someguyssoftware.treasure2.enums.Rarity;
 import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
 import com.someguyssoftware.treasure2.generator.oasis.OasisInfo;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.registry.ChestRegistry;
 import com.someguyssoftware.treasure2.registry.OasisRegistry;
 import com.someguyssoftware.treasure2.worldgen.GemOreWorldGenerator;
+import com.someguyssoftware.treasure2.worldgen.GenerationScheduler;
 import com.someguyssoftware.treasure2.worldgen.OasisWorldGenerator;
 import com.someguyssoftware.treasure2.worldgen.SubmergedChestWorldGenerator;
 import com.someguyssoftware.treasure2.worldgen.SurfaceChestWorldGenerator;
@@ -43,14 +44,21 @@ public class GenDataPersistence extends WorldSavedData {
 	private static final String SURFACE_CHEST_GEN_TAG_NAME = "surfaceChestGen";
 	private static final String SUBMERGED_CHEST_GEN_TAG_NAME = "submergedChestGen";
 	private static final String OASIS_GEN_TAG_NAME = "oasisGen";
+	private static final String WELL_GEN_TAG_NAME = "wellGen";
+	private static final String WITHER_TREE_GEN_TAG_NAME = "witherTreeGen";
+	private static final String GEM_ORE_GEN_TAG_NAME = "gemOreGen";
 	private static final String KEY_TAG_NAME = "key";
 	private static final String COUNT_TAG_NAME = "count";
 	private static final String CHUNKS_SINCE_LAST_CHEST_TAG_NAME = "chunksSinceLastChest";
 	private static final String CHUNKS_SINCE_LAST_RARITY_CHEST_TAG_NAME = "chunksSinceLastRarityChest";
 	private static final String CHEST_REGISTRY_TAG_NAME = "chestRegistry";
+	private static final String CHEST_DIMENSION_REGISTRY_TAG_NAME = "chestDimensionRegistry";
+	private static final String REGISTRY_TAG_NAME = "registry";
 	private static final String OASIS_REGISTRY_TAG_NAME = "oasisRegistry";
 	private static final String CHUNKS_SINCE_LAST_OASIS_TAG_NAME = "chunksSinceLastOasis";
 	private static final String COORDS_TAG_NAME = "coords";
+	private static final String DEFERRED_PLACEMENTS_TAG_NAME = "deferredPlacements";
+	private static final String SCHEDULED_BUILDS_TAG_NAME = "scheduledBuilds";
 
 	private static final String RARITY_TAG_NAME = "rarity";
 	private static final String DIMENSION_ID_TAG_NAME = "dimensionID";
@@ -58,6 +66,12 @@ public class GenDataPersistence extends WorldSavedData {
 	private static final String BIOME_ID_TAG_NAME = "biomeID";
 	private static final String BIOMES_TAG_NAME = "biomes";
 	
+	// legacy (pre-dimension) tags are loaded into the overworld
+	private static final Integer LEGACY_DIMENSION_ID = 0;
+	private static final String LEGACY_CHUNKS_SINCE_LAST_WELL_TAG_NAME = "chunksSinceLastWell";
+	private static final String LEGACY_CHUNKS_SINCE_LAST_TREE_TAG_NAME = "chunksSinceLastTree";
+	private static final String LEGACY_CHUNKS_SINCE_LAST_ORE_TAG_NAME = "chunksSinceLastOre";
+	
 	
 	/**
 	 * Empty constructor
@@ -97,28 +111,12 @@ public class GenDataPersistence extends WorldSavedData {
 		///// Chests /////
 		/// Surface Chests ///
 		if (surfaceTag != null) {
-			surfaceChestGen.setChunksSinceLastChest(surfaceTag.getInteger(CHUNKS_SINCE_LAST_CHEST_TAG_NAME));
-			NBTTagList chunksSinceTagList = surfaceTag.getTagList(CHUNKS_SINCE_LAST_RARITY_CHEST_TAG_NAME, 10);
-			// load all the chunks since last rarity chest properites
-			for (int i = 0; i < chunksSinceTagList.tagCount(); i++) {
-				NBTTagCompound chunkTag = chunksSinceTagList.getCompoundTagAt(i);
-				int count = chunkTag.getInteger(COUNT_TAG_NAME);
-				String key = chunkTag.getString(KEY_TAG_NAME);
-				surfaceChestGen.getChunksSinceLastRarityChest().put(Rarity.valueOf(key), count);
-			}
+			readChestGenTag(surfaceTag, surfaceChestGen.getChunksSinceLastDimensionChest(), surfaceChestGen.getChunksSinceLastDimensionRarityChest());
 		}
 		
 		/// Submerged Chests ///
 		if (submergedTag != null) {
-			submergedChestGen.setChunksSinceLastChest(submergedTag.getInteger(CHUNKS_SINCE_LAST_CHEST_TAG_NAME));
-			NBTTagList chunksSinceTagList = submergedTag.getTagList(CHUNKS_SINCE_LAST_RARITY_CHEST_TAG_NAME, 10);
-			// load all the chunks since last rarity chest properites
-			for (int i = 0; i < chunksSinceTagList.tagCount(); i++) {
-				NBTTagCompound chunkTag = chunksSinceTagList.getCompoundTagAt(i);
-				int count = chunkTag.getInteger(COUNT_TAG_NAME);
-				String key = chunkTag.getString(KEY_TAG_NAME);
-				submergedChestGen.getChunksSinceLastRarityChest().put(Rarity.valueOf(key), count);
-			}
+			readChestGenTag(submergedTag, submergedChestGen.getChunksSinceLastDimensionChest(), submergedChestGen.getChunksSinceLastDimensionRarityChest());
 		}
 		
 		/// Oasis ///
@@ -142,31 +140,32 @@ public class GenDataPersistence extends WorldSavedData {
 		}
 		
 		///// Well /////
-		wellGen.setChunksSinceLastWell(treasureGen.getInteger("chunksSinceLastWell"));
+		readDimensionCounts(treasureGen, WELL_GEN_TAG_NAME, LEGACY_CHUNKS_SINCE_LAST_WELL_TAG_NAME, wellGen.getChunksSinceLastDimensionWell());
 		
 		///// Wither Tree /////
-		witherGen.setChunksSinceLastTree(treasureGen.getInteger("chunksSinceLastTree"));
+		readDimensionCounts(treasureGen, WITHER_TREE_GEN_TAG_NAME, LEGACY_CHUNKS_SINCE_LAST_TREE_TAG_NAME, witherGen.getChunksSinceLastDimensionTree());
 		
 		///// Gem Ore /////
-		gemGen.setChunksSinceLastOre(treasureGen.getInteger("chunksSinceLastOre"));
+		readDimensionCounts(treasureGen, GEM_ORE_GEN_TAG_NAME, LEGACY_CHUNKS_SINCE_LAST_ORE_TAG_NAME, gemGen.getChunksSinceLastDimensionOre());
 		
-		///// ChestConfig Registry /////
+		///// ChestConfig Registry (multi-dimensional) /////
 		ChestRegistry chestRegistry = ChestRegistry.getInstance();
-		Treasure.logger.debug("ChestConfig Registry size before loading -> {}", chestRegistry.getValues().size());
+		Treasure.logger.debug("ChestConfig Registry size before loading -> {}", chestRegistry.size());
 		chestRegistry.clear();
 		// load the chest registry
-		NBTTagList chestRegistryTagList = treasureGen.getTagList(CHEST_REGISTRY_TAG_NAME, 10);
-		for (int i = 0; i < chestRegistryTagList.tagCount(); i++) {
-			NBTTagCompound chunkTag = chestRegistryTagList.getCompoundTagAt(i);
-			String key = chunkTag.getString(KEY_TAG_NAME);
-			String rarity = chunkTag.getString(RARITY_TAG_NAME);
-			NBTTagCompound coords = chunkTag.getCompoundTag(COORDS_TAG_NAME);
-			int x = coords.getInteger("x");
-			int y = coords.getInteger("y");
-			int z = coords.getInteger("z");
-			chestRegistry.register(key, new ChestInfo(Rarity.getByValue(rarity), new Coords(x, y, z)));
+		if (treasureGen.hasKey(CHEST_DIMENSION_REGISTRY_TAG_NAME)) {
+			NBTTagList chestRegistryDimensionTagList = treasureGen.getTagList(CHEST_DIMENSION_REGISTRY_TAG_NAME, 10);
+			for (int dimIndex = 0; dimIndex < chestRegistryDimensionTagList.tagCount(); dimIndex++) {
+				NBTTagCompound dimTag = chestRegistryDimensionTagList.getCompoundTagAt(dimIndex);
+				int dimensionID = dimTag.getInteger(DIMENSION_ID_TAG_NAME);
+				readChestRegistryTagList(dimensionID, dimTag.getTagList(REGISTRY_TAG_NAME, 10));
+			}
 		}
-		Treasure.logger.debug("ChestConfig Registry size after loading -> {}", chestRegistry.getValues().size());
+		else {
+			// legacy single registry
+			readChestRegistryTagList(LEGACY_DIMENSION_ID, treasureGen.getTagList(CHEST_REGISTRY_TAG_NAME, 10));
+		}
+		Treasure.logger.debug("ChestConfig Registry size after loading -> {}", chestRegistry.size());
 
 		// Oasis Registry
 		OasisRegistry oasisRegistry = OasisRegistry.getInstance();
@@ -176,7 +175,7 @@ public class GenDataPersistence extends WorldSavedData {
 			NBTTagCompound dimTag = oasisRegistryDimensionTagList.getCompoundTagAt(dimIndex);
 			int dimensionID = dimTag.getInteger(DIMENSION_ID_TAG_NAME);
 			// get the registry list
-			NBTTagList oasisRegistryTagList = dimTag.getTagList("registry", 10);
+			NBTTagList oasisRegistryTagList = dimTag.getTagList(REGISTRY_TAG_NAME, 10);
 			for (int registryIndex = 0; registryIndex < oasisRegistryTagList.tagCount(); registryIndex++) {
 				NBTTagCompound registryTag = oasisRegistryTagList.getCompoundTagAt(registryIndex);
 				String key = registryTag.getString(KEY_TAG_NAME);
@@ -188,6 +187,12 @@ public class GenDataPersistence extends WorldSavedData {
 				oasisRegistry.register(dimensionID, key, new OasisInfo(new Coords(x, y, z), dimensionID, biomeID));
 			}
 		}	
+
+		// Deferred Placements
+		DeferredPlacementQueue.getInstance().readFromNBT(treasureGen.getTagList(DEFERRED_PLACEMENTS_TAG_NAME, 10));
+
+		// Scheduled Builds (their sites are reserved in the registries above)
+		GenerationScheduler.getInstance().readFromNBT(treasureGen.getTagList(SCHEDULED_BUILDS_TAG_NAME, 10));
 	}
 
 	/*
@@ -210,41 +215,11 @@ public class GenDataPersistence extends WorldSavedData {
 			SurfaceChestWorldGenerator surfaceChestGen = (SurfaceChestWorldGenerator) Treasure.WORLD_GENERATORS.get(WorldGeneratorType.SURFACE_CHEST);
 			SubmergedChestWorldGenerator submergedChestGen = (SubmergedChestWorldGenerator) Treasure.WORLD_GENERATORS.get(WorldGeneratorType.SUBMERGED_CHEST);
 			
-			// create a new compounds
-			NBTTagCompound surfaceTag = new NBTTagCompound();
-			NBTTagCompound submergedTag = new NBTTagCompound();
-			
 			/// Surface Chests ///
-			// add the surface chest gen last count to the treasure compound
-			surfaceTag.setInteger(CHUNKS_SINCE_LAST_CHEST_TAG_NAME, surfaceChestGen.getChunksSinceLastChest());			
-			
-			// TODO these 2 blocks could become one method
-			NBTTagList chunksSinceTagList = new NBTTagList();
-			for (Entry<Rarity, Integer> since : surfaceChestGen.getChunksSinceLastRarityChest().entrySet()) {
-				NBTTagCompound entry = new NBTTagCompound();
-				NBTTagString key = new NBTTagString(since.getKey().name());
-				NBTTagInt count = new NBTTagInt(since.getValue());
-				entry.setTag(KEY_TAG_NAME, key);
-				entry.setTag(COUNT_TAG_NAME, count);				
-				// add entry to list
-				chunksSinceTagList.appendTag(entry);
-			}
-			surfaceTag.setTag(CHUNKS_SINCE_LAST_RARITY_CHEST_TAG_NAME, chunksSinceTagList);
+			NBTTagCompound surfaceTag = writeChestGenTag(surfaceChestGen.getChunksSinceLastDimensionChest(), surfaceChestGen.getChunksSinceLastDimensionRarityChest());
 			
 			/// Submerged Chests ///
-			// add the submerged chest gen last count to the treasure compound
-			submergedTag.setInteger(CHUNKS_SINCE_LAST_CHEST_TAG_NAME, submergedChestGen.getChunksSinceLastChest());			
-			chunksSinceTagList = new NBTTagList();
-			for (Entry<Rarity, Integer> since : submergedChestGen.getChunksSinceLastRarityChest().entrySet()) {
-				NBTTagCompound entry = new NBTTagCompound();
-				NBTTagString key = new NBTTagString(since.getKey().name());
-				NBTTagInt count = new NBTTagInt(since.getValue());
-				entry.setTag(KEY_TAG_NAME, key);
-				entry.setTag(COUNT_TAG_NAME, count);				
-				// add entry to list
-				chunksSinceTagList.appendTag(entry);
-			}			
-			submergedTag.setTag(CHUNKS_SINCE_LAST_RARITY_CHEST_TAG_NAME, chunksSinceTagList);
+			NBTTagCompound submergedTag = writeChestGenTag(submergedChestGen.getChunksSinceLastDimensionChest(), submergedChestGen.getChunksSinceLastDimensionRarityChest());
 			
 			// add chest gen tags to main tag
 			treasureGen.setTag(SURFACE_CHEST_GEN_TAG_NAME, surfaceTag);
@@ -287,56 +262,62 @@ public class GenDataPersistence extends WorldSavedData {
 			// get the well world generator
 			WellWorldGenerator wellGen = (WellWorldGenerator) Treasure.WORLD_GENERATORS.get(WorldGeneratorType.WELL);
 			
-			// add the chest gen last count to the treasure compound
-			treasureGen.setInteger("chunksSinceLastWell", wellGen.getChunksSinceLastWell());
+			// add the well gen last count by dimension to the treasure compound
+			treasureGen.setTag(WELL_GEN_TAG_NAME, writeDimensionCounts(wellGen.getChunksSinceLastDimensionWell()));
 			
 			//// Wither Tree /////
 			WitherTreeWorldGenerator witherGen = (WitherTreeWorldGenerator) Treasure.WORLD_GENERATORS.get(WorldGeneratorType.WITHER_TREE);
 			
-			// add the chest gen last count to the treasure compound
-			treasureGen.setInteger("chunksSinceLastTree", witherGen.getChunksSinceLastTree());
+			// add the wither tree gen last count by dimension to the treasure compound
+			treasureGen.setTag(WITHER_TREE_GEN_TAG_NAME, writeDimensionCounts(witherGen.getChunksSinceLastDimensionTree()));
 			
 			//// Gem Ore ////
 			GemOreWorldGenerator gemGen = (GemOreWorldGenerator) Treasure.WORLD_GENERATORS.get(WorldGeneratorType.GEM);
-			treasureGen.setInteger("chunksSinceLastOre", gemGen.getChunksSinceLastOre());
+			treasureGen.setTag(GEM_ORE_GEN_TAG_NAME, writeDimensionCounts(gemGen.getChunksSinceLastDimensionOre()));
 			
-			///// ChestConfig Registry /////
-			NBTTagList chestRegistryTagList = new NBTTagList();
+			///// ChestConfig Registry (multi-dimensional) /////
 			ChestRegistry chestRegistry = ChestRegistry.getInstance();
-			for (ChestInfo element : chestRegistry.getValues()) {
-				NBTTagCompound entry = new NBTTagCompound();
-				NBTTagString key = new NBTTagString(element.getCoords().toShortString());
-				NBTTagString rarity = new NBTTagString(element.getRarity().getValue());
-				NBTTagCompound coords = new NBTTagCompound();
-				NBTTagInt x = new NBTTagInt(element.getCoords().getX());
-				NBTTagInt y = new NBTTagInt(element.getCoords().getY());
-				NBTTagInt z = new NBTTagInt(element.getCoords().getZ());
-				
-				coords.setTag("x", x);
-				coords.setTag("y", y);
-				coords.setTag("z", z);
-				
-				entry.setTag(KEY_TAG_NAME, key);
-				entry.setTag(RARITY_TAG_NAME, rarity);
-				entry.setTag(COORDS_TAG_NAME, coords);
-				
-				// add entry to list
-				chestRegistryTagList.appendTag(entry);
+			NBTTagList chestRegistryDimensionTagList = new NBTTagList();
+			for (Integer dimensionKey : chestRegistry.getDimensionKeys()) {
+				NBTTagCompound dimTag = new NBTTagCompound();
+				dimTag.setInteger(DIMENSION_ID_TAG_NAME, dimensionKey);
+				NBTTagList chestRegistryTagList = new NBTTagList();
+				for (ChestInfo element : chestRegistry.getValues(dimensionKey)) {
+					NBTTagCompound entry = new NBTTagCompound();
+					NBTTagString rarity = new NBTTagString(element.getRarity().getValue());
+					NBTTagCompound coords = new NBTTagCompound();
+					NBTTagInt x = new NBTTagInt(element.getCoords().getX());
+					NBTTagInt y = new NBTTagInt(element.getCoords().getY());
+					NBTTagInt z = new NBTTagInt(element.getCoords().getZ());
+					
+					coords.setTag("x", x);
+					coords.setTag("y", y);
+					coords.setTag("z", z);
+					
+					// the registry is keyed by the coords, no key string is required
+					entry.setTag(RARITY_TAG_NAME, rarity);
+					entry.setTag(COORDS_TAG_NAME, coords);
+					
+					// add entry to list
+					chestRegistryTagList.appendTag(entry);
+				}
+				dimTag.setTag(REGISTRY_TAG_NAME, chestRegistryTagList);
+				chestRegistryDimensionTagList.appendTag(dimTag);
 			}
-			// delete current tag
+			// delete current tags
 			treasureGen.removeTag(CHEST_REGISTRY_TAG_NAME);
+			treasureGen.removeTag(CHEST_DIMENSION_REGISTRY_TAG_NAME);
 			// add new values
-			treasureGen.setTag(CHEST_REGISTRY_TAG_NAME, chestRegistryTagList);
+			treasureGen.setTag(CHEST_DIMENSION_REGISTRY_TAG_NAME, chestRegistryDimensionTagList);
 			
 			///// Oasis Registry (multi-dimensional) /////			
 			OasisRegistry oasisRegistry = OasisRegistry.getInstance();
 			NBTTagList oasisRegistryDimensionTagList = new NBTTagList();
 			for (Integer dimensionKey : oasisRegistry.getDimensionKeys()) {
-				ListMultimap<String, OasisInfo> dimensionMap = oasisRegistry.getDimensionEntry(dimensionKey);
 				NBTTagCompound dimTag = new NBTTagCompound();
 				dimTag.setInteger(DIMENSION_ID_TAG_NAME, dimensionKey);
 				NBTTagList oasisRegistryTagList = new NBTTagList();
-				for(Entry<String, OasisInfo> entry : dimensionMap.entries()) {
+				for(Entry<String, OasisInfo> entry : oasisRegistry.getDimensionEntries(dimensionKey)) {
 					OasisInfo oasisInfo = entry.getValue();
 					NBTTagCompound oasisEntry = new NBTTagCompound();					
 					NBTTagString key = new NBTTagString(entry.getKey());
@@ -356,7 +337,7 @@ public class GenDataPersistence extends WorldSavedData {
 					
 					oasisRegistryTagList.appendTag(oasisEntry);
 				}
-				dimTag.setTag("registry", oasisRegistryTagList);
+				dimTag.setTag(REGISTRY_TAG_NAME, oasisRegistryTagList);
 				oasisRegistryDimensionTagList.appendTag(dimTag);
 			}
 
@@ -364,6 +345,12 @@ public class GenDataPersistence extends WorldSavedData {
 			treasureGen.removeTag(OASIS_REGISTRY_TAG_NAME);
 			// add new values
 			treasureGen.setTag(OASIS_REGISTRY_TAG_NAME, oasisRegistryDimensionTagList);
+
+			///// Deferred Placements (multi-dimensional) /////
+			treasureGen.setTag(DEFERRED_PLACEMENTS_TAG_NAME, DeferredPlacementQueue.getInstance().writeToNBT());
+
+			///// Scheduled Builds (multi-dimensional) /////
+			treasureGen.setTag(SCHEDULED_BUILDS_TAG_NAME, GenerationScheduler.getInstance().writeToNBT());
 		}
 		catch(Exception e) {
 			e.printStackTrace();
@@ -373,6 +360,153 @@ public class GenDataPersistence extends WorldSavedData {
 		return tag;
 	}
 
+	/**
+	 * 
+	 * @param chestTag
+	 * @param chunksSinceLastDimensionChest
+	 * @param chunksSinceLastDimensionRarityChest
+	 */
+	private void readChestGenTag(NBTTagCompound chestTag, Map<Integer, Integer> chunksSinceLastDimensionChest, 
+			Map<Integer, Map<Rarity, Integer>> chunksSinceLastDimensionRarityChest) {
+		
+		if (!chestTag.hasKey(DIMENSIONS_TAG_NAME)) {
+			// legacy single dimension
+			if (chestTag.hasKey(CHUNKS_SINCE_LAST_CHEST_TAG_NAME)) {
+				readChestGenDimensionTag(LEGACY_DIMENSION_ID, chestTag, chunksSinceLastDimensionChest, chunksSinceLastDimensionRarityChest);
+			}
+			return;
+		}
+		
+		NBTTagList dimTagList = chestTag.getTagList(DIMENSIONS_TAG_NAME, 10);
+		for (int i = 0; i < dimTagList.tagCount(); i++) {
+			NBTTagCompound dimTag = dimTagList.getCompoundTagAt(i);
+			readChestGenDimensionTag(dimTag.getInteger(DIMENSION_ID_TAG_NAME), dimTag, chunksSinceLastDimensionChest, chunksSinceLastDimensionRarityChest);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param dimensionID
+	 * @param dimTag
+	 * @param chunksSinceLastDimensionChest
+	 * @param chunksSinceLastDimensionRarityChest
+	 */
+	private void readChestGenDimensionTag(Integer dimensionID, NBTTagCompound dimTag, Map<Integer, Integer> chunksSinceLastDimensionChest, 
+			Map<Integer, Map<Rarity, Integer>> chunksSinceLastDimensionRarityChest) {
+		
+		chunksSinceLastDimensionChest.put(dimensionID, dimTag.getInteger(CHUNKS_SINCE_LAST_CHEST_TAG_NAME));
+		Map<Rarity, Integer> chunksSinceLastRarityChest = chunksSinceLastDimensionRarityChest.get(dimensionID);
+		if (chunksSinceLastRarityChest == null) {
+			chunksSinceLastRarityChest = new ConcurrentHashMap<>(Rarity.values().length);
+			for (Rarity rarity : Rarity.values()) {
+				chunksSinceLastRarityChest.put(rarity, 0);
+			}
+			chunksSinceLastDimensionRarityChest.put(dimensionID, chunksSinceLastRarityChest);
+		}
+		
+		NBTTagList chunksSinceTagList = dimTag.getTagList(CHUNKS_SINCE_LAST_RARITY_CHEST_TAG_NAME, 10);
+		// load all the chunks since last rarity chest properites
+		for (int i = 0; i < chunksSinceTagList.tagCount(); i++) {
+			NBTTagCompound chunkTag = chunksSinceTagList.getCompoundTagAt(i);
+			int count = chunkTag.getInteger(COUNT_TAG_NAME);
+			String key = chunkTag.getString(KEY_TAG_NAME);
+			chunksSinceLastRarityChest.put(Rarity.valueOf(key), count);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param chunksSinceLastDimensionChest
+	 * @param chunksSinceLastDimensionRarityChest
+	 * @return
+	 */
+	private NBTTagCompound writeChestGenTag(Map<Integer, Integer> chunksSinceLastDimensionChest, 
+			Map<Integer, Map<Rarity, Integer>> chunksSinceLastDimensionRarityChest) {
+		
+		NBTTagCompound chestTag = new NBTTagCompound();
+		NBTTagList dimTagList = new NBTTagList();
+		for (Entry<Integer, Integer> dimEntry : chunksSinceLastDimensionChest.entrySet()) {
+			NBTTagCompound dimTag = new NBTTagCompound();
+			dimTag.setInteger(DIMENSION_ID_TAG_NAME, dimEntry.getKey());
+			// add the chest gen last count to the dimension compound
+			dimTag.setInteger(CHUNKS_SINCE_LAST_CHEST_TAG_NAME, dimEntry.getValue());
+			
+			NBTTagList chunksSinceTagList = new NBTTagList();
+			Map<Rarity, Integer> chunksSinceLastRarityChest = chunksSinceLastDimensionRarityChest.get(dimEntry.getKey());
+			if (chunksSinceLastRarityChest != null) {
+				for (Entry<Rarity, Integer> since : chunksSinceLastRarityChest.entrySet()) {
+					NBTTagCompound entry = new NBTTagCompound();
+					NBTTagString key = new NBTTagString(since.getKey().name());
+					NBTTagInt count = new NBTTagInt(since.getValue());
+					entry.setTag(KEY_TAG_NAME, key);
+					entry.setTag(COUNT_TAG_NAME, count);				
+					// add entry to list
+					chunksSinceTagList.appendTag(entry);
+				}
+			}
+			dimTag.setTag(CHUNKS_SINCE_LAST_RARITY_CHEST_TAG_NAME, chunksSinceTagList);
+			dimTagList.appendTag(dimTag);
+		}
+		chestTag.setTag(DIMENSIONS_TAG_NAME, dimTagList);
+		return chestTag;
+	}
+	
+	/**
+	 * 
+	 * @param treasureGen
+	 * @param tagName
+	 * @param legacyTagName
+	 * @param counts
+	 */
+	private void readDimensionCounts(NBTTagCompound treasureGen, String tagName, String legacyTagName, Map<Integer, Integer> counts) {
+		if (treasureGen.hasKey(tagName)) {
+			NBTTagList dimTagList = treasureGen.getCompoundTag(tagName).getTagList(DIMENSIONS_TAG_NAME, 10);
+			for (int i = 0; i < dimTagList.tagCount(); i++) {
+				NBTTagCompound dimTag = dimTagList.getCompoundTagAt(i);
+				counts.put(dimTag.getInteger(DIMENSION_ID_TAG_NAME), dimTag.getInteger(COUNT_TAG_NAME));
+			}
+		}
+		else if (treasureGen.hasKey(legacyTagName)) {
+			counts.put(LEGACY_DIMENSION_ID, treasureGen.getInteger(legacyTagName));
+		}
+	}
+	
+	/**
+	 * 
+	 * @param counts
+	 * @return
+	 */
+	private NBTTagCompound writeDimensionCounts(Map<Integer, Integer> counts) {
+		NBTTagCompound tag = new NBTTagCompound();
+		NBTTagList dimTagList = new NBTTagList();
+		for (Entry<Integer, Integer> entry : counts.entrySet()) {
+			NBTTagCompound dimTag = new NBTTagCompound();
+			dimTag.setInteger(DIMENSION_ID_TAG_NAME, entry.getKey());
+			dimTag.setInteger(COUNT_TAG_NAME, entry.getValue());
+			dimTagList.appendTag(dimTag);
+		}
+		tag.setTag(DIMENSIONS_TAG_NAME, dimTagList);
+		return tag;
+	}
+	
+	/**
+	 * 
+	 * @param dimensionID
+	 * @param chestRegistryTagList
+	 */
+	private void readChestRegistryTagList(Integer dimensionID, NBTTagList chestRegistryTagList) {
+		ChestRegistry chestRegistry = ChestRegistry.getInstance();
+		for (int i = 0; i < chestRegistryTagList.tagCount(); i++) {
+			NBTTagCompound chunkTag = chestRegistryTagList.getCompoundTagAt(i);
+			String rarity = chunkTag.getString(RARITY_TAG_NAME);
+			NBTTagCompound coords = chunkTag.getCompoundTag(COORDS_TAG_NAME);
+			int x = coords.getInteger("x");
+			int y = coords.getInteger("y");
+			int z = coords.getInteger("z");
+			chestRegistry.register(dimensionID, new Coords(x, y, z), Rarity.getByValue(rarity));
+		}
+	}
+	
 	/**
 	 * NOTE world.loadItemData is cached to a HashMap, so you don't have to worry about performing too many get()s that read from the disk.
 	 * @param world
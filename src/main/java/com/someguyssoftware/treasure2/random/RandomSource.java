@@ -0,0 +1,141 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.random;
+
+import java.util.Random;
+
+import com.someguyssoftware.gottschcore.positional.ICoords;
+
+/**
+ * A seeded random stream (SplitMix64) for the generation. The streams are derived from the world seed and the
+ * coordinates of what they generate - a chunk, a structure, a chest - so a seed plus coordinates always reproduce
+ * the same structure and loot, whatever the population order and whatever was drawn before.
+ * <p>
+ * It is a java.util.Random, so it is passed as such through the generators (IChestGenerator, IPitGenerator, ...),
+ * but the draws are a few arithmetic operations on a plain long. Like a Random with a fixed seed, a stream is meant
+ * to be used by a single thread.
+ * </p>
+ */
+public class RandomSource extends Random {
+	private static final long serialVersionUID = 1L;
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	private static final long X_MULTIPLIER = 0x632BE59BD9B4E019L;
+	private static final long Y_MULTIPLIER = 0x85157AF5L;
+	private static final long Z_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+	// the salts of the streams
+	private static final long STRUCTURE_SALT = 0x5354525543L;
+	private static final long CHEST_SALT = 0x4348455354L;
+
+	private long state;
+
+	/**
+	 *
+	 * @param seed
+	 */
+	public RandomSource(long seed) {
+		super(seed);
+	}
+
+	/**
+	 *
+	 * @param worldSeed
+	 * @param coords the site of the structure
+	 * @param salt the kind of the structure, ex. the world generator type
+	 * @return the stream of the structure
+	 */
+	public static RandomSource forStructure(long worldSeed, ICoords coords, long salt) {
+		return new RandomSource(structureSeed(worldSeed, coords, salt));
+	}
+
+	/**
+	 *
+	 * @param worldSeed
+	 * @param coords the coords of the chest
+	 * @return the stream of the chest's loot
+	 */
+	public static RandomSource forChest(long worldSeed, ICoords coords) {
+		return new RandomSource(seed(worldSeed, CHEST_SALT, coords.getX(), coords.getY(), coords.getZ()));
+	}
+
+	/**
+	 * The seed of a structure stream, ex. for a build queued in the GenerationScheduler.
+	 * @param worldSeed
+	 * @param coords
+	 * @param salt
+	 * @return
+	 */
+	public static long structureSeed(long worldSeed, ICoords coords, long salt) {
+		return seed(worldSeed, STRUCTURE_SALT ^ mix(salt), coords.getX(), coords.getY(), coords.getZ());
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		// resets the cached gaussian of the Random
+		super.setSeed(seed);
+		this.state = seed;
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	}
+
+	@Override
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		// a 32 bit draw scaled to the bound (Lemire), the draws of the biased low products are rejected
+		long product = (nextLong() >>> 32) * bound;
+		long low = product & 0xFFFFFFFFL;
+		if (low < bound) {
+			// 2^32 mod bound
+			long threshold = (0x100000000L - bound) % bound;
+			while (low < threshold) {
+				product = (nextLong() >>> 32) * bound;
+				low = product & 0xFFFFFFFFL;
+			}
+		}
+		return (int) (product >>> 32);
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	@Override
+	public float nextFloat() {
+		return (nextLong() >>> 40) * 0x1.0p-24f;
+	}
+
+	private static long seed(long worldSeed, long salt, int x, int y, int z) {
+		return mix(worldSeed ^ mix(salt + x * X_MULTIPLIER + y * Y_MULTIPLIER + z * Z_MULTIPLIER));
+	}
+
+	/**
+	 * The SplitMix64 finalizer.
+	 * @param value
+	 * @return
+	 */
+	private static long mix(long value) {
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
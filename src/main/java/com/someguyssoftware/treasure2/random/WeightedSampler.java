@@ -0,0 +1,172 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.random;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A weighted random selection (a replacement of RandomWeightedCollection for the generation path) using the
+ * alias method (Vose): the table is built once, when the first item is selected after the weights changed, and
+ * then a selection costs a single random draw and no allocation. The items are drawn with the caller's random,
+ * so the selection is reproduced by the seed.
+ * <p>
+ * The table is built under a lock and published as a whole, so a sampler can be read from several threads;
+ * the items should be added before the sampler is shared.
+ * </p>
+ *
+ * @param <T>
+ */
+public class WeightedSampler<T> {
+	private final List<T> items = new ArrayList<>();
+	private final List<Double> weights = new ArrayList<>();
+	private volatile AliasTable<T> table;
+
+	/**
+	 *
+	 */
+	public WeightedSampler() {}
+
+	/**
+	 *
+	 * @param items
+	 * @return a sampler of the items of the same weight
+	 */
+	public static <T> WeightedSampler<T> uniform(Collection<? extends T> items) {
+		WeightedSampler<T> sampler = new WeightedSampler<>();
+		for (T item : items) {
+			sampler.add(1, item);
+		}
+		return sampler;
+	}
+
+	/**
+	 *
+	 * @param weight
+	 * @param item
+	 * @return the sampler
+	 */
+	public synchronized WeightedSampler<T> add(double weight, T item) {
+		if (weight <= 0) {
+			return this;
+		}
+		items.add(item);
+		weights.add(weight);
+		table = null;
+		return this;
+	}
+
+	/**
+	 *
+	 * @param random
+	 * @return a random item by weight or null if the sampler is empty
+	 */
+	public T next(Random random) {
+		AliasTable<T> aliasTable = table;
+		if (aliasTable == null) {
+			aliasTable = build();
+		}
+		return aliasTable.next(random);
+	}
+
+	public synchronized int size() {
+		return items.size();
+	}
+
+	public synchronized boolean isEmpty() {
+		return items.isEmpty();
+	}
+
+	/**
+	 *
+	 * @return the items, in the order they were added
+	 */
+	public synchronized List<T> getItems() {
+		return Collections.unmodifiableList(new ArrayList<>(items));
+	}
+
+	/**
+	 * Builds the alias table of the current weights.
+	 * @return
+	 */
+	private synchronized AliasTable<T> build() {
+		if (table == null) {
+			table = new AliasTable<>(items, weights);
+		}
+		return table;
+	}
+
+	/**
+	 * The alias table: the item of a column is kept with its probability, else the column's alias is selected.
+	 */
+	private static final class AliasTable<T> {
+		private final Object[] items;
+		private final double[] probabilities;
+		private final int[] aliases;
+
+		AliasTable(List<T> itemList, List<Double> weightList) {
+			int size = itemList.size();
+			items = itemList.toArray();
+			probabilities = new double[size];
+			aliases = new int[size];
+			if (size == 0) {
+				return;
+			}
+
+			double total = 0;
+			for (double weight : weightList) {
+				total += weight;
+			}
+			// the weights scaled so that the mean is 1
+			double[] scaled = new double[size];
+			int[] small = new int[size];
+			int[] large = new int[size];
+			int smallSize = 0;
+			int largeSize = 0;
+			for (int index = 0; index < size; index++) {
+				scaled[index] = weightList.get(index) * size / total;
+				if (scaled[index] < 1.0) {
+					small[smallSize++] = index;
+				}
+				else {
+					large[largeSize++] = index;
+				}
+			}
+			while (smallSize > 0 && largeSize > 0) {
+				int less = small[--smallSize];
+				int more = large[--largeSize];
+				probabilities[less] = scaled[less];
+				aliases[less] = more;
+				scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+				if (scaled[more] < 1.0) {
+					small[smallSize++] = more;
+				}
+				else {
+					large[largeSize++] = more;
+				}
+			}
+			// the rest (of the rounding errors) are kept for sure
+			while (largeSize > 0) {
+				probabilities[large[--largeSize]] = 1.0;
+			}
+			while (smallSize > 0) {
+				probabilities[small[--smallSize]] = 1.0;
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		T next(Random random) {
+			if (items.length == 0) {
+				return null;
+			}
+			// a single draw selects the column (the integer part) and the coin (the fraction)
+			double draw = random.nextDouble() * items.length;
+			int column = Math.min((int) draw, items.length - 1);
+			return (T) items[draw - column < probabilities[column] ? column : aliases[column]];
+		}
+	}
+}
@@ -4,17 +4,16 @@
 package com.someguyssoftware.treasure2.registry;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Sets;
+import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.chest.ChestInfo;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.enums.Rarity;
 
 /**
  * 
@@ -22,17 +21,18 @@ import com.someguyssoftware.treasure2.config.TreasureConfig;
  *
  */
 public class ChestRegistry {
-	private static final int MAX_SIZE = TreasureConfig.CHESTS.chestRegistrySize;
-	
 	private static ChestRegistry instance = new ChestRegistry();
-	// TODO this does not need to be a ListMultimap, can be just a LinkedList to preserve order
-	private ListMultimap<String, ChestInfo> registry;
+	
+	// registry of chests by dimension, keyed by packed coords.
+	// the methods are synchronized (and the dimension map concurrent), as chunks can be populated on other threads;
+	// a generator reserves its site with registerIfClear() so the distance check and the registration are atomic.
+	private Map<Integer, PackedChestRegistry> registry;
 	
 	/**
 	 * 
 	 */
 	private ChestRegistry() {
-		registry = LinkedListMultimap.create();
+		registry = new ConcurrentHashMap<>();
 	}
 	
 	/**
@@ -45,63 +45,135 @@ public class ChestRegistry {
 	
 	/**
 	 * 
-	 * @param key
+	 * @param dimensionID
+	 * @param coords
 	 * @return
 	 */
-	public boolean isRegistered(final String key) {
-		return registry.containsKey(key);
+	public synchronized boolean isRegistered(final Integer dimensionID, final ICoords coords) {
+		PackedChestRegistry dimensionRegistry = registry.get(dimensionID);
+		return dimensionRegistry != null && dimensionRegistry.isRegistered(coords);
 	}
 	
 	/**
-	 * Registers a ChestInfo with a key.
-	 * @param key
+	 * Registers a chest by its coords.
+	 * @param dimensionID
+	 * @param coords
+	 * @param rarity
+	 */
+	public synchronized void register(final Integer dimensionID, final ICoords coords, final Rarity rarity) {
+		Treasure.logger.debug("Registering chest in dimension -> {} at coords -> {}", dimensionID, coords);
+		PackedChestRegistry dimensionRegistry = registry.get(dimensionID);
+		if (dimensionRegistry == null) {
+			dimensionRegistry = new PackedChestRegistry(TreasureConfig.CHESTS.chestRegistrySize);
+			registry.put(dimensionID, dimensionRegistry);
+		}
+		dimensionRegistry.register(coords, rarity);
+	}
+	
+	/**
+	 * Registers a chest by its coords, unless a registered chest of the dimension is within the distance.
+	 * @param dimensionID
+	 * @param coords
+	 * @param rarity
+	 * @param distance
+	 * @return true if the chest was registered
+	 */
+	public synchronized boolean registerIfClear(final Integer dimensionID, final ICoords coords, final Rarity rarity, int distance) {
+		if (withinDistance(dimensionID, coords, distance)) {
+			return false;
+		}
+		register(dimensionID, coords, rarity);
+		return true;
+	}
+	
+	/**
+	 * Registers a ChestInfo by its coords.
+	 * @param dimensionID
 	 * @param info
 	 */
-	public synchronized void register(final String key, final ChestInfo info) {	
-		Treasure.logger.debug("Registering chest using key: " + key);
-		// test the size
-		if (registry.size() >= MAX_SIZE) {
-			// remove the first element
-			String headKey = registry.keySet().iterator().next();
-			unregister(headKey);
+	public void register(final Integer dimensionID, final ChestInfo info) {
+		register(dimensionID, info.getCoords(), info.getRarity());
+	}
+	
+	/**
+	 * 
+	 * @param dimensionID
+	 * @param coords
+	 */
+	public synchronized void unregister(final Integer dimensionID, final ICoords coords) {
+		PackedChestRegistry dimensionRegistry = registry.get(dimensionID);
+		if (dimensionRegistry != null) {
+			dimensionRegistry.unregister(coords);
 		}
-		// register by the unique key
-		registry.put(key, info);
 	}
 	
 	/**
 	 * 
-	 * @param key
+	 * @param dimensionID
+	 * @param coords
+	 * @return the chest registered at the coords, or null
 	 */
-	public synchronized void unregister(final String key) {
-		if (registry.containsKey(key)) {
-			registry.removeAll(key);
+	public synchronized ChestInfo get(final Integer dimensionID, final ICoords coords) {
+		PackedChestRegistry dimensionRegistry = registry.get(dimensionID);
+		if (dimensionRegistry != null) {
+			Rarity rarity = dimensionRegistry.getRarity(coords);
+			if (rarity != null) {
+				return new ChestInfo(rarity, coords);
+			}
 		}
+		return null;
 	}
 	
 	/**
 	 * 
-	 * @param key
 	 * @return
 	 */
-	public List<ChestInfo> get(String key) {
-		List<ChestInfo> info = null;
-		if (registry.containsKey(key)) {
-			info = registry.get(key);
-		}
-		return info;
+	public Set<Integer> getDimensionKeys() {
+		return registry.keySet();
 	}
 	
 	/**
 	 * This will not update parent collection.
+	 * @param dimensionID
+	 * @return
+	 */
+	public synchronized List<ChestInfo> getValues(final Integer dimensionID) {
+		PackedChestRegistry dimensionRegistry = registry.get(dimensionID);
+		if (dimensionRegistry != null) {
+			return dimensionRegistry.getValues();
+		}
+		return new ArrayList<>();
+	}
+	
+	/**
+	 * Determines if any registered chest in the dimension is within the distance of the coords.
+	 * Only the chunk buckets of the dimension registry that overlap the distance are visited.
+	 * @param dimensionID
+	 * @param coords
+	 * @param distance
 	 * @return
 	 */
-	public List<ChestInfo> getValues() {
-		HashSet<ChestInfo> set = Sets.newHashSet(registry.values());
-		return new ArrayList<>(set);
+	public synchronized boolean withinDistance(final Integer dimensionID, ICoords coords, int distance) {
+		PackedChestRegistry dimensionRegistry = registry.get(dimensionID);
+		return dimensionRegistry != null && dimensionRegistry.withinDistance(coords, distance);
+	}
+	
+	/**
+	 * 
+	 * @return the total number of chests registered across all dimensions
+	 */
+	public synchronized int size() {
+		int size = 0;
+		for (PackedChestRegistry dimensionRegistry : registry.values()) {
+			size += dimensionRegistry.size();
+		}
+		return size;
 	}
 	
-	public void clear() {
+	/**
+	 * 
+	 */
+	public synchronized void clear() {
 		registry.clear();
 	}
 }
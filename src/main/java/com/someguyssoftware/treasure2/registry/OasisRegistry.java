@@ -3,17 +3,14 @@
  */
 package com.someguyssoftware.treasure2.registry;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
@@ -24,10 +21,13 @@ import com.someguyssoftware.treasure2.generator.oasis.OasisInfo;
  *
  */
 public class OasisRegistry {
+	// oases are far apart, so index them by 256x256 block cells instead of by chunk
+	private static final int OASIS_BUCKET_SHIFT = 8;
 
 	private static OasisRegistry instance = new OasisRegistry();
-	// TODO this does not need to be a ListMultimap, can be just a LinkedList to preserve order
-	private Map<Integer, ListMultimap<String, OasisInfo>> registry;
+
+	// registry of oases by dimension
+	private Map<Integer, DimensionOasisRegistry> registry;
 	
 	/**
 	 * 
@@ -49,12 +49,9 @@ public class OasisRegistry {
 	 * @param key
 	 * @return
 	 */
-	public boolean isRegistered(final Integer dimensionID, final String key) {
-		if (registry.containsKey(dimensionID)) {
-			ListMultimap<String, OasisInfo> map = registry.get(dimensionID);
-			return registry.containsKey(key);
-		}
-		return false;		
+	public synchronized boolean isRegistered(final Integer dimensionID, final String key) {
+		DimensionOasisRegistry dimensionRegistry = registry.get(dimensionID);
+		return dimensionRegistry != null && dimensionRegistry.oases.containsKey(key);
 	}
 
 	/**
@@ -65,20 +62,12 @@ public class OasisRegistry {
 	public synchronized void register(final Integer dimensionID, final String key, final OasisInfo info) {
 		Treasure.logger.debug("Registering oasis in dimension -> {} using key -> {} ", dimensionID, key);
 		// get the registry for the dimension
-		if (!registry.containsKey(dimensionID)) {
-			registry.put(dimensionID, LinkedListMultimap.create());
+		DimensionOasisRegistry dimensionRegistry = registry.get(dimensionID);
+		if (dimensionRegistry == null) {
+			dimensionRegistry = new DimensionOasisRegistry(TreasureConfig.OASES.oasisRegistrySize);
+			registry.put(dimensionID, dimensionRegistry);
 		}
-		
-		ListMultimap<String, OasisInfo> map = registry.get(dimensionID);
-		// test the size		
-		if (map.size() >= TreasureConfig.OASES.oasisRegistrySize) {
-			// remove the first element
-			String headKey = map.keySet().iterator().next();
-			unregister(dimensionID, headKey);
-		}
-		
-		// register by the unique key
-		map.put(key, info);
+		dimensionRegistry.register(key, info);
 	}
 	
 	/**
@@ -86,11 +75,9 @@ public class OasisRegistry {
 	 * @param key
 	 */
 	public synchronized void unregister(final Integer dimensionID, final String key) {
-		if (registry.containsKey(dimensionID)) {
-			ListMultimap<String, OasisInfo> map = registry.get(dimensionID);
-			if (map.containsKey(key)) {
-				map.removeAll(key);
-			}
+		DimensionOasisRegistry dimensionRegistry = registry.get(dimensionID);
+		if (dimensionRegistry != null) {
+			dimensionRegistry.unregister(key);
 		}
 	}
 	
@@ -99,15 +86,9 @@ public class OasisRegistry {
 	 * @param key
 	 * @return
 	 */
-	public List<OasisInfo> get(final Integer dimensionID, final String key) {
-		List<OasisInfo> info = null;
-		if (registry.containsKey(dimensionID)) {
-			ListMultimap<String, OasisInfo> map = registry.get(dimensionID);
-			if (map.containsKey(key)) {
-				info = map.get(key);
-			}
-		}
-		return info;
+	public synchronized OasisInfo get(final Integer dimensionID, final String key) {
+		DimensionOasisRegistry dimensionRegistry = registry.get(dimensionID);
+		return dimensionRegistry == null ? null : dimensionRegistry.oases.get(key);
 	}
 	
 	/**
@@ -119,31 +100,94 @@ public class OasisRegistry {
 	}
 	
 	/**
-	 * This will not update parent collection.
+	 * Returns an immutable snapshot of the registered oases of the dimension, oldest first.
+	 * The snapshot is only rebuilt after the dimension registry changes, so repeated calls (ex. saving) do not copy.
 	 * @param dimensionID
 	 * @return
 	 */
-	public ListMultimap<String, OasisInfo> getDimensionEntry(final Integer dimensionID) {
-		return LinkedListMultimap.create(registry.get(dimensionID));
+	public synchronized ImmutableList<Entry<String, OasisInfo>> getDimensionEntries(final Integer dimensionID) {
+		DimensionOasisRegistry dimensionRegistry = registry.get(dimensionID);
+		return dimensionRegistry == null ? ImmutableList.of() : dimensionRegistry.getSnapshot();
 	}
 	
 	/**
-	 * This will not update parent collection.
+	 * Determines if any registered oasis in the dimension is within the distance of the coords.
+	 * Only the cells of the dimension's grid index that overlap the distance are visited.
+	 * @param dimensionID
+	 * @param coords
+	 * @param distance
 	 * @return
 	 */
-	public List<OasisInfo> getValues(final Integer dimensionID) {
-		if (registry.containsKey(dimensionID)) {
-			ListMultimap<String, OasisInfo> map = registry.get(dimensionID);
-			HashSet<OasisInfo> set = Sets.newHashSet(map.values());
-			return new ArrayList<>(set);
-		}
-		return new ArrayList<>();
+	public synchronized boolean withinDistance(final Integer dimensionID, final ICoords coords, final int distance) {
+		DimensionOasisRegistry dimensionRegistry = registry.get(dimensionID);
+		return dimensionRegistry != null && dimensionRegistry.index.withinDistance(coords, distance);
+	}
+	
+	/**
+	 * 
+	 * @param dimensionID
+	 * @return
+	 */
+	public synchronized int size(final Integer dimensionID) {
+		DimensionOasisRegistry dimensionRegistry = registry.get(dimensionID);
+		return dimensionRegistry == null ? 0 : dimensionRegistry.oases.size();
 	}
 	
 	/**
 	 * 
 	 */
-	public void clear() {
+	public synchronized void clear() {
 		registry.clear();
 	}
+	
+	/**
+	 * The oasis registry of a single dimension, bounded to a max size with first in, first out eviction.
+	 */
+	private static class DimensionOasisRegistry {
+		private final int maxSize;
+		// insertion ordered
+		private final Map<String, OasisInfo> oases = new LinkedHashMap<>();
+		private final SpatialIndex<OasisInfo> index = new SpatialIndex<>(OASIS_BUCKET_SHIFT, OasisInfo::getCoords);
+		// null when the registry has changed since the last snapshot
+		private ImmutableList<Entry<String, OasisInfo>> snapshot;
+		
+		DimensionOasisRegistry(int maxSize) {
+			this.maxSize = maxSize;
+		}
+		
+		void register(final String key, final OasisInfo info) {
+			OasisInfo existing = oases.remove(key);
+			if (existing != null) {
+				index.remove(existing);
+			}
+			// test the size
+			else if (oases.size() >= maxSize) {
+				// remove the first element
+				unregister(oases.keySet().iterator().next());
+			}
+			// register by the unique key
+			oases.put(key, info);
+			index.add(info);
+			snapshot = null;
+		}
+		
+		void unregister(final String key) {
+			OasisInfo info = oases.remove(key);
+			if (info != null) {
+				index.remove(info);
+				snapshot = null;
+			}
+		}
+		
+		ImmutableList<Entry<String, OasisInfo>> getSnapshot() {
+			if (snapshot == null) {
+				ImmutableList.Builder<Entry<String, OasisInfo>> builder = ImmutableList.builder();
+				for (Entry<String, OasisInfo> entry : oases.entrySet()) {
+					builder.add(Maps.immutableEntry(entry.getKey(), entry.getValue()));
+				}
+				snapshot = builder.build();
+			}
+			return snapshot;
+		}
+	}
 }
@@ -0,0 +1,376 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.registry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.treasure2.chest.ChestInfo;
+import com.someguyssoftware.treasure2.enums.Rarity;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * A fixed capacity chest registry for a single dimension, keyed by the coords packed into a long (same layout
+ * as BlockPos.toLong()). Entries are held in parallel primitive arrays and looked up with an open-addressing
+ * (linear probing) table, so registering or checking a chest does not build a key string or allocate a
+ * ChestInfo. When full, the oldest entry is evicted (first in, first out).
+ */
+public class PackedChestRegistry {
+	// BlockPos.toLong() layout
+	private static final int NUM_X_BITS = 26;
+	private static final int NUM_Z_BITS = NUM_X_BITS;
+	private static final int NUM_Y_BITS = 64 - NUM_X_BITS - NUM_Z_BITS;
+	private static final int Y_SHIFT = NUM_Z_BITS;
+	private static final int X_SHIFT = Y_SHIFT + NUM_Y_BITS;
+	private static final long X_MASK = (1L << NUM_X_BITS) - 1L;
+	private static final long Y_MASK = (1L << NUM_Y_BITS) - 1L;
+	private static final long Z_MASK = (1L << NUM_Z_BITS) - 1L;
+
+	private static final int NONE = -1;
+	private static final Rarity[] RARITIES = Rarity.values();
+
+	private final int capacity;
+
+	// parallel arrays indexed by slot
+	private final long[] keys;
+	private final byte[] rarities;
+	private final int[] xs;
+	private final int[] ys;
+	private final int[] zs;
+
+	// insertion order of the used slots, as a doubly linked list
+	private final int[] next;
+	private final int[] prev;
+	private int head = NONE;
+	private int tail = NONE;
+
+	// stack of unused slots
+	private final int[] free;
+	private int freeCount;
+
+	// open-addressing table of (slot + 1), 0 = empty
+	private final int[] table;
+	private final int mask;
+
+	// slots bucketed by chunk for distance checks
+	private final Long2ObjectMap<IntArrayList> buckets = new Long2ObjectOpenHashMap<>();
+
+	private int size;
+
+	/**
+	 *
+	 * @param capacity the maximum number of chests held before the oldest is evicted
+	 */
+	public PackedChestRegistry(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		keys = new long[this.capacity];
+		rarities = new byte[this.capacity];
+		xs = new int[this.capacity];
+		ys = new int[this.capacity];
+		zs = new int[this.capacity];
+		next = new int[this.capacity];
+		prev = new int[this.capacity];
+		free = new int[this.capacity];
+
+		int tableSize = HashCommon.arraySize(this.capacity, 0.5F);
+		table = new int[tableSize];
+		mask = tableSize - 1;
+		clear();
+	}
+
+	/**
+	 * Packs the coords into a long using the same layout as BlockPos.toLong().
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public static long toKey(int x, int y, int z) {
+		return ((long) x & X_MASK) << X_SHIFT | ((long) y & Y_MASK) << Y_SHIFT | ((long) z & Z_MASK);
+	}
+
+	/**
+	 *
+	 * @param coords
+	 * @return
+	 */
+	public static long toKey(ICoords coords) {
+		return toKey(coords.getX(), coords.getY(), coords.getZ());
+	}
+
+	/**
+	 *
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return
+	 */
+	private static long toBucketKey(int chunkX, int chunkZ) {
+		return ((long) chunkX & 0xFFFFFFFFL) | (((long) chunkZ & 0xFFFFFFFFL) << 32);
+	}
+
+	/**
+	 * Registers a chest at the coords. If a chest is already registered at the coords its rarity is replaced.
+	 * @param coords
+	 * @param rarity
+	 */
+	public void register(ICoords coords, Rarity rarity) {
+		final long key = toKey(coords);
+		int slot = find(key);
+		if (slot != NONE) {
+			rarities[slot] = (byte) rarity.ordinal();
+			return;
+		}
+
+		// test the size
+		if (size >= capacity) {
+			// remove the first element
+			remove(head);
+		}
+
+		slot = free[--freeCount];
+		keys[slot] = key;
+		rarities[slot] = (byte) rarity.ordinal();
+		xs[slot] = coords.getX();
+		ys[slot] = coords.getY();
+		zs[slot] = coords.getZ();
+
+		// append to the insertion order
+		prev[slot] = tail;
+		next[slot] = NONE;
+		if (tail == NONE) {
+			head = slot;
+		}
+		else {
+			next[tail] = slot;
+		}
+		tail = slot;
+
+		// add to the table
+		int pos = (int) HashCommon.mix(key) & mask;
+		while (table[pos] != 0) {
+			pos = (pos + 1) & mask;
+		}
+		table[pos] = slot + 1;
+
+		// add to the chunk bucket
+		long bucketKey = toBucketKey(xs[slot] >> 4, zs[slot] >> 4);
+		IntArrayList bucket = buckets.get(bucketKey);
+		if (bucket == null) {
+			bucket = new IntArrayList(2);
+			buckets.put(bucketKey, bucket);
+		}
+		bucket.add(slot);
+		size++;
+	}
+
+	/**
+	 *
+	 * @param coords
+	 * @return true if a chest was registered at the coords
+	 */
+	public boolean unregister(ICoords coords) {
+		int slot = find(toKey(coords));
+		if (slot == NONE) {
+			return false;
+		}
+		remove(slot);
+		return true;
+	}
+
+	/**
+	 *
+	 * @param coords
+	 * @return
+	 */
+	public boolean isRegistered(ICoords coords) {
+		return find(toKey(coords)) != NONE;
+	}
+
+	/**
+	 *
+	 * @param coords
+	 * @return the rarity of the chest registered at the coords, or null
+	 */
+	public Rarity getRarity(ICoords coords) {
+		int slot = find(toKey(coords));
+		return slot == NONE ? null : RARITIES[rarities[slot]];
+	}
+
+	/**
+	 * Determines if any registered chest is strictly within the distance (3D) of the coords.
+	 * Does not allocate.
+	 * @param coords
+	 * @param distance
+	 * @return
+	 */
+	public boolean withinDistance(ICoords coords, int distance) {
+		if (size == 0 || distance <= 0) {
+			return false;
+		}
+		final int x = coords.getX();
+		final int y = coords.getY();
+		final int z = coords.getZ();
+		final long distanceSq = (long) distance * distance;
+
+		int minChunkX = (x - distance) >> 4;
+		int maxChunkX = (x + distance) >> 4;
+		int minChunkZ = (z - distance) >> 4;
+		int maxChunkZ = (z + distance) >> 4;
+		long chunkSpan = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+
+		// fewer entries than chunks to visit - scan the entries
+		if (chunkSpan > size) {
+			for (int slot = head; slot != NONE; slot = next[slot]) {
+				if (isSlotWithinDistance(slot, x, y, z, distanceSq)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+				IntArrayList bucket = buckets.get(toBucketKey(chunkX, chunkZ));
+				if (bucket == null) {
+					continue;
+				}
+				for (int index = 0; index < bucket.size(); index++) {
+					if (isSlotWithinDistance(bucket.getInt(index), x, y, z, distanceSq)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates ChestInfo instances of all the registered chests, oldest first.
+	 * This will not update the registry.
+	 * @return
+	 */
+	public List<ChestInfo> getValues() {
+		List<ChestInfo> values = new ArrayList<>(size);
+		for (int slot = head; slot != NONE; slot = next[slot]) {
+			values.add(new ChestInfo(RARITIES[rarities[slot]], new Coords(xs[slot], ys[slot], zs[slot])));
+		}
+		return values;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		buckets.clear();
+		head = NONE;
+		tail = NONE;
+		// free slots are handed out in ascending order
+		freeCount = capacity;
+		for (int index = 0; index < capacity; index++) {
+			free[index] = capacity - 1 - index;
+		}
+		size = 0;
+	}
+
+	/**
+	 *
+	 * @param slot
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param distanceSq
+	 * @return
+	 */
+	private boolean isSlotWithinDistance(int slot, int x, int y, int z, long distanceSq) {
+		long dx = xs[slot] - x;
+		long dy = ys[slot] - y;
+		long dz = zs[slot] - z;
+		return dx * dx + dy * dy + dz * dz < distanceSq;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return the slot of the key or NONE
+	 */
+	private int find(long key) {
+		int pos = (int) HashCommon.mix(key) & mask;
+		int entry;
+		while ((entry = table[pos]) != 0) {
+			if (keys[entry - 1] == key) {
+				return entry - 1;
+			}
+			pos = (pos + 1) & mask;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Removes the used slot from the table, the chunk buckets and the insertion order, and frees it.
+	 * @param slot
+	 */
+	private void remove(int slot) {
+		// remove from the table, shifting back the following entries of the probe sequence
+		int pos = (int) HashCommon.mix(keys[slot]) & mask;
+		while (table[pos] != slot + 1) {
+			pos = (pos + 1) & mask;
+		}
+		int last = pos;
+		pos = (pos + 1) & mask;
+		int entry;
+		while ((entry = table[pos]) != 0) {
+			int home = (int) HashCommon.mix(keys[entry - 1]) & mask;
+			// move the entry back if its home position is not cyclically within (last, pos]
+			if (last <= pos ? (home <= last || home > pos) : (home <= last && home > pos)) {
+				table[last] = entry;
+				last = pos;
+			}
+			pos = (pos + 1) & mask;
+		}
+		table[last] = 0;
+
+		// remove from the chunk bucket
+		long bucketKey = toBucketKey(xs[slot] >> 4, zs[slot] >> 4);
+		IntArrayList bucket = buckets.get(bucketKey);
+		if (bucket != null) {
+			bucket.rem(slot);
+			if (bucket.isEmpty()) {
+				buckets.remove(bucketKey);
+			}
+		}
+
+		// unlink from the insertion order
+		if (prev[slot] == NONE) {
+			head = next[slot];
+		}
+		else {
+			next[prev[slot]] = next[slot];
+		}
+		if (next[slot] == NONE) {
+			tail = prev[slot];
+		}
+		else {
+			prev[next[slot]] = prev[slot];
+		}
+
+		free[freeCount++] = slot;
+		size--;
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.someguyssoftware.gottschcore.positional.ICoords;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * A simple grid index that buckets entries by their x/z position so that proximity queries only visit the
+ * buckets that overlap the query radius, instead of scanning (and copying) every registered entry.
+ *
+ * @param <T>
+ */
+public class SpatialIndex<T> {
+	// default bucket size is one chunk (16x16)
+	public static final int CHUNK_BUCKET_SHIFT = 4;
+
+	private final int bucketShift;
+	private final Function<T, ICoords> coordsFunction;
+	private final Long2ObjectMap<List<T>> buckets = new Long2ObjectOpenHashMap<>();
+	private int size;
+
+	/**
+	 *
+	 * @param coordsFunction
+	 */
+	public SpatialIndex(Function<T, ICoords> coordsFunction) {
+		this(CHUNK_BUCKET_SHIFT, coordsFunction);
+	}
+
+	/**
+	 *
+	 * @param bucketShift the size of a bucket as a power of 2 ie. 4 = 16 blocks
+	 * @param coordsFunction
+	 */
+	public SpatialIndex(int bucketShift, Function<T, ICoords> coordsFunction) {
+		this.bucketShift = bucketShift;
+		this.coordsFunction = coordsFunction;
+	}
+
+	/**
+	 *
+	 * @param bucketX
+	 * @param bucketZ
+	 * @return
+	 */
+	private static long toBucketKey(int bucketX, int bucketZ) {
+		return ((long) bucketX & 0xFFFFFFFFL) | (((long) bucketZ & 0xFFFFFFFFL) << 32);
+	}
+
+	/**
+	 *
+	 * @param entry
+	 */
+	public void add(T entry) {
+		ICoords coords = coordsFunction.apply(entry);
+		long key = toBucketKey(coords.getX() >> bucketShift, coords.getZ() >> bucketShift);
+		List<T> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<>(2);
+			buckets.put(key, bucket);
+		}
+		bucket.add(entry);
+		size++;
+	}
+
+	/**
+	 *
+	 * @param entry
+	 * @return
+	 */
+	public boolean remove(T entry) {
+		ICoords coords = coordsFunction.apply(entry);
+		long key = toBucketKey(coords.getX() >> bucketShift, coords.getZ() >> bucketShift);
+		List<T> bucket = buckets.get(key);
+		if (bucket == null || !bucket.remove(entry)) {
+			return false;
+		}
+		if (bucket.isEmpty()) {
+			buckets.remove(key);
+		}
+		size--;
+		return true;
+	}
+
+	/**
+	 * Determines if any indexed entry is strictly within the radius (3D distance) of the given coords.
+	 * Does not allocate. If the radius spans more buckets than there are entries, the occupied buckets are
+	 * scanned directly instead.
+	 * @param coords
+	 * @param radius
+	 * @return
+	 */
+	public boolean withinDistance(ICoords coords, int radius) {
+		if (size == 0 || radius <= 0) {
+			return false;
+		}
+		final int x = coords.getX();
+		final int y = coords.getY();
+		final int z = coords.getZ();
+		final long radiusSq = (long) radius * radius;
+
+		int minBucketX = (x - radius) >> bucketShift;
+		int maxBucketX = (x + radius) >> bucketShift;
+		int minBucketZ = (z - radius) >> bucketShift;
+		int maxBucketZ = (z + radius) >> bucketShift;
+		long bucketSpan = (long) (maxBucketX - minBucketX + 1) * (maxBucketZ - minBucketZ + 1);
+
+		if (bucketSpan > buckets.size()) {
+			for (List<T> bucket : buckets.values()) {
+				if (isBucketWithinDistance(bucket, x, y, z, radiusSq)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		for (int bucketX = minBucketX; bucketX <= maxBucketX; bucketX++) {
+			for (int bucketZ = minBucketZ; bucketZ <= maxBucketZ; bucketZ++) {
+				List<T> bucket = buckets.get(toBucketKey(bucketX, bucketZ));
+				if (bucket != null && isBucketWithinDistance(bucket, x, y, z, radiusSq)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @param bucket
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param radiusSq
+	 * @return
+	 */
+	private boolean isBucketWithinDistance(List<T> bucket, int x, int y, int z, long radiusSq) {
+		for (int index = 0; index < bucket.size(); index++) {
+			ICoords c = coordsFunction.apply(bucket.get(index));
+			long dx = c.getX() - x;
+			long dy = c.getY() - y;
+			long dz = c.getZ() - z;
+			if (dx * dx + dy * dy + dz * dz < radiusSq) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 */
+	public void clear() {
+		buckets.clear();
+		size = 0;
+	}
+}
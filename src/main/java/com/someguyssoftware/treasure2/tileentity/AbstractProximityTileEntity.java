@@ -90,7 +90,7 @@ public abstract class AbstractProximityTileEntity extends AbstractModTileEntity
             	GottschCore.logger.debug("PTE proximity was met.");
             	isTriggered = true;
             	// exectute action
-            	execute(this.getWorld(), new Random(), new Coords(this.getPos()), new Coords(player.getPosition()));
+            	execute(this.getWorld(), this.getWorld().rand, new Coords(this.getPos()), new Coords(player.getPosition()));
 
             	// NOTE: does not self-destruct that is up to the execute action to perform
             }
@@ -72,7 +72,7 @@ public class GravestoneProximitySpawnerTileEntity extends ProximitySpawnerTileEn
 //					Treasure.logger.debug("PTE proximity @ -> {} was met.", new Coords(this.pos).toShortString());
 					isTriggered = true;
 					// exectute action
-					execute(this.getWorld(), new Random(), new Coords(this.getPos()), new Coords(player.getPosition()));
+					execute(this.getWorld(), this.getWorld().rand, new Coords(this.getPos()), new Coords(player.getPosition()));
 					// NOTE: does not self-destruct that is up to the execute action to perform
 				}
 				if (this.isDead())
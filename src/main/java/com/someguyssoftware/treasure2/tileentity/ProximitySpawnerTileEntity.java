@@ -11,6 +11,7 @@ import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
 import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.random.RandomSource;
 
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityList;
@@ -30,6 +31,9 @@ import net.minecraftforge.common.DungeonHooks;
  *
  */
 public class ProximitySpawnerTileEntity extends AbstractProximityTileEntity {
+	// the salt of the random mob's stream
+	private static final long MOB_SALT = 0x4D4F42L;
+
 	private ResourceLocation mobName;
 	private Quantity mobNum;
 	private Double spawnRange = 5D;
@@ -59,8 +63,9 @@ public class ProximitySpawnerTileEntity extends AbstractProximityTileEntity {
 				this.mobName = new ResourceLocation(sourceTag.getString("mobName"));
 			}
 			else {
-                // select a random mob
-				this.mobName = DungeonHooks.getRandomDungeonMob(new Random());
+                // select a random mob, reproduced by the world seed and the spawner's position
+				long worldSeed = getWorld() == null ? 0L : getWorld().getSeed();
+				this.mobName = DungeonHooks.getRandomDungeonMob(RandomSource.forStructure(worldSeed, new Coords(getPos()), MOB_SALT));
 			}
 			if (getMobName() == null || StringUtils.isNullOrEmpty(getMobName().toString())) {
 				defaultMobSpawnerSettings();
@@ -88,6 +93,14 @@ public class ProximitySpawnerTileEntity extends AbstractProximityTileEntity {
 		}
 	}
 	
+	/**
+	 * The world of a tile entity loaded with its chunk is set before it is read.
+	 */
+	@Override
+	protected void setWorldCreate(World world) {
+		setWorld(world);
+	}
+
 	/**
 	 * 
 	 */
@@ -141,7 +154,7 @@ public class ProximitySpawnerTileEntity extends AbstractProximityTileEntity {
             	Treasure.logger.debug("PTE proximity was met.");
             	isTriggered = true;
             	// exectute action
-            	execute(this.getWorld(), new Random(), new Coords(this.getPos()), new Coords(player.getPosition()));
+            	execute(this.getWorld(), this.getWorld().rand, new Coords(this.getPos()), new Coords(player.getPosition()));
 
             	// NOTE: does not self-destruct that is up to the execute action to perform
             }
@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.world.gen.structure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.gottschcore.world.gen.structure.BlockContext;
+import com.someguyssoftware.gottschcore.world.gen.structure.IDecayRuleSet;
+
+import net.minecraft.block.Block;
+import net.minecraft.util.Mirror;
+import net.minecraft.util.Rotation;
+import net.minecraft.world.gen.structure.template.PlacementSettings;
+
+/**
+ * The immutable result of planning a template structure: the template, its placement and position, and the markers
+ * (absolute and transformed). A plan is computed without writing to the world (see TemplateGenerator.plan()) and
+ * is applied to the world later (TemplateGenerator.apply()).
+ * The marker contexts are copied on the way out, so a plan can be shared.
+ */
+public final class StructurePlan {
+	private final TemplateHolder holder;
+	private final Rotation rotation;
+	private final Mirror mirror;
+	// the coords supplied to the template, including the offset
+	private final ICoords templateCoords;
+	private final int offset;
+	private final Block nullBlock;
+	private final IDecayRuleSet decayRuleSet;
+	// the markers by block, absolute positioned and transformed
+	private final ImmutableListMultimap<Block, BlockContext> markers;
+	// the spawn coords after the rotation, without the offset
+	private final ICoords spawnCoords;
+	// the transformed size
+	private final ICoords size;
+
+	/**
+	 *
+	 * @param holder
+	 * @param placement
+	 * @param templateCoords
+	 * @param offset
+	 * @param nullBlock
+	 * @param decayRuleSet can be null
+	 * @param markers
+	 * @param spawnCoords
+	 * @param size
+	 */
+	public StructurePlan(TemplateHolder holder, PlacementSettings placement, ICoords templateCoords, int offset, Block nullBlock,
+			IDecayRuleSet decayRuleSet, ListMultimap<Block, BlockContext> markers, ICoords spawnCoords, ICoords size) {
+		this(holder, placement.getRotation(), placement.getMirror(), templateCoords, offset, nullBlock, decayRuleSet,
+				ImmutableListMultimap.copyOf(markers), spawnCoords, size);
+	}
+
+	private StructurePlan(TemplateHolder holder, Rotation rotation, Mirror mirror, ICoords templateCoords, int offset, Block nullBlock,
+			IDecayRuleSet decayRuleSet, ImmutableListMultimap<Block, BlockContext> markers, ICoords spawnCoords, ICoords size) {
+		this.holder = holder;
+		this.rotation = rotation;
+		this.mirror = mirror;
+		this.templateCoords = templateCoords;
+		this.offset = offset;
+		this.nullBlock = nullBlock;
+		this.decayRuleSet = decayRuleSet;
+		this.markers = markers;
+		this.spawnCoords = spawnCoords;
+		this.size = size;
+	}
+
+	/**
+	 *
+	 * @return new placement settings of the plan's rotation and mirror, so the caller can set the random
+	 */
+	public PlacementSettings getPlacement() {
+		return new PlacementSettings().setRotation(rotation).setMirror(mirror);
+	}
+
+	/**
+	 *
+	 * @param block
+	 * @return copies of the marker contexts of the block
+	 */
+	public List<BlockContext> getMarkers(Block block) {
+		List<BlockContext> contexts = new ArrayList<>();
+		for (BlockContext context : markers.get(block)) {
+			contexts.add(copy(context));
+		}
+		return contexts;
+	}
+
+	/**
+	 *
+	 * @return the markers (the contexts must not be modified)
+	 */
+	public ListMultimap<Block, BlockContext> getMarkers() {
+		return markers;
+	}
+
+	private static BlockContext copy(BlockContext context) {
+		return new BlockContext(context.getCoords(), context.getState());
+	}
+
+	public TemplateHolder getHolder() {
+		return holder;
+	}
+
+	public Rotation getRotation() {
+		return rotation;
+	}
+
+	public Mirror getMirror() {
+		return mirror;
+	}
+
+	public ICoords getTemplateCoords() {
+		return templateCoords;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public Block getNullBlock() {
+		return nullBlock;
+	}
+
+	public IDecayRuleSet getDecayRuleSet() {
+		return decayRuleSet;
+	}
+
+	public ICoords getSpawnCoords() {
+		return spawnCoords;
+	}
+
+	public ICoords getSize() {
+		return size;
+	}
+}
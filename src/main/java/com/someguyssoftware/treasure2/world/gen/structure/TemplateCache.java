@@ -0,0 +1,310 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.world.gen.structure;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.config.TreasureConfig;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.gen.structure.template.Template;
+
+/**
+ * The loaded templates of the TreasureTemplateManager. A template is loaded on its first use and the least recently
+ * used templates are unloaded when the cached templates exceed the configured number of blocks.
+ * <p>
+ * The methods are synchronized, as the templates are selected by the populations that may run on other threads.
+ * The prefetched templates are read and decoded on a worker thread, outside of the cache's lock, and only added
+ * to the cache on the server thread (see loadPrefetched()). The manager's template map isn't thread-safe, the
+ * manager guards it.
+ * </p>
+ *
+ */
+public class TemplateCache {
+	private static final int NBT_COMPOUND = 10;
+
+	// decodes the prefetched templates, a single daemon thread created on the first prefetch
+	private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Treasure template prefetch");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final TreasureTemplateManager manager;
+
+	// the loaded templates, in access order
+	private final LinkedHashMap<ResourceLocation, CachedTemplate> templates = new LinkedHashMap<>(16, 0.75F, true);
+	// the templates that failed to load, not retried until cleared
+	private final Set<ResourceLocation> failed = new HashSet<>();
+	private long blocks;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	// the templates queued for prefetch, until their decoded template is added
+	private final Set<ResourceLocation> pending = new HashSet<>();
+	// the templates decoded by the worker, added to the cache on the server thread
+	private final Queue<Prefetched> prefetched = new ConcurrentLinkedQueue<>();
+	// incremented by clear(), the templates decoded before are dropped
+	private volatile int generation;
+
+	/**
+	 *
+	 * @param manager
+	 */
+	TemplateCache(TreasureTemplateManager manager) {
+		this.manager = manager;
+	}
+
+	/**
+	 *
+	 * @param holder
+	 * @return the holder's template, loaded if not cached, or null if it can't be loaded
+	 */
+	public synchronized Template get(TemplateHolder holder) {
+		ResourceLocation location = holder.getLocation();
+		CachedTemplate cached = templates.get(location);
+		if (cached != null) {
+			hits++;
+			return cached.template;
+		}
+		misses++;
+		if (failed.contains(location)) {
+			return null;
+		}
+		Template template = manager.loadTemplate(holder);
+		if (template == null) {
+			fail(holder);
+			return null;
+		}
+		// the markers and sizes are transformed once per load, before the template is cached
+		put(holder, template, TemplateTransforms.of(template), getBlockCount(template));
+		evict(location);
+		return template;
+	}
+
+	/**
+	 * Queues the holder's template to be read and decoded off the server thread, if not cached and the cache
+	 * isn't full.
+	 * @param holder
+	 */
+	public synchronized void prefetch(TemplateHolder holder) {
+		ResourceLocation location = holder.getLocation();
+		long maxBlocks = getMaxBlocks();
+		if (templates.containsKey(location) || failed.contains(location) || (maxBlocks > 0 && blocks >= maxBlocks)
+				|| !pending.add(location)) {
+			return;
+		}
+		int prefetchGeneration = generation;
+		PREFETCH_EXECUTOR.execute(() -> {
+			Template template = null;
+			TemplateTransforms transforms = null;
+			long blockCount = 0;
+			try {
+				template = manager.loadTemplate(holder);
+				if (template != null) {
+					transforms = TemplateTransforms.of(template);
+					blockCount = getBlockCount(template);
+				}
+			}
+			catch(Exception e) {
+				Treasure.logger.error("Error prefetching template -> " + location, e);
+				template = null;
+			}
+			prefetched.add(new Prefetched(holder, template, transforms, blockCount, prefetchGeneration));
+		});
+	}
+
+	/**
+	 * Adds the templates decoded by the prefetch to the cache. Call on the server thread. The prefetched templates
+	 * don't evict others, a template that doesn't fit in the cache is dropped.
+	 */
+	public synchronized void loadPrefetched() {
+		Prefetched next;
+		while ((next = prefetched.poll()) != null) {
+			ResourceLocation location = next.holder.getLocation();
+			if (next.generation != generation) {
+				// decoded before a clear(), the holder may be stale
+				if (next.template != null && !templates.containsKey(location)) {
+					unloadPrefetched(location);
+				}
+				continue;
+			}
+			pending.remove(location);
+			// loaded by a population meanwhile, the manager's template (if kept) is the cached one
+			if (templates.containsKey(location)) {
+				continue;
+			}
+			if (next.template == null) {
+				if (!failed.contains(location)) {
+					fail(next.holder);
+				}
+				continue;
+			}
+			long maxBlocks = getMaxBlocks();
+			if (failed.contains(location) || (maxBlocks > 0 && blocks + next.blockCount > maxBlocks)) {
+				unloadPrefetched(location);
+				continue;
+			}
+			put(next.holder, next.template, next.transforms, next.blockCount);
+		}
+	}
+
+	/**
+	 * Unloads a dropped prefetched template from the manager on the worker, so the server thread doesn't wait for
+	 * a decode in progress. A template cached meanwhile isn't affected, the manager's map only spares a reload.
+	 * @param location
+	 */
+	private void unloadPrefetched(ResourceLocation location) {
+		PREFETCH_EXECUTOR.execute(() -> manager.unloadTemplate(location));
+	}
+
+	/**
+	 *
+	 * @param holder
+	 * @param template
+	 * @param transforms
+	 * @param blockCount
+	 */
+	private void put(TemplateHolder holder, Template template, TemplateTransforms transforms, long blockCount) {
+		holder.setTransforms(transforms);
+		templates.put(holder.getLocation(), new CachedTemplate(template, blockCount));
+		blocks += blockCount;
+	}
+
+	/**
+	 * Marks the holder's template as failed, it isn't loaded again until cleared.
+	 * @param holder
+	 */
+	private void fail(TemplateHolder holder) {
+		Treasure.logger.warn("Unable to load template -> {}", holder.getLocation());
+		failed.add(holder.getLocation());
+		pending.remove(holder.getLocation());
+		// as if it had failed at the registration
+		manager.unmapTemplate(holder);
+	}
+
+	/**
+	 * Unloads the least recently used templates until the cache is within its size, the loaded template is kept.
+	 * @param loaded
+	 */
+	private void evict(ResourceLocation loaded) {
+		long maxBlocks = getMaxBlocks();
+		if (maxBlocks <= 0) {
+			return;
+		}
+		Iterator<Map.Entry<ResourceLocation, CachedTemplate>> iterator = templates.entrySet().iterator();
+		while (blocks > maxBlocks && iterator.hasNext()) {
+			Map.Entry<ResourceLocation, CachedTemplate> entry = iterator.next();
+			if (entry.getKey().equals(loaded)) {
+				continue;
+			}
+			iterator.remove();
+			blocks -= entry.getValue().blockCount;
+			evictions++;
+			manager.unloadTemplate(entry.getKey());
+			Treasure.logger.debug("unloaded template -> {}", entry.getKey());
+		}
+	}
+
+	/**
+	 *
+	 */
+	public synchronized void clear() {
+		generation++;
+		pending.clear();
+		for (ResourceLocation location : templates.keySet()) {
+			manager.unloadTemplate(location);
+		}
+		templates.clear();
+		failed.clear();
+		blocks = 0;
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * Counts the template's blocks. The blocks of a GottschTemplate (ex. a template with decay) are private to the
+	 * vanilla Template, they are counted from its saved form, once per load.
+	 * @param template
+	 * @return the number of blocks of the template
+	 */
+	public static long getBlockCount(Template template) {
+		if (template instanceof TreasureTemplate) {
+			return ((TreasureTemplate) template).getBlockCount();
+		}
+		return template.writeToNBT(new NBTTagCompound()).getTagList("blocks", NBT_COMPOUND).tagCount();
+	}
+
+	private static long getMaxBlocks() {
+		return TreasureConfig.WORLD_GEN.getGeneralProperties().templateCacheSize;
+	}
+
+	public synchronized boolean contains(ResourceLocation location) {
+		return templates.containsKey(location);
+	}
+
+	public synchronized int size() {
+		return templates.size();
+	}
+
+	public synchronized long getBlocks() {
+		return blocks;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/*
+	 * A cached template and its block count.
+	 */
+	private static class CachedTemplate {
+		final Template template;
+		final long blockCount;
+
+		CachedTemplate(Template template, long blockCount) {
+			this.template = template;
+			this.blockCount = blockCount;
+		}
+	}
+
+	/*
+	 * A template decoded by the prefetch, or a null template if it failed to load.
+	 */
+	private static class Prefetched {
+		final TemplateHolder holder;
+		final Template template;
+		final TemplateTransforms transforms;
+		final long blockCount;
+		final int generation;
+
+		Prefetched(TemplateHolder holder, Template template, TemplateTransforms transforms, long blockCount, int generation) {
+			this.holder = holder;
+			this.template = template;
+			this.transforms = transforms;
+			this.blockCount = blockCount;
+			this.generation = generation;
+		}
+	}
+}
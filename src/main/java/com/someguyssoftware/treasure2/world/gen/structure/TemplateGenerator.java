@@ -6,28 +6,26 @@ package com.someguyssoftware.treasure2.world.gen.structure;
 import java.util.Map.Entry;
 import java.util.Random;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.world.gen.structure.BlockContext;
 import com.someguyssoftware.gottschcore.world.gen.structure.GottschTemplate;
 import com.someguyssoftware.gottschcore.world.gen.structure.IDecayProcessor;
+import com.someguyssoftware.gottschcore.world.gen.structure.IDecayRuleSet;
 import com.someguyssoftware.gottschcore.world.gen.structure.StructureMarkers;
 import com.someguyssoftware.treasure2.Treasure;
-import com.someguyssoftware.treasure2.block.TreasureBlocks;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
 import com.someguyssoftware.treasure2.generator.TemplateGeneratorData;
 import com.someguyssoftware.treasure2.meta.StructureMeta;
 
 import net.minecraft.block.Block;
-import net.minecraft.block.BlockHorizontal;
-import net.minecraft.block.properties.PropertyDirection;
-import net.minecraft.block.properties.PropertyEnum;
-import net.minecraft.block.state.IBlockState;
-import net.minecraft.util.EnumFacing;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.gen.structure.template.PlacementSettings;
+import net.minecraft.world.gen.structure.template.Template;
 
 // TODO getMarkerBlock should be in TemplateGenerator as well (passed in)
 // TODO move TemplateGenerator to world.gen.structure (in gottschcore)
@@ -39,10 +37,6 @@ import net.minecraft.world.gen.structure.template.PlacementSettings;
  *
  */
 public class TemplateGenerator implements ITemplateGenerator<GeneratorResult<TemplateGeneratorData>> {
-	// facing property of a vanilla chest
-	private static final PropertyDirection FACING = BlockHorizontal.FACING;
-	private static final PropertyEnum<EnumFacing> CHEST_FACING = PropertyDirection.create("facing", EnumFacing.class);
-
 	private Block nullBlock;
 
 	// TODO constructor should probably take in null block or list of null blocks,
@@ -65,23 +59,62 @@ public class TemplateGenerator implements ITemplateGenerator<GeneratorResult<Tem
 	public GeneratorResult<TemplateGeneratorData> generate(World world, Random random, IDecayProcessor decayProcessor,
 			TemplateHolder templateHolder, PlacementSettings placement, ICoords coords) {
 
-		GeneratorResult<TemplateGeneratorData> result = new GeneratorResult<>(TemplateGeneratorData.class);
+		StructurePlan plan = plan(random, null, templateHolder, placement, coords);
+		if (plan == null) {
+			return new GeneratorResult<>(TemplateGeneratorData.class).fail();
+		}
+		return apply(world, decayProcessor, placement, plan);
+	}
 
-		GottschTemplate template = (GottschTemplate) templateHolder.getTemplate();
+	/**
+	 * Plans the structure: the offset, the markers (absolute and transformed) and the spawn coords.
+	 * Doesn't access the world, though loading the template (on its first use) must happen on the server thread.
+	 * @param random
+	 * @param decayRuleSet the rule set to apply the plan with (can be null)
+	 * @param templateHolder
+	 * @param placement
+	 * @param coords
+	 * @return the plan or null if the template can't be loaded or has no meta
+	 */
+	public StructurePlan plan(Random random, IDecayRuleSet decayRuleSet, TemplateHolder templateHolder,
+			PlacementSettings placement, ICoords coords) {
+		return plan(random, decayRuleSet, templateHolder, templateHolder.getTransforms(), placement, coords);
+	}
+
+	/**
+	 * Plans the structure with the transforms of a template already loaded (ex. by a ColumnSnapshot). Accesses neither
+	 * the world nor the template cache, so it can run off the server thread.
+	 * @param random
+	 * @param decayRuleSet the rule set to apply the plan with (can be null)
+	 * @param templateHolder
+	 * @param transforms the transforms of the holder's template
+	 * @param placement
+	 * @param coords
+	 * @return the plan or null if the template wasn't loaded or has no meta
+	 */
+	public StructurePlan plan(Random random, IDecayRuleSet decayRuleSet, TemplateHolder templateHolder,
+			TemplateTransforms transforms, PlacementSettings placement, ICoords coords) {
+
+		if (transforms == null) {
+			Treasure.logger.debug("Unable to load template -> {}", templateHolder.getLocation());
+			return null;
+		}
+		Template template = transforms.getTemplate();
 		Treasure.logger.debug("template size -> {}", template.getSize());
 		// get the meta
 		StructureMeta meta = (StructureMeta) Treasure.META_MANAGER.getMetaMap()
 				.get(templateHolder.getMetaLocation().toString());
 		if (meta == null) {
 			Treasure.logger.debug("Unable to locate meta data for template -> {}", templateHolder.getLocation());
-			return result.fail();
+			return null;
 		}
 		Treasure.logger.debug("meta -> {}", meta);
 
 		// if the meta provides a null block, use it
+		Block nullBlock = getNullBlock();
 		if (meta.getNullBlockName() != null && !meta.getNullBlockName().equals("")) {
 			Treasure.logger.debug("setting the null block to -> {}", meta.getNullBlockName());
-			setNullBlock(Block.getBlockFromName(meta.getNullBlockName()));
+			nullBlock = Block.getBlockFromName(meta.getNullBlockName());
 		}
 
 		// find the offset block
@@ -95,7 +128,7 @@ public class TemplateGenerator implements ITemplateGenerator<GeneratorResult<Tem
 			offsetCoords = new Coords(0, -meta.getOffset().getY(), 0);
 			Treasure.logger.debug("Using meta offset coords -> {}", offsetCoords);
 		} else {
-			offsetCoords = template.findCoords(random, GenUtil.getMarkerBlock(StructureMarkers.OFFSET));
+			offsetCoords = TemplateHolder.findCoords(template, random, GenUtil.getMarkerBlock(StructureMarkers.OFFSET));
 		}
 
 		if (offsetCoords != null) {
@@ -105,107 +138,85 @@ public class TemplateGenerator implements ITemplateGenerator<GeneratorResult<Tem
 		// update the spawn coords with the offset
 		ICoords spawnCoords = coords.add(0, offset, 0);
 
-		// generate the structure
-		if (decayProcessor == null) {
-			Treasure.logger.debug("no decay processor found.");
-			template.addBlocksToWorld(world, spawnCoords.toPos(), placement, getNullBlock(),
-					Treasure.TEMPLATE_MANAGER.getReplacementMap(), 3);
-		} else {
-			decayProcessor.setDecayStartY(Math.abs(offset));
-			template.addBlocksToWorld(world, spawnCoords.toPos(), decayProcessor, placement, getNullBlock(),
-					Treasure.TEMPLATE_MANAGER.getReplacementMap(), 3);
-		}
-
-		// process all markers and adding them to the result data (absolute positioned)
-//		for (Entry<Block, StructureMarkerContext> entry : template.getMarkerMap().entries()) {
-//			ICoords c = new Coords(GottschTemplate.transformedCoords(placement, entry.getValue().getCoords()));
-//			c = spawnCoords.add(c);
-//			result.getData().getMap().put(entry.getKey(), c);
-//			Treasure.logger.debug("adding to structure info absoluted transformed coords -> {} : {}", entry.getKey().getLocalizedName(), c.toShortString());
-//		}
-		for (Entry<Block, BlockContext> entry : template.getTagBlockMap().entries()) {
-			ICoords c = new Coords(GottschTemplate.transformedCoords(placement, entry.getValue().getCoords()));
-			c = spawnCoords.add(c);
-			result.getData().getMap().put(entry.getKey(), new BlockContext(c, entry.getValue().getState()));
-			Treasure.logger.debug("old: adding to structure info absoluted transformed coords -> {} : {}",
-					entry.getKey().getLocalizedName(), c.toShortString());
-		}
-
-		// TODO this will be replaced with the below
-		// find the chest and update chest coords (absolute positioned)
-//		List<StructureMarkerContext> contextList = (List<StructureMarkerContext>) template.getMarkerMap().get(GenUtil.getMarkerBlock(StructureMarkers.CHEST));
-//		if (!contextList.isEmpty()) {
-//			StructureMarkerContext context = contextList.get(0);
-//			ICoords chestCoords = new Coords(GottschTemplate.transformedCoords(placement, context.getCoords()));
-//			// get the absolute coords of chest
-//			chestCoords = spawnCoords.add(chestCoords);
-//			// set the chest coords in the result data
-//			result.getData().setChestCoords(chestCoords);
-//			// get the block state of the chest
-//			IBlockState chestState = context.getState();
-//			chestState = chestState.withMirror(placement.getMirror());
-//			chestState = chestState.withRotation(placement.getRotation());
-//			 if (chestState.getProperties().containsKey(FACING)) {
-//				 IBlockState modState= TreasureBlocks.WOOD_CHEST.getDefaultState().withProperty(CHEST_FACING, (EnumFacing)chestState.getProperties().get(FACING));
-//				 result.getData().setChestState(modState);
-////				 Treasure.logger.debug("saving chest state -> {}", modState.toString());
-//			 }
-//		}
-
-		// process all strcture markers, positioning absolutely
-		// TEMP declaration - use the return result
-//		TemplateGeneratorData2 data2 = new TemplateGeneratorData2();
-		for (Entry<Block, BlockContext> entry : template.getTagBlockMap().entries()) {
-			BlockContext context = getAbsoluteTransformedContext(entry.getValue(), spawnCoords, placement);
-			result.getData().getMap().put(entry.getKey(), context);
-			Treasure.logger.debug("new: adding to structure info absoluted transformed coords -> {} : {}",
-					entry.getKey().getLocalizedName(), context.getCoords().toShortString());
-		}
+		// process all strcture markers, positioning absolutely (the transforms are precomputed per rotation and mirror)
+		TemplateTransforms.Transform transform = transforms.get(placement.getRotation(), placement.getMirror());
+		ListMultimap<Block, BlockContext> markers = ArrayListMultimap.create();
+		transform.addMarkers(spawnCoords, markers);
 
 		// get the transformed size
-		BlockPos transformedSize = template.transformedSize(placement.getRotation());
-//		Treasure.logger.debug("transformed size -> {}", transformedSize.toString());
+		ICoords transformedSize = transform.getSize();
 
 		// calculate the new spawn coords - that includes the rotation, and negates the
 		// Y offset
-		spawnCoords = getTransformedSpawnCoords(spawnCoords, new Coords(transformedSize), placement).add(0, -offset, 0);
+		ICoords transformedSpawnCoords = getTransformedSpawnCoords(spawnCoords, transformedSize, placement).add(0, -offset, 0);
+		Treasure.logger.debug("spawn coords after rotation -> " + transformedSpawnCoords);
 
-		Treasure.logger.debug("spawn coords after rotation -> " + spawnCoords);
-		// update result data
-		result.getData().setSpawnCoords(spawnCoords);
-		result.getData().setSize(new Coords(transformedSize));
+		return new StructurePlan(templateHolder, placement, spawnCoords, offset, nullBlock, decayRuleSet, markers,
+				transformedSpawnCoords, transformedSize);
+	}
 
-		return result.success();
+	/**
+	 * Adds the blocks of a plan to the world.
+	 * @param world
+	 * @param random the random of the placement (ex. integrity)
+	 * @param decayProcessor can be null
+	 * @param plan
+	 * @return
+	 */
+	public GeneratorResult<TemplateGeneratorData> apply(World world, Random random, IDecayProcessor decayProcessor, StructurePlan plan) {
+		return apply(world, decayProcessor, plan.getPlacement().setRandom(random), plan);
 	}
 
 	/**
 	 * 
-	 * @param contextIn
-	 * @param spawnCoords
+	 * @param world
+	 * @param decayProcessor
 	 * @param placement
+	 * @param plan
 	 * @return
 	 */
-	private BlockContext getAbsoluteTransformedContext(BlockContext contextIn, ICoords spawnCoords,
-			PlacementSettings placement) {
-		BlockContext context = new BlockContext();
+	private GeneratorResult<TemplateGeneratorData> apply(World world, IDecayProcessor decayProcessor, PlacementSettings placement, StructurePlan plan) {
+		GeneratorResult<TemplateGeneratorData> result = new GeneratorResult<>(TemplateGeneratorData.class);
+		Template template = plan.getHolder().getTemplate();
+		// unloaded since the plan and failed to load again
+		if (template == null) {
+			Treasure.logger.debug("Unable to load template -> {}", plan.getHolder().getLocation());
+			return result.fail();
+		}
 
-		// get the absolute coords of chest
-		ICoords coords = new Coords(GottschTemplate.transformedCoords(placement, contextIn.getCoords()));
-		coords = spawnCoords.add(coords);
-		context.setCoords(coords);
+		// the decay processors work on the GottschTemplate, a compact template is given a decay processor by a command
+		if (template instanceof TreasureTemplate && decayProcessor != null) {
+			template = Treasure.TEMPLATE_MANAGER.loadDecayTemplate(plan.getHolder());
+			if (template == null) {
+				Treasure.logger.debug("Unable to load template for decay -> {}", plan.getHolder().getLocation());
+				return result.fail();
+			}
+		}
 
-		// get the block state of the chest
-		IBlockState chestState = contextIn.getState();
-		chestState = chestState.withMirror(placement.getMirror());
-		chestState = chestState.withRotation(placement.getRotation());
-		if (chestState.getProperties().containsKey(FACING)) {
-			IBlockState modState = TreasureBlocks.WOOD_CHEST.getDefaultState().withProperty(CHEST_FACING,
-					(EnumFacing) chestState.getProperties().get(FACING));
-			context.setState(modState);
+		// generate the structure
+		if (template instanceof TreasureTemplate) {
+			((TreasureTemplate) template).addBlocksToWorld(world, plan.getTemplateCoords().toPos(), placement, plan.getNullBlock(),
+					Treasure.TEMPLATE_MANAGER.getReplacementMap(), 3);
+		} else if (decayProcessor == null) {
+			Treasure.logger.debug("no decay processor found.");
+			((GottschTemplate) template).addBlocksToWorld(world, plan.getTemplateCoords().toPos(), placement, plan.getNullBlock(),
+					Treasure.TEMPLATE_MANAGER.getReplacementMap(), 3);
 		} else {
-			context.setState(contextIn.getState());
+			decayProcessor.setDecayStartY(Math.abs(plan.getOffset()));
+			((GottschTemplate) template).addBlocksToWorld(world, plan.getTemplateCoords().toPos(), decayProcessor, placement, plan.getNullBlock(),
+					Treasure.TEMPLATE_MANAGER.getReplacementMap(), 3);
+		}
+		// the pasted blocks may have changed the cached surface scans
+		SurfaceCache.invalidate(world);
+
+		// update result data
+		for (Entry<Block, BlockContext> entry : plan.getMarkers().entries()) {
+			result.getData().getMap().put(entry.getKey(), new BlockContext(entry.getValue().getCoords(), entry.getValue().getState()));
 		}
-		return context;
+		result.getData().setSpawnCoords(plan.getSpawnCoords());
+		result.getData().setSize(plan.getSize());
+
+		return result.success();
 	}
 
 	/**
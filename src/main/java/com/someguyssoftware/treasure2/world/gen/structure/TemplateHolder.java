@@ -4,8 +4,14 @@
 package com.someguyssoftware.treasure2.world.gen.structure;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Random;
 
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.gottschcore.world.gen.structure.GottschTemplate;
+
+import net.minecraft.block.Block;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.world.gen.structure.template.Template;
 
@@ -15,9 +21,15 @@ import net.minecraft.world.gen.structure.template.Template;
  */
 public class TemplateHolder {
 	private Template template;
+	// loads the template on first use, if not set
+	private TemplateCache cache;
+	// the transforms of the (last) loaded template
+	private volatile TemplateTransforms transforms;
 	private ResourceLocation location;
 	private ResourceLocation metaLocation;
 	private List<ResourceLocation> decayRuleSetLocation;
+	// the ids of the biomes the template is mapped to
+	private BitSet biomes;
 	
 	public TemplateHolder() {}
 
@@ -35,9 +47,64 @@ public class TemplateHolder {
 	}
 	
 	public Template getTemplate() {
+		if (template == null && cache != null) {
+			return cache.get(this);
+		}
 		return template;
 	}
 
+	/**
+	 * 
+	 * @param random
+	 * @param marker
+	 * @return the coords (relative to the template) of a random marker of the block, or null if none
+	 */
+	public ICoords findCoords(Random random, Block marker) {
+		return findCoords(getTemplate(), random, marker);
+	}
+
+	/**
+	 * 
+	 * @param template a loaded template, or null
+	 * @param random
+	 * @param marker
+	 * @return the coords (relative to the template) of a random marker of the block, or null if none
+	 */
+	public static ICoords findCoords(Template template, Random random, Block marker) {
+		if (template instanceof TreasureTemplate) {
+			return ((TreasureTemplate) template).findCoords(random, marker);
+		}
+		return template == null ? null : ((GottschTemplate) template).findCoords(random, marker);
+	}
+
+	/**
+	 * 
+	 * @return the rotated and mirrored markers and sizes of the template, or null if the template can't be loaded
+	 */
+	public TemplateTransforms getTransforms() {
+		Template template = getTemplate();
+		if (template == null) {
+			return null;
+		}
+		TemplateTransforms templateTransforms = transforms;
+		// computed for another load of the template
+		if (templateTransforms == null || templateTransforms.getTemplate() != template) {
+			templateTransforms = TemplateTransforms.of(template);
+			transforms = templateTransforms;
+		}
+		return templateTransforms;
+	}
+
+	public TemplateHolder setTransforms(TemplateTransforms transforms) {
+		this.transforms = transforms;
+		return this;
+	}
+
+	public TemplateHolder setCache(TemplateCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
 	/*
 	 * placeholder method. In future will check if there are child templates associated.
 	 */
@@ -80,6 +147,27 @@ public class TemplateHolder {
 		return this;
 	}
 
+	public BitSet getBiomes() {
+		if (biomes == null) {
+			biomes = new BitSet();
+		}
+		return biomes;
+	}
+
+	public TemplateHolder setBiomes(BitSet biomes) {
+		this.biomes = biomes;
+		return this;
+	}
+
+	/**
+	 * 
+	 * @param biomeID
+	 * @return true if the template is mapped to the biome
+	 */
+	public boolean hasBiome(int biomeID) {
+		return biomes != null && biomeID >= 0 && biomes.get(biomeID);
+	}
+
 	@Override
 	public String toString() {
 		return "TemplateHolder [location=" + location.toString() + ", metaLocation=" + metaLocation.toString()
@@ -0,0 +1,159 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.world.gen.structure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.google.common.collect.ListMultimap;
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.gottschcore.world.gen.structure.BlockContext;
+import com.someguyssoftware.gottschcore.world.gen.structure.GottschTemplate;
+import com.someguyssoftware.treasure2.block.TreasureBlocks;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockHorizontal;
+import net.minecraft.block.properties.PropertyDirection;
+import net.minecraft.block.properties.PropertyEnum;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.Mirror;
+import net.minecraft.util.Rotation;
+import net.minecraft.world.gen.structure.template.PlacementSettings;
+import net.minecraft.world.gen.structure.template.Template;
+
+/**
+ * The markers (offsets and states) and the size of a template, transformed for each rotation and mirror, so a
+ * placement only adds the spawn coords to the markers.
+ */
+public final class TemplateTransforms {
+	// facing property of a vanilla chest
+	private static final PropertyDirection FACING = BlockHorizontal.FACING;
+	private static final PropertyEnum<EnumFacing> CHEST_FACING = PropertyDirection.create("facing", EnumFacing.class);
+
+	private final Template template;
+	// by rotation ordinal * mirror count + mirror ordinal
+	private final Transform[] transforms;
+
+	/**
+	 *
+	 * @param template
+	 * @param transforms
+	 */
+	private TemplateTransforms(Template template, Transform[] transforms) {
+		this.template = template;
+		this.transforms = transforms;
+	}
+
+	/**
+	 *
+	 * @param template
+	 * @return the transforms of the template's markers and size
+	 */
+	public static TemplateTransforms of(Template template) {
+		// the untransformed markers
+		List<Block> blocks = new ArrayList<>();
+		List<BlockContext> contexts = new ArrayList<>();
+		if (template instanceof TreasureTemplate) {
+			((TreasureTemplate) template).forEachMarker((marker, x, y, z, state) -> {
+				blocks.add(marker);
+				contexts.add(new BlockContext(new Coords(x, y, z), state));
+			});
+		}
+		else if (template instanceof GottschTemplate) {
+			for (Entry<Block, BlockContext> entry : ((GottschTemplate) template).getTagBlockMap().entries()) {
+				blocks.add(entry.getKey());
+				contexts.add(entry.getValue());
+			}
+		}
+
+		Block[] markerBlocks = blocks.toArray(new Block[blocks.size()]);
+		Transform[] transforms = new Transform[Rotation.values().length * Mirror.values().length];
+		for (Rotation rotation : Rotation.values()) {
+			for (Mirror mirror : Mirror.values()) {
+				PlacementSettings placement = new PlacementSettings().setRotation(rotation).setMirror(mirror);
+				ICoords[] offsets = new ICoords[contexts.size()];
+				IBlockState[] states = new IBlockState[contexts.size()];
+				for (int index = 0; index < offsets.length; index++) {
+					offsets[index] = new Coords(GottschTemplate.transformedCoords(placement, contexts.get(index).getCoords()));
+					states[index] = getTransformedState(contexts.get(index).getState(), placement);
+				}
+				transforms[index(rotation, mirror)] = new Transform(new Coords(template.transformedSize(rotation)), markerBlocks, offsets, states);
+			}
+		}
+		return new TemplateTransforms(template, transforms);
+	}
+
+	/**
+	 * A chest's state is replaced by a wood chest of the transformed facing, the other states are kept as is.
+	 * @param state
+	 * @param placement
+	 * @return
+	 */
+	private static IBlockState getTransformedState(IBlockState state, PlacementSettings placement) {
+		IBlockState chestState = state.withMirror(placement.getMirror()).withRotation(placement.getRotation());
+		if (chestState.getProperties().containsKey(FACING)) {
+			return TreasureBlocks.WOOD_CHEST.getDefaultState().withProperty(CHEST_FACING,
+					(EnumFacing) chestState.getProperties().get(FACING));
+		}
+		return state;
+	}
+
+	private static int index(Rotation rotation, Mirror mirror) {
+		return rotation.ordinal() * Mirror.values().length + mirror.ordinal();
+	}
+
+	/**
+	 *
+	 * @param rotation
+	 * @param mirror
+	 * @return
+	 */
+	public Transform get(Rotation rotation, Mirror mirror) {
+		return transforms[index(rotation, mirror)];
+	}
+
+	/**
+	 *
+	 * @return the template the transforms were computed from
+	 */
+	public Template getTemplate() {
+		return template;
+	}
+
+	/**
+	 * The transformed size and markers of a rotation and mirror.
+	 */
+	public static final class Transform {
+		private final ICoords size;
+		private final Block[] markerBlocks;
+		// relative to the template's (untransformed) origin
+		private final ICoords[] offsets;
+		private final IBlockState[] states;
+
+		Transform(ICoords size, Block[] markerBlocks, ICoords[] offsets, IBlockState[] states) {
+			this.size = size;
+			this.markerBlocks = markerBlocks;
+			this.offsets = offsets;
+			this.states = states;
+		}
+
+		/**
+		 * Adds the markers, positioned absolutely, to the map.
+		 * @param spawnCoords
+		 * @param markers
+		 */
+		public void addMarkers(ICoords spawnCoords, ListMultimap<Block, BlockContext> markers) {
+			for (int index = 0; index < markerBlocks.length; index++) {
+				markers.put(markerBlocks[index], new BlockContext(spawnCoords.add(offsets[index]), states[index]));
+			}
+		}
+
+		public ICoords getSize() {
+			return size;
+		}
+	}
+}
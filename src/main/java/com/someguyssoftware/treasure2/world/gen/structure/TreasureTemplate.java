@@ -0,0 +1,398 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.world.gen.structure;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.collect.ListMultimap;
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.gottschcore.world.gen.structure.BlockContext;
+import com.someguyssoftware.gottschcore.world.gen.structure.GottschTemplate;
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTUtil;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Mirror;
+import net.minecraft.util.Rotation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.StructureBoundingBox;
+import net.minecraft.world.World;
+import net.minecraft.world.gen.structure.template.PlacementSettings;
+import net.minecraft.world.gen.structure.template.Template;
+
+/**
+ * A compact, read-only template: a palette of the template's block states and the palette index of every position
+ * (y-z-x order), the tile entity data by position and the marker positions packed per marker block. The blocks are
+ * pasted in a single linear pass.
+ * <p>
+ * Built from a loaded GottschTemplate. The templates with entities aren't converted.
+ * </p>
+ *
+ */
+public class TreasureTemplate extends Template {
+	private static final int NBT_COMPOUND = 10;
+	private static final int NBT_INT = 3;
+	// the palette index of the positions without a block
+	private static final short NO_BLOCK = -1;
+
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+	private final IBlockState[] palette;
+	// the palette index of each position, index = (y * sizeZ + z) * sizeX + x
+	private final short[] blocks;
+	private final int blockCount;
+	// the tile entity data by position index
+	private final Int2ObjectMap<NBTTagCompound> tileEntities;
+	private final Map<Block, Markers> markers;
+
+	/**
+	 *
+	 * @param size
+	 * @param author
+	 * @param palette
+	 * @param blocks
+	 * @param blockCount
+	 * @param tileEntities
+	 * @param markers
+	 */
+	private TreasureTemplate(BlockPos size, String author, IBlockState[] palette, short[] blocks, int blockCount,
+			Int2ObjectMap<NBTTagCompound> tileEntities, Map<Block, Markers> markers) {
+		this.sizeX = size.getX();
+		this.sizeY = size.getY();
+		this.sizeZ = size.getZ();
+		this.palette = palette;
+		this.blocks = blocks;
+		this.blockCount = blockCount;
+		this.tileEntities = tileEntities;
+		this.markers = markers;
+
+		// the size and author are private to Template, set them through a block-less read
+		NBTTagCompound header = new NBTTagCompound();
+		header.setTag("size", writeInts(sizeX, sizeY, sizeZ));
+		header.setString("author", author);
+		super.read(header);
+	}
+
+	/**
+	 *
+	 * @param template
+	 * @return the compact template or null if the template can't be converted
+	 */
+	public static TreasureTemplate of(GottschTemplate template) {
+		return of(template.writeToNBT(new NBTTagCompound()), template.getTagBlockMap());
+	}
+
+	/**
+	 *
+	 * @param nbt the template in the vanilla structure format
+	 * @param markers the markers (relative coords) by block
+	 * @return the compact template or null if the template can't be converted
+	 */
+	public static TreasureTemplate of(NBTTagCompound nbt, ListMultimap<Block, BlockContext> markers) {
+		// the entities are added by the GottschTemplate only
+		if (!nbt.getTagList("entities", NBT_COMPOUND).hasNoTags()) {
+			Treasure.logger.warn("Unable to convert the template (with entities) by -> {}", nbt.getString("author"));
+			return null;
+		}
+		NBTTagList paletteList = nbt.getTagList("palette", NBT_COMPOUND);
+		NBTTagList blockList = nbt.getTagList("blocks", NBT_COMPOUND);
+		if (blockList.hasNoTags() || paletteList.tagCount() > Short.MAX_VALUE) {
+			Treasure.logger.warn("Unable to convert the template (blocks -> {}, palette -> {}) by -> {}", blockList.tagCount(),
+					paletteList.tagCount(), nbt.getString("author"));
+			return null;
+		}
+
+		IBlockState[] palette = new IBlockState[paletteList.tagCount()];
+		for (int index = 0; index < palette.length; index++) {
+			palette[index] = NBTUtil.readBlockState(paletteList.getCompoundTagAt(index));
+		}
+
+		NBTTagList sizeList = nbt.getTagList("size", NBT_INT);
+		BlockPos size = new BlockPos(sizeList.getIntAt(0), sizeList.getIntAt(1), sizeList.getIntAt(2));
+		short[] blocks = new short[size.getX() * size.getY() * size.getZ()];
+		Arrays.fill(blocks, NO_BLOCK);
+		Int2ObjectMap<NBTTagCompound> tileEntities = new Int2ObjectOpenHashMap<>();
+		int blockCount = 0;
+		for (int index = 0; index < blockList.tagCount(); index++) {
+			NBTTagCompound block = blockList.getCompoundTagAt(index);
+			NBTTagList pos = block.getTagList("pos", NBT_INT);
+			int x = pos.getIntAt(0);
+			int y = pos.getIntAt(1);
+			int z = pos.getIntAt(2);
+			if (x < 0 || y < 0 || z < 0 || x >= size.getX() || y >= size.getY() || z >= size.getZ()) {
+				continue;
+			}
+			int position = (y * size.getZ() + z) * size.getX() + x;
+			if (blocks[position] == NO_BLOCK) {
+				blockCount++;
+			}
+			blocks[position] = (short) block.getInteger("state");
+			if (block.hasKey("nbt", NBT_COMPOUND)) {
+				tileEntities.put(position, block.getCompoundTag("nbt"));
+			}
+		}
+
+		Map<Block, Markers> markerMap = new IdentityHashMap<>();
+		for (Block marker : markers.keySet()) {
+			List<BlockContext> contexts = markers.get(marker);
+			int[] positions = new int[contexts.size()];
+			IBlockState[] states = new IBlockState[contexts.size()];
+			for (int index = 0; index < positions.length; index++) {
+				ICoords coords = contexts.get(index).getCoords();
+				positions[index] = (coords.getY() * size.getZ() + coords.getZ()) * size.getX() + coords.getX();
+				states[index] = contexts.get(index).getState();
+			}
+			markerMap.put(marker, new Markers(positions, states));
+		}
+
+		return new TreasureTemplate(size, nbt.getString("author"), palette, blocks, blockCount, tileEntities, markerMap);
+	}
+
+	/**
+	 *
+	 * @param random
+	 * @param marker
+	 * @return the coords (relative to the template) of a random marker of the block, or null if none
+	 */
+	public ICoords findCoords(Random random, Block marker) {
+		Markers blockMarkers = markers.get(marker);
+		if (blockMarkers == null || blockMarkers.positions.length == 0) {
+			return null;
+		}
+		int position = blockMarkers.positions[blockMarkers.positions.length == 1 ? 0 : random.nextInt(blockMarkers.positions.length)];
+		return new Coords(getX(position), getY(position), getZ(position));
+	}
+
+	/**
+	 * Passes each marker (relative coords) to the consumer.
+	 * @param consumer
+	 */
+	public void forEachMarker(IMarkerConsumer consumer) {
+		for (Map.Entry<Block, Markers> entry : markers.entrySet()) {
+			Markers blockMarkers = entry.getValue();
+			for (int index = 0; index < blockMarkers.positions.length; index++) {
+				int position = blockMarkers.positions[index];
+				consumer.accept(entry.getKey(), getX(position), getY(position), getZ(position), blockMarkers.states[index]);
+			}
+		}
+	}
+
+	@Override
+	public void addBlocksToWorld(World world, BlockPos pos, PlacementSettings placement) {
+		addBlocksToWorld(world, pos, placement, null, null, 2);
+	}
+
+	@Override
+	public void addBlocksToWorld(World world, BlockPos pos, PlacementSettings placement, int flags) {
+		addBlocksToWorld(world, pos, placement, null, null, flags);
+	}
+
+	/**
+	 * Adds the blocks to the world, except the null block's. The states of the replacement map are replaced
+	 * before the placement's mirror and rotation are applied.
+	 * @param world
+	 * @param pos
+	 * @param placement
+	 * @param nullBlock can be null
+	 * @param replacementMap can be null
+	 * @param flags the flags of the blocks with tile entities, the others are written through the BlockWriteBuffer
+	 */
+	public void addBlocksToWorld(World world, BlockPos pos, PlacementSettings placement, Block nullBlock,
+			Map<IBlockState, IBlockState> replacementMap, int flags) {
+		if (blockCount == 0) {
+			return;
+		}
+		Mirror mirror = placement.getMirror();
+		Rotation rotation = placement.getRotation();
+		StructureBoundingBox boundingBox = placement.getBoundingBox();
+		float integrity = placement.getIntegrity();
+		Random random = integrity < 1.0F ? placement.getRandom(pos) : null;
+
+		// the placed state of each palette entry, null if not placed
+		IBlockState[] states = new IBlockState[palette.length];
+		for (int index = 0; index < palette.length; index++) {
+			IBlockState state = palette[index];
+			if (state.getBlock() == nullBlock
+					|| (placement.getIgnoreStructureBlock() && state.getBlock() == Blocks.STRUCTURE_BLOCK)) {
+				continue;
+			}
+			if (replacementMap != null && replacementMap.containsKey(state)) {
+				state = replacementMap.get(state);
+			}
+			states[index] = state.withMirror(mirror).withRotation(rotation);
+		}
+
+		// the mirrored and rotated x and z axes
+		BlockPos xAxis = Template.transformedBlockPos(placement, new BlockPos(1, 0, 0));
+		BlockPos zAxis = Template.transformedBlockPos(placement, new BlockPos(0, 0, 1));
+
+		BlockPos.MutableBlockPos blockPos = new BlockPos.MutableBlockPos();
+		int position = 0;
+		for (int y = 0; y < sizeY; y++) {
+			for (int z = 0; z < sizeZ; z++) {
+				for (int x = 0; x < sizeX; x++, position++) {
+					short paletteIndex = blocks[position];
+					if (paletteIndex == NO_BLOCK || states[paletteIndex] == null
+							|| (random != null && random.nextFloat() > integrity)) {
+						continue;
+					}
+					blockPos.setPos(pos.getX() + x * xAxis.getX() + z * zAxis.getX(), pos.getY() + y,
+							pos.getZ() + x * xAxis.getZ() + z * zAxis.getZ());
+					if (boundingBox != null && !boundingBox.isVecInside(blockPos)) {
+						continue;
+					}
+					NBTTagCompound tileEntityNBT = tileEntities.get(position);
+					if (tileEntityNBT == null) {
+						BlockWriteBuffer.setBlockState(world, blockPos, states[paletteIndex]);
+					}
+					else {
+						addTileEntityBlock(world, blockPos.toImmutable(), states[paletteIndex], tileEntityNBT, mirror, rotation, flags);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param pos
+	 * @param state
+	 * @param tileEntityNBT
+	 * @param mirror
+	 * @param rotation
+	 * @param flags
+	 */
+	private void addTileEntityBlock(World world, BlockPos pos, IBlockState state, NBTTagCompound tileEntityNBT,
+			Mirror mirror, Rotation rotation, int flags) {
+		// clear the existing tile entity, as vanilla does
+		TileEntity existing = world.getTileEntity(pos);
+		if (existing != null) {
+			if (existing instanceof IInventory) {
+				((IInventory) existing).clear();
+			}
+			world.setBlockState(pos, Blocks.BARRIER.getDefaultState(), 4);
+		}
+		if (world.setBlockState(pos, state, flags)) {
+			TileEntity tileEntity = world.getTileEntity(pos);
+			if (tileEntity != null) {
+				NBTTagCompound nbt = tileEntityNBT.copy();
+				nbt.setInteger("x", pos.getX());
+				nbt.setInteger("y", pos.getY());
+				nbt.setInteger("z", pos.getZ());
+				tileEntity.readFromNBT(nbt);
+				tileEntity.mirror(mirror);
+				tileEntity.rotate(rotation);
+			}
+		}
+	}
+
+	/**
+	 * Writes the template in the vanilla structure format.
+	 */
+	@Override
+	public NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+		NBTTagList paletteList = new NBTTagList();
+		for (IBlockState state : palette) {
+			paletteList.appendTag(NBTUtil.writeBlockState(new NBTTagCompound(), state));
+		}
+		NBTTagList blockList = new NBTTagList();
+		for (int position = 0; position < blocks.length; position++) {
+			if (blocks[position] == NO_BLOCK) {
+				continue;
+			}
+			NBTTagCompound block = new NBTTagCompound();
+			block.setTag("pos", writeInts(getX(position), getY(position), getZ(position)));
+			block.setInteger("state", blocks[position]);
+			if (tileEntities.containsKey(position)) {
+				block.setTag("nbt", tileEntities.get(position));
+			}
+			blockList.appendTag(block);
+		}
+		nbt.setTag("palette", paletteList);
+		nbt.setTag("blocks", blockList);
+		nbt.setTag("entities", new NBTTagList());
+		nbt.setTag("size", writeInts(sizeX, sizeY, sizeZ));
+		nbt.setString("author", getAuthor());
+		nbt.setInteger("DataVersion", 1343);
+		return nbt;
+	}
+
+	private int getX(int position) {
+		return position % sizeX;
+	}
+
+	private int getY(int position) {
+		return position / (sizeX * sizeZ);
+	}
+
+	private int getZ(int position) {
+		return (position / sizeX) % sizeZ;
+	}
+
+	private static NBTTagList writeInts(int... values) {
+		NBTTagList list = new NBTTagList();
+		for (int value : values) {
+			list.appendTag(new NBTTagInt(value));
+		}
+		return list;
+	}
+
+	/**
+	 *
+	 * @return the number of positions with a block
+	 */
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+	public int getPaletteSize() {
+		return palette.length;
+	}
+
+	/**
+	 * The positions (packed) and states of the markers of a block.
+	 */
+	private static final class Markers {
+		private final int[] positions;
+		private final IBlockState[] states;
+
+		Markers(int[] positions, IBlockState[] states) {
+			this.positions = positions;
+			this.states = states;
+		}
+	}
+
+	/**
+	 *
+	 */
+	@FunctionalInterface
+	public interface IMarkerConsumer {
+		/**
+		 *
+		 * @param marker
+		 * @param x relative to the template
+		 * @param y
+		 * @param z
+		 * @param state
+		 */
+		void accept(Block marker, int x, int y, int z, IBlockState state);
+	}
+}
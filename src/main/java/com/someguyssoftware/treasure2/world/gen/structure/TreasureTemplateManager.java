@@ -10,11 +10,13 @@ import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -31,6 +33,7 @@ import com.someguyssoftware.gottschcore.meta.IMetaArchetype;
 import com.someguyssoftware.gottschcore.meta.IMetaType;
 import com.someguyssoftware.gottschcore.mod.IMod;
 import com.someguyssoftware.gottschcore.world.WorldInfo;
+import com.someguyssoftware.gottschcore.world.gen.structure.GottschTemplate;
 import com.someguyssoftware.gottschcore.world.gen.structure.GottschTemplateManager;
 import com.someguyssoftware.gottschcore.world.gen.structure.StructureMarkers;
 import com.someguyssoftware.treasure2.Treasure;
@@ -40,11 +43,13 @@ import com.someguyssoftware.treasure2.meta.StructureMeta;
 import com.someguyssoftware.treasure2.meta.StructureType;
 
 import net.minecraft.block.Block;
+import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.init.Blocks;
 import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.datafix.DataFixer;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
@@ -65,7 +70,22 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 	
 	private final Table<IMetaArchetype, IMetaType, List<TemplateHolder>> templatesByArchetypeType = HashBasedTable.create();
 
-	private final Table<String, Integer, List<TemplateHolder>> templatesByArchetypeTypeBiome = HashBasedTable.create();
+	// the positions sampled around a player for the template prefetch
+	private static final int[][] PREFETCH_OFFSETS = {{0, 0}, {128, 0}, {-128, 0}, {0, 128}, {0, -128}};
+	// the biome ids of the registry are 0-255
+	private static final int BIOME_ID_COUNT = 256;
+	private static final TemplateHolder[] EMPTY_HOLDERS = new TemplateHolder[0];
+
+	/*
+	 * the holders by [archetype ordinal][type ordinal][biome id]. the holder arrays are never modified once set,
+	 * a registration replaces the array, so a lookup is three array loads.
+	 */
+	private final TemplateHolder[][][] templatesByArchetypeTypeBiome = new TemplateHolder[StructureArchetype.values().length][StructureType.values().length][BIOME_ID_COUNT];
+
+	// the templates are loaded on first use
+	private final TemplateCache templateCache = new TemplateCache(this);
+	// guards the (not thread-safe) templates map, which the template loads change off the server thread
+	private final Object templatesLock = new Object();
 
 	private static List<String> FOLDER_LOCATIONS = ImmutableList.of("surface", "subterranean", "submerged", "float", "wells");
 	
@@ -94,6 +114,7 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 				templatesByArchetypeType.put(archetype, type, new ArrayList<>(5));
 			}
 		}
+		clearTemplatesByArchetypeTypeBiome();
 
 		// build and expose template/structure folders
 		if (TreasureConfig.MOD.enableDefaultTemplatesCheck) {
@@ -105,16 +126,31 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 	 * 
 	 */
 	public void clear() {
-		templatesByArchetypeTypeBiome.clear();
+		clearTemplatesByArchetypeTypeBiome();
 		templatesByArchetypeType.clear();
+		templatesByResourceLocation.clear();
+		templateCache.clear();
+	}
+
+	/**
+	 * 
+	 */
+	private void clearTemplatesByArchetypeTypeBiome() {
+		for (TemplateHolder[][] byType : templatesByArchetypeTypeBiome) {
+			for (TemplateHolder[] byBiome : byType) {
+				Arrays.fill(byBiome, EMPTY_HOLDERS);
+			}
+		}
 	}
 	
 	/**
-	 * Loads and registers the template from the file system.
+	 * Registers the templates of the file system. Only the metas are read, the templates are loaded on first use.
 	 * 
 	 * @param modID
 	 */
 	public void register(String modID) {
+		// the decay rule set locations shared by the templates
+		Map<ResourceLocation, ResourceLocation> ruleSetLocations = new HashMap<>();
 		for (String location : FOLDER_LOCATIONS) {
 			Treasure.logger.debug("registering templates under location -> {}", location);
 			// get template files as ResourceLocations from the file system location
@@ -148,15 +184,6 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 				
 				// TODO interrogate the archetype to determine the marker scan list and/or replacement map to use
 				
-				// load template
-				Template template = load(loc, getMarkerScanList(), getReplacementMap()); // TODO the marker scan list and replace list should be determined before this call
-				// add the id to the map
-				if (template == null) {
-					Treasure.logger.debug("unable to load custom template  with key -> {}", loc.toString());
-					continue;
-				}
-				Treasure.logger.debug("loaded custom template  with key -> {}", loc.toString());
-					
 				// TODO have the template. for now in Treasure, wrap in TreasureTemplate that has an offset or verticalOffset property in the template
 				// set that value to either the meta value if any. then the the template .... maybe getTemplate should be getTemplateHolder
 				
@@ -170,20 +197,24 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 					for (String ruleSetName : meta.getDecayRuleSetName()) {
 						ResourceLocation resourceLocation = new ResourceLocation(
 								getMod().getId() + ":" + Treasure.DECAY_MANAGER.getBaseResourceFolder()+ "/" + modID + "/" + ruleSetName + ".json");
-						decayRuleSetResourceLocation.add(resourceLocation);
+						decayRuleSetResourceLocation.add(ruleSetLocations.computeIfAbsent(resourceLocation, k -> k));
 						Treasure.logger.debug("Using key to find decay ruleset -> {}", decayRuleSetResourceLocation.toString());
 					}
 				}
 				
 				// 1/27/20 - moved outside the loop
-				TemplateHolder holder = new TemplateHolder()
-						.setMetaLocation(metaResourceLocation)
-						.setLocation(loc)
-						.setDecayRuleSetLocation(decayRuleSetResourceLocation)
-						.setTemplate(template);			
-				
-				// map by resource location
-				getTemplatesByResourceLocationMap().put(loc, holder);
+				// the one holder of the template/meta pair, shared by all the maps
+				TemplateHolder holder = getTemplatesByResourceLocationMap().get(loc);
+				if (holder == null || !metaResourceLocation.equals(holder.getMetaLocation())) {
+					holder = new TemplateHolder()
+							.setMetaLocation(metaResourceLocation)
+							.setLocation(loc);
+					// map by resource location
+					getTemplatesByResourceLocationMap().put(loc, holder);
+				}
+				holder.setDecayRuleSetLocation(decayRuleSetResourceLocation)
+						.setCache(templateCache)
+						.setBiomes(getBiomeIDs(meta));
 				
 				// map according to meta archetype, type
 				for (IMetaArchetype archetype : meta.getArchetypes()) {								
@@ -198,40 +229,40 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 							holder.getMetaLocation(),
 							holder.getDecayRuleSetLocation());
 
-					// TODO could move the wrapping for into this method instead, then could lose the archetype that is passed in. ***!!!
-					mapToTemplatesByArchetypeBiome(metaResourceLocation, loc, decayRuleSetResourceLocation, archetype, meta.getType(), template);
+					mapToTemplatesByArchetypeBiome(holder, archetype, meta.getType());
 				}
 			}
 		}
+		internTemplatesByArchetypeTypeBiome();
 		if (Treasure.logger.isDebugEnabled()) {
 			dump();
 		}
 	}
 
 	/**
-	 * 
-	 * @param metaResourceLocation
-	 * @param location
+	 * Maps the holder to the biomes of its biome set.
+	 * @param holder
 	 * @param archetype
-	 * @param template
+	 * @param type
 	 */
-	private void mapToTemplatesByArchetypeBiome(ResourceLocation metaResourceLocation, 
-			ResourceLocation location, List<ResourceLocation> decayResourceLocation, IMetaArchetype archetype, IMetaType type, 
-			Template template) {
+	private void mapToTemplatesByArchetypeBiome(TemplateHolder holder, IMetaArchetype archetype, IMetaType type) {
+		if (!(archetype instanceof StructureArchetype) || !(type instanceof StructureType)) {
+			Treasure.logger.debug("Unable to map template {} to biomes for archetype:type -> {}:{}", holder.getLocation(), archetype, type);
+			return;
+		}
+		BitSet biomes = holder.getBiomes();
+		for (int biomeID = biomes.nextSetBit(0); biomeID >= 0; biomeID = biomes.nextSetBit(biomeID + 1)) {
+			mapTemplate((StructureArchetype) archetype, (StructureType) type, biomeID, holder);
+		}
+	}
 
-		// build mapping key
-		String key = archetype.getName() + ":" + type.getName();
-		
-		// find the meta for the template
-		StructureMeta meta = (StructureMeta) Treasure.META_MANAGER.getMetaMap().get(metaResourceLocation.toString());
-		
-		// create a holder for the template
-		TemplateHolder holder = new TemplateHolder()
-				.setMetaLocation(metaResourceLocation)
-				.setDecayRuleSetLocation(decayResourceLocation)
-				.setLocation(location)
-				.setTemplate(template);
-		
+	/**
+	 * 
+	 * @param meta
+	 * @return the ids of the biomes the meta's template can generate in
+	 */
+	private BitSet getBiomeIDs(StructureMeta meta) {
+		BitSet biomeIDs = new BitSet(BIOME_ID_COUNT);
 		// map according biomes - @see DungeonConfigManager @ line 55.
 		// TODO somehow extract the indexing of biomes to a helper class
 		if (meta.getBiomeWhiteList().contains("*")
@@ -240,11 +271,7 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 			for (Biome biome : biomes) {
 				if (!BiomeDictionary.hasType(biome, Type.END)
 						&& !BiomeDictionary.hasType(biome, Type.NETHER)) {
-					Integer biomeID = Biome.getIdForBiome(biome);
-					if (!templatesByArchetypeTypeBiome.contains(key, biomeID)) {
-						templatesByArchetypeTypeBiome.put(key, biomeID, new ArrayList<>(3));
-					}					
-					templatesByArchetypeTypeBiome.get(key, biomeID).add(holder);
+					biomeIDs.set(Biome.getIdForBiome(biome));
 				}
 			}
 		} else {
@@ -258,11 +285,7 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 					}
 					if (biome != null && !BiomeDictionary.hasType(biome, Type.END)
 							&& !BiomeDictionary.hasType(biome, Type.NETHER)) {
-						Integer biomeID = Biome.getIdForBiome(biome);
-						if (!templatesByArchetypeTypeBiome.contains(key, biomeID)) {
-							templatesByArchetypeTypeBiome.put(key, biomeID, new ArrayList<>(3));
-						}
-						templatesByArchetypeTypeBiome.get(key, biomeID).add(holder);
+						biomeIDs.set(Biome.getIdForBiome(biome));
 					}
 				}
 			} else if (!meta.getBiomeBlackList().isEmpty()) {
@@ -288,15 +311,93 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 					if (!blackListBiomeIDs.contains(Biome.getIdForBiome(biome))
 							&& !BiomeDictionary.hasType(biome, Type.END)
 							&& !BiomeDictionary.hasType(biome, Type.NETHER)) {
-						Integer biomeID = Biome.getIdForBiome(biome);
-						if (!templatesByArchetypeTypeBiome.contains(key, biomeID)) {
-							templatesByArchetypeTypeBiome.put(key, biomeID, new ArrayList<>(3));
+						biomeIDs.set(Biome.getIdForBiome(biome));
+					}
+				}
+			}
+		}
+		return biomeIDs;
+	}
+
+	/**
+	 * Replaces the equal holder arrays of the table with one shared instance - most templates map to
+	 * the same holders in many biomes.
+	 */
+	private void internTemplatesByArchetypeTypeBiome() {
+		Map<List<TemplateHolder>, TemplateHolder[]> interned = new HashMap<>();
+		int shared = 0;
+		for (TemplateHolder[][] byType : templatesByArchetypeTypeBiome) {
+			for (TemplateHolder[][] byBiome : byType) {
+				for (int biomeID = 0; biomeID < byBiome.length; biomeID++) {
+					TemplateHolder[] holders = byBiome[biomeID];
+					if (holders.length > 0) {
+						TemplateHolder[] internedHolders = interned.computeIfAbsent(Arrays.asList(holders), k -> holders);
+						if (internedHolders != holders) {
+							byBiome[biomeID] = internedHolders;
+							shared++;
 						}
-						templatesByArchetypeTypeBiome.get(key, biomeID).add(holder);
 					}
 				}
 			}
-		}		
+		}
+		Treasure.logger.debug("template holder arrays -> {}, shared -> {}", interned.size(), shared);
+	}
+
+	/**
+	 * Maps the holder to the archetype, type and biome. The holders array of the key is replaced, not modified.
+	 * @param archetype
+	 * @param type
+	 * @param biomeID
+	 * @param holder
+	 */
+	public void mapTemplate(StructureArchetype archetype, StructureType type, int biomeID, TemplateHolder holder) {
+		if (biomeID < 0 || biomeID >= BIOME_ID_COUNT) {
+			Treasure.logger.debug("Unable to map template {} to biome id -> {}", holder.getLocation(), biomeID);
+			return;
+		}
+		TemplateHolder[] byBiome = templatesByArchetypeTypeBiome[archetype.ordinal()][type.ordinal()];
+		TemplateHolder[] holders = Arrays.copyOf(byBiome[biomeID], byBiome[biomeID].length + 1);
+		holders[holders.length - 1] = holder;
+		byBiome[biomeID] = holders;
+	}
+
+	/**
+	 * Removes the holder from the archetype, type (and biome) lookups, for the TemplateCache when its template
+	 * fails to load. The shared holder arrays are replaced, not modified.
+	 * @param holder
+	 */
+	void unmapTemplate(TemplateHolder holder) {
+		for (List<TemplateHolder> holders : templatesByArchetypeType.values()) {
+			holders.remove(holder);
+		}
+		Map<TemplateHolder[], TemplateHolder[]> replaced = new IdentityHashMap<>();
+		for (TemplateHolder[][] byType : templatesByArchetypeTypeBiome) {
+			for (TemplateHolder[][] byBiome : byType) {
+				for (int biomeID = 0; biomeID < byBiome.length; biomeID++) {
+					TemplateHolder[] holders = byBiome[biomeID];
+					if (Arrays.asList(holders).contains(holder)) {
+						byBiome[biomeID] = replaced.computeIfAbsent(holders,
+								k -> Arrays.stream(k).filter(h -> h != holder).toArray(TemplateHolder[]::new));
+					}
+				}
+			}
+		}
+		Treasure.logger.debug("unmapped template -> {}", holder.getLocation());
+	}
+
+	/**
+	 * 
+	 * @param archetype
+	 * @param type
+	 * @param biome
+	 * @return the holders of the archetype, type and biome (shared, don't modify), empty if none
+	 */
+	public TemplateHolder[] getTemplates(StructureArchetype archetype, StructureType type, Biome biome) {
+		int biomeID = Biome.getIdForBiome(biome);
+		if (biomeID < 0 || biomeID >= BIOME_ID_COUNT) {
+			return EMPTY_HOLDERS;
+		}
+		return templatesByArchetypeTypeBiome[archetype.ordinal()][type.ordinal()][biomeID];
 	}
 
 	/**
@@ -308,27 +409,107 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 	 */
 	public TemplateHolder getTemplate(World world, Random random, StructureArchetype archetype, StructureType type, Biome biome) {
 		// get structure by archetype (subterranean) and type (room)
-		String key =archetype.getName()	+ ":" + type.getName();
-		
-		Integer biomeID = Biome.getIdForBiome(biome);
-		
-		List<TemplateHolder> templateHolders = getTemplatesByArchetypeTypeBiomeTable().get(key, biomeID);
-		if (templateHolders == null || templateHolders.isEmpty()) {
-			Treasure.logger.debug("could not find template holders for archetype:type, biome -> {} {}", key, biomeID);
+		TemplateHolder[] templateHolders = getTemplates(archetype, type, biome);
+		if (templateHolders.length == 0) {
+			Treasure.logger.debug("could not find template holders for archetype:type, biome -> {}:{} {}", archetype, type, biome);
 			return null;
 		}
 		
-		TemplateHolder holder = templateHolders.get(random.nextInt(templateHolders.size()));
+		TemplateHolder holder = templateHolders[random.nextInt(templateHolders.length)];
 		if (holder == null) {
 			Treasure.logger.debug("could not find random template holder.");
 			return null;
 		}
+		// load the template on selection
+		if (holder.getTemplate() == null) {
+			Treasure.logger.debug("could not load template -> {}", holder.getLocation());
+			return null;
+		}
 
 		Treasure.logger.debug("selected template holder -> {} : {}", holder.getLocation(), holder.getMetaLocation());
 
 		return holder;
 	}
 	
+	/**
+	 * Loads the holder's template from the file system, for the TemplateCache. The templates without decay
+	 * are kept as TreasureTemplates, the decay processors work on the GottschTemplate. Can be called off the
+	 * server thread, ex. by the prefetch.
+	 * @param holder
+	 * @return the template or null
+	 */
+	Template loadTemplate(TemplateHolder holder) {
+		synchronized (templatesLock) {
+			// TODO the marker scan list and replace list should be determined before this call
+			Template template = load(holder.getLocation(), getMarkerScanList(), getReplacementMap());
+			if (template instanceof GottschTemplate && holder.getDecayRuleSetLocation().isEmpty()) {
+				TreasureTemplate treasureTemplate = TreasureTemplate.of((GottschTemplate) template);
+				if (treasureTemplate != null) {
+					unloadTemplate(holder.getLocation());
+					return treasureTemplate;
+				}
+			}
+			return template;
+		}
+	}
+
+	/**
+	 * Loads the holder's template as a GottschTemplate, for the decay processors. The template isn't kept.
+	 * @param holder
+	 * @return the template or null
+	 */
+	GottschTemplate loadDecayTemplate(TemplateHolder holder) {
+		synchronized (templatesLock) {
+			Template template = load(holder.getLocation(), getMarkerScanList(), getReplacementMap());
+			unloadTemplate(holder.getLocation());
+			return template instanceof GottschTemplate ? (GottschTemplate) template : null;
+		}
+	}
+
+	/**
+	 * Removes the template from the templates map (by path), for the TemplateCache.
+	 * @param location
+	 */
+	void unloadTemplate(ResourceLocation location) {
+		synchronized (templatesLock) {
+			getTemplates().remove(location.getResourcePath());
+		}
+	}
+
+	/**
+	 * Queues the loads of the templates of the biomes around the world's players.
+	 * @param world
+	 */
+	public void prefetch(World world) {
+		BitSet biomeIDs = new BitSet(BIOME_ID_COUNT);
+		BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		for (EntityPlayer player : world.playerEntities) {
+			for (int[] offset : PREFETCH_OFFSETS) {
+				Biome biome = world.getBiome(pos.setPos(player.posX + offset[0], 0, player.posZ + offset[1]));
+				int biomeID = Biome.getIdForBiome(biome);
+				if (biomeID >= 0 && biomeID < BIOME_ID_COUNT) {
+					biomeIDs.set(biomeID);
+				}
+			}
+		}
+		for (int biomeID = biomeIDs.nextSetBit(0); biomeID >= 0; biomeID = biomeIDs.nextSetBit(biomeID + 1)) {
+			for (TemplateHolder[][] byType : templatesByArchetypeTypeBiome) {
+				for (TemplateHolder[][] byBiome : byType) {
+					for (TemplateHolder holder : byBiome[biomeID]) {
+						templateCache.prefetch(holder);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the templates decoded by the prefetch to the cache. Call on the server thread.
+	 */
+	public void loadPrefetched() {
+		templateCache.loadPrefetched();
+	}
+
 	/**
 	 * 
 	 */
@@ -411,26 +592,29 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 		}
 		sb.append(div);
 		sb.append(String.format(heading, "[Template by Archetype:Type | Biome]"));
-		Map<String, Map<Integer, List<TemplateHolder>>> map = getTemplatesByArchetypeTypeBiomeTable().rowMap();
-		if (map == null || map.isEmpty()) { Treasure.logger.debug("template biome map is null/empty");}
-		Treasure.logger.debug("biome map.size -> {}", map.size());
-		
-		for (String row : map.keySet()) {
-			Treasure.logger.debug("template biome row key -> {}", row);
-			Map<Integer, List<TemplateHolder>> tmp = map.get(row);
-			for (Entry<Integer, List<TemplateHolder>> entry : tmp.entrySet()) {
-				String templateNames = entry.getValue().stream().map(a -> a.getLocation().toString()).collect(Collectors.joining(", "));
-				Biome biome = Biome.getBiome(entry.getKey());
-				String biomeName = "";
-				if (biome != null) {
-					biomeName = WorldInfo.isClientSide()  ? biome.getBiomeName() : String.valueOf(Biome.getIdForBiome(biome)) ;
-				}
-				else {
-					biomeName = String.format("No biome for {}", entry.getKey());
+		for (StructureArchetype archetype : StructureArchetype.values()) {
+			for (StructureType type : StructureType.values()) {
+				String row = archetype.getName() + ":" + type.getName();
+				TemplateHolder[][] byBiome = templatesByArchetypeTypeBiome[archetype.ordinal()][type.ordinal()];
+				for (int biomeID = 0; biomeID < byBiome.length; biomeID++) {
+					if (byBiome[biomeID].length == 0) {
+						continue;
+					}
+					String templateNames = Arrays.stream(byBiome[biomeID]).map(a -> a.getLocation().toString()).collect(Collectors.joining(", "));
+					Biome biome = Biome.getBiome(biomeID);
+					String biomeName = "";
+					if (biome != null) {
+						biomeName = WorldInfo.isClientSide()  ? biome.getBiomeName() : String.valueOf(biomeID) ;
+					}
+					else {
+						biomeName = String.format("No biome for %d", biomeID);
+					}
+					sb.append(String.format(format2, row, biomeName, templateNames));
 				}
-				sb.append(String.format(format2, row, biomeName, templateNames));
 			}
 		}
+		sb.append(div);
+		appendMemoryReport(sb, format, heading);
 		
 		try {
 			Files.write(Paths.get(path.toString(), filename), sb.toString().getBytes());
@@ -439,19 +623,71 @@ public class TreasureTemplateManager extends GottschTemplateManager {
 		}
 	}
 
+	/**
+	 * Appends the (estimated, compressed oops) heap used by the holders and the lookup table.
+	 * @param sb
+	 * @param format
+	 * @param heading
+	 */
+	private void appendMemoryReport(StringBuilder sb, String format, String heading) {
+		Set<TemplateHolder> holders = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<TemplateHolder[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+		int slots = 0;
+		int mappedSlots = 0;
+		long tableBytes = 0;
+		for (TemplateHolder[][] byType : templatesByArchetypeTypeBiome) {
+			for (TemplateHolder[][] byBiome : byType) {
+				tableBytes += arrayBytes(byBiome.length);
+				slots += byBiome.length;
+				for (TemplateHolder[] byBiomeHolders : byBiome) {
+					if (byBiomeHolders.length > 0) {
+						mappedSlots++;
+						if (arrays.add(byBiomeHolders)) {
+							tableBytes += arrayBytes(byBiomeHolders.length);
+							holders.addAll(Arrays.asList(byBiomeHolders));
+						}
+					}
+				}
+			}
+		}
+		holders.addAll(templatesByResourceLocation.values());
+		long biomeBytes = 0;
+		for (TemplateHolder holder : holders) {
+			// BitSet + its long[]
+			biomeBytes += 24 + 16 + (holder.getBiomes().size() / 64) * 8;
+		}
+
+		sb.append(String.format(heading, "[Template Memory]"));
+		sb.append(String.format(format, "holders", holders.size()));
+		sb.append(String.format(format, "biome slots (mapped / total)", mappedSlots + " / " + slots));
+		sb.append(String.format(format, "distinct holder arrays", arrays.size()));
+		sb.append(String.format(format, "lookup table bytes", tableBytes));
+		sb.append(String.format(format, "biome bitset bytes", biomeBytes));
+		sb.append(String.format(format, "loaded templates", templateCache.size()));
+		sb.append(String.format(format, "loaded template blocks", templateCache.getBlocks()));
+		sb.append(String.format(format, "cache hits / misses / evictions",
+				templateCache.getHits() + " / " + templateCache.getMisses() + " / " + templateCache.getEvictions()));
+	}
+
 	/**
 	 * 
-	 * @return
+	 * @param length
+	 * @return the bytes of a reference array of the length, 8-byte aligned
 	 */
-	public Map<ResourceLocation, TemplateHolder> getTemplatesByResourceLocationMap() {
-		return templatesByResourceLocation;
+	private static long arrayBytes(int length) {
+		return (16 + 4L * length + 7) & ~7L;
 	}
-	
+
+	public TemplateCache getTemplateCache() {
+		return templateCache;
+	}
+
 	/**
 	 * 
 	 * @return
 	 */
-	public Table<String, Integer, List<TemplateHolder>> getTemplatesByArchetypeTypeBiomeTable() {
-		return templatesByArchetypeTypeBiome;
+	public Map<ResourceLocation, TemplateHolder> getTemplatesByResourceLocationMap() {
+		return templatesByResourceLocation;
 	}
+	
 }
\ No newline at end of file
@@ -3,14 +3,20 @@
  */
 package com.someguyssoftware.treasure2.worldgen;
 
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.base.Predicate;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
 import com.someguyssoftware.treasure2.Treasure;
 import com.someguyssoftware.treasure2.block.TreasureBlocks;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
 import com.someguyssoftware.treasure2.persistence.GenDataPersistence;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Rejection;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Stage;
 
 import net.minecraft.block.BlockStone;
 import net.minecraft.block.state.IBlockState;
@@ -31,7 +37,8 @@ public class GemOreWorldGenerator implements ITreasureWorldGenerator {
 
 	private WorldGenMinable sapphireGenerator;
 	private WorldGenMinable rubyGenerator;
-	private int chunksSinceLastOre = 1;
+	// Map<DimensionID, count>
+	private Map<Integer, Integer> chunksSinceLastDimensionOre;
 
 	/**
 	 * 
@@ -50,8 +57,11 @@ public class GemOreWorldGenerator implements ITreasureWorldGenerator {
 	 * 
 	 */
 	public void init() {
-		// intialize chunks since last ore spawn
-		chunksSinceLastOre = 0;
+		// intialize chunks since last ore spawn by dimension
+		chunksSinceLastDimensionOre = new ConcurrentHashMap<>();
+		for (Integer dimensionID : TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList()) {
+			chunksSinceLastDimensionOre.put(dimensionID, 0);
+		}
 	}
 
 	/**
@@ -63,7 +73,17 @@ public class GemOreWorldGenerator implements ITreasureWorldGenerator {
 			return;
 		}
 		if (TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList().contains(Integer.valueOf(world.provider.getDimension()))) {
-			generate(world, random, chunkX, chunkZ);
+			// write the veins in bulk, relighting and notifying once per chunk
+			BlockWriteBuffer.begin(world);
+			long start = System.nanoTime();
+			try {
+				generate(world, random, chunkX, chunkZ);
+			} finally {
+				GenerationMetrics.blocks(WorldGeneratorType.GEM.getValue(),
+						BlockWriteBuffer.getDirectWrites(world), BlockWriteBuffer.getFallbackWrites(world));
+				GenerationMetrics.time(WorldGeneratorType.GEM.getValue(), Stage.POPULATE, start);
+				BlockWriteBuffer.end(world);
+			}
 		}
 	}
 
@@ -75,14 +95,19 @@ public class GemOreWorldGenerator implements ITreasureWorldGenerator {
 	 * @param chunkZ
 	 */
 	private void generate(World world, Random random, int chunkX, int chunkZ) {
-		// increment the chunk count
-		chunksSinceLastOre++;
+		// increment the chunk count (not used by the grid placement)
+		Integer dimensionID = Integer.valueOf(world.provider.getDimension());
+		boolean isGridPlacement = GridPlacement.isEnabled();
+		if (!isGridPlacement) {
+			chunksSinceLastDimensionOre.merge(dimensionID, 1, Integer::sum);
+		}
 
 		// get spawn position @ chunk
 		int xSpawn = chunkX * 16;
 		int zSpawn = chunkZ * 16;
 
-		int flip = RandomHelper.randomInt(0, 1);
+		// the chunk's random keeps the gem of the chunk seed-deterministic in the grid placement
+		int flip = random.nextInt(2);
 		double prob = 0d;
 		int veinsPerChunk = 0;
 		int maxY, minY = 0;
@@ -110,6 +135,7 @@ public class GemOreWorldGenerator implements ITreasureWorldGenerator {
 
 		if (!RandomHelper.checkProbability(random, prob)) {
 			// Treasure.logger.debug("Gem Ore vein does not meet generate probability.");
+			GenerationMetrics.reject(WorldGeneratorType.GEM.getValue(), Rejection.PROBABILITY);
 			return;
 		}
 
@@ -120,8 +146,9 @@ public class GemOreWorldGenerator implements ITreasureWorldGenerator {
 
 			gen.generate(world, random, new BlockPos(xSpawn, ySpawn, zSpawn));
 		}
+		GenerationMetrics.success(WorldGeneratorType.GEM.getValue());
 		// reset count
-		chunksSinceLastOre = 0;
+		chunksSinceLastDimensionOre.put(dimensionID, 0);
 		//		}
 
 		// save world data
@@ -154,18 +181,18 @@ public class GemOreWorldGenerator implements ITreasureWorldGenerator {
 	}
 
 	/**
-	 * @return the chunksSinceLastOre
+	 * @return the chunksSinceLastDimensionOre
 	 */
-	public int getChunksSinceLastOre() {
-		return chunksSinceLastOre;
+	public Map<Integer, Integer> getChunksSinceLastDimensionOre() {
+		return chunksSinceLastDimensionOre;
 	}
 
 	/**
-	 * @param chunksSinceLastOre
-	 *            the chunksSinceLastOre to set
+	 * @param chunksSinceLastDimensionOre
+	 *            the chunksSinceLastDimensionOre to set
 	 */
-	public void setChunksSinceLastOre(int chunksSinceLastOre) {
-		this.chunksSinceLastOre = chunksSinceLastOre;
+	public void setChunksSinceLastDimensionOre(Map<Integer, Integer> chunksSinceLastDimensionOre) {
+		this.chunksSinceLastDimensionOre = chunksSinceLastDimensionOre;
 	}
 
 	/**
@@ -229,7 +256,7 @@ public class GemOreWorldGenerator implements ITreasureWorldGenerator {
 
 										IBlockState state = worldIn.getBlockState(blockpos);
 										if (state.getBlock().isReplaceableOreGen(state, worldIn, blockpos, this.predicate)) {
-											worldIn.setBlockState(blockpos, this.oreBlock, 2);
+											BlockWriteBuffer.setBlockState(worldIn, blockpos, this.oreBlock);
 											//											Treasure.logger.debug("CHEATER! {} @ {}", state.getBlock().getRegistryName(), new Coords(blockpos).toShortString());
 										}
 									}
@@ -0,0 +1,113 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * The "Treasure! generated" marker of the chunks, saved with the chunk's data. A chunk is marked when it's populated
+ * (or retro-generated) with the world generators. The chunks saved before the marker existed have no marker at all,
+ * so it isn't known whether they have Treasure!.
+ * <p>
+ * The markers of the loaded chunks are kept by dimension. Only accessed on the server thread (the chunk data
+ * events and the population).
+ * </p>
+ */
+public class GeneratedChunks {
+	private static final String TAG = "Treasure2";
+	private static final String GENERATED_TAG = "Generated";
+
+	/**
+	 * The marker of a chunk.
+	 */
+	public enum State {
+		// saved without the marker, by an earlier version (or without the mod)
+		UNMARKED,
+		NOT_GENERATED,
+		GENERATED
+	}
+
+	// the markers of the loaded chunks by dimension, the new (never saved) chunks are not generated
+	private static final Map<Integer, Long2ByteMap> MARKERS = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	public static void mark(World world, int chunkX, int chunkZ) {
+		getMarkers(world).put(ChunkPos.asLong(chunkX, chunkZ), (byte) State.GENERATED.ordinal());
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return the marker of the loaded chunk
+	 */
+	public static State getState(World world, int chunkX, int chunkZ) {
+		return State.values()[getMarkers(world).get(ChunkPos.asLong(chunkX, chunkZ))];
+	}
+
+	/**
+	 * Reads the marker of a chunk loaded from the disk.
+	 * @param world
+	 * @param chunk
+	 * @param data the chunk's level data
+	 */
+	public static void onLoad(World world, Chunk chunk, NBTTagCompound data) {
+		State state = State.UNMARKED;
+		if (data.hasKey(TAG)) {
+			state = data.getCompoundTag(TAG).getBoolean(GENERATED_TAG) ? State.GENERATED : State.NOT_GENERATED;
+		}
+		getMarkers(world).put(ChunkPos.asLong(chunk.x, chunk.z), (byte) state.ordinal());
+	}
+
+	/**
+	 * Writes the marker of a chunk. The unmarked chunks stay unmarked. The marker of an unloaded chunk is released
+	 * (its unload precedes its last save).
+	 * @param world
+	 * @param chunk
+	 * @param data the chunk's level data
+	 */
+	public static void onSave(World world, Chunk chunk, NBTTagCompound data) {
+		Long2ByteMap markers = getMarkers(world);
+		long key = ChunkPos.asLong(chunk.x, chunk.z);
+		State state = State.values()[markers.get(key)];
+		if (state != State.UNMARKED) {
+			NBTTagCompound tag = new NBTTagCompound();
+			tag.setBoolean(GENERATED_TAG, state == State.GENERATED);
+			data.setTag(TAG, tag);
+		}
+		if (!chunk.isLoaded()) {
+			markers.remove(key);
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 */
+	public static void clear(World world) {
+		MARKERS.remove(world.provider.getDimension());
+	}
+
+	private static Long2ByteMap getMarkers(World world) {
+		return MARKERS.computeIfAbsent(world.provider.getDimension(), dimension -> {
+			Long2ByteMap markers = new Long2ByteOpenHashMap();
+			markers.defaultReturnValue((byte) State.NOT_GENERATED.ordinal());
+			return markers;
+		});
+	}
+}
@@ -0,0 +1,285 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.someguyssoftware.treasure2.Treasure;
+
+import net.minecraft.world.World;
+
+/**
+ * Always-on counters and timings of the world generators (ITreasureWorldGenerator) and of the pit, ruin and chest
+ * generators they use, keyed by generator name. Records per-stage nanosecond histograms (log2 buckets), the
+ * successes and the rejections by reason, and the number of blocks written.
+ * The values are reported by the t2-metrics command and periodically appended to a CSV file.
+ */
+public class GenerationMetrics {
+	private static final Map<String, GeneratorMetrics> METRICS = new ConcurrentHashMap<>();
+
+	private static final String CSV_FILE_NAME = "treasure2-metrics.csv";
+	private static final String CSV_HEADER = "time,generator,type,key,count,total_ns,mean_ns,p50_ns,p99_ns,max_ns";
+	private static final long NANOS_PER_MICRO = 1000L;
+
+	/**
+	 * The timed stages of a generator.
+	 */
+	public enum Stage {
+		// the chunk population, incl. the immediate builds
+		POPULATE,
+		// a build run by the GenerationScheduler
+		BUILD,
+		PIT,
+		RUIN,
+		CHEST
+	}
+
+	/**
+	 * Why a generator did not generate.
+	 */
+	public enum Rejection {
+		BIOME,
+		CHUNKS,
+		PROBABILITY,
+		DISTANCE,
+		SURFACE,
+		SOLID_BASE,
+		SPAWN_COORDS,
+		STRUCTURE,
+		CHEST
+	}
+
+	/**
+	 *
+	 */
+	private GenerationMetrics() {}
+
+	/**
+	 * Records the time of a stage, started at startNanos (System.nanoTime()).
+	 * @param generator
+	 * @param stage
+	 * @param startNanos
+	 */
+	public static void time(String generator, Stage stage, long startNanos) {
+		get(generator).time(stage, System.nanoTime() - startNanos);
+	}
+
+	/**
+	 *
+	 * @param generator
+	 */
+	public static void success(String generator) {
+		get(generator).success();
+	}
+
+	/**
+	 *
+	 * @param generator
+	 * @param rejection
+	 */
+	public static void reject(String generator, Rejection rejection) {
+		get(generator).reject(rejection);
+	}
+
+	/**
+	 *
+	 * @param generator
+	 * @param direct the blocks written directly into the chunk sections
+	 * @param fallback the blocks set through the world or parked
+	 */
+	public static void blocks(String generator, int direct, int fallback) {
+		if (direct > 0 || fallback > 0) {
+			get(generator).blocks(direct, fallback);
+		}
+	}
+
+	/**
+	 *
+	 * @param generator
+	 * @return the generator's successes
+	 */
+	public static long getSuccesses(String generator) {
+		GeneratorMetrics metrics = METRICS.get(generator);
+		if (metrics == null) {
+			return 0;
+		}
+		synchronized (metrics) {
+			return metrics.successes;
+		}
+	}
+
+	/**
+	 *
+	 */
+	public static void reset() {
+		METRICS.clear();
+	}
+
+	/**
+	 * A human-readable summary, one line per generator and stage. Times are in microseconds.
+	 * @return
+	 */
+	public static List<String> report() {
+		List<String> lines = new ArrayList<>();
+		for (Map.Entry<String, GeneratorMetrics> entry : new TreeMap<>(METRICS).entrySet()) {
+			GeneratorMetrics metrics = entry.getValue();
+			synchronized (metrics) {
+				StringBuilder builder = new StringBuilder(entry.getKey())
+						.append(": success=").append(metrics.successes)
+						.append(", blocks=").append(metrics.blocks)
+						.append(", fallbackBlocks=").append(metrics.fallbackBlocks);
+				for (Map.Entry<Rejection, long[]> rejection : metrics.rejections.entrySet()) {
+					builder.append(", ").append(rejection.getKey().name().toLowerCase()).append('=').append(rejection.getValue()[0]);
+				}
+				lines.add(builder.toString());
+				for (Map.Entry<Stage, Histogram> stage : metrics.stages.entrySet()) {
+					Histogram histogram = stage.getValue();
+					lines.add(String.format("  %s: n=%d, mean=%dus, p50=%dus, p99=%dus, max=%dus", stage.getKey().name().toLowerCase(),
+							histogram.count, histogram.mean() / NANOS_PER_MICRO, histogram.percentile(0.5) / NANOS_PER_MICRO,
+							histogram.percentile(0.99) / NANOS_PER_MICRO, histogram.max / NANOS_PER_MICRO));
+				}
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Appends a snapshot of all the metrics to the CSV file (the header is written if the file is new).
+	 * @param file
+	 */
+	public static void writeCsv(File file) {
+		boolean isNew = !file.exists();
+		long time = System.currentTimeMillis();
+		try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
+			if (isNew) {
+				writer.println(CSV_HEADER);
+			}
+			for (Map.Entry<String, GeneratorMetrics> entry : new TreeMap<>(METRICS).entrySet()) {
+				String generator = entry.getKey();
+				GeneratorMetrics metrics = entry.getValue();
+				synchronized (metrics) {
+					writer.printf("%d,%s,counter,success,%d,,,,,%n", time, generator, metrics.successes);
+					writer.printf("%d,%s,counter,blocks,%d,,,,,%n", time, generator, metrics.blocks);
+					writer.printf("%d,%s,counter,fallback_blocks,%d,,,,,%n", time, generator, metrics.fallbackBlocks);
+					for (Map.Entry<Rejection, long[]> rejection : metrics.rejections.entrySet()) {
+						writer.printf("%d,%s,rejection,%s,%d,,,,,%n", time, generator, rejection.getKey().name().toLowerCase(), rejection.getValue()[0]);
+					}
+					for (Map.Entry<Stage, Histogram> stage : metrics.stages.entrySet()) {
+						Histogram histogram = stage.getValue();
+						writer.printf("%d,%s,stage,%s,%d,%d,%d,%d,%d,%d%n", time, generator, stage.getKey().name().toLowerCase(),
+								histogram.count, histogram.total, histogram.mean(), histogram.percentile(0.5), histogram.percentile(0.99), histogram.max);
+					}
+				}
+			}
+		} catch (IOException e) {
+			Treasure.logger.error("Unable to write the world gen metrics to {}:", file, e);
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @return the CSV file in the world's save directory
+	 */
+	public static File getCsvFile(World world) {
+		return new File(world.getSaveHandler().getWorldDirectory(), CSV_FILE_NAME);
+	}
+
+	/**
+	 *
+	 * @param generator
+	 * @return
+	 */
+	private static GeneratorMetrics get(String generator) {
+		GeneratorMetrics metrics = METRICS.get(generator);
+		if (metrics == null) {
+			metrics = METRICS.computeIfAbsent(generator, key -> new GeneratorMetrics());
+		}
+		return metrics;
+	}
+
+	/*
+	 *
+	 */
+	private static class GeneratorMetrics {
+		final Map<Stage, Histogram> stages = new EnumMap<>(Stage.class);
+		final Map<Rejection, long[]> rejections = new EnumMap<>(Rejection.class);
+		long successes;
+		long blocks;
+		long fallbackBlocks;
+
+		synchronized void time(Stage stage, long nanos) {
+			Histogram histogram = stages.get(stage);
+			if (histogram == null) {
+				histogram = new Histogram();
+				stages.put(stage, histogram);
+			}
+			histogram.add(nanos);
+		}
+
+		synchronized void success() {
+			successes++;
+		}
+
+		synchronized void reject(Rejection rejection) {
+			long[] count = rejections.get(rejection);
+			if (count == null) {
+				count = new long[1];
+				rejections.put(rejection, count);
+			}
+			count[0]++;
+		}
+
+		synchronized void blocks(int direct, int fallback) {
+			blocks += direct;
+			fallbackBlocks += fallback;
+		}
+	}
+
+	/*
+	 * A histogram of nanosecond values in power of 2 buckets.
+	 */
+	private static class Histogram {
+		final long[] buckets = new long[Long.SIZE];
+		long count;
+		long total;
+		long max;
+
+		void add(long nanos) {
+			nanos = Math.max(0, nanos);
+			buckets[Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos | 1)]++;
+			count++;
+			total += nanos;
+			max = Math.max(max, nanos);
+		}
+
+		long mean() {
+			return count == 0 ? 0 : total / count;
+		}
+
+		/*
+		 * the upper bound of the bucket of the percentile (capped at the max)
+		 */
+		long percentile(double percentile) {
+			long rank = (long) Math.ceil(percentile * count);
+			long seen = 0;
+			for (int bucket = 0; bucket < buckets.length; bucket++) {
+				seen += buckets[bucket];
+				if (seen >= rank && seen > 0) {
+					return Math.min(max, (1L << (bucket + 1)) - 1);
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -0,0 +1,308 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.generator.placement.DeferredBuildException;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
+import com.someguyssoftware.treasure2.persistence.GenDataPersistence;
+import com.someguyssoftware.treasure2.random.RandomSource;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Stage;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.world.World;
+
+/**
+ * Queues the structure builds (pits, ruins, trees, oases) of the world generators, whose sites are decided
+ * during population, and builds them at the end of the world ticks under a per-tick time budget. This spreads
+ * the cost of several structures triggered by the chunks populated in the same tick.
+ * <p>
+ * A build draws from its own random, seeded from the world seed and the site, whether it is queued or (with a
+ * budget of 0) run immediately, so the budget doesn't change what is generated. The generators reserve the site
+ * (ex. in the chest registry) until the build completes. The queued builds are saved with the gen data, as are
+ * the reservations. A build whose structure doesn't fit the writable chunks is parked in the DeferredPlacementQueue
+ * and scheduled again when the blocking chunk populates.
+ * </p>
+ * <p>
+ * The queues are kept by dimension (per world). A build can be scheduled from any thread populating a chunk: it is
+ * run on that thread if the budget is disabled, otherwise it is queued and run by the world tick. The queue
+ * operations are synchronized, the builds run outside of the lock.
+ * </p>
+ */
+public class GenerationScheduler {
+	private static GenerationScheduler instance = new GenerationScheduler();
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private static final String DIMENSION_ID_TAG_NAME = "dimensionID";
+	private static final String BUILDS_TAG_NAME = "builds";
+	private static final String TYPE_TAG_NAME = "type";
+	private static final String CHUNK_X_TAG_NAME = "chunkX";
+	private static final String CHUNK_Z_TAG_NAME = "chunkZ";
+	private static final String SEED_TAG_NAME = "seed";
+	private static final String DATA_TAG_NAME = "data";
+
+	// queued builds by dimension
+	private Map<Integer, Deque<Build>> queues;
+
+	/**
+	 *
+	 */
+	private GenerationScheduler() {
+		queues = new HashMap<>();
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public static GenerationScheduler getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Queues the build of a site decided during the population of a chunk, or builds it immediately
+	 * if the tick budget is disabled.
+	 * @param world
+	 * @param type the world generator, an IScheduledWorldGenerator
+	 * @param chunkX the populating chunk
+	 * @param chunkZ the populating chunk
+	 * @param seed the seed of the build's random (see RandomSource.structureSeed())
+	 * @param data the site, passed to the generator's build()
+	 */
+	public void schedule(World world, WorldGeneratorType type, int chunkX, int chunkZ, long seed, NBTTagCompound data) {
+		Build build = new Build(type, chunkX, chunkZ, seed, data);
+		if (TreasureConfig.WORLD_GEN.getGeneralProperties().generationTickBudget <= 0) {
+			// within the population pass of the chunk
+			long start = System.nanoTime();
+			build(world, build);
+			GenerationMetrics.time(type.getValue(), Stage.BUILD, start);
+			return;
+		}
+		synchronized (this) {
+			getQueue(world.provider.getDimension()).add(build);
+		}
+	}
+
+	/**
+	 * Schedules a build that was parked in the DeferredPlacementQueue.
+	 * @param world
+	 * @param buildTag the build, as saved by writeToNBT()
+	 */
+	public void schedule(World world, NBTTagCompound buildTag) {
+		Build build = readBuild(buildTag);
+		if (build != null) {
+			schedule(world, build.type, build.chunkX, build.chunkZ, build.seed, build.data);
+		}
+	}
+
+	/**
+	 * Runs the queued builds of the world until the tick budget is spent. At least one build is run per tick.
+	 * Call at the end of a world tick.
+	 * @param world
+	 */
+	public void tick(World world) {
+		Integer dimensionID = world.provider.getDimension();
+		long budget = TreasureConfig.WORLD_GEN.getGeneralProperties().generationTickBudget * NANOS_PER_MILLI;
+		long start = System.nanoTime();
+		Build build;
+		while ((build = poll(dimensionID)) != null) {
+			run(world, build);
+			if (System.nanoTime() - start >= budget) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param dimensionID
+	 * @return the next queued build of the dimension, or null
+	 */
+	private synchronized Build poll(Integer dimensionID) {
+		Deque<Build> queue = queues.get(dimensionID);
+		return queue == null ? null : queue.poll();
+	}
+
+	/**
+	 * Builds as if the populating chunk of the build was being populated.
+	 * @param world
+	 * @param build
+	 */
+	private void run(World world, Build build) {
+		BlockWriteBuffer.begin(world);
+		SurfaceCache.begin(world, build.chunkX, build.chunkZ);
+		DeferredPlacementQueue.getInstance().begin(world, build.chunkX, build.chunkZ);
+		long start = System.nanoTime();
+		try {
+			build(world, build);
+		} finally {
+			GenerationMetrics.blocks(build.type.getValue(),
+					BlockWriteBuffer.getDirectWrites(world), BlockWriteBuffer.getFallbackWrites(world));
+			GenerationMetrics.time(build.type.getValue(), Stage.BUILD, start);
+			DeferredPlacementQueue.getInstance().end(world);
+			SurfaceCache.end(world);
+			BlockWriteBuffer.end(world);
+		}
+
+		GenDataPersistence savedData = GenDataPersistence.get(world);
+		if (savedData != null) {
+			savedData.markDirty();
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param build
+	 */
+	private void build(World world, Build build) {
+		ITreasureWorldGenerator generator = Treasure.WORLD_GENERATORS.get(build.type);
+		if (!(generator instanceof IScheduledWorldGenerator)) {
+			Treasure.logger.warn("Unable to build a {} @ chunk {}, {}, not a scheduled world generator", build.type, build.chunkX, build.chunkZ);
+			return;
+		}
+		try {
+			((IScheduledWorldGenerator) generator).build(world, new RandomSource(build.seed), build.data);
+		} catch (DeferredBuildException e) {
+			// run again from the start, with the same random, once the chunk populates
+			Treasure.logger.debug("Deferring the build @ chunk {}, {} until chunk {} populates", build.chunkX, build.chunkZ, e.getChunkPos());
+			DeferredPlacementQueue.getInstance().parkBuild(world, e.getChunkPos(), writeBuild(build));
+		} catch (Exception e) {
+			Treasure.logger.error("Unable to complete the build @ chunk {}, {}:", build.chunkX, build.chunkZ, e);
+		}
+	}
+
+	/**
+	 *
+	 * @param dimensionID
+	 * @return the queue of the dimension, created as needed
+	 */
+	private Deque<Build> getQueue(Integer dimensionID) {
+		Deque<Build> queue = queues.get(dimensionID);
+		if (queue == null) {
+			queue = new ArrayDeque<>();
+			queues.put(dimensionID, queue);
+		}
+		return queue;
+	}
+
+	/**
+	 *
+	 * @param dimensionID
+	 * @return the number of queued builds in the dimension
+	 */
+	public synchronized int size(int dimensionID) {
+		Deque<Build> queue = queues.get(dimensionID);
+		return queue == null ? 0 : queue.size();
+	}
+
+	/**
+	 *
+	 */
+	public synchronized void clear() {
+		queues.clear();
+	}
+
+	/**
+	 * Loads the queued builds of all the dimensions.
+	 * @param dimTagList
+	 */
+	public synchronized void readFromNBT(NBTTagList dimTagList) {
+		queues.clear();
+		for (int dimIndex = 0; dimIndex < dimTagList.tagCount(); dimIndex++) {
+			NBTTagCompound dimTag = dimTagList.getCompoundTagAt(dimIndex);
+			NBTTagList buildTagList = dimTag.getTagList(BUILDS_TAG_NAME, 10);
+			for (int buildIndex = 0; buildIndex < buildTagList.tagCount(); buildIndex++) {
+				Build build = readBuild(buildTagList.getCompoundTagAt(buildIndex));
+				if (build != null) {
+					getQueue(dimTag.getInteger(DIMENSION_ID_TAG_NAME)).add(build);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Saves the queued builds of all the dimensions.
+	 * @return
+	 */
+	public synchronized NBTTagList writeToNBT() {
+		NBTTagList dimTagList = new NBTTagList();
+		for (Map.Entry<Integer, Deque<Build>> dimEntry : queues.entrySet()) {
+			if (dimEntry.getValue().isEmpty()) {
+				continue;
+			}
+			NBTTagList buildTagList = new NBTTagList();
+			for (Build build : dimEntry.getValue()) {
+				buildTagList.appendTag(writeBuild(build));
+			}
+			NBTTagCompound dimTag = new NBTTagCompound();
+			dimTag.setInteger(DIMENSION_ID_TAG_NAME, dimEntry.getKey());
+			dimTag.setTag(BUILDS_TAG_NAME, buildTagList);
+			dimTagList.appendTag(dimTag);
+		}
+		return dimTagList;
+	}
+
+	/**
+	 *
+	 * @param buildTag
+	 * @return the build, or null if its generator type is unknown
+	 */
+	private static Build readBuild(NBTTagCompound buildTag) {
+		try {
+			WorldGeneratorType type = WorldGeneratorType.valueOf(buildTag.getString(TYPE_TAG_NAME));
+			return new Build(type, buildTag.getInteger(CHUNK_X_TAG_NAME), buildTag.getInteger(CHUNK_Z_TAG_NAME),
+					buildTag.getLong(SEED_TAG_NAME), buildTag.getCompoundTag(DATA_TAG_NAME));
+		}
+		catch(IllegalArgumentException e) {
+			Treasure.logger.warn("Unable to load scheduled build -> {}", buildTag.getString(TYPE_TAG_NAME));
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * @param build
+	 * @return
+	 */
+	private static NBTTagCompound writeBuild(Build build) {
+		NBTTagCompound buildTag = new NBTTagCompound();
+		buildTag.setString(TYPE_TAG_NAME, build.type.name());
+		buildTag.setInteger(CHUNK_X_TAG_NAME, build.chunkX);
+		buildTag.setInteger(CHUNK_Z_TAG_NAME, build.chunkZ);
+		buildTag.setLong(SEED_TAG_NAME, build.seed);
+		buildTag.setTag(DATA_TAG_NAME, build.data);
+		return buildTag;
+	}
+
+	/*
+	 *
+	 */
+	private static class Build {
+		final WorldGeneratorType type;
+		final int chunkX;
+		final int chunkZ;
+		final long seed;
+		final NBTTagCompound data;
+
+		Build(WorldGeneratorType type, int chunkX, int chunkZ, long seed, NBTTagCompound data) {
+			this.type = type;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+			this.seed = seed;
+			this.data = data;
+		}
+	}
+}
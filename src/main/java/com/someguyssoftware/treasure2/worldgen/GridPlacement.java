@@ -0,0 +1,101 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import com.someguyssoftware.treasure2.config.TreasureConfig;
+
+import net.minecraft.world.World;
+
+/**
+ * Stateless placement decisions (the alternative to the "chunks since last" counters of the world generators).
+ * The chunks are divided into square regions of spacing x spacing chunks and a single chunk of each region, jittered by
+ * a hash of the world seed, the region and a salt, is selected. The selected chunks are at least separation chunks
+ * apart (the jitter is limited to spacing - separation). A decision only depends on the world seed, the chunk
+ * and the salt, so it doesn't depend on the order the chunks are generated in and nothing needs to be saved.
+ * <p>
+ * A region of spacing = ceil(sqrt(n)) chunks holds about n chunks, so "one per n chunks" keeps about the same density.
+ * </p>
+ */
+public final class GridPlacement {
+	private static final long REGION_X_MULTIPLIER = 341873128712L;
+	private static final long REGION_Z_MULTIPLIER = 132897987541L;
+
+	/**
+	 *
+	 */
+	private GridPlacement() {}
+
+	/**
+	 *
+	 * @return true if the world generators use the grid placement instead of the chunk counters
+	 */
+	public static boolean isEnabled() {
+		return TreasureConfig.WORLD_GEN.getGeneralProperties().enableGridPlacement;
+	}
+
+	/**
+	 * Selects a chunk at about one per chunksPer chunks, at least minDistance blocks apart.
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 * @param salt distinguishes the grids of the generators (and rarities)
+	 * @param chunksPer
+	 * @param minDistance in blocks
+	 * @return
+	 */
+	public static boolean isSelected(World world, int chunkX, int chunkZ, int salt, int chunksPer, int minDistance) {
+		int spacing = getSpacing(chunksPer);
+		return isSelected(world.getSeed(), chunkX, chunkZ, salt, spacing, getSeparation(spacing, minDistance));
+	}
+
+	/**
+	 *
+	 * @param worldSeed
+	 * @param chunkX
+	 * @param chunkZ
+	 * @param salt
+	 * @param spacing the size of the regions (in chunks)
+	 * @param separation the min. distance between the selected chunks (in chunks)
+	 * @return true if the chunk is the selected chunk of its region
+	 */
+	public static boolean isSelected(long worldSeed, int chunkX, int chunkZ, int salt, int spacing, int separation) {
+		int regionX = Math.floorDiv(chunkX, spacing);
+		int regionZ = Math.floorDiv(chunkZ, spacing);
+		int range = Math.max(1, spacing - separation);
+
+		long hash = mix(worldSeed + regionX * REGION_X_MULTIPLIER + regionZ * REGION_Z_MULTIPLIER + salt);
+		int offsetX = (int) Long.remainderUnsigned(hash, range);
+		hash = mix(hash);
+		int offsetZ = (int) Long.remainderUnsigned(hash, range);
+		return chunkX == regionX * spacing + offsetX && chunkZ == regionZ * spacing + offsetZ;
+	}
+
+	/**
+	 *
+	 * @param chunksPer
+	 * @return the size of a region holding about chunksPer chunks
+	 */
+	public static int getSpacing(int chunksPer) {
+		return Math.max(1, (int) Math.ceil(Math.sqrt(chunksPer)));
+	}
+
+	/**
+	 *
+	 * @param spacing
+	 * @param minDistance in blocks
+	 * @return the separation (in chunks) that keeps the selected chunks minDistance apart, limited by the spacing
+	 */
+	public static int getSeparation(int spacing, int minDistance) {
+		return Math.max(0, Math.min(spacing - 1, (minDistance + 15) >> 4));
+	}
+
+	/*
+	 * 64-bit finalizer of MurmurHash3
+	 */
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+		hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import java.util.Random;
+
+import net.minecraft.world.biome.Biome;
+
+/**
+ * A world generator whose sites can be planned ahead of the population (see SitePlanner), from the world seed
+ * and the biome of the chunk only.
+ */
+public interface IPlannableWorldGenerator extends ITreasureWorldGenerator {
+
+	/**
+	 * Decides if the chunk is a candidate site: the grid placement, the biome and the probability checks.
+	 * The min. distance is resolved by the planner.
+	 * @param worldSeed
+	 * @param chunkX
+	 * @param chunkZ
+	 * @param biome the biome at the center of the chunk
+	 * @param random seeded for the chunk and the generator
+	 * @return the candidate site or null
+	 */
+	PlannedSite planSite(long worldSeed, int chunkX, int chunkZ, Biome biome, Random random);
+
+	/**
+	 *
+	 * @return the min. distance (in blocks) between the sites of the generator and the sites of the same registry
+	 */
+	int getMinDistance();
+}
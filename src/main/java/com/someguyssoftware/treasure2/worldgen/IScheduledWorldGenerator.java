@@ -0,0 +1,25 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import java.util.Random;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.World;
+
+/**
+ * A world generator whose structure builds are run by the GenerationScheduler. The site of a build is described
+ * by its data, so the queued builds are saved with the gen data.
+ */
+public interface IScheduledWorldGenerator extends ITreasureWorldGenerator {
+
+	/**
+	 * Builds the structure at a site decided (and reserved) during the population, and releases the reserved
+	 * site if the build fails.
+	 * @param world
+	 * @param random the build's random (see RandomSource.structureSeed())
+	 * @param data the site, as given to GenerationScheduler.schedule()
+	 */
+	void build(World world, Random random, NBTTagCompound data);
+}
@@ -3,13 +3,11 @@
  */
 package com.someguyssoftware.treasure2.worldgen;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
@@ -18,14 +16,23 @@ import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
 import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.biome.BiomeEligibility;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
 import com.someguyssoftware.treasure2.generator.oasis.DesertOasisGenerator;
 import com.someguyssoftware.treasure2.generator.oasis.IOasisGenerator;
 import com.someguyssoftware.treasure2.generator.oasis.OasisInfo;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
+import com.someguyssoftware.treasure2.random.RandomSource;
 import com.someguyssoftware.treasure2.registry.OasisRegistry;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Rejection;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Stage;
 
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.chunk.IChunkProvider;
@@ -36,15 +43,27 @@ import net.minecraftforge.fml.common.registry.ForgeRegistries;
  * @author Mark
  *
  */
-public class OasisWorldGenerator implements ITreasureWorldGenerator {
+public class OasisWorldGenerator implements IPlannableWorldGenerator, IScheduledWorldGenerator {
 	// the number of blocks of half a chunk (radius) (a chunk is 16x16)
 	public static final int CHUNK_RADIUS = 8;
 
+	// the salt of the placement grid
+	private static final int GRID_SALT = 10387337;
+	// the build data
+	private static final String X_TAG_NAME = "x";
+	private static final String Y_TAG_NAME = "y";
+	private static final String Z_TAG_NAME = "z";
+	private static final String BIOME_ID_TAG_NAME = "biomeID";
+	private static final String GENERATOR_TAG_NAME = "generator";
+	private static final String RESERVED_CHUNKS_TAG_NAME = "reservedChunks";
+
 	private Map<Integer, Integer> chunksSinceLastDimensionOasis;
 	// Map<DimenionId, Map<BiomeID, count>>
 	private Map<Integer, Map<Integer, Integer>> chunksSinceLastDimensionBiomeOasis;
 	
 	private Multimap<Integer, IOasisGenerator<?>> oasisGenerators;
+	// the biomes that have at least one oasis generator, compiled at init
+	private BiomeEligibility oasisBiomes;
 
 	/**
 	 * 
@@ -63,11 +82,11 @@ public class OasisWorldGenerator implements ITreasureWorldGenerator {
 	@Override
 	public void init() {
 		// initialize chunks since last map
-		chunksSinceLastDimensionOasis = new HashMap<>();
-		chunksSinceLastDimensionBiomeOasis = new HashMap<>();		
+		chunksSinceLastDimensionOasis = new ConcurrentHashMap<>();
+		chunksSinceLastDimensionBiomeOasis = new ConcurrentHashMap<>();		
 		for (Integer dimensionId : TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList()) {
 			chunksSinceLastDimensionOasis.put(dimensionId, 0);
-			chunksSinceLastDimensionBiomeOasis.put(dimensionId, new HashMap<>());
+			chunksSinceLastDimensionBiomeOasis.put(dimensionId, new ConcurrentHashMap<>());
 			// NOTE do not need to set biome count to 0. this can be checked/updated at time of biome check in generate()
 		}	
 		
@@ -76,6 +95,7 @@ public class OasisWorldGenerator implements ITreasureWorldGenerator {
 		if (TreasureConfig.OASES.desertOasisProperties.isEnableOasis()) {
 			registerOasisByBiomes(new DesertOasisGenerator());
 		}
+		oasisBiomes = BiomeEligibility.compile(biome -> oasisGenerators.containsKey(Biome.getIdForBiome(biome)));
 	}
 	
 	/**
@@ -86,45 +106,14 @@ public class OasisWorldGenerator implements ITreasureWorldGenerator {
 		List<Biome> biomeWhiteList = oasisGenerator.getConfig().getBiomeWhiteList();
 		List<Biome> biomeBlackList = oasisGenerator.getConfig().getBiomeBlackList();
 		
-		if (biomeWhiteList.isEmpty() && biomeBlackList.isEmpty()) {
-			Set<Biome> biomes = (Set<Biome>) ForgeRegistries.BIOMES.getValuesCollection();
-			for (Biome biome : biomes) {
-					Integer biomeID = Biome.getIdForBiome(biome);
-					if (!oasisGenerators.containsKey(biomeID)) {
-						oasisGenerators.put(biomeID, oasisGenerator);
-					}				
+		// a white list restricts to its biomes, otherwise all biomes that are not black listed
+		BiomeEligibility biomes = BiomeEligibility.compile(biome -> !biomeWhiteList.isEmpty() ? biomeWhiteList.contains(biome) : !biomeBlackList.contains(biome));
+		for (Biome biome : ForgeRegistries.BIOMES.getValuesCollection()) {
+			Integer biomeID = Biome.getIdForBiome(biome);
+			if (biomes.isAllowed(biomeID) && !oasisGenerators.containsKey(biomeID)) {
+				oasisGenerators.put(biomeID, oasisGenerator);
 			}
 		}
-		else {
-			if (!biomeWhiteList.isEmpty()) {
-				for (Biome biome : biomeWhiteList) {
-						Integer biomeID = Biome.getIdForBiome(biome);
-						if (!oasisGenerators.containsKey(biomeID)) {
-							oasisGenerators.put(biomeID, oasisGenerator);
-						}
-				}
-			} else if (!biomeBlackList.isEmpty()) {
-				/*
-				 * add all the black listed biome IDs to a list
-				 */
-				List<Integer> blackListBiomeIDs = new ArrayList<>();
-				for (Biome biome : biomeBlackList) {
-						Integer biomeID = Biome.getIdForBiome(biome);
-						if (biomeID != null) blackListBiomeIDs.add(biomeID);
-				}
-				// get the set of all biomes
-				Set<Biome> biomes = (Set<Biome>) ForgeRegistries.BIOMES.getValuesCollection();
-				// for each biome is the list
-				for (Biome biome : biomes) {
-					if (!blackListBiomeIDs.contains(Biome.getIdForBiome(biome))) {
-						Integer biomeID = Biome.getIdForBiome(biome);
-						if (!oasisGenerators.containsKey(biomeID)) {
-							oasisGenerators.put(biomeID, oasisGenerator);
-						}
-					}
-				}
-			}
-		}		
 	}
 
 	/**
@@ -135,7 +124,23 @@ public class OasisWorldGenerator implements ITreasureWorldGenerator {
 			IChunkProvider chunkProvider) {
 		
 		if (TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList().contains(Integer.valueOf(world.provider.getDimension()))) {
-			generate(world, random, chunkX, chunkZ);
+			// write the blocks of the generators in bulk, relighting and notifying once per chunk
+			BlockWriteBuffer.begin(world);
+			// share the surface scans of this chunk's population pass
+			SurfaceCache.begin(world, chunkX, chunkZ);
+			// flush the placements parked for this chunk
+			DeferredPlacementQueue.getInstance().begin(world, chunkX, chunkZ);
+			long start = System.nanoTime();
+			try {
+				generate(world, random, chunkX, chunkZ);
+			} finally {
+				GenerationMetrics.blocks(WorldGeneratorType.OASIS.getValue(),
+						BlockWriteBuffer.getDirectWrites(world), BlockWriteBuffer.getFallbackWrites(world));
+				GenerationMetrics.time(WorldGeneratorType.OASIS.getValue(), Stage.POPULATE, start);
+				DeferredPlacementQueue.getInstance().end(world);
+				SurfaceCache.end(world);
+				BlockWriteBuffer.end(world);
+			}
 		}
 		
 	}
@@ -156,10 +161,24 @@ public class OasisWorldGenerator implements ITreasureWorldGenerator {
         int zSpawn = (chunkZ * WorldInfo.CHUNK_SIZE) + WorldInfo.CHUNK_RADIUS;
         		
         Integer dimensionID = Integer.valueOf(world.provider.getDimension());
+
+		// a planned region replaces the site checks
+		boolean isPlanned = false;
+		SitePlan sitePlan = SitePlan.get(world);
+		if (sitePlan != null && sitePlan.covers(chunkX, chunkZ)) {
+			if (sitePlan.getSite(WorldGeneratorType.OASIS, chunkX, chunkZ) == null) {
+				GenerationMetrics.reject(WorldGeneratorType.OASIS.getValue(), Rejection.CHUNKS);
+				return;
+			}
+			isPlanned = true;
+		}
         
-		// increment the general chunk count
-		Integer chunksSinceLast = chunksSinceLastDimensionOasis.get(dimensionID);
-		chunksSinceLastDimensionOasis.put(dimensionID, ++chunksSinceLast);	
+		// increment the general chunk count (not used by the grid placement)
+		boolean isGridPlacement = isPlanned || GridPlacement.isEnabled();
+		int chunksSinceLast = 0;
+		if (!isGridPlacement) {
+			chunksSinceLast = chunksSinceLastDimensionOasis.merge(dimensionID, 1, Integer::sum);
+		}
 		
         ICoords coords = new Coords(xSpawn, 255, zSpawn);
 		Biome biome = world.getBiome(coords.toPos());
@@ -176,47 +195,111 @@ public class OasisWorldGenerator implements ITreasureWorldGenerator {
 //    	}
     	
 		// check if the minimum chunks have been met
-		if (chunksSinceLast >= TreasureConfig.OASES.minChunksPerOasis) {
+		if (isGridPlacement || chunksSinceLast >= TreasureConfig.OASES.minChunksPerOasis) {
 //			Treasure.logger.debug(String.format("Gen: pass first test: chunksSinceLast: %d, minChunks: %d", chunksSinceLast, TreasureConfig.OASES.minChunksPerOasis));
 			// get a generator for the biome
-			Optional<List<IOasisGenerator<?>>> generators = Optional.ofNullable((List<IOasisGenerator<?>>) oasisGenerators.get(biomeID));
-			if (!generators.isPresent() || generators.get().isEmpty()) {
+			if (!oasisBiomes.isAllowed(biomeID)) {
+				GenerationMetrics.reject(WorldGeneratorType.OASIS.getValue(), Rejection.BIOME);
 				return;
 			}
-			IOasisGenerator<?> generator = generators.get().get(random.nextInt(generators.get().size()));
+			List<IOasisGenerator<?>> generators = (List<IOasisGenerator<?>>) oasisGenerators.get(biomeID);
+			IOasisGenerator<?> generator = generators.get(random.nextInt(generators.size()));
 			
-			// check if the min chunks per biome have been met
-			Integer chunksPerDimensionBiome = chunksSinceLastDimensionBiomeOasis.get(dimensionID).get(biomeID);
-			if (chunksPerDimensionBiome == null) chunksPerDimensionBiome = 0;
-			chunksSinceLastDimensionBiomeOasis.get(dimensionID).put(biomeID, ++chunksPerDimensionBiome);
+			// check if the chunk is selected by the placement grid or the min chunks per biome have been met
+			boolean isChunksMet;
+			if (isPlanned) {
+				isChunksMet = true;
+			}
+			else if (isGridPlacement) {
+				isChunksMet = GridPlacement.isSelected(world, chunkX, chunkZ, GRID_SALT,
+						Math.max(generator.getConfig().getChunksPerOasis(), TreasureConfig.OASES.minChunksPerOasis), TreasureConfig.OASES.minDistancePerOasis);
+			}
+			else {
+				int chunksPerDimensionBiome = chunksSinceLastDimensionBiomeOasis.computeIfAbsent(dimensionID, key -> new ConcurrentHashMap<>())
+						.merge(biomeID, 1, Integer::sum);
+				isChunksMet = chunksPerDimensionBiome >= generator.getConfig().getChunksPerOasis();
+			}
 			
-//			Treasure.logger.debug("config chunks per oasis by biome -> {}, chunksPerDimensionBiome -> {}", generator.getConfig().getChunksPerOasis(), chunksPerDimensionBiome);
-			if (chunksPerDimensionBiome >= generator.getConfig().getChunksPerOasis()) {
+//			Treasure.logger.debug("config chunks per oasis by biome -> {}", generator.getConfig().getChunksPerOasis());
+			if (isChunksMet) {
 				// 1. test if oasis meets the probability criteria
-				if (!RandomHelper.checkProbability(random, generator.getConfig().getGenProbability())) {
+				if (!isPlanned && !RandomHelper.checkProbability(random, generator.getConfig().getGenProbability())) {
 					Treasure.logger.debug("Oasis does not meet generate probability of -> {}", generator.getConfig().getGenProbability());
+					GenerationMetrics.reject(WorldGeneratorType.OASIS.getValue(), Rejection.PROBABILITY);
 					return;
 				}
 				
-     			// 2. check against all registered oasis by dimension
-     			if (isRegisteredOasisWithinDistance(world, coords, dimensionID, TreasureConfig.OASES.minDistancePerOasis)) {
-   					Treasure.logger.debug("The distance to the nearest oasis is less than the minimun required.");
-     				return;
+     			// 2. check against all registered oasis by dimension. the grid already keeps its sites apart, and the
+     			// check (like the chunk counts) would depend on the order the chunks are populated in, so it's skipped
+     			int reservedChunks = 0;
+     			if (!isGridPlacement) {
+     				if (isRegisteredOasisWithinDistance(world, coords, dimensionID, TreasureConfig.OASES.minDistancePerOasis)) {
+     					Treasure.logger.debug("The distance to the nearest oasis is less than the minimun required.");
+     					GenerationMetrics.reject(WorldGeneratorType.OASIS.getValue(), Rejection.DISTANCE);
+     					return;
+     				}
+
+     				// reset chunks since last dimensional/biome oasis regardless of successful generation - makes more rare and realistic and configurable generation.
+     				chunksSinceLastDimensionBiomeOasis.get(dimensionID).put(biomeID, 0);
+
+     				// reset the chunk count until the oasis is built
+     				Integer previousChunks = chunksSinceLastDimensionOasis.put(dimensionID, 0);
+     				reservedChunks = previousChunks == null ? 0 : previousChunks;
      			}
-     			
-    			// reset chunks since last dimensional/biome oasis regardless of successful generation - makes more rare and realistic and configurable generation.
-     			chunksSinceLastDimensionBiomeOasis.get(dimensionID).put(biomeID, 0);
- 			
+
+    			// reserve the site in the registry until the oasis is built
+    			OasisRegistry.getInstance().register(dimensionID, coords.toShortString(), new OasisInfo(coords, dimensionID, biomeID));
+
     			// generate the chest/pit/chambers
-				Treasure.logger.debug("Attempting to generate oasis @ {}", coords.toShortString());
-				Optional<GeneratorResult<GeneratorData>> result = Optional.ofNullable(generator.generate(world, random, coords));
-				
-    			if (result.isPresent() && result.get().isSuccess()) {
-    				// add to registry
-    				OasisRegistry.getInstance().register(dimensionID, coords.toShortString(), new OasisInfo(result.get().getData().getSpawnCoords(), dimensionID, biomeID));
-    				// reset the chunk counts
-    				chunksSinceLastDimensionOasis.put(dimensionID, 0);	
-    			}
+    			NBTTagCompound data = new NBTTagCompound();
+    			data.setInteger(X_TAG_NAME, coords.getX());
+    			data.setInteger(Y_TAG_NAME, coords.getY());
+    			data.setInteger(Z_TAG_NAME, coords.getZ());
+    			data.setInteger(BIOME_ID_TAG_NAME, biomeID);
+    			data.setInteger(GENERATOR_TAG_NAME, generators.indexOf(generator));
+    			data.setInteger(RESERVED_CHUNKS_TAG_NAME, reservedChunks);
+    			GenerationScheduler.getInstance().schedule(world, WorldGeneratorType.OASIS, chunkX, chunkZ,
+    					RandomSource.structureSeed(world.getSeed(), coords, WorldGeneratorType.OASIS.ordinal()), data);
+			}
+			else {
+				GenerationMetrics.reject(WorldGeneratorType.OASIS.getValue(), Rejection.CHUNKS);
+			}
+		}
+		else {
+			GenerationMetrics.reject(WorldGeneratorType.OASIS.getValue(), Rejection.CHUNKS);
+		}
+	}
+
+	/**
+	 * Builds the oasis reserved by the population and registers its spawn coords, or releases the site and
+	 * restores the chunk count.
+	 */
+	@Override
+	public void build(World world, Random random, NBTTagCompound data) {
+		Integer dimensionID = Integer.valueOf(world.provider.getDimension());
+		ICoords coords = new Coords(data.getInteger(X_TAG_NAME), data.getInteger(Y_TAG_NAME), data.getInteger(Z_TAG_NAME));
+		Integer biomeID = data.getInteger(BIOME_ID_TAG_NAME);
+		List<IOasisGenerator<?>> generators = (List<IOasisGenerator<?>>) oasisGenerators.get(biomeID);
+		int generatorIndex = data.getInteger(GENERATOR_TAG_NAME);
+
+		Treasure.logger.debug("Attempting to generate oasis @ {}", coords.toShortString());
+		Optional<GeneratorResult<GeneratorData>> result = Optional.empty();
+		if (generatorIndex >= 0 && generatorIndex < generators.size()) {
+			result = Optional.ofNullable(generators.get(generatorIndex).generate(world, random, coords));
+		}
+
+		if (result.isPresent() && result.get().isSuccess()) {
+			GenerationMetrics.success(WorldGeneratorType.OASIS.getValue());
+			// add to registry
+			OasisRegistry.getInstance().register(dimensionID, coords.toShortString(), new OasisInfo(result.get().getData().getSpawnCoords(), dimensionID, biomeID));
+		}
+		else {
+			GenerationMetrics.reject(WorldGeneratorType.OASIS.getValue(), Rejection.STRUCTURE);
+			// release the site and restore the chunk count (none is reserved by a grid site)
+			OasisRegistry.getInstance().unregister(dimensionID, coords.toShortString());
+			int reservedChunks = data.getInteger(RESERVED_CHUNKS_TAG_NAME);
+			if (reservedChunks > 0) {
+				chunksSinceLastDimensionOasis.merge(dimensionID, reservedChunks, Integer::sum);
 			}
 		}
 	}
@@ -231,25 +314,28 @@ public class OasisWorldGenerator implements ITreasureWorldGenerator {
 	 */
 	private boolean isRegisteredOasisWithinDistance(World world, ICoords coords, Integer dimensionID,
 			int minDistance) {
-		
-		double minDistanceSq = minDistance * minDistance;
-		
-		// get a list of oasis
-		List<OasisInfo> oasisInfos = OasisRegistry.getInstance().getValues(dimensionID);
+		return OasisRegistry.getInstance().withinDistance(dimensionID, coords, minDistance);
+	}
 
-		if (oasisInfos == null || oasisInfos.size() == 0) {
-			Treasure.logger.debug("Unable to locate the OasisConfig Registry or the Registry doesn't contain any values");
-			return false;
+	@Override
+	public PlannedSite planSite(long worldSeed, int chunkX, int chunkZ, Biome biome, Random random) {
+		Integer biomeID = Biome.getIdForBiome(biome);
+		if (!oasisBiomes.isAllowed(biomeID)) {
+			return null;
 		}
-		
-		for (OasisInfo info : oasisInfos) {
-			// calculate the distance to the poi
-			double distance = coords.getDistanceSq(info.getCoords());
-			if (distance < minDistanceSq) {
-				return true;
-			}
+		List<IOasisGenerator<?>> generators = (List<IOasisGenerator<?>>) oasisGenerators.get(biomeID);
+		IOasisGenerator<?> generator = generators.get(random.nextInt(generators.size()));
+		int spacing = GridPlacement.getSpacing(Math.max(generator.getConfig().getChunksPerOasis(), TreasureConfig.OASES.minChunksPerOasis));
+		if (!GridPlacement.isSelected(worldSeed, chunkX, chunkZ, GRID_SALT, spacing, GridPlacement.getSeparation(spacing, getMinDistance()))
+				|| !RandomHelper.checkProbability(random, generator.getConfig().getGenProbability())) {
+			return null;
 		}
-		return false;
+		return new PlannedSite(WorldGeneratorType.OASIS, chunkX, chunkZ, null);
+	}
+
+	@Override
+	public int getMinDistance() {
+		return TreasureConfig.OASES.minDistancePerOasis;
 	}
 
 	public Multimap<Integer, IOasisGenerator<?>> getOasisGenerators() {
@@ -0,0 +1,78 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import com.someguyssoftware.treasure2.enums.Rarity;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * A site decided by the SitePlanner: the generator, the chunk and the rarity (if any).
+ */
+public final class PlannedSite {
+	private final WorldGeneratorType type;
+	private final int chunkX;
+	private final int chunkZ;
+	private final Rarity rarity;
+
+	/**
+	 *
+	 * @param type
+	 * @param chunkX
+	 * @param chunkZ
+	 * @param rarity can be null
+	 */
+	public PlannedSite(WorldGeneratorType type, int chunkX, int chunkZ, Rarity rarity) {
+		this.type = type;
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		this.rarity = rarity;
+	}
+
+	/**
+	 *
+	 * @return the x of the middle of the chunk
+	 */
+	public int getX() {
+		return (chunkX << 4) + 8;
+	}
+
+	/**
+	 *
+	 * @return the z of the middle of the chunk
+	 */
+	public int getZ() {
+		return (chunkZ << 4) + 8;
+	}
+
+	/**
+	 *
+	 * @return the key of the chunk
+	 */
+	public long getChunkKey() {
+		return ChunkPos.asLong(chunkX, chunkZ);
+	}
+
+	public WorldGeneratorType getType() {
+		return type;
+	}
+
+	public int getChunkX() {
+		return chunkX;
+	}
+
+	public int getChunkZ() {
+		return chunkZ;
+	}
+
+	public Rarity getRarity() {
+		return rarity;
+	}
+
+	@Override
+	public String toString() {
+		return "PlannedSite [type=" + type + ", chunkX=" + chunkX + ", chunkZ=" + chunkZ + ", rarity=" + rarity + "]";
+	}
+}
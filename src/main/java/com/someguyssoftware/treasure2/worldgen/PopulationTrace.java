@@ -0,0 +1,200 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.someguyssoftware.treasure2.Treasure;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+/**
+ * Records the chunk populations of a dimension, in the order they happen (ex. while a player explores),
+ * to be replayed by the world gen replay benchmark. The trace is a text file in the world's save directory
+ * (treasure2-trace-[dim].txt): a header line with the seed and dimension, then one "chunkX chunkZ" line per population.
+ */
+public class PopulationTrace {
+	private static final String FILE_NAME = "treasure2-trace-%d.txt";
+	private static final String HEADER = "# treasure2 population trace: seed %d, dimension %d";
+	private static final Pattern HEADER_PATTERN = Pattern.compile("# treasure2 population trace: seed (-?\\d+), dimension (-?\\d+)");
+	private static final String COMMENT = "#";
+
+	// the recording traces by dimension
+	private static final Map<Integer, PopulationTrace> TRACES = new ConcurrentHashMap<>();
+
+	private final File file;
+	private final PrintWriter writer;
+	private int size;
+
+	/**
+	 *
+	 * @param file
+	 * @param writer
+	 */
+	private PopulationTrace(File file, PrintWriter writer) {
+		this.file = file;
+		this.writer = writer;
+	}
+
+	/**
+	 * Starts recording the populations of the world's dimension into a new trace file.
+	 * @param world
+	 * @return the trace
+	 * @throws IOException
+	 */
+	public static PopulationTrace start(World world) throws IOException {
+		int dimension = world.provider.getDimension();
+		stop(world);
+		File file = getFile(world, dimension);
+		PrintWriter writer = new PrintWriter(new FileWriter(file));
+		writer.println(String.format(HEADER, world.getSeed(), dimension));
+		PopulationTrace trace = new PopulationTrace(file, writer);
+		TRACES.put(dimension, trace);
+		Treasure.logger.info("Recording the chunk populations of dimension {} to {}", dimension, file);
+		return trace;
+	}
+
+	/**
+	 * Stops recording the world's dimension.
+	 * @param world
+	 * @return the stopped trace or null
+	 */
+	public static PopulationTrace stop(World world) {
+		PopulationTrace trace = TRACES.remove(world.provider.getDimension());
+		if (trace != null) {
+			trace.close();
+		}
+		return trace;
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @return the recording trace of the world's dimension or null
+	 */
+	public static PopulationTrace get(World world) {
+		return TRACES.get(world.provider.getDimension());
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	public static void record(World world, int chunkX, int chunkZ) {
+		PopulationTrace trace = TRACES.get(world.provider.getDimension());
+		if (trace != null) {
+			trace.add(chunkX, chunkZ);
+		}
+	}
+
+	/**
+	 * Writes out the recorded populations, ex. when the world is saved.
+	 * @param world
+	 */
+	public static void flush(World world) {
+		PopulationTrace trace = TRACES.get(world.provider.getDimension());
+		if (trace != null) {
+			synchronized (trace) {
+				trace.writer.flush();
+			}
+		}
+	}
+
+	/**
+	 * Stops all the recordings.
+	 */
+	public static void clear() {
+		for (PopulationTrace trace : TRACES.values()) {
+			trace.close();
+		}
+		TRACES.clear();
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param dimension
+	 * @return the trace file in the world's save directory
+	 */
+	public static File getFile(World world, int dimension) {
+		return new File(world.getSaveHandler().getWorldDirectory(), String.format(FILE_NAME, dimension));
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @return the populated chunks, in order (see ChunkPos.asLong())
+	 * @throws IOException
+	 */
+	public static LongList read(File file) throws IOException {
+		LongList chunks = new LongArrayList();
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith(COMMENT)) {
+					continue;
+				}
+				String[] coords = line.split("\\s+");
+				if (coords.length != 2) {
+					throw new IOException("Invalid population trace line -> " + line);
+				}
+				try {
+					chunks.add(ChunkPos.asLong(Integer.parseInt(coords[0]), Integer.parseInt(coords[1])));
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid population trace line -> " + line, e);
+				}
+			}
+		}
+		return chunks;
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @return the seed of the trace's world (from the header line) or null if the trace has no header
+	 * @throws IOException
+	 */
+	public static Long readSeed(File file) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line = reader.readLine();
+			Matcher matcher = line == null ? null : HEADER_PATTERN.matcher(line.trim());
+			return matcher != null && matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+		}
+	}
+
+	private synchronized void add(int chunkX, int chunkZ) {
+		writer.print(chunkX);
+		writer.print(' ');
+		writer.println(chunkZ);
+		size++;
+	}
+
+	private synchronized void close() {
+		writer.close();
+		Treasure.logger.info("Recorded {} chunk populations to {}", size, file);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+}
@@ -0,0 +1,455 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.config.TreasureConfig;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.RegionFileCache;
+import net.minecraft.world.gen.ChunkProviderServer;
+
+/**
+ * Generates Treasure! into the already populated chunks of a dimension (ex. after enabling a rarity, or adding
+ * the mod to an existing world). The job walks the region files in region order and runs the world generators
+ * on each saved chunk, as the population would have, under a per-tick time budget.
+ * <p>
+ * Only the chunks populated without Treasure! are generated (see GeneratedChunks). The chunks saved before the
+ * marker existed are skipped, unless the job includes them (for a world that never had the mod).
+ * </p>
+ * <p>
+ * The processed chunks are kept as a bitset per region, and the job's position and bitsets are saved
+ * with the world (treasure2-retrogen-[dim].dat), so a job resumes after a restart and never processes
+ * a chunk twice. The chunks populated while a job exists are marked as processed.
+ * </p>
+ */
+public class RetroGenJob {
+	private static final String FILE_NAME = "treasure2-retrogen-%d.dat";
+	// "T2RG"
+	private static final int MAGIC = 0x54325247;
+	private static final int VERSION = 2;
+	private static final long NANOS_PER_MILLI = 1000000L;
+	// a region file holds 32 x 32 chunks
+	private static final int REGION_SHIFT = 5;
+	private static final int REGION_CHUNKS = 1024;
+	private static final Pattern REGION_FILE = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
+
+	// the jobs by dimension
+	private static final Map<Integer, RetroGenJob> JOBS = new ConcurrentHashMap<>();
+
+	private final int dimension;
+	// generate the chunks saved before the generated marker existed
+	private final boolean includeUnmarked;
+	// the regions to walk, in region order
+	private final long[] regions;
+	// the processed chunks by region, 1024 bits each
+	private final Long2ObjectMap<long[]> processed = new Long2ObjectOpenHashMap<>();
+	private int regionIndex;
+	private int slot;
+	private boolean running;
+	private long generatedChunks;
+	private long skippedChunks;
+	// the chunks loaded while processing a chunk (by its generators' writes), null when not processing
+	private LongList loadedChunks;
+
+	/**
+	 *
+	 * @param dimension
+	 * @param includeUnmarked
+	 * @param regions
+	 */
+	private RetroGenJob(int dimension, boolean includeUnmarked, long[] regions) {
+		this.dimension = dimension;
+		this.includeUnmarked = includeUnmarked;
+		this.regions = regions;
+	}
+
+	/**
+	 * Starts (or resumes) the job of the world's dimension.
+	 * @param world
+	 * @param restart discard the processed chunks of a previous job
+	 * @param includeUnmarked generate the chunks saved before the generated marker existed (a new job only)
+	 * @return the job
+	 */
+	public static RetroGenJob start(WorldServer world, boolean restart, boolean includeUnmarked) {
+		int dimension = world.provider.getDimension();
+		RetroGenJob job = restart ? null : JOBS.get(dimension);
+		if (job == null || job.isDone()) {
+			job = new RetroGenJob(dimension, includeUnmarked, listRegions(world.getChunkSaveLocation()));
+			JOBS.put(dimension, job);
+		}
+		job.running = true;
+		job.save(world);
+		return job;
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @return the job of the world's dimension or null
+	 */
+	public static RetroGenJob get(World world) {
+		return JOBS.get(world.provider.getDimension());
+	}
+
+	/**
+	 * Marks a chunk populated by the world generators as processed, if the dimension has a job.
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	public static void markPopulated(World world, int chunkX, int chunkZ) {
+		RetroGenJob job = JOBS.get(world.provider.getDimension());
+		if (job != null) {
+			job.mark(chunkX, chunkZ);
+		}
+	}
+
+	/**
+	 * Records a chunk loaded while the dimension's job processes a chunk, to be unloaded after it.
+	 * @param world
+	 * @param chunk
+	 */
+	public static void onChunkLoad(World world, Chunk chunk) {
+		RetroGenJob job = JOBS.get(world.provider.getDimension());
+		if (job != null && job.loadedChunks != null) {
+			job.loadedChunks.add(ChunkPos.asLong(chunk.x, chunk.z));
+		}
+	}
+
+	/**
+	 * Loads the checkpoint of the world's dimension (if any).
+	 * @param world
+	 */
+	public static void load(World world) {
+		int dimension = world.provider.getDimension();
+		JOBS.remove(dimension);
+		File file = getFile(world, dimension);
+		if (!file.exists()) {
+			return;
+		}
+		try {
+			RetroGenJob job = read(file);
+			JOBS.put(dimension, job);
+			if (job.isRunning()) {
+				Treasure.logger.info("Resuming the retro-gen of dimension {} @ region {} of {}", dimension, job.regionIndex, job.regions.length);
+			}
+		} catch (IOException e) {
+			Treasure.logger.error("Unable to read the retro-gen checkpoint {}:", file, e);
+		}
+	}
+
+	/**
+	 * Saves the checkpoint of the world's dimension (if any).
+	 * @param world
+	 */
+	public static void checkpoint(World world) {
+		RetroGenJob job = JOBS.get(world.provider.getDimension());
+		if (job != null) {
+			job.save(world);
+		}
+	}
+
+	/**
+	 *
+	 */
+	public static void clear() {
+		JOBS.clear();
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param dimension
+	 * @return
+	 */
+	public static File getFile(World world, int dimension) {
+		return new File(world.getSaveHandler().getWorldDirectory(), String.format(FILE_NAME, dimension));
+	}
+
+	/**
+	 * Processes the chunks of the running job until the tick budget is spent. Call at the end of a world tick.
+	 * @param world
+	 */
+	public static void tick(WorldServer world) {
+		RetroGenJob job = JOBS.get(world.provider.getDimension());
+		if (job == null || !job.isRunning()) {
+			return;
+		}
+		long budget = TreasureConfig.WORLD_GEN.getGeneralProperties().retroGenTickBudget * NANOS_PER_MILLI;
+		long start = System.nanoTime();
+		while (!job.isDone() && System.nanoTime() - start < budget) {
+			job.next(world);
+		}
+
+		if (job.isDone()) {
+			job.running = false;
+			job.save(world);
+			Treasure.logger.info("Retro-gen of dimension {} complete: {} chunks generated, {} skipped", job.dimension,
+					job.generatedChunks, job.skippedChunks);
+		}
+	}
+
+	/**
+	 * Processes the chunk at the cursor and advances the cursor.
+	 * @param world
+	 */
+	private void next(WorldServer world) {
+		int regionX = (int) regions[regionIndex];
+		int regionZ = (int) (regions[regionIndex] >> 32);
+		int chunkX = (regionX << REGION_SHIFT) + (slot & 31);
+		int chunkZ = (regionZ << REGION_SHIFT) + (slot >> REGION_SHIFT);
+		if (++slot == REGION_CHUNKS) {
+			slot = 0;
+			regionIndex++;
+		}
+
+		if (isProcessed(chunkX, chunkZ)
+				|| !RegionFileCache.createOrLoadRegionFile(world.getChunkSaveLocation(), chunkX, chunkZ).isChunkSaved(chunkX & 31, chunkZ & 31)) {
+			return;
+		}
+		ChunkProviderServer chunkProvider = world.getChunkProvider();
+		loadedChunks = new LongArrayList();
+		try {
+			Chunk chunk = chunkProvider.loadChunk(chunkX, chunkZ);
+			if (chunk == null || !chunk.isTerrainPopulated() || !isGenerationRequired(world, chunkX, chunkZ)) {
+				skippedChunks++;
+			}
+			else {
+				generate(world, chunkProvider, chunkX, chunkZ);
+				GeneratedChunks.mark(world, chunkX, chunkZ);
+				generatedChunks++;
+			}
+			mark(chunkX, chunkZ);
+		}
+		finally {
+			// release the chunks that were only loaded for the job (the chunk and the neighbors loaded by the writes)
+			for (long key : loadedChunks) {
+				int loadedX = (int) key;
+				int loadedZ = (int) (key >> 32);
+				Chunk loadedChunk = chunkProvider.getLoadedChunk(loadedX, loadedZ);
+				if (loadedChunk != null && !world.getPlayerChunkMap().contains(loadedX, loadedZ)) {
+					chunkProvider.queueUnload(loadedChunk);
+				}
+			}
+			loadedChunks = null;
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return whether the loaded chunk was populated without Treasure!
+	 */
+	private boolean isGenerationRequired(World world, int chunkX, int chunkZ) {
+		switch (GeneratedChunks.getState(world, chunkX, chunkZ)) {
+		case NOT_GENERATED:
+			return true;
+		case UNMARKED:
+			return includeUnmarked;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Runs the world generators with the randoms the population uses (see GameRegistry.generateWorld()).
+	 * @param world
+	 * @param chunkProvider
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	private static void generate(WorldServer world, ChunkProviderServer chunkProvider, int chunkX, int chunkZ) {
+		long worldSeed = world.getSeed();
+		Random random = new Random(worldSeed);
+		long xSeed = random.nextLong() >> 2 + 1L;
+		long zSeed = random.nextLong() >> 2 + 1L;
+		long chunkSeed = (xSeed * chunkX + zSeed * chunkZ) ^ worldSeed;
+
+		for (ITreasureWorldGenerator generator : Treasure.WORLD_GENERATORS.values()) {
+			random.setSeed(chunkSeed);
+			try {
+				generator.generate(random, chunkX, chunkZ, world, chunkProvider.chunkGenerator, chunkProvider);
+			} catch (Exception e) {
+				Treasure.logger.error("Unable to retro-gen chunk {}, {}:", chunkX, chunkZ, e);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return
+	 */
+	private synchronized boolean isProcessed(int chunkX, int chunkZ) {
+		long[] bits = processed.get(ChunkPos.asLong(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT));
+		int bit = (chunkX & 31) | ((chunkZ & 31) << REGION_SHIFT);
+		return bits != null && (bits[bit >> 6] & (1L << bit)) != 0;
+	}
+
+	/**
+	 *
+	 * @param chunkX
+	 * @param chunkZ
+	 */
+	private synchronized void mark(int chunkX, int chunkZ) {
+		long[] bits = processed.computeIfAbsent(ChunkPos.asLong(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT), key -> new long[REGION_CHUNKS / 64]);
+		int bit = (chunkX & 31) | ((chunkZ & 31) << REGION_SHIFT);
+		bits[bit >> 6] |= 1L << bit;
+	}
+
+	/**
+	 *
+	 * @param saveDirectory
+	 * @return the regions of the saved chunks, in region order
+	 */
+	private static long[] listRegions(File saveDirectory) {
+		List<Long> regions = new ArrayList<>();
+		File[] files = new File(saveDirectory, "region").listFiles();
+		if (files != null) {
+			for (File file : files) {
+				Matcher matcher = REGION_FILE.matcher(file.getName());
+				if (matcher.matches()) {
+					regions.add(ChunkPos.asLong(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+				}
+			}
+		}
+		regions.sort(Comparator.<Long>comparingInt(region -> (int) (region >> 32)).thenComparingInt(region -> (int) region.longValue()));
+		return regions.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 *
+	 * @param world
+	 */
+	private synchronized void save(World world) {
+		File file = getFile(world, dimension);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(dimension);
+			out.writeBoolean(includeUnmarked);
+			out.writeBoolean(running);
+			out.writeInt(regionIndex);
+			out.writeInt(slot);
+			out.writeLong(generatedChunks);
+			out.writeLong(skippedChunks);
+			out.writeInt(regions.length);
+			for (long region : regions) {
+				out.writeLong(region);
+			}
+			out.writeInt(processed.size());
+			for (Long2ObjectMap.Entry<long[]> entry : processed.long2ObjectEntrySet()) {
+				out.writeLong(entry.getLongKey());
+				for (long bits : entry.getValue()) {
+					out.writeLong(bits);
+				}
+			}
+		} catch (IOException e) {
+			Treasure.logger.error("Unable to write the retro-gen checkpoint {}:", file, e);
+		}
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	private static RetroGenJob read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a retro-gen checkpoint file");
+			}
+			int version = in.readInt();
+			if (version < 1 || version > VERSION) {
+				throw new IOException("Unsupported retro-gen checkpoint version -> " + version);
+			}
+			int dimension = in.readInt();
+			// the version 1 jobs generated every populated chunk
+			boolean includeUnmarked = version < 2 || in.readBoolean();
+			boolean running = in.readBoolean();
+			int regionIndex = in.readInt();
+			int slot = in.readInt();
+			long generatedChunks = in.readLong();
+			long skippedChunks = in.readLong();
+			long[] regions = new long[in.readInt()];
+			for (int index = 0; index < regions.length; index++) {
+				regions[index] = in.readLong();
+			}
+			RetroGenJob job = new RetroGenJob(dimension, includeUnmarked, regions);
+			job.running = running;
+			job.regionIndex = regionIndex;
+			job.slot = slot;
+			job.generatedChunks = generatedChunks;
+			job.skippedChunks = skippedChunks;
+			int count = in.readInt();
+			for (int index = 0; index < count; index++) {
+				long key = in.readLong();
+				long[] bits = new long[REGION_CHUNKS / 64];
+				for (int word = 0; word < bits.length; word++) {
+					bits[word] = in.readLong();
+				}
+				job.processed.put(key, bits);
+			}
+			return job;
+		}
+	}
+
+	/**
+	 *
+	 * @param world
+	 */
+	public void stop(World world) {
+		running = false;
+		save(world);
+	}
+
+	public boolean isDone() {
+		return regionIndex >= regions.length;
+	}
+
+	public boolean isRunning() {
+		return running && !isDone();
+	}
+
+	/**
+	 *
+	 * @return the job's progress for the t2-retrogen command
+	 */
+	public String getStatus() {
+		return String.format("Retro-gen of dimension %d%s: %s, region %d of %d, %d chunks generated, %d skipped", dimension,
+				includeUnmarked ? " (incl. unmarked chunks)" : "", isDone() ? "complete" : running ? "running" : "stopped",
+				Math.min(regionIndex + 1, regions.length), regions.length, generatedChunks, skippedChunks);
+	}
+}
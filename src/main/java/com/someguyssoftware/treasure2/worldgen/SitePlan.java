@@ -0,0 +1,273 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.enums.Rarity;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+/**
+ * The sites planned by the SitePlanner for a region of a dimension. Within the region, the plan replaces the
+ * biome and probability checks of the world generators: a generator builds at its planned sites and nowhere
+ * else. The distance checks against the registries are kept, as the registries hold the sites built before
+ * the plan (or outside of its region). Outside the region the generators work as usual.
+ * <p>
+ * The plan file (gzipped) holds a header (magic, version, seed, dimension, region) and 10 bytes per site
+ * (generator, chunk x, chunk z, rarity).
+ * </p>
+ */
+public class SitePlan {
+	private static final String FILE_NAME = "treasure2-site-plan-%d.dat";
+	// "T2SP"
+	private static final int MAGIC = 0x54325350;
+	private static final int VERSION = 1;
+	private static final byte NO_RARITY = -1;
+
+	// the loaded plans by dimension
+	private static final Map<Integer, SitePlan> PLANS = new ConcurrentHashMap<>();
+
+	private final long seed;
+	private final int dimension;
+	private final int minChunkX;
+	private final int minChunkZ;
+	private final int maxChunkX;
+	private final int maxChunkZ;
+	// the sites by chunk
+	private final Map<Long, List<PlannedSite>> sites;
+	private final int size;
+
+	/**
+	 *
+	 * @param seed
+	 * @param dimension
+	 * @param minChunkX
+	 * @param minChunkZ
+	 * @param maxChunkX
+	 * @param maxChunkZ
+	 * @param sites
+	 */
+	public SitePlan(long seed, int dimension, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, Collection<PlannedSite> sites) {
+		this.seed = seed;
+		this.dimension = dimension;
+		this.minChunkX = Math.min(minChunkX, maxChunkX);
+		this.minChunkZ = Math.min(minChunkZ, maxChunkZ);
+		this.maxChunkX = Math.max(minChunkX, maxChunkX);
+		this.maxChunkZ = Math.max(minChunkZ, maxChunkZ);
+		Map<Long, List<PlannedSite>> map = new HashMap<>();
+		for (PlannedSite site : sites) {
+			map.computeIfAbsent(site.getChunkKey(), key -> new ArrayList<>(1)).add(site);
+		}
+		this.sites = map;
+		this.size = sites.size();
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @return the plan of the world's dimension or null
+	 */
+	public static SitePlan get(World world) {
+		return PLANS.get(world.provider.getDimension());
+	}
+
+	/**
+	 *
+	 * @param plan
+	 */
+	public static void put(SitePlan plan) {
+		PLANS.put(plan.getDimension(), plan);
+	}
+
+	/**
+	 * Loads the plan of the world's dimension, if the world has a plan file of the same seed.
+	 * @param world
+	 */
+	public static void load(World world) {
+		int dimension = world.provider.getDimension();
+		PLANS.remove(dimension);
+		File file = getFile(world, dimension);
+		if (!file.exists()) {
+			return;
+		}
+		try {
+			SitePlan plan = read(file);
+			if (plan.getSeed() != world.getSeed() || plan.getDimension() != dimension) {
+				Treasure.logger.warn("Ignoring the site plan {} of another world or dimension", file);
+				return;
+			}
+			put(plan);
+			Treasure.logger.info("Loaded {} planned sites for dimension -> {}", plan.size(), dimension);
+		} catch (IOException e) {
+			Treasure.logger.error("Unable to read the site plan {}:", file, e);
+		}
+	}
+
+	/**
+	 *
+	 */
+	public static void clear() {
+		PLANS.clear();
+	}
+
+	/**
+	 *
+	 * @param world
+	 * @param dimension
+	 * @return the plan file in the world's save directory
+	 */
+	public static File getFile(World world, int dimension) {
+		return new File(world.getSaveHandler().getWorldDirectory(), String.format(FILE_NAME, dimension));
+	}
+
+	/**
+	 *
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return true if the chunk is in the planned region
+	 */
+	public boolean covers(int chunkX, int chunkZ) {
+		return chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ;
+	}
+
+	/**
+	 *
+	 * @param type
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return the planned site of the generator at the chunk or null
+	 */
+	public PlannedSite getSite(WorldGeneratorType type, int chunkX, int chunkZ) {
+		List<PlannedSite> chunkSites = sites.get(ChunkPos.asLong(chunkX, chunkZ));
+		if (chunkSites != null) {
+			for (PlannedSite site : chunkSites) {
+				if (site.getType() == type) {
+					return site;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(seed);
+			out.writeInt(dimension);
+			out.writeInt(minChunkX);
+			out.writeInt(minChunkZ);
+			out.writeInt(maxChunkX);
+			out.writeInt(maxChunkZ);
+			out.writeInt(size);
+			for (List<PlannedSite> chunkSites : sites.values()) {
+				for (PlannedSite site : chunkSites) {
+					out.writeByte(site.getType().ordinal());
+					out.writeInt(site.getChunkX());
+					out.writeInt(site.getChunkZ());
+					out.writeByte(site.getRarity() == null ? NO_RARITY : site.getRarity().ordinal());
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static SitePlan read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a site plan file");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported site plan version -> " + version);
+			}
+			long seed = in.readLong();
+			int dimension = in.readInt();
+			int minChunkX = in.readInt();
+			int minChunkZ = in.readInt();
+			int maxChunkX = in.readInt();
+			int maxChunkZ = in.readInt();
+			int count = in.readInt();
+			List<PlannedSite> sites = new ArrayList<>(count);
+			for (int index = 0; index < count; index++) {
+				WorldGeneratorType type = WorldGeneratorType.values()[in.readByte()];
+				int chunkX = in.readInt();
+				int chunkZ = in.readInt();
+				byte rarity = in.readByte();
+				sites.add(new PlannedSite(type, chunkX, chunkZ, rarity == NO_RARITY ? null : Rarity.values()[rarity]));
+			}
+			return new SitePlan(seed, dimension, minChunkX, minChunkZ, maxChunkX, maxChunkZ, sites);
+		}
+	}
+
+	/**
+	 *
+	 * @return all the sites
+	 */
+	public List<PlannedSite> getSites() {
+		List<PlannedSite> all = new ArrayList<>(size);
+		for (List<PlannedSite> chunkSites : sites.values()) {
+			all.addAll(chunkSites);
+		}
+		return Collections.unmodifiableList(all);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int getMinChunkX() {
+		return minChunkX;
+	}
+
+	public int getMinChunkZ() {
+		return minChunkZ;
+	}
+
+	public int getMaxChunkX() {
+		return maxChunkX;
+	}
+
+	public int getMaxChunkZ() {
+		return maxChunkZ;
+	}
+}
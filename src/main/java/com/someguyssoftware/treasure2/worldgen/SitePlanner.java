@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+import com.someguyssoftware.treasure2.registry.SpatialIndex;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.BiomeProvider;
+
+/**
+ * Plans the sites of the world generators for a region, headless: only the biome provider (no chunks are
+ * generated) and the configs are used. The candidate sites are selected by the placement grids (the chunk
+ * counters depend on the population order, so they can't be planned), then the min. distances are resolved
+ * per registry, the rarest sites first.
+ */
+public final class SitePlanner {
+	private static final long CHUNK_X_MULTIPLIER = 341873128712L;
+	private static final long CHUNK_Z_MULTIPLIER = 132897987541L;
+	// the distance buckets are 64 x 64 blocks
+	private static final int BUCKET_SHIFT = 6;
+
+	// the sites sharing a registry (and therefore the min. distance checks) at population
+	private static final Map<WorldGeneratorType, String> REGISTRIES = new EnumMap<>(WorldGeneratorType.class);
+	static {
+		REGISTRIES.put(WorldGeneratorType.SURFACE_CHEST, "chest");
+		REGISTRIES.put(WorldGeneratorType.SUBMERGED_CHEST, "chest");
+		REGISTRIES.put(WorldGeneratorType.WITHER_TREE, "chest");
+		REGISTRIES.put(WorldGeneratorType.OASIS, "oasis");
+		REGISTRIES.put(WorldGeneratorType.WELL, "well");
+	}
+
+	// the rarest first, the sites without a rarity last
+	private static final Comparator<PlannedSite> RARITY_ORDER = Comparator.comparingInt(
+			site -> site.getRarity() == null ? Integer.MAX_VALUE : -site.getRarity().ordinal());
+
+	/**
+	 *
+	 */
+	private SitePlanner() {}
+
+	/**
+	 *
+	 * @param worldSeed
+	 * @param dimension
+	 * @param biomeProvider
+	 * @param minChunkX
+	 * @param minChunkZ
+	 * @param maxChunkX
+	 * @param maxChunkZ
+	 * @return the plan of the region
+	 */
+	public static SitePlan plan(long worldSeed, int dimension, BiomeProvider biomeProvider, int minChunkX, int minChunkZ,
+			int maxChunkX, int maxChunkZ) {
+
+		Map<WorldGeneratorType, IPlannableWorldGenerator> generators = new EnumMap<>(WorldGeneratorType.class);
+		for (Map.Entry<WorldGeneratorType, ITreasureWorldGenerator> entry : Treasure.WORLD_GENERATORS.entrySet()) {
+			if (entry.getValue() instanceof IPlannableWorldGenerator) {
+				generators.put(entry.getKey(), (IPlannableWorldGenerator) entry.getValue());
+			}
+		}
+
+		// 1. the candidate sites
+		Map<String, List<PlannedSite>> candidates = new HashMap<>();
+		BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		for (int chunkX = Math.min(minChunkX, maxChunkX); chunkX <= Math.max(minChunkX, maxChunkX); chunkX++) {
+			for (int chunkZ = Math.min(minChunkZ, maxChunkZ); chunkZ <= Math.max(minChunkZ, maxChunkZ); chunkZ++) {
+				Biome biome = biomeProvider.getBiome(pos.setPos((chunkX << 4) + 8, 0, (chunkZ << 4) + 8));
+				for (Map.Entry<WorldGeneratorType, IPlannableWorldGenerator> entry : generators.entrySet()) {
+					Random random = new Random(worldSeed + chunkX * CHUNK_X_MULTIPLIER + chunkZ * CHUNK_Z_MULTIPLIER + entry.getKey().ordinal());
+					PlannedSite site = entry.getValue().planSite(worldSeed, chunkX, chunkZ, biome, random);
+					if (site != null) {
+						candidates.computeIfAbsent(REGISTRIES.getOrDefault(entry.getKey(), entry.getKey().getValue()), key -> new ArrayList<>()).add(site);
+					}
+				}
+			}
+		}
+
+		// 2. resolve the min. distances
+		List<PlannedSite> sites = new ArrayList<>();
+		for (List<PlannedSite> registrySites : candidates.values()) {
+			// stable, so the sites of a rarity stay in region order
+			registrySites.sort(RARITY_ORDER);
+			SpatialIndex<PlannedSite> index = new SpatialIndex<>(BUCKET_SHIFT, site -> new Coords(site.getX(), 0, site.getZ()));
+			for (PlannedSite site : registrySites) {
+				if (!index.withinDistance(new Coords(site.getX(), 0, site.getZ()), generators.get(site.getType()).getMinDistance())) {
+					index.add(site);
+					sites.add(site);
+				}
+			}
+		}
+		Treasure.logger.info("Planned {} sites in chunks [{}, {}] to [{}, {}] for dimension -> {}", sites.size(),
+				minChunkX, minChunkZ, maxChunkX, maxChunkZ, dimension);
+		return new SitePlan(worldSeed, dimension, minChunkX, minChunkZ, maxChunkX, maxChunkZ, sites);
+	}
+}
@@ -10,27 +10,28 @@ import static com.someguyssoftware.treasure2.enums.Rarity.SCARCE;
 import static com.someguyssoftware.treasure2.enums.Rarity.UNCOMMON;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.someguyssoftware.gottschcore.biome.BiomeHelper;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
-import com.someguyssoftware.gottschcore.random.RandomWeightedCollection;
 import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.biome.BiomeEligibility;
 import com.someguyssoftware.treasure2.biome.TreasureBiomeHelper;
-import com.someguyssoftware.treasure2.biome.TreasureBiomeHelper.Result;
-import com.someguyssoftware.treasure2.chest.ChestInfo;
 import com.someguyssoftware.treasure2.config.IChestConfig;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
 import com.someguyssoftware.treasure2.enums.Rarity;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
 import com.someguyssoftware.treasure2.generator.chest.CauldronChestGenerator;
 import com.someguyssoftware.treasure2.generator.chest.CommonChestGenerator;
 import com.someguyssoftware.treasure2.generator.chest.EpicChestGenerator;
@@ -40,29 +41,50 @@ import com.someguyssoftware.treasure2.generator.chest.RareChestGenerator;
 import com.someguyssoftware.treasure2.generator.chest.ScarceChestGenerator;
 import com.someguyssoftware.treasure2.generator.chest.SkullChestGenerator;
 import com.someguyssoftware.treasure2.generator.chest.UncommonChestGenerator;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.generator.ruins.SubmergedRuinGenerator;
 import com.someguyssoftware.treasure2.persistence.GenDataPersistence;
+import com.someguyssoftware.treasure2.random.RandomSource;
+import com.someguyssoftware.treasure2.random.WeightedSampler;
 import com.someguyssoftware.treasure2.registry.ChestRegistry;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Rejection;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Stage;
 
-import net.minecraft.init.Biomes;
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.chunk.IChunkProvider;
 import net.minecraft.world.gen.IChunkGenerator;
-import net.minecraftforge.common.BiomeDictionary;
 
 /**
  * 
  * @author Mark Gottschling on Dec 3, 2019
  *
  */
-public class SubmergedChestWorldGenerator implements ITreasureWorldGenerator {
-	private int chunksSinceLastChest;
-	private Map<Rarity, Integer> chunksSinceLastRarityChest;
+public class SubmergedChestWorldGenerator implements IPlannableWorldGenerator, IScheduledWorldGenerator {
+	// Map<DimensionID, count>
+	private volatile Map<Integer, Integer> chunksSinceLastDimensionChest;
+	// Map<DimensionID, Map<Rarity, count>>
+	private volatile Map<Integer, Map<Rarity, Integer>> chunksSinceLastDimensionRarityChest;
+	
+	// the biomes allowed by the chest configs, compiled at init
+	private volatile BiomeEligibility oceanBiomes;
+	private volatile Map<Rarity, BiomeEligibility> rarityBiomes;
 
-	private Map<Rarity, RandomWeightedCollection<IChestGenerator>> chestCollectionGeneratorsMap = new HashMap<>();
+	// immutable, replaced by init
+	private volatile Map<Rarity, WeightedSampler<IChestGenerator>> chestCollectionGeneratorsMap = Collections.emptyMap();
 
-	private static final List<Rarity> RARITIES = new ArrayList<>();
+	// the enabled rarities (immutable, replaced by init)
+	private volatile List<Rarity> rarities = Collections.emptyList();
+	// the salt of the placement grids (plus the rarity ordinal)
+	private static final int GRID_SALT = 10387319;
+	// the build data
+	private static final String X_TAG_NAME = "x";
+	private static final String Y_TAG_NAME = "y";
+	private static final String Z_TAG_NAME = "z";
+	private static final String RARITY_TAG_NAME = "rarity";
+	private static final String RESERVED_CHUNKS_TAG_NAME = "reservedChunks";
 	
 	/**
 	 * 
@@ -75,47 +97,75 @@ public class SubmergedChestWorldGenerator implements ITreasureWorldGenerator {
 		}
 	}
 	
+	/*
+	 * The generator state is built and then published as immutable collections (see SurfaceChestWorldGenerator).
+	 */
 	public void init() {
-		RARITIES.clear();
-		
-		// initialize chunks since last array
-		chunksSinceLastChest = 0;
-		chunksSinceLastRarityChest = new HashMap<>(Rarity.values().length);
+		// initialize chunks since last maps by dimension
+		chunksSinceLastDimensionChest = new ConcurrentHashMap<>();
+		chunksSinceLastDimensionRarityChest = new ConcurrentHashMap<>();
+		for (Integer dimensionID : TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList()) {
+			initDimension(dimensionID);
+		}
 		
-		// setup temporary rarity-generators map
+		// compile the allowed biomes by rarity
+		oceanBiomes = BiomeEligibility.compile(TreasureBiomeHelper::isOcean);
+		Map<Rarity, BiomeEligibility> biomes = new EnumMap<>(Rarity.class);
 		for (Rarity rarity : Rarity.values()) {
-			chunksSinceLastRarityChest.put(rarity, 0);
+			IChestConfig chestConfig = TreasureConfig.CHESTS.submergedChests.configMap.get(rarity);
+			if (chestConfig != null) {
+				biomes.put(rarity, BiomeEligibility.compile(chestConfig.getBiomeWhiteList(), chestConfig.getBiomeBlackList(),
+						chestConfig.getBiomeTypeWhiteList(), chestConfig.getBiomeTypeBlackList()));
+			}
 		}
+		rarityBiomes = Collections.unmodifiableMap(biomes);
 				
 		// setup chest collection generator maps
+		List<Rarity> enabledRarities = new ArrayList<>();
+		Map<Rarity, WeightedSampler<IChestGenerator>> chestGenerators = new EnumMap<>(Rarity.class);
 		if (TreasureConfig.CHESTS.submergedChests.configMap.get(COMMON).isEnableChest()) {
-			RARITIES.add(COMMON);
-			chestCollectionGeneratorsMap.put(COMMON, new RandomWeightedCollection<>());
-			chestCollectionGeneratorsMap.get(COMMON).add(1, new CommonChestGenerator()); 
+			enabledRarities.add(COMMON);
+			chestGenerators.put(COMMON, new WeightedSampler<>());
+			chestGenerators.get(COMMON).add(1, new CommonChestGenerator()); 
 		}		
 		if (TreasureConfig.CHESTS.submergedChests.configMap.get(UNCOMMON).isEnableChest()) {
-			RARITIES.add(UNCOMMON);
-			chestCollectionGeneratorsMap.put(UNCOMMON, new RandomWeightedCollection<>());
-			chestCollectionGeneratorsMap.get(UNCOMMON).add(1, new UncommonChestGenerator());
+			enabledRarities.add(UNCOMMON);
+			chestGenerators.put(UNCOMMON, new WeightedSampler<>());
+			chestGenerators.get(UNCOMMON).add(1, new UncommonChestGenerator());
 		}
 		if (TreasureConfig.CHESTS.submergedChests.configMap.get(SCARCE).isEnableChest()) {
-			RARITIES.add(SCARCE);
-			chestCollectionGeneratorsMap.put(SCARCE, new RandomWeightedCollection<>());
-			chestCollectionGeneratorsMap.get(SCARCE).add(75, new ScarceChestGenerator());
-			chestCollectionGeneratorsMap.get(SCARCE).add(25, new SkullChestGenerator());
+			enabledRarities.add(SCARCE);
+			chestGenerators.put(SCARCE, new WeightedSampler<>());
+			chestGenerators.get(SCARCE).add(75, new ScarceChestGenerator());
+			chestGenerators.get(SCARCE).add(25, new SkullChestGenerator());
 		}
 		if (TreasureConfig.CHESTS.submergedChests.configMap.get(RARE).isEnableChest()) {
-			RARITIES.add(RARE);
-			chestCollectionGeneratorsMap.put(RARE, new RandomWeightedCollection<>());
-			chestCollectionGeneratorsMap.get(RARE).add(85, new RareChestGenerator());
-			chestCollectionGeneratorsMap.get(RARE).add(15, new GoldSkullChestGenerator());
+			enabledRarities.add(RARE);
+			chestGenerators.put(RARE, new WeightedSampler<>());
+			chestGenerators.get(RARE).add(85, new RareChestGenerator());
+			chestGenerators.get(RARE).add(15, new GoldSkullChestGenerator());
 		}
 		if (TreasureConfig.CHESTS.submergedChests.configMap.get(EPIC).isEnableChest()) {
-			RARITIES.add(EPIC);
-			chestCollectionGeneratorsMap.put(EPIC, new RandomWeightedCollection<>());
-			chestCollectionGeneratorsMap.get(EPIC).add(85, new EpicChestGenerator());
-			chestCollectionGeneratorsMap.get(EPIC).add(15, new CauldronChestGenerator());
-		}		
+			enabledRarities.add(EPIC);
+			chestGenerators.put(EPIC, new WeightedSampler<>());
+			chestGenerators.get(EPIC).add(85, new EpicChestGenerator());
+			chestGenerators.get(EPIC).add(15, new CauldronChestGenerator());
+		}
+		rarities = Collections.unmodifiableList(enabledRarities);
+		chestCollectionGeneratorsMap = Collections.unmodifiableMap(chestGenerators);
+	}
+
+	/**
+	 * Initializes the chunk counts for a dimension.
+	 * @param dimensionID
+	 */
+	private void initDimension(Integer dimensionID) {
+		chunksSinceLastDimensionChest.putIfAbsent(dimensionID, 0);
+		Map<Rarity, Integer> chunksSinceLastRarityChest = new ConcurrentHashMap<>(Rarity.values().length);
+		for (Rarity rarity : Rarity.values()) {
+			chunksSinceLastRarityChest.put(rarity, 0);
+		}
+		chunksSinceLastDimensionRarityChest.putIfAbsent(dimensionID, chunksSinceLastRarityChest);
 	}
 
 	/**
@@ -124,7 +174,23 @@ public class SubmergedChestWorldGenerator implements ITreasureWorldGenerator {
 	@Override
 	public void generate(Random random, int chunkX, int chunkZ, World world, IChunkGenerator chunkGenerator, IChunkProvider chunkProvider) {
 		if (TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList().contains(Integer.valueOf(world.provider.getDimension()))) {
-			generate(world, random, chunkX, chunkZ);
+			// write the blocks of the generators in bulk, relighting and notifying once per chunk
+			BlockWriteBuffer.begin(world);
+			// share the surface scans of this chunk's population pass
+			SurfaceCache.begin(world, chunkX, chunkZ);
+			// flush the placements parked for this chunk
+			DeferredPlacementQueue.getInstance().begin(world, chunkX, chunkZ);
+			long start = System.nanoTime();
+			try {
+				generate(world, random, chunkX, chunkZ);
+			} finally {
+				GenerationMetrics.blocks(WorldGeneratorType.SUBMERGED_CHEST.getValue(),
+						BlockWriteBuffer.getDirectWrites(world), BlockWriteBuffer.getFallbackWrites(world));
+				GenerationMetrics.time(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Stage.POPULATE, start);
+				DeferredPlacementQueue.getInstance().end(world);
+				SurfaceCache.end(world);
+				BlockWriteBuffer.end(world);
+			}
 		}
 		
 //		switch(world.provider.getDimension()){
@@ -152,96 +218,163 @@ public class SubmergedChestWorldGenerator implements ITreasureWorldGenerator {
         int xSpawn = (chunkX * WorldInfo.CHUNK_SIZE) + WorldInfo.CHUNK_RADIUS;
         int zSpawn = (chunkZ * WorldInfo.CHUNK_SIZE) + WorldInfo.CHUNK_RADIUS;
         
+		// a planned region replaces the site checks
+		PlannedSite site = null;
+		SitePlan sitePlan = SitePlan.get(world);
+		if (sitePlan != null && sitePlan.covers(chunkX, chunkZ)) {
+			site = sitePlan.getSite(WorldGeneratorType.SUBMERGED_CHEST, chunkX, chunkZ);
+			if (site == null) {
+				GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.CHUNKS);
+				return;
+			}
+		}
+		boolean isPlanned = site != null;
+
 		// 0. hard check for ocean biomes
         ICoords coords = new Coords(xSpawn, 0, zSpawn);
 		Biome biome = world.getBiome(coords.toPos());
-		if (biome != Biomes.OCEAN && biome != Biomes.DEEP_OCEAN && biome != Biomes.FROZEN_OCEAN &&
-				!BiomeDictionary.hasType(biome, BiomeDictionary.Type.OCEAN)) {
+		if (!isPlanned && !oceanBiomes.isAllowed(biome)) {
+			GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.BIOME);
 			return;
 		}
 		
-		// increment the chunk counts
-		chunksSinceLastChest++;
-		for (Rarity rarity : RARITIES) {
-			Integer i = chunksSinceLastRarityChest.get(rarity);
-			chunksSinceLastRarityChest.put(rarity, ++i);			
+		Integer dimensionID = Integer.valueOf(world.provider.getDimension());
+		if (!chunksSinceLastDimensionChest.containsKey(dimensionID)) {
+			initDimension(dimensionID);
+		}
+		Map<Rarity, Integer> chunksSinceLastRarityChest = chunksSinceLastDimensionRarityChest.get(dimensionID);
+		// the rarities of this population, in case init() is run again meanwhile
+		List<Rarity> rarities = this.rarities;
+
+		// select the rarity from the placement grids, or increment the chunk counts
+		boolean isGridPlacement = isPlanned || GridPlacement.isEnabled();
+		Rarity gridRarity = null;
+		boolean isMinChunksMet;
+		if (isPlanned) {
+			gridRarity = site.getRarity();
+			isMinChunksMet = gridRarity != null;
+		}
+		else if (GridPlacement.isEnabled()) {
+			gridRarity = selectGridRarity(world.getSeed(), rarities, chunkX, chunkZ);
+			isMinChunksMet = gridRarity != null;
+		}
+		else {
+			int chunksSinceLastChest = chunksSinceLastDimensionChest.merge(dimensionID, 1, Integer::sum);
+			for (Rarity rarity : rarities) {
+				chunksSinceLastRarityChest.merge(rarity, 1, Integer::sum);
+			}
+			isMinChunksMet = chunksSinceLastChest > TreasureConfig.CHESTS.submergedChests.minChunksPerChest;
 		}
 
 		// test if min chunks was met
-     	if (chunksSinceLastChest > TreasureConfig.CHESTS.submergedChests.minChunksPerChest) {
+     	if (isMinChunksMet) {
            
             // the get first surface y (could be leaves, trunk, water, etc)
             int ySpawn = world.getChunkFromChunkCoords(chunkX, chunkZ).getHeightValue(WorldInfo.CHUNK_RADIUS, WorldInfo.CHUNK_RADIUS);
             coords = new Coords(xSpawn, ySpawn, zSpawn);
 
 	    	// determine what type to generate
-            Rarity rarity = (Rarity) RARITIES.get(random.nextInt(RARITIES.size()));
+            Rarity rarity = gridRarity != null ? gridRarity : rarities.get(random.nextInt(rarities.size()));
 			IChestConfig chestConfig = TreasureConfig.CHESTS.submergedChests.configMap.get(rarity); //Configs.chestConfigs.get(rarity);
 			if (chestConfig == null) {
 				Treasure.logger.warn("Unable to locate a chest for rarity {}.", rarity);
 				return;
 			}
 			
-    		if (chunksSinceLastRarityChest.get(rarity) >= chestConfig.getChunksPerChest()) {
+    		if (gridRarity != null || chunksSinceLastRarityChest.get(rarity) >= chestConfig.getChunksPerChest()) {
 				// 1. test if chest meets the probability criteria
-				if (!RandomHelper.checkProbability(random, chestConfig.getGenProbability())) {
+				if (!isPlanned && !RandomHelper.checkProbability(random, chestConfig.getGenProbability())) {
 					Treasure.logger.debug("Submerged chest does not meet generate probability.");
+					GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.PROBABILITY);
 					return;
 				}
 				
 				// 2. test if the override (global) biome is allowed
-				TreasureBiomeHelper.Result biomeCheck =TreasureBiomeHelper.isBiomeAllowed(biome, chestConfig.getBiomeWhiteList(), chestConfig.getBiomeBlackList());
-				if(biomeCheck == Result.BLACK_LISTED ) {
-		    		if (WorldInfo.isClientSide(world)) {
-		    			Treasure.logger.debug("{} is not a valid biome @ {}", biome.getBiomeName(), coords.toShortString());
-		    		}
-		    		else {
-		    			Treasure.logger.debug("Biome {} is not valid @ {}",rarity.getValue(), coords.toShortString());
-		    		}					
+				if (!isPlanned && !rarityBiomes.get(rarity).isAllowed(biome)) {
+					if (Treasure.logger.isDebugEnabled()) {
+						Treasure.logger.debug("Biome is not valid for {} chest @ {}", rarity.getValue(), coords.toShortString());
+					}
+					GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.BIOME);
 					return;
 				}
-				else if (biomeCheck == Result.OK) {
-				    if (!BiomeHelper.isBiomeAllowed(biome, chestConfig.getBiomeTypeWhiteList(), chestConfig.getBiomeTypeBlackList())) {
-				    	if (Treasure.logger.isDebugEnabled()) {
-				    		if (WorldInfo.isClientSide(world)) {
-				    			Treasure.logger.debug("{} is not a valid biome type @ {}", biome.getBiomeName(), coords.toShortString());
-				    		}
-				    		else {
-				    			Treasure.logger.debug("Biome type of {} is not valid @ {}",rarity.getValue(), coords.toShortString());
-				    		}
-				    	}
-				    	return;
-				    }
-				}
 			    
-     			// 3. check against all registered chests
-     			if (isRegisteredChestWithinDistance(world, coords, TreasureConfig.CHESTS.submergedChests.minDistancePerChest)) {
-   					Treasure.logger.debug("The distance to the nearest treasure chest is less than the minimun required.");
-     				return;
+     			// 3. check against all registered chests, and reserve the site in the registry until the chest is built.
+     			// a grid site is only registered (see SurfaceChestWorldGenerator)
+     			int reservedChunks = 0;
+     			if (isGridPlacement) {
+     				ChestRegistry.getInstance().register(dimensionID, coords, rarity);
+     			}
+     			else {
+     				if (!ChestRegistry.getInstance().registerIfClear(dimensionID, coords, rarity, TreasureConfig.CHESTS.submergedChests.minDistancePerChest)) {
+     					Treasure.logger.debug("The distance to the nearest treasure chest is less than the minimun required.");
+     					GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.DISTANCE);
+     					return;
+     				}
+
+     				// reset chunks since last common chest regardless of successful generation - makes more rare and realistic and configurable generation.
+     				chunksSinceLastRarityChest.put(rarity, 0);
+
+     				// reset the chunk count until the chest is built
+     				reservedChunks = chunksSinceLastDimensionChest.put(dimensionID, 0);
      			}
-     			     			
-    			// reset chunks since last common chest regardless of successful generation - makes more rare and realistic and configurable generation.
-    			chunksSinceLastRarityChest.put(rarity, 0);
- 			
+
     			// generate the chest/pit/chambers
-				Treasure.logger.debug("Attempting to generate pit/chest.");
-				GeneratorResult<GeneratorData> result = null;
-				result = generate(world, random, coords, rarity, chestCollectionGeneratorsMap.get(rarity).next(), TreasureConfig.CHESTS.submergedChests.configMap.get(rarity));
-				
-    			if (result.isSuccess()) {
-    				// add to registry
-    				ChestRegistry.getInstance().register(coords.toShortString(), new ChestInfo(rarity, coords));
-    				// reset the chunk counts
-        			chunksSinceLastChest = 0;
-    			}
+    			NBTTagCompound data = new NBTTagCompound();
+    			data.setInteger(X_TAG_NAME, coords.getX());
+    			data.setInteger(Y_TAG_NAME, coords.getY());
+    			data.setInteger(Z_TAG_NAME, coords.getZ());
+    			data.setString(RARITY_TAG_NAME, rarity.name());
+    			data.setInteger(RESERVED_CHUNKS_TAG_NAME, reservedChunks);
+    			GenerationScheduler.getInstance().schedule(world, WorldGeneratorType.SUBMERGED_CHEST, chunkX, chunkZ,
+    					RandomSource.structureSeed(world.getSeed(), coords, WorldGeneratorType.SUBMERGED_CHEST.ordinal()), data);
+    		}
+    		else {
+    			GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.CHUNKS);
     		}
 
-	     	// save world data
+	     	// save world data (the registry, and the chunk counts unless the site is from a grid)
     		GenDataPersistence savedData = GenDataPersistence.get(world);
 	    	if (savedData != null) {
 	    		savedData.markDirty();
 	    	}
      	}
+     	else {
+     		GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.CHUNKS);
+     	}
+	}
+
+	/**
+	 * Builds the chest/ruins reserved by the population, or releases the site and restores the chunk count.
+	 */
+	@Override
+	public void build(World world, Random random, NBTTagCompound data) {
+		Integer dimensionID = Integer.valueOf(world.provider.getDimension());
+		ICoords coords = new Coords(data.getInteger(X_TAG_NAME), data.getInteger(Y_TAG_NAME), data.getInteger(Z_TAG_NAME));
+		Rarity rarity = Rarity.valueOf(data.getString(RARITY_TAG_NAME));
+		IChestConfig chestConfig = TreasureConfig.CHESTS.submergedChests.configMap.get(rarity);
+		WeightedSampler<IChestGenerator> chestGenerators = chestCollectionGeneratorsMap.get(rarity);
+
+		Treasure.logger.debug("Attempting to generate pit/chest.");
+		GeneratorResult<GeneratorData> result = null;
+		if (chestConfig != null && chestGenerators != null) {
+			// selected with the build's random, the population's random isn't drawn ahead of the build
+			IChestGenerator chestGenerator = chestGenerators.next(random);
+			result = generate(world, random, coords, rarity, chestGenerator, chestConfig);
+		}
+		if (result != null && result.isSuccess()) {
+			GenerationMetrics.success(WorldGeneratorType.SUBMERGED_CHEST.getValue());
+		}
+		else {
+			// release the site and restore the chunk count (none is reserved by a grid site)
+			ChestRegistry.getInstance().unregister(dimensionID, coords);
+			int reservedChunks = data.getInteger(RESERVED_CHUNKS_TAG_NAME);
+			if (reservedChunks > 0) {
+				if (!chunksSinceLastDimensionChest.containsKey(dimensionID)) {
+					initDimension(dimensionID);
+				}
+				chunksSinceLastDimensionChest.merge(dimensionID, reservedChunks, Integer::sum);
+			}
+		}
 	}
 	
 	public GeneratorResult<GeneratorData> generate(World world, Random random, ICoords coords, Rarity chestRarity, 
@@ -257,6 +390,7 @@ public class SubmergedChestWorldGenerator implements ITreasureWorldGenerator {
 		Treasure.logger.debug("ocean floor surface coords -> {}", surfaceCoords.toShortString());
 		if (!WorldInfo.isValidY(surfaceCoords)) {
 			Treasure.logger.debug("ocean floor surface coords are invalid @ {}", surfaceCoords.toShortString());
+			GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.SURFACE);
 			return result.fail();
 		}
 		// TEMP - if building a structure, markerCoords could be different than original surface coords because for rotation etc.
@@ -264,23 +398,27 @@ public class SubmergedChestWorldGenerator implements ITreasureWorldGenerator {
 
 		genResult = generateSubmergedRuins(world, random, /*spawnCoords*/ surfaceCoords, config);
 		Treasure.logger.debug("submerged result -> {}", genResult.toString());
-		if (!genResult.isSuccess()) {
+		if (!genResult.isSuccess() || genResult.getData().getChestContext() == null) {
+			GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.STRUCTURE);
 			return result.fail();
 		}
-		if (genResult.getData().getChestContext() == null) return result.fail();
 		
 		chestCoords = genResult.getData().getChestContext().getCoords();
 		
 		// if chest isn't generated, then fail
-		if (chestCoords == null) return result.fail();
+		if (chestCoords == null) {
+			GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.STRUCTURE);
+			return result.fail();
+		}
 		markerCoords = genResult.getData().getSpawnCoords();
 		if (markerCoords == null) {
 			markerCoords = surfaceCoords;
 		}
 		Treasure.logger.debug("submerged spawn coords -> {}", markerCoords.toShortString());
 
-		GeneratorResult<ChestGeneratorData> chestResult = chestSelector.generate(world, random, chestCoords, chestRarity, genResult.getData().getChestContext().getState());
+		GeneratorResult<ChestGeneratorData> chestResult = SurfaceChestWorldGenerator.generateChest(world, random, chestSelector, chestCoords, chestRarity, genResult.getData().getChestContext().getState());
 		if (!chestResult.isSuccess()) {
+			GenerationMetrics.reject(WorldGeneratorType.SUBMERGED_CHEST.getValue(), Rejection.CHEST);
 			return result.fail();
 		}
 		
@@ -305,9 +443,15 @@ public class SubmergedChestWorldGenerator implements ITreasureWorldGenerator {
 		SubmergedRuinGenerator generator = new SubmergedRuinGenerator();
 
 		// build the structure
+		long start = System.nanoTime();
 		GeneratorResult<ChestGeneratorData> genResult = generator.generate(world, random, spawnCoords);
+		GenerationMetrics.time(SubmergedRuinGenerator.class.getSimpleName(), Stage.RUIN, start);
 		Treasure.logger.debug("submerged struct result -> {}", genResult);
-		if (!genResult.isSuccess()) return result.fail();
+		if (!genResult.isSuccess()) {
+			GenerationMetrics.reject(SubmergedRuinGenerator.class.getSimpleName(), Rejection.STRUCTURE);
+			return result.fail();
+		}
+		GenerationMetrics.success(SubmergedRuinGenerator.class.getSimpleName());
 
 		result.setData(genResult.getData());
 		return result.success();
@@ -341,49 +485,72 @@ public class SubmergedChestWorldGenerator implements ITreasureWorldGenerator {
 	 * @return
 	 */
 	public boolean isRegisteredChestWithinDistance(World world, ICoords coords, int minDistance) {
-		
-		double minDistanceSq = minDistance * minDistance;
-		
-		// get a list of dungeons
-		List<ChestInfo> infos = ChestRegistry.getInstance().getValues();
+		return ChestRegistry.getInstance().withinDistance(world.provider.getDimension(), coords, minDistance);
+	}
 
-		if (infos == null || infos.size() == 0) {
-			Treasure.logger.debug("Unable to locate the ChestConfig Registry or the Registry doesn't contain any values");
-			return false;
-		}
-		
-		for (ChestInfo info : infos) {
-			// calculate the distance to the poi
-			double distance = coords.getDistanceSq(info.getCoords());
-			if (distance < minDistanceSq) {
-				return true;
+	/**
+	 * Selects the rarity whose placement grid selects the chunk, the rarest first.
+	 * @param worldSeed
+	 * @param rarities
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return the rarity or null if the chunk isn't selected
+	 */
+	private Rarity selectGridRarity(long worldSeed, List<Rarity> rarities, int chunkX, int chunkZ) {
+		for (int index = rarities.size() - 1; index >= 0; index--) {
+			Rarity rarity = rarities.get(index);
+			IChestConfig chestConfig = TreasureConfig.CHESTS.submergedChests.configMap.get(rarity);
+			if (chestConfig != null) {
+				int spacing = GridPlacement.getSpacing(Math.max(chestConfig.getChunksPerChest(), TreasureConfig.CHESTS.submergedChests.minChunksPerChest));
+				if (GridPlacement.isSelected(worldSeed, chunkX, chunkZ, GRID_SALT + rarity.ordinal(), spacing,
+						GridPlacement.getSeparation(spacing, TreasureConfig.CHESTS.submergedChests.minDistancePerChest))) {
+					return rarity;
+				}
 			}
 		}
-		return false;
+		return null;
+	}
+
+	@Override
+	public PlannedSite planSite(long worldSeed, int chunkX, int chunkZ, Biome biome, Random random) {
+		if (!oceanBiomes.isAllowed(biome)) {
+			return null;
+		}
+		Rarity rarity = selectGridRarity(worldSeed, rarities, chunkX, chunkZ);
+		if (rarity == null || !RandomHelper.checkProbability(random, TreasureConfig.CHESTS.submergedChests.configMap.get(rarity).getGenProbability())
+				|| !rarityBiomes.get(rarity).isAllowed(biome)) {
+			return null;
+		}
+		return new PlannedSite(WorldGeneratorType.SUBMERGED_CHEST, chunkX, chunkZ, rarity);
+	}
+
+	@Override
+	public int getMinDistance() {
+		return TreasureConfig.CHESTS.submergedChests.minDistancePerChest;
 	}
 
-	public int getChunksSinceLastChest() {
-		return chunksSinceLastChest;
+	public Map<Integer, Integer> getChunksSinceLastDimensionChest() {
+		return chunksSinceLastDimensionChest;
 	}
 
-	public void setChunksSinceLastChest(int chunksSinceLastChest) {
-		this.chunksSinceLastChest = chunksSinceLastChest;
+	public void setChunksSinceLastDimensionChest(Map<Integer, Integer> chunksSinceLastDimensionChest) {
+		this.chunksSinceLastDimensionChest = chunksSinceLastDimensionChest;
 	}
 
-	public Map<Rarity, Integer> getChunksSinceLastRarityChest() {
-		return chunksSinceLastRarityChest;
+	public Map<Integer, Map<Rarity, Integer>> getChunksSinceLastDimensionRarityChest() {
+		return chunksSinceLastDimensionRarityChest;
 	}
 
-	public void setChunksSinceLastRarityChest(Map<Rarity, Integer> chunksSinceLastRarityChest) {
-		this.chunksSinceLastRarityChest = chunksSinceLastRarityChest;
+	public void setChunksSinceLastDimensionRarityChest(Map<Integer, Map<Rarity, Integer>> chunksSinceLastDimensionRarityChest) {
+		this.chunksSinceLastDimensionRarityChest = chunksSinceLastDimensionRarityChest;
 	}
 
-	public Map<Rarity, RandomWeightedCollection<IChestGenerator>> getChestCollectionGeneratorsMap() {
+	public Map<Rarity, WeightedSampler<IChestGenerator>> getChestCollectionGeneratorsMap() {
 		return chestCollectionGeneratorsMap;
 	}
 
 	public void setChestCollectionGeneratorsMap(
-			Map<Rarity, RandomWeightedCollection<IChestGenerator>> chestCollectionGeneratorsMap) {
+			Map<Rarity, WeightedSampler<IChestGenerator>> chestCollectionGeneratorsMap) {
 		this.chestCollectionGeneratorsMap = chestCollectionGeneratorsMap;
 	}
 }
@@ -10,33 +10,33 @@ import static com.someguyssoftware.treasure2.enums.Rarity.SCARCE;
 import static com.someguyssoftware.treasure2.enums.Rarity.UNCOMMON;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableTable;
 import com.google.common.collect.Table;
-import com.someguyssoftware.gottschcore.biome.BiomeHelper;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
-import com.someguyssoftware.gottschcore.random.RandomWeightedCollection;
 import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.gottschcore.world.gen.structure.IDecayRuleSet;
 import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.biome.BiomeEligibility;
 import com.someguyssoftware.treasure2.biome.TreasureBiomeHelper;
-import com.someguyssoftware.treasure2.biome.TreasureBiomeHelper.Result;
-import com.someguyssoftware.treasure2.chest.ChestInfo;
 import com.someguyssoftware.treasure2.config.IChestConfig;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
 import com.someguyssoftware.treasure2.enums.PitTypes;
 import com.someguyssoftware.treasure2.enums.Pits;
 import com.someguyssoftware.treasure2.enums.Rarity;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
 import com.someguyssoftware.treasure2.generator.chest.CauldronChestGenerator;
 import com.someguyssoftware.treasure2.generator.chest.CommonChestGenerator;
 import com.someguyssoftware.treasure2.generator.chest.EpicChestGenerator;
@@ -57,36 +57,61 @@ import com.someguyssoftware.treasure2.generator.pit.SimplePitGenerator;
 import com.someguyssoftware.treasure2.generator.pit.StructurePitGenerator;
 import com.someguyssoftware.treasure2.generator.pit.TntTrapPitGenerator;
 import com.someguyssoftware.treasure2.generator.pit.VolcanoPitGenerator;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.generator.ruins.SurfaceRuinGenerator;
 import com.someguyssoftware.treasure2.persistence.GenDataPersistence;
+import com.someguyssoftware.treasure2.random.RandomSource;
+import com.someguyssoftware.treasure2.random.WeightedSampler;
 import com.someguyssoftware.treasure2.registry.ChestRegistry;
 import com.someguyssoftware.treasure2.world.gen.structure.TemplateHolder;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Rejection;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Stage;
 
-import net.minecraft.init.Biomes;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.chunk.IChunkProvider;
 import net.minecraft.world.gen.IChunkGenerator;
-import net.minecraftforge.common.BiomeDictionary;
 
 /**
  * 
  * @author Mark Gottschling on Jan 22, 2018
  *
  */
-public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
+public class SurfaceChestWorldGenerator implements IPlannableWorldGenerator, IScheduledWorldGenerator {
 	protected static int UNDERGROUND_OFFSET = 5;
+	// the metrics of the pit site checks (before a pit generator is selected)
+	private static final String PIT_METRICS_KEY = "pit";
+	// the salt of the placement grids (plus the rarity ordinal)
+	private static final int GRID_SALT = 14357617;
+	// the build data
+	private static final String X_TAG_NAME = "x";
+	private static final String Y_TAG_NAME = "y";
+	private static final String Z_TAG_NAME = "z";
+	private static final String RARITY_TAG_NAME = "rarity";
+	private static final String RESERVED_CHUNKS_TAG_NAME = "reservedChunks";
 	
-	private int chunksSinceLastChest;
-	private Map<Rarity, Integer> chunksSinceLastRarityChest;
+	// Map<DimensionID, count>
+	private volatile Map<Integer, Integer> chunksSinceLastDimensionChest;
+	// Map<DimensionID, Map<Rarity, count>>
+	private volatile Map<Integer, Map<Rarity, Integer>> chunksSinceLastDimensionRarityChest;
 	
-	// the chest chestGeneratorsMap
-	private Map<Rarity, RandomWeightedCollection<IChestGenerator>> chestGenMap = new HashMap<>();
+	// the biomes allowed by the chest configs, compiled at init
+	private volatile BiomeEligibility landBiomes;
+	private volatile Map<Rarity, BiomeEligibility> rarityBiomes;
+	
+	// the chest chestGeneratorsMap (immutable, replaced by init)
+	private volatile Map<Rarity, WeightedSampler<IChestGenerator>> chestGenMap = Collections.emptyMap();
 
-	// the pit chestGeneratorsMap
-	public static Table<PitTypes, Pits, IPitGenerator<GeneratorResult<ChestGeneratorData>>> pitGens =  HashBasedTable.create();
+	// the pit chestGeneratorsMap (immutable, the pit generators are stateless)
+	public static final Table<PitTypes, Pits, IPitGenerator<GeneratorResult<ChestGeneratorData>>> pitGens = createPitGenerators();
+	// the uniform selection of the pit generators by type
+	private static final Map<PitTypes, WeightedSampler<IPitGenerator<GeneratorResult<ChestGeneratorData>>>> pitSamplers = createPitSamplers();
 	
-	public static final List<Rarity> RARITIES = new ArrayList<>();
+	// the enabled rarities (immutable, replaced by init)
+	private volatile List<Rarity> rarities = Collections.emptyList();
 	
 	/**
 	 * 
@@ -99,49 +124,87 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 		}
 	}
 	
+	/*
+	 * The generator state is built and then published as immutable collections, so that init() can be
+	 * repeated (ex. on each world load) without a population seeing a half built state. The population may run on
+	 * other threads: the counters are concurrent, the population passes, surface cache and write buffer are per thread
+	 * and the sites are reserved atomically (see ChestRegistry.registerIfClear()).
+	 */
 	@Override
 	public void init() {
-		// TODO all these values need to be indexed by dimension
-		// initialize chunks since last array
-		chunksSinceLastChest = 0;
-		chunksSinceLastRarityChest = new HashMap<>(Rarity.values().length);
+		// initialize chunks since last maps by dimension
+		chunksSinceLastDimensionChest = new ConcurrentHashMap<>();
+		chunksSinceLastDimensionRarityChest = new ConcurrentHashMap<>();
+		for (Integer dimensionID : TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList()) {
+			initDimension(dimensionID);
+		}
 		
-		// setup temporary rarity-generators map
+		// compile the allowed biomes by rarity
+		landBiomes = BiomeEligibility.compile(biome -> !TreasureBiomeHelper.isOcean(biome));
+		Map<Rarity, BiomeEligibility> biomes = new EnumMap<>(Rarity.class);
 		for (Rarity rarity : Rarity.values()) {
-			chunksSinceLastRarityChest.put(rarity, 0);
+			IChestConfig chestConfig = TreasureConfig.CHESTS.surfaceChests.configMap.get(rarity);
+			if (chestConfig != null) {
+				biomes.put(rarity, BiomeEligibility.compile(chestConfig.getBiomeWhiteList(), chestConfig.getBiomeBlackList(),
+						chestConfig.getBiomeTypeWhiteList(), chestConfig.getBiomeTypeBlackList()));
+			}
 		}
 	
+		rarityBiomes = Collections.unmodifiableMap(biomes);
+
 		// setup chest collection generator maps
+		List<Rarity> enabledRarities = new ArrayList<>();
+		Map<Rarity, WeightedSampler<IChestGenerator>> chestGenerators = new EnumMap<>(Rarity.class);
 		if (TreasureConfig.CHESTS.surfaceChests.configMap.get(COMMON).isEnableChest()) {
-			RARITIES.add(COMMON);
-			chestGenMap.put(COMMON, new RandomWeightedCollection<>());
-			chestGenMap.get(COMMON).add(1, new CommonChestGenerator());
+			enabledRarities.add(COMMON);
+			chestGenerators.put(COMMON, new WeightedSampler<>());
+			chestGenerators.get(COMMON).add(1, new CommonChestGenerator());
 		}		
 		if (TreasureConfig.CHESTS.surfaceChests.configMap.get(UNCOMMON).isEnableChest()) {
-			RARITIES.add(UNCOMMON);
-			chestGenMap.put(UNCOMMON, new RandomWeightedCollection<>());
-			chestGenMap.get(UNCOMMON).add(1, new UncommonChestGenerator());
+			enabledRarities.add(UNCOMMON);
+			chestGenerators.put(UNCOMMON, new WeightedSampler<>());
+			chestGenerators.get(UNCOMMON).add(1, new UncommonChestGenerator());
 		}
 		if (TreasureConfig.CHESTS.surfaceChests.configMap.get(SCARCE).isEnableChest()) {
-			RARITIES.add(SCARCE);
-			chestGenMap.put(SCARCE, new RandomWeightedCollection<>());
-			chestGenMap.get(SCARCE).add(75, new ScarceChestGenerator());
-			chestGenMap.get(SCARCE).add(25, new SkullChestGenerator());
+			enabledRarities.add(SCARCE);
+			chestGenerators.put(SCARCE, new WeightedSampler<>());
+			chestGenerators.get(SCARCE).add(75, new ScarceChestGenerator());
+			chestGenerators.get(SCARCE).add(25, new SkullChestGenerator());
 		}
 		if (TreasureConfig.CHESTS.surfaceChests.configMap.get(RARE).isEnableChest()) {
-			RARITIES.add(RARE);
-			chestGenMap.put(RARE, new RandomWeightedCollection<>());
-			chestGenMap.get(RARE).add(85, new RareChestGenerator());
-			chestGenMap.get(RARE).add(15, new GoldSkullChestGenerator());
+			enabledRarities.add(RARE);
+			chestGenerators.put(RARE, new WeightedSampler<>());
+			chestGenerators.get(RARE).add(85, new RareChestGenerator());
+			chestGenerators.get(RARE).add(15, new GoldSkullChestGenerator());
 		}
 		if (TreasureConfig.CHESTS.surfaceChests.configMap.get(EPIC).isEnableChest()) {
-			RARITIES.add(EPIC);
-			chestGenMap.put(EPIC, new RandomWeightedCollection<>());
-			chestGenMap.get(EPIC).add(85, new EpicChestGenerator());
-			chestGenMap.get(EPIC).add(15, new CauldronChestGenerator());
-		}		
-		
-		// setup pit generators map
+			enabledRarities.add(EPIC);
+			chestGenerators.put(EPIC, new WeightedSampler<>());
+			chestGenerators.get(EPIC).add(85, new EpicChestGenerator());
+			chestGenerators.get(EPIC).add(15, new CauldronChestGenerator());
+		}
+		rarities = Collections.unmodifiableList(enabledRarities);
+		chestGenMap = Collections.unmodifiableMap(chestGenerators);
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	private static Map<PitTypes, WeightedSampler<IPitGenerator<GeneratorResult<ChestGeneratorData>>>> createPitSamplers() {
+		Map<PitTypes, WeightedSampler<IPitGenerator<GeneratorResult<ChestGeneratorData>>>> samplers = new EnumMap<>(PitTypes.class);
+		for (PitTypes pitType : PitTypes.values()) {
+			samplers.put(pitType, WeightedSampler.uniform(pitGens.row(pitType).values()));
+		}
+		return Collections.unmodifiableMap(samplers);
+	}
+
+	/**
+	 * Builds the pit generators by type, once.
+	 * @return
+	 */
+	private static Table<PitTypes, Pits, IPitGenerator<GeneratorResult<ChestGeneratorData>>> createPitGenerators() {
+		ImmutableTable.Builder<PitTypes, Pits, IPitGenerator<GeneratorResult<ChestGeneratorData>>> pitGens = ImmutableTable.builder();
 		pitGens.put(PitTypes.STANDARD, Pits.SIMPLE_PIT, new SimplePitGenerator());
 		pitGens.put(PitTypes.STRUCTURE, Pits.SIMPLE_PIT, new StructurePitGenerator(new SimplePitGenerator()));
 		
@@ -168,6 +231,20 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
         
         pitGens.put(PitTypes.STANDARD, Pits.VOLCANO_PIT, new VolcanoPitGenerator());
 		// NONE for STRUCTURE
+		return pitGens.build();
+	}
+
+	/**
+	 * Initializes the chunk counts for a dimension.
+	 * @param dimensionID
+	 */
+	private void initDimension(Integer dimensionID) {
+		chunksSinceLastDimensionChest.putIfAbsent(dimensionID, 0);
+		Map<Rarity, Integer> chunksSinceLastRarityChest = new ConcurrentHashMap<>(Rarity.values().length);
+		for (Rarity rarity : Rarity.values()) {
+			chunksSinceLastRarityChest.put(rarity, 0);
+		}
+		chunksSinceLastDimensionRarityChest.putIfAbsent(dimensionID, chunksSinceLastRarityChest);
 	}
 
 	/**
@@ -176,7 +253,23 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 	@Override
 	public void generate(Random random, int chunkX, int chunkZ, World world, IChunkGenerator chunkGenerator, IChunkProvider chunkProvider) {
 		if (TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList().contains(Integer.valueOf(world.provider.getDimension()))) {
-			generate(world, random, chunkX, chunkZ);
+			// write the blocks of the generators in bulk, relighting and notifying once per chunk
+			BlockWriteBuffer.begin(world);
+			// share the surface scans of this chunk's population pass
+			SurfaceCache.begin(world, chunkX, chunkZ);
+			// flush the placements parked for this chunk
+			DeferredPlacementQueue.getInstance().begin(world, chunkX, chunkZ);
+			long start = System.nanoTime();
+			try {
+				generate(world, random, chunkX, chunkZ);
+			} finally {
+				GenerationMetrics.blocks(WorldGeneratorType.SURFACE_CHEST.getValue(),
+						BlockWriteBuffer.getDirectWrites(world), BlockWriteBuffer.getFallbackWrites(world));
+				GenerationMetrics.time(WorldGeneratorType.SURFACE_CHEST.getValue(), Stage.POPULATE, start);
+				DeferredPlacementQueue.getInstance().end(world);
+				SurfaceCache.end(world);
+				BlockWriteBuffer.end(world);
+			}
 		}
 	}
 
@@ -195,31 +288,64 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
         int xSpawn = (chunkX * WorldInfo.CHUNK_SIZE) + WorldInfo.CHUNK_RADIUS;
         int zSpawn = (chunkZ * WorldInfo.CHUNK_SIZE) + WorldInfo.CHUNK_RADIUS;
         
+		// a planned region replaces the site checks
+		PlannedSite site = null;
+		SitePlan sitePlan = SitePlan.get(world);
+		if (sitePlan != null && sitePlan.covers(chunkX, chunkZ)) {
+			site = sitePlan.getSite(WorldGeneratorType.SURFACE_CHEST, chunkX, chunkZ);
+			if (site == null) {
+				GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.CHUNKS);
+				return;
+			}
+		}
+		boolean isPlanned = site != null;
+
 		// 0. hard check against ocean biomes
         ICoords coords = new Coords(xSpawn, 0, zSpawn);
 		Biome biome = world.getBiome(coords.toPos());
-		if (biome == Biomes.OCEAN || biome == Biomes.DEEP_OCEAN || biome == Biomes.FROZEN_OCEAN ||
-				BiomeDictionary.hasType(biome, BiomeDictionary.Type.OCEAN)) {
+		if (!isPlanned && !landBiomes.isAllowed(biome)) {
+			GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.BIOME);
 			return;
 		}
 		
-		// increment the chunk counts
-		chunksSinceLastChest++;
+		Integer dimensionID = Integer.valueOf(world.provider.getDimension());
+		if (!chunksSinceLastDimensionChest.containsKey(dimensionID)) {
+			initDimension(dimensionID);
+		}
+		Map<Rarity, Integer> chunksSinceLastRarityChest = chunksSinceLastDimensionRarityChest.get(dimensionID);
+		// the rarities of this population, in case init() is run again meanwhile
+		List<Rarity> rarities = this.rarities;
+
+		// select the rarity from the placement grids, or increment the chunk counts
+		boolean isGridPlacement = isPlanned || GridPlacement.isEnabled();
+		Rarity gridRarity = null;
+		boolean isMinChunksMet;
+		if (isPlanned) {
+			gridRarity = site.getRarity();
+			isMinChunksMet = gridRarity != null;
+		}
+		else if (GridPlacement.isEnabled()) {
+			gridRarity = selectGridRarity(world.getSeed(), rarities, chunkX, chunkZ);
+			isMinChunksMet = gridRarity != null;
+		}
+		else {
+			int chunksSinceLastChest = chunksSinceLastDimensionChest.merge(dimensionID, 1, Integer::sum);
 
-		for (Rarity rarity : RARITIES) {
-			Integer i = chunksSinceLastRarityChest.get(rarity);
-			chunksSinceLastRarityChest.put(rarity, ++i);			
+			for (Rarity rarity : rarities) {
+				chunksSinceLastRarityChest.merge(rarity, 1, Integer::sum);
+			}
+			isMinChunksMet = chunksSinceLastChest > TreasureConfig.CHESTS.surfaceChests.minChunksPerChest;
 		}
 
 		// test if min chunks was met
-     	if (chunksSinceLastChest > TreasureConfig.CHESTS.surfaceChests.minChunksPerChest) {
+     	if (isMinChunksMet) {
             
             // the get first surface y (could be leaves, trunk, water, etc)
             int ySpawn = world.getChunkFromChunkCoords(chunkX, chunkZ).getHeightValue(WorldInfo.CHUNK_RADIUS, WorldInfo.CHUNK_RADIUS);
             coords = new Coords(xSpawn, ySpawn, zSpawn);
 
 	    	// determine what type to generate
-            Rarity rarity = (Rarity) RARITIES.get(random.nextInt(RARITIES.size()));
+            Rarity rarity = gridRarity != null ? gridRarity : rarities.get(random.nextInt(rarities.size()));
 			IChestConfig chestConfig = TreasureConfig.CHESTS.surfaceChests.configMap.get(rarity);
 			if (chestConfig == null) {
 				Treasure.logger.warn("Unable to locate a chest for rarity {}.", rarity);
@@ -227,69 +353,104 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 			}
 //			Treasure.logger.debug("Chunks since last {} chest: {}", rarity,  chunksSinceLastRarityChest.get(rarity) );
 //			Treasure.logger.debug("Chunks per {} chest: {}", rarity, chestConfig.getChunksPerChest());
-    		if (chunksSinceLastRarityChest.get(rarity) >= chestConfig.getChunksPerChest()) {
+    		if (gridRarity != null || chunksSinceLastRarityChest.get(rarity) >= chestConfig.getChunksPerChest()) {
     			    			
 				// 1. test if chest meets the probability criteria
-				if (!RandomHelper.checkProbability(random, chestConfig.getGenProbability())) {
+				if (!isPlanned && !RandomHelper.checkProbability(random, chestConfig.getGenProbability())) {
 //					Treasure.logger.debug("ChestConfig does not meet generate probability.");
+					GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.PROBABILITY);
 					return;
 				}
 				
 				// 2. test if the override (global) biome is allowed
-				TreasureBiomeHelper.Result biomeCheck =TreasureBiomeHelper.isBiomeAllowed(biome, chestConfig.getBiomeWhiteList(), chestConfig.getBiomeBlackList());
-				if(biomeCheck == Result.BLACK_LISTED ) {
-		    		if (WorldInfo.isClientSide(world)) {
-		    			Treasure.logger.debug("{} is not a valid biome @ {}", biome.getBiomeName(), coords.toShortString());
-		    		}
-		    		else {
-		    			Treasure.logger.debug("Biome {} is not valid @ {}",rarity.getValue(), coords.toShortString());
-		    		}					
+				if (!isPlanned && !rarityBiomes.get(rarity).isAllowed(biome)) {
+					if (Treasure.logger.isDebugEnabled()) {
+						Treasure.logger.debug("Biome is not valid for {} chest @ {}", rarity.getValue(), coords.toShortString());
+					}
+					GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.BIOME);
 					return;
 				}
-				else if (biomeCheck == Result.OK) {
-				    if (!BiomeHelper.isBiomeAllowed(biome, chestConfig.getBiomeTypeWhiteList(), chestConfig.getBiomeTypeBlackList())) {
-				    	if (Treasure.logger.isDebugEnabled()) {
-				    		if (WorldInfo.isClientSide(world)) {
-				    			Treasure.logger.debug("{} is not a valid biome type @ {}", biome.getBiomeName(), coords.toShortString());
-				    		}
-				    		else {
-				    			Treasure.logger.debug("Biome type of {} is not valid @ {}",rarity.getValue(), coords.toShortString());
-				    		}
-				    	}
-				    	return;
-				    }
-				}
 			    
-     			// 3. check against all registered chests
-     			if (isRegisteredChestWithinDistance(world, coords, TreasureConfig.CHESTS.surfaceChests.minDistancePerChest)) {
+     			// 3. check against all registered chests, and reserve the site in the registry until the chest is built.
+     			// the grid already keeps its sites apart, and the check (like the chunk counts) would depend on the order
+     			// the chunks are populated in, so a grid site is only registered
+     			int reservedChunks = 0;
+     			if (isGridPlacement) {
+     				ChestRegistry.getInstance().register(dimensionID, coords, rarity);
+     			}
+     			else {
+     				if (!ChestRegistry.getInstance().registerIfClear(dimensionID, coords, rarity, TreasureConfig.CHESTS.surfaceChests.minDistancePerChest)) {
 //   					Treasure.logger.debug("The distance to the nearest treasure chest is less than the minimun required.");
-     				return;
+     					GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.DISTANCE);
+     					return;
+     				}
+
+     				// reset chunks since last common chest regardless of successful generation - makes more rare and realistic and configurable generation.
+     				chunksSinceLastRarityChest.put(rarity, 0);
+
+     				// reset the chunk count until the chest is built
+     				reservedChunks = chunksSinceLastDimensionChest.put(dimensionID, 0);
      			}
-     			     			
-    			// reset chunks since last common chest regardless of successful generation - makes more rare and realistic and configurable generation.
-    			chunksSinceLastRarityChest.put(rarity, 0);
- 			
+
     			// generate the chest/pit/chambers
-				Treasure.logger.debug("Attempting to generate pit/chest.");
-				GeneratorResult<GeneratorData> result = null;
-				result = generate(world, random, coords, rarity, chestGenMap.get(rarity).next(), TreasureConfig.CHESTS.surfaceChests.configMap.get(rarity));
-				
-    			if (result.isSuccess()) {
-    				// add to registry
-    				ChestRegistry.getInstance().register(coords.toShortString(), new ChestInfo(rarity, coords));
-    				// reset the chunk counts
-        			chunksSinceLastChest = 0;
-    			}
+    			NBTTagCompound data = new NBTTagCompound();
+    			data.setInteger(X_TAG_NAME, coords.getX());
+    			data.setInteger(Y_TAG_NAME, coords.getY());
+    			data.setInteger(Z_TAG_NAME, coords.getZ());
+    			data.setString(RARITY_TAG_NAME, rarity.name());
+    			data.setInteger(RESERVED_CHUNKS_TAG_NAME, reservedChunks);
+    			GenerationScheduler.getInstance().schedule(world, WorldGeneratorType.SURFACE_CHEST, chunkX, chunkZ,
+    					RandomSource.structureSeed(world.getSeed(), coords, WorldGeneratorType.SURFACE_CHEST.ordinal()), data);
+    		}
+    		else {
+    			GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.CHUNKS);
     		}
 
-	     	// save world data
+	     	// save world data (the registry, and the chunk counts unless the site is from a grid)
     		GenDataPersistence savedData = GenDataPersistence.get(world);
 	    	if (savedData != null) {
 	    		savedData.markDirty();
 	    	}
      	}
+     	else {
+     		GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.CHUNKS);
+     	}
 	}
 	
+	/**
+	 * Builds the pit/chest reserved by the population, or releases the site and restores the chunk count.
+	 */
+	@Override
+	public void build(World world, Random random, NBTTagCompound data) {
+		Integer dimensionID = Integer.valueOf(world.provider.getDimension());
+		ICoords coords = new Coords(data.getInteger(X_TAG_NAME), data.getInteger(Y_TAG_NAME), data.getInteger(Z_TAG_NAME));
+		Rarity rarity = Rarity.valueOf(data.getString(RARITY_TAG_NAME));
+		IChestConfig chestConfig = TreasureConfig.CHESTS.surfaceChests.configMap.get(rarity);
+		WeightedSampler<IChestGenerator> chestGenerators = chestGenMap.get(rarity);
+
+		Treasure.logger.debug("Attempting to generate pit/chest.");
+		GeneratorResult<GeneratorData> result = null;
+		if (chestConfig != null && chestGenerators != null) {
+			// selected with the build's random, the population's random isn't drawn ahead of the build
+			IChestGenerator chestGenerator = chestGenerators.next(random);
+			result = generate(world, random, coords, rarity, chestGenerator, chestConfig);
+		}
+		if (result != null && result.isSuccess()) {
+			GenerationMetrics.success(WorldGeneratorType.SURFACE_CHEST.getValue());
+		}
+		else {
+			// release the site and restore the chunk count (none is reserved by a grid site)
+			ChestRegistry.getInstance().unregister(dimensionID, coords);
+			int reservedChunks = data.getInteger(RESERVED_CHUNKS_TAG_NAME);
+			if (reservedChunks > 0) {
+				if (!chunksSinceLastDimensionChest.containsKey(dimensionID)) {
+					initDimension(dimensionID);
+				}
+				chunksSinceLastDimensionChest.merge(dimensionID, reservedChunks, Integer::sum);
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @param world
@@ -314,10 +475,11 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 		GeneratorResult<ChestGeneratorData> genResult = new GeneratorResult<>(ChestGeneratorData.class);		
 
 		// 1. collect location data points
-		ICoords surfaceCoords = WorldInfo.getDryLandSurfaceCoords(world, coords);
+		ICoords surfaceCoords = SurfaceCache.getDryLandSurfaceCoords(world, coords);
 		Treasure.logger.debug("surface coords -> {}", surfaceCoords.toShortString());
 		if (!WorldInfo.isValidY(surfaceCoords)) {
 			Treasure.logger.debug("surface coords are invalid @ {}", surfaceCoords.toShortString());
+			GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.SURFACE);
 			return result.fail();
 		}
 		// TEMP - if building a structure, markerCoords could be different than original surface coords because for rotation etc.
@@ -334,6 +496,7 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 				genResult = generateSurfaceRuins(world, random, surfaceCoords, config);
 				Treasure.logger.debug("surface result -> {}", genResult.toString());
 				if (!genResult.isSuccess()) {
+					GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.STRUCTURE);
 					return result.fail();
 				}
 				// set the chest coords to the surface pos
@@ -349,6 +512,7 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 			genResult = generatePit(world, random, chestRarity, markerCoords, config);
 			Treasure.logger.debug("result -> {}", genResult.toString());
 			if (!genResult.isSuccess()) {
+				GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.STRUCTURE);
 				return result.fail();
 			}
 			chestCoords = genResult.getData().getChestContext().getCoords();
@@ -357,6 +521,7 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 		// if chest isn't generated, then fail
 		if (chestCoords == null) {
 			Treasure.logger.debug("Chest coords were not provided in result -> {}", genResult.toString());
+			GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.STRUCTURE);
 			return result.fail();
 		}
 
@@ -364,8 +529,9 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 		if (hasMarkers) {
 			chestGenerator.addMarkers(world, random, markerCoords, isSurfaceChest);
 		}		
-		GeneratorResult<ChestGeneratorData> chestResult = chestGenerator.generate(world, random, chestCoords, chestRarity, genResult.getData().getChestContext().getState());
+		GeneratorResult<ChestGeneratorData> chestResult = generateChest(world, random, chestGenerator, chestCoords, chestRarity, genResult.getData().getChestContext().getState());
 		if (!chestResult.isSuccess()) {
+			GenerationMetrics.reject(WorldGeneratorType.SURFACE_CHEST.getValue(), Rejection.CHEST);
 			return result.fail();
 		}
         
@@ -376,6 +542,31 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 		return result.success();
 	}
 	
+	/**
+	 * Generates the chest, recording the chest generator's metrics.
+	 * @param world
+	 * @param random
+	 * @param chestGenerator
+	 * @param coords
+	 * @param rarity
+	 * @param state
+	 * @return
+	 */
+	public static GeneratorResult<ChestGeneratorData> generateChest(World world, Random random, IChestGenerator chestGenerator,
+			ICoords coords, Rarity rarity, IBlockState state) {
+		String chestName = chestGenerator.getClass().getSimpleName();
+		long start = System.nanoTime();
+		GeneratorResult<ChestGeneratorData> result = chestGenerator.generate(world, random, coords, rarity, state);
+		GenerationMetrics.time(chestName, Stage.CHEST, start);
+		if (result.isSuccess()) {
+			GenerationMetrics.success(chestName);
+		}
+		else {
+			GenerationMetrics.reject(chestName, Rejection.CHEST);
+		}
+		return result;
+	}
+
 	/**
 	 * 
 	 * @param world
@@ -407,9 +598,15 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 		SurfaceRuinGenerator generator = new SurfaceRuinGenerator();
 
 		// build the structure
+		long start = System.nanoTime();
 		GeneratorResult<ChestGeneratorData> genResult = generator.generate(world, random, spawnCoords, holder, decayRuleSet);
+		GenerationMetrics.time(SurfaceRuinGenerator.class.getSimpleName(), Stage.RUIN, start);
 		Treasure.logger.debug("surface struct result -> {}", genResult);
-		if (!genResult.isSuccess()) return result.fail();
+		if (!genResult.isSuccess()) {
+			GenerationMetrics.reject(SurfaceRuinGenerator.class.getSimpleName(), Rejection.STRUCTURE);
+			return result.fail();
+		}
+		GenerationMetrics.success(SurfaceRuinGenerator.class.getSimpleName());
 
 		result.setData(genResult.getData());
 		return result.success();
@@ -429,8 +626,9 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 		GeneratorResult<ChestGeneratorData> pitResult = new GeneratorResult<ChestGeneratorData>(ChestGeneratorData.class);
 
 		// 2.5. check if it has 50% land
-		if (!WorldInfo.isSolidBase(world, markerCoords, 2, 2, 50)) {
+		if (!SurfaceCache.isSolidBase(world, markerCoords, 2, 2, 50)) {
 			Treasure.logger.debug("Coords [{}] does not meet solid base requires for {} x {}", markerCoords.toShortString(), 3, 3);
+			GenerationMetrics.reject(PIT_METRICS_KEY, Rejection.SOLID_BASE);
 			return result.fail();
 		}
 
@@ -439,6 +637,7 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 
 		if (spawnCoords == null || spawnCoords == WorldInfo.EMPTY_COORDS) {
 			Treasure.logger.debug("Unable to spawn underground @ {}", markerCoords);
+			GenerationMetrics.reject(PIT_METRICS_KEY, Rejection.SPAWN_COORDS);
 			return result.fail();
 		}
 		Treasure.logger.debug("Below ground @ {}", spawnCoords.toShortString());
@@ -449,9 +648,16 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 		Treasure.logger.debug("Using pit generator -> {}", pitGenerator.getClass().getSimpleName());
 		
 		// 3. build the pit
+		String pitName = pitGenerator.getClass().getSimpleName();
+		long start = System.nanoTime();
 		pitResult = pitGenerator.generate(world, random, markerCoords, spawnCoords);
+		GenerationMetrics.time(pitName, Stage.PIT, start);
 
-		if (!pitResult.isSuccess()) return result.fail();
+		if (!pitResult.isSuccess()) {
+			GenerationMetrics.reject(pitName, Rejection.STRUCTURE);
+			return result.fail();
+		}
+		GenerationMetrics.success(pitName);
 
 		result.setData(pitResult.getData());
 		Treasure.logger.debug("Is pit generated: {}", pitResult.isSuccess());
@@ -465,9 +671,7 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 	 */
 	public static IPitGenerator<GeneratorResult<ChestGeneratorData>> selectPitGenerator(Random random) {
 		PitTypes pitType = RandomHelper.checkProbability(random, TreasureConfig.PIT.pitStructureProbability) ? PitTypes.STRUCTURE : PitTypes.STANDARD;
-		List<IPitGenerator<GeneratorResult<ChestGeneratorData>>> pitGenerators = pitGens.row(pitType).values().stream()
-				.collect(Collectors.toList());
-		IPitGenerator<GeneratorResult<ChestGeneratorData>> pitGenerator = pitGenerators.get(random.nextInt(pitGenerators.size()));
+		IPitGenerator<GeneratorResult<ChestGeneratorData>> pitGenerator = pitSamplers.get(pitType).next(random);
 		Treasure.logger.debug("Using PitType: {}, Gen: {}", pitType, pitGenerator.getClass().getSimpleName());
 
 		return pitGenerator;
@@ -492,7 +696,7 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 
 			spawnPos = new Coords(pos.getX(), ySpawn, pos.getZ());
 			// get floor pos (if in a cavern or tunnel etc)
-			spawnPos = WorldInfo.getDryLandSurfaceCoords(world, spawnPos);
+			spawnPos = SurfaceCache.getDryLandSurfaceCoords(world, spawnPos);
 		}
 		return spawnPos;
 	}
@@ -525,48 +729,71 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 	 * @return
 	 */
 	public boolean isRegisteredChestWithinDistance(World world, ICoords coords, int minDistance) {
-		
-		double minDistanceSq = minDistance * minDistance;
-		
-		// get a list of dungeons
-		List<ChestInfo> infos = ChestRegistry.getInstance().getValues();
+		return ChestRegistry.getInstance().withinDistance(world.provider.getDimension(), coords, minDistance);
+	}
 
-		if (infos == null || infos.size() == 0) {
-			Treasure.logger.debug("Unable to locate the ChestConfig Registry or the Registry doesn't contain any values");
-			return false;
-		}
-		
-		for (ChestInfo info : infos) {
-			// calculate the distance to the poi
-			double distance = coords.getDistanceSq(info.getCoords());
-			if (distance < minDistanceSq) {
-				return true;
+	/**
+	 * Selects the rarity whose placement grid selects the chunk, the rarest first.
+	 * @param worldSeed
+	 * @param rarities
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return the rarity or null if the chunk isn't selected
+	 */
+	private Rarity selectGridRarity(long worldSeed, List<Rarity> rarities, int chunkX, int chunkZ) {
+		for (int index = rarities.size() - 1; index >= 0; index--) {
+			Rarity rarity = rarities.get(index);
+			IChestConfig chestConfig = TreasureConfig.CHESTS.surfaceChests.configMap.get(rarity);
+			if (chestConfig != null) {
+				int spacing = GridPlacement.getSpacing(Math.max(chestConfig.getChunksPerChest(), TreasureConfig.CHESTS.surfaceChests.minChunksPerChest));
+				if (GridPlacement.isSelected(worldSeed, chunkX, chunkZ, GRID_SALT + rarity.ordinal(), spacing,
+						GridPlacement.getSeparation(spacing, TreasureConfig.CHESTS.surfaceChests.minDistancePerChest))) {
+					return rarity;
+				}
 			}
 		}
-		return false;
+		return null;
+	}
+
+	@Override
+	public PlannedSite planSite(long worldSeed, int chunkX, int chunkZ, Biome biome, Random random) {
+		if (!landBiomes.isAllowed(biome)) {
+			return null;
+		}
+		Rarity rarity = selectGridRarity(worldSeed, rarities, chunkX, chunkZ);
+		if (rarity == null || !RandomHelper.checkProbability(random, TreasureConfig.CHESTS.surfaceChests.configMap.get(rarity).getGenProbability())
+				|| !rarityBiomes.get(rarity).isAllowed(biome)) {
+			return null;
+		}
+		return new PlannedSite(WorldGeneratorType.SURFACE_CHEST, chunkX, chunkZ, rarity);
+	}
+
+	@Override
+	public int getMinDistance() {
+		return TreasureConfig.CHESTS.surfaceChests.minDistancePerChest;
 	}
 
-	public int getChunksSinceLastChest() {
-		return chunksSinceLastChest;
+	public Map<Integer, Integer> getChunksSinceLastDimensionChest() {
+		return chunksSinceLastDimensionChest;
 	}
 
-	public void setChunksSinceLastChest(int chunksSinceLastChest) {
-		this.chunksSinceLastChest = chunksSinceLastChest;
+	public void setChunksSinceLastDimensionChest(Map<Integer, Integer> chunksSinceLastDimensionChest) {
+		this.chunksSinceLastDimensionChest = chunksSinceLastDimensionChest;
 	}
 
-	public Map<Rarity, Integer> getChunksSinceLastRarityChest() {
-		return chunksSinceLastRarityChest;
+	public Map<Integer, Map<Rarity, Integer>> getChunksSinceLastDimensionRarityChest() {
+		return chunksSinceLastDimensionRarityChest;
 	}
 
-	public void setChunksSinceLastRarityChest(Map<Rarity, Integer> chunksSinceLastRarityChest) {
-		this.chunksSinceLastRarityChest = chunksSinceLastRarityChest;
+	public void setChunksSinceLastDimensionRarityChest(Map<Integer, Map<Rarity, Integer>> chunksSinceLastDimensionRarityChest) {
+		this.chunksSinceLastDimensionRarityChest = chunksSinceLastDimensionRarityChest;
 	}
 
-	public Map<Rarity, RandomWeightedCollection<IChestGenerator>> getChestGenMap() {
+	public Map<Rarity, WeightedSampler<IChestGenerator>> getChestGenMap() {
 		return chestGenMap;
 	}
 
-	public void setChestGenMap(Map<Rarity, RandomWeightedCollection<IChestGenerator>> chestGenMap) {
+	public void setChestGenMap(Map<Rarity, WeightedSampler<IChestGenerator>> chestGenMap) {
 		this.chestGenMap = chestGenMap;
 	}
 
@@ -574,7 +801,7 @@ public class SurfaceChestWorldGenerator implements ITreasureWorldGenerator {
 		return pitGens;
 	}
 
-	public static void setPitGens(Table<PitTypes, Pits, IPitGenerator<GeneratorResult<ChestGeneratorData>>> pitGens) {
-		SurfaceChestWorldGenerator.pitGens = pitGens;
+	public List<Rarity> getRarities() {
+		return rarities;
 	}
 }
@@ -3,45 +3,56 @@
  */
 package com.someguyssoftware.treasure2.worldgen;
 
-import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.someguyssoftware.gottschcore.biome.BiomeHelper;
 import com.someguyssoftware.gottschcore.positional.Coords;
 import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
-import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.biome.BiomeEligibility;
 import com.someguyssoftware.treasure2.biome.TreasureBiomeHelper;
-import com.someguyssoftware.treasure2.biome.TreasureBiomeHelper.Result;
-import com.someguyssoftware.treasure2.chest.ChestInfo;
 import com.someguyssoftware.treasure2.config.IWellConfig;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
 import com.someguyssoftware.treasure2.enums.Wells;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.generator.well.IWellGenerator;
 import com.someguyssoftware.treasure2.generator.well.WellGenerator;
 import com.someguyssoftware.treasure2.persistence.GenDataPersistence;
+import com.someguyssoftware.treasure2.random.RandomSource;
 import com.someguyssoftware.treasure2.registry.ChestRegistry;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Rejection;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Stage;
 
-import net.minecraft.init.Biomes;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.chunk.IChunkProvider;
 import net.minecraft.world.gen.IChunkGenerator;
-import net.minecraftforge.common.BiomeDictionary;
 
 /**
  * 
  * @author Mark Gottschling on Feb 16, 2018
  *
  */
-public class WellWorldGenerator implements ITreasureWorldGenerator {
+public class WellWorldGenerator implements IPlannableWorldGenerator {
 	// the number of blocks of half a chunk (radius) (a chunk is 16x16)
 	public static final int CHUNK_RADIUS = 8;
 
-	private int chunksSinceLastWell;
+	// the salt of the placement grid
+	private static final int GRID_SALT = 10387313;
+
+	// Map<DimensionID, count>
+	private Map<Integer, Integer> chunksSinceLastDimensionWell;
+	
+	// the biomes allowed by the well config, compiled at init
+	private BiomeEligibility landBiomes;
+	private BiomeEligibility wellBiomes;
 
 	// the well geneators
 	private IWellGenerator<GeneratorResult<GeneratorData>> generator = new WellGenerator();
@@ -59,8 +70,16 @@ public class WellWorldGenerator implements ITreasureWorldGenerator {
 
 	@Override
 	public void init() {
-		// intialize chunks since last array
-		chunksSinceLastWell = 0;
+		// intialize chunks since last map by dimension
+		chunksSinceLastDimensionWell = new ConcurrentHashMap<>();
+		for (Integer dimensionID : TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList()) {
+			chunksSinceLastDimensionWell.put(dimensionID, 0);
+		}
+		
+		// compile the allowed biomes
+		landBiomes = BiomeEligibility.compile(biome -> !TreasureBiomeHelper.isOcean(biome));
+		wellBiomes = BiomeEligibility.compile(TreasureConfig.WELL.getBiomeWhiteList(), TreasureConfig.WELL.getBiomeBlackList(),
+				TreasureConfig.WELL.getBiomeTypeWhiteList(), TreasureConfig.WELL.getBiomeTypeBlackList());
 	}
 
 	/**
@@ -69,7 +88,23 @@ public class WellWorldGenerator implements ITreasureWorldGenerator {
 	@Override
 	public void generate(Random random, int chunkX, int chunkZ, World world, IChunkGenerator chunkGenerator, IChunkProvider chunkProvider) {
 		if (TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList().contains(Integer.valueOf(world.provider.getDimension()))) {
-			generate(world, random, chunkX, chunkZ);
+			// write the blocks of the generators in bulk, relighting and notifying once per chunk
+			BlockWriteBuffer.begin(world);
+			// share the surface scans of this chunk's population pass
+			SurfaceCache.begin(world, chunkX, chunkZ);
+			// flush the placements parked for this chunk
+			DeferredPlacementQueue.getInstance().begin(world, chunkX, chunkZ);
+			long start = System.nanoTime();
+			try {
+				generate(world, random, chunkX, chunkZ);
+			} finally {
+				GenerationMetrics.blocks(WorldGeneratorType.WELL.getValue(),
+						BlockWriteBuffer.getDirectWrites(world), BlockWriteBuffer.getFallbackWrites(world));
+				GenerationMetrics.time(WorldGeneratorType.WELL.getValue(), Stage.POPULATE, start);
+				DeferredPlacementQueue.getInstance().end(world);
+				SurfaceCache.end(world);
+				BlockWriteBuffer.end(world);
+			}
 		}
 //		switch(world.provider.getDimension()){
 //		case 0:
@@ -96,21 +131,45 @@ public class WellWorldGenerator implements ITreasureWorldGenerator {
 		int xSpawn = chunkX * 16 + 8;
 		int zSpawn = chunkZ * 16 + 8;
 		
+		// a planned region replaces the site checks
+		boolean isPlanned = false;
+		SitePlan sitePlan = SitePlan.get(world);
+		if (sitePlan != null && sitePlan.covers(chunkX, chunkZ)) {
+			if (sitePlan.getSite(WorldGeneratorType.WELL, chunkX, chunkZ) == null) {
+				GenerationMetrics.reject(WorldGeneratorType.WELL.getValue(), Rejection.CHUNKS);
+				return;
+			}
+			isPlanned = true;
+		}
+
 		// 0. hard check against ocean biomes
         ICoords coords = new Coords(xSpawn, 0, zSpawn);
 		Biome biome = world.getBiome(coords.toPos());
-		if (biome == Biomes.OCEAN || biome == Biomes.DEEP_OCEAN || biome == Biomes.FROZEN_OCEAN ||
-				BiomeDictionary.hasType(biome, BiomeDictionary.Type.OCEAN)) {
+		if (!isPlanned && !landBiomes.isAllowed(biome)) {
+			GenerationMetrics.reject(WorldGeneratorType.WELL.getValue(), Rejection.BIOME);
 			return;
 		}
 		
-		// increment the chunk counts
-		chunksSinceLastWell++;
+		// select the chunk from the placement grid, or increment the chunk counts
+		Integer dimensionID = Integer.valueOf(world.provider.getDimension());
+		boolean isGridPlacement = isPlanned || GridPlacement.isEnabled();
+		int chunksSinceLastWell = 0;
+		boolean isMinChunksMet;
+		if (isPlanned) {
+			isMinChunksMet = true;
+		}
+		else if (isGridPlacement) {
+			isMinChunksMet = GridPlacement.isSelected(world, chunkX, chunkZ, GRID_SALT, TreasureConfig.WELL.chunksPerWell, 0);
+		}
+		else {
+			chunksSinceLastWell = chunksSinceLastDimensionWell.merge(dimensionID, 1, Integer::sum);
+			isMinChunksMet = chunksSinceLastWell > TreasureConfig.WELL.chunksPerWell;
+		}
 
 		GeneratorResult<GeneratorData> result = new GeneratorResult<>(GeneratorData.class);
 
 		// test if min chunks was met
-		if (chunksSinceLastWell > TreasureConfig.WELL.chunksPerWell) {
+		if (isMinChunksMet) {
 //			Treasure.logger.debug(String.format("Gen: pass first test: chunksSinceLast: %d, minChunks: %d", chunksSinceLastWell, TreasureConfig.minChunksPerWell));
 
 			// get first surface y (could be leaves, trunk, water, etc)
@@ -125,57 +184,57 @@ public class WellWorldGenerator implements ITreasureWorldGenerator {
 				return;
 			}
 
-			if (chunksSinceLastWell >= wellConfig.getChunksPerWell()) {
+			if (isGridPlacement || chunksSinceLastWell >= wellConfig.getChunksPerWell()) {
 
 				// 1. test if correct biome
-				// TODO this whole biome check should be wrapped in a method that returns true/false
-				TreasureBiomeHelper.Result biomeCheck =TreasureBiomeHelper.isBiomeAllowed(biome, wellConfig.getBiomeWhiteList(), wellConfig.getBiomeBlackList());
-				if(biomeCheck == Result.BLACK_LISTED ) {
-					chunksSinceLastWell = 0;
-					return;
-				}
-				else if (biomeCheck == Result.OK) {
-					if (!BiomeHelper.isBiomeAllowed(biome, wellConfig.getBiomeTypeWhiteList(), wellConfig.getBiomeTypeBlackList())) {
-						if (Treasure.logger.isDebugEnabled()) {
-				    		if (WorldInfo.isClientSide(world)) {
-				    			Treasure.logger.debug("{} is not a valid biome @ {} for Well", biome.getBiomeName(), coords.toShortString());
-				    		}
-				    		else {
-				    			Treasure.logger.debug("Biome is not valid @ {} for Well", coords.toShortString());
-				    		}
-						}
-						chunksSinceLastWell = 0;
-						return;
+				if (!isPlanned && !wellBiomes.isAllowed(biome)) {
+					if (Treasure.logger.isDebugEnabled()) {
+						Treasure.logger.debug("Biome is not valid @ {} for Well", coords.toShortString());
 					}
+					chunksSinceLastDimensionWell.put(dimensionID, 0);
+					GenerationMetrics.reject(WorldGeneratorType.WELL.getValue(), Rejection.BIOME);
+					return;
 				}
 				
 				// 2. test if well meets the probability criteria
 //				Treasure.logger.debug("{} well probability: {}", well, wellConfig.getGenProbability());
-				if (!RandomHelper.checkProbability(random, wellConfig.getGenProbability())) {
+				if (!isPlanned && !RandomHelper.checkProbability(random, wellConfig.getGenProbability())) {
 					Treasure.logger.debug("Well does not meet generate probability.");
+					GenerationMetrics.reject(WorldGeneratorType.WELL.getValue(), Rejection.PROBABILITY);
 					return;
 				}
 
 				// increment chunks since last common chest regardless of successful generation - makes more rare and realistic and configurable generation.
-				chunksSinceLastWell++;    	    	
+				chunksSinceLastDimensionWell.put(dimensionID, ++chunksSinceLastWell);
 
 				// generate the well
 				Treasure.logger.debug("Attempting to generate a well");
 //				isGenerated = generators.get(well)
-				result = generator.generate(world, random, coords, wellConfig); 
+				// the well's own stream, so the seed and the coords reproduce it
+				result = generator.generate(world, RandomSource.forStructure(world.getSeed(), coords, WorldGeneratorType.WELL.ordinal()), coords, wellConfig); 
 				Treasure.logger.debug("well world gen result -> {}", result.isSuccess());
 				if (result.isSuccess()) {
+					GenerationMetrics.success(WorldGeneratorType.WELL.getValue());
 					// add to registry
 					//				ChestRegistry.getInstance().register(coords.toShortString(), new ChestInfo(rarity, coords));
-					chunksSinceLastWell = 0;
+					chunksSinceLastDimensionWell.put(dimensionID, 0);
+				}
+				else {
+					GenerationMetrics.reject(WorldGeneratorType.WELL.getValue(), Rejection.STRUCTURE);
 				}
 			}
+			else {
+				GenerationMetrics.reject(WorldGeneratorType.WELL.getValue(), Rejection.CHUNKS);
+			}
 			// save world data
 			GenDataPersistence savedData = GenDataPersistence.get(world);
 			if (savedData != null) {
 				savedData.markDirty();
 			}
 		}
+		else {
+			GenerationMetrics.reject(WorldGeneratorType.WELL.getValue(), Rejection.CHUNKS);
+		}
 	}
 
 	/**
@@ -206,40 +265,36 @@ public class WellWorldGenerator implements ITreasureWorldGenerator {
 	 * @return
 	 */
 	public boolean isRegisteredChestWithinDistance(World world, ICoords coords, int minDistance) {
+		return ChestRegistry.getInstance().withinDistance(world.provider.getDimension(), coords, minDistance);
+	}
 
-		double minDistanceSq = minDistance * minDistance;
-
-		// get a list of dungeons
-		List<ChestInfo> infos = ChestRegistry.getInstance().getValues();
-
-		if (infos == null || infos.size() == 0) {
-			Treasure.logger.debug("Unable to locate the ChestConfig Registry or the Registry doesn't contain any values");
-			return false;
+	@Override
+	public PlannedSite planSite(long worldSeed, int chunkX, int chunkZ, Biome biome, Random random) {
+		int spacing = GridPlacement.getSpacing(TreasureConfig.WELL.chunksPerWell);
+		if (!landBiomes.isAllowed(biome) || !GridPlacement.isSelected(worldSeed, chunkX, chunkZ, GRID_SALT, spacing, 0)
+				|| !wellBiomes.isAllowed(biome) || !RandomHelper.checkProbability(random, TreasureConfig.WELL.getGenProbability())) {
+			return null;
 		}
+		return new PlannedSite(WorldGeneratorType.WELL, chunkX, chunkZ, null);
+	}
 
-		for (ChestInfo info : infos) {
-			// calculate the distance to the poi
-			double distance = coords.getDistanceSq(info.getCoords());
-			//		    Dungeons2.log.debug("Dungeon dist^2: " + distance);
-			if (distance < minDistanceSq) {
-				return true;
-			}
-		}
-		return false;
+	@Override
+	public int getMinDistance() {
+		return 0;
 	}
 
 	/**
-	 * @return the chunksSinceLastWell
+	 * @return the chunksSinceLastDimensionWell
 	 */
-	public int getChunksSinceLastWell() {
-		return chunksSinceLastWell;
+	public Map<Integer, Integer> getChunksSinceLastDimensionWell() {
+		return chunksSinceLastDimensionWell;
 	}
 
 	/**
-	 * @param chunksSinceLastWell the chunksSinceLastWell to set
+	 * @param chunksSinceLastDimensionWell the chunksSinceLastDimensionWell to set
 	 */
-	public void setChunksSinceLastWell(int chunksSinceLastWell) {
-		this.chunksSinceLastWell = chunksSinceLastWell;
+	public void setChunksSinceLastDimensionWell(Map<Integer, Integer> chunksSinceLastDimensionWell) {
+		this.chunksSinceLastDimensionWell = chunksSinceLastDimensionWell;
 	}
 
 //	/**
@@ -5,9 +5,10 @@ package com.someguyssoftware.treasure2.worldgen;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.someguyssoftware.gottschcore.biome.BiomeHelper;
 import com.someguyssoftware.gottschcore.cube.Cube;
 import com.someguyssoftware.gottschcore.enums.Direction;
 import com.someguyssoftware.gottschcore.positional.Coords;
@@ -15,8 +16,8 @@ import com.someguyssoftware.gottschcore.positional.ICoords;
 import com.someguyssoftware.gottschcore.random.RandomHelper;
 import com.someguyssoftware.gottschcore.world.WorldInfo;
 import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.biome.BiomeEligibility;
 import com.someguyssoftware.treasure2.biome.TreasureBiomeHelper;
-import com.someguyssoftware.treasure2.biome.TreasureBiomeHelper.Result;
 import com.someguyssoftware.treasure2.block.FogBlock;
 import com.someguyssoftware.treasure2.block.ITreasureBlock;
 import com.someguyssoftware.treasure2.block.SpanishMossBlock;
@@ -24,23 +25,30 @@ import com.someguyssoftware.treasure2.block.TreasureBlocks;
 import com.someguyssoftware.treasure2.block.WitherBranchBlock;
 import com.someguyssoftware.treasure2.block.WitherLogSoulBlock;
 import com.someguyssoftware.treasure2.block.WitherRootBlock;
-import com.someguyssoftware.treasure2.chest.ChestInfo;
 import com.someguyssoftware.treasure2.config.IWitherTreeConfig;
 import com.someguyssoftware.treasure2.config.TreasureConfig;
 import com.someguyssoftware.treasure2.enums.Rarity;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
 import com.someguyssoftware.treasure2.generator.ChestGeneratorData;
 import com.someguyssoftware.treasure2.generator.GenUtil;
 import com.someguyssoftware.treasure2.generator.GeneratorData;
 import com.someguyssoftware.treasure2.generator.GeneratorResult;
+import com.someguyssoftware.treasure2.generator.SurfaceCache;
 import com.someguyssoftware.treasure2.generator.chest.WitherChestGenerator;
+import com.someguyssoftware.treasure2.generator.placement.DeferredFeature;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
 import com.someguyssoftware.treasure2.persistence.GenDataPersistence;
+import com.someguyssoftware.treasure2.random.RandomSource;
 import com.someguyssoftware.treasure2.registry.ChestRegistry;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Rejection;
+import com.someguyssoftware.treasure2.worldgen.GenerationMetrics.Stage;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockDirt;
 import net.minecraft.block.state.IBlockState;
-import net.minecraft.init.Biomes;
 import net.minecraft.init.Blocks;
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
@@ -49,7 +57,6 @@ import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.chunk.IChunkProvider;
 import net.minecraft.world.gen.IChunkGenerator;
-import net.minecraftforge.common.BiomeDictionary;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
@@ -58,9 +65,11 @@ import net.minecraftforge.fml.relauncher.SideOnly;
  * @author Mark Gottschling on Mar 25, 2018
  *
  */
-public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
+public class WitherTreeWorldGenerator implements IPlannableWorldGenerator, IScheduledWorldGenerator {
 	public static final int VERTICAL_MAX_DIFF = 3;
 	private static final int CLEARING_RADIUS = 7;
+	// the reach of a supporting tree's clearing, roots and branches
+	public static final int SUPPORTING_TREE_RADIUS = CLEARING_RADIUS + 2;
 	private static final int DIRT_REPLACEMENT_PROBABILITY = 90;// 75;
 	private static final int DEGREES = 360;
 	private static final double MIN_RADIUS = 5.0;
@@ -126,7 +135,19 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 		topMatrix.add(null);
 	}
 
-	private int chunksSinceLastTree;
+	// the salt of the placement grid
+	private static final int GRID_SALT = 10387311;
+	// the build data
+	private static final String X_TAG_NAME = "x";
+	private static final String Y_TAG_NAME = "y";
+	private static final String Z_TAG_NAME = "z";
+
+	// Map<DimensionID, count>
+	private Map<Integer, Integer> chunksSinceLastDimensionTree;
+	
+	// the biomes allowed by the wither tree config, compiled at init
+	private BiomeEligibility landBiomes;
+	private BiomeEligibility treeBiomes;
 
 	/**
 	 * 
@@ -143,8 +164,16 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 	 * 
 	 */
 	public void init() {
-		// intialize chunks since last array
-		chunksSinceLastTree = 0;
+		// intialize chunks since last map by dimension
+		chunksSinceLastDimensionTree = new ConcurrentHashMap<>();
+		for (Integer dimensionID : TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList()) {
+			chunksSinceLastDimensionTree.put(dimensionID, 0);
+		}
+		
+		// compile the allowed biomes
+		landBiomes = BiomeEligibility.compile(biome -> !TreasureBiomeHelper.isOcean(biome));
+		treeBiomes = BiomeEligibility.compile(TreasureConfig.WITHER_TREE.getBiomeWhiteList(), TreasureConfig.WITHER_TREE.getBiomeBlackList(),
+				TreasureConfig.WITHER_TREE.getBiomeTypeWhiteList(), TreasureConfig.WITHER_TREE.getBiomeTypeBlackList());
 	}
 
 	/**
@@ -155,7 +184,23 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 			IChunkProvider chunkProvider) {
 		if (TreasureConfig.WORLD_GEN.getGeneralProperties().getDimensionsWhiteList()
 				.contains(Integer.valueOf(world.provider.getDimension()))) {
-			generate(world, random, chunkX, chunkZ);
+			// write the blocks of the generators in bulk, relighting and notifying once per chunk
+			BlockWriteBuffer.begin(world);
+			// share the surface scans of this chunk's population pass
+			SurfaceCache.begin(world, chunkX, chunkZ);
+			// flush the placements parked for this chunk
+			DeferredPlacementQueue.getInstance().begin(world, chunkX, chunkZ);
+			long start = System.nanoTime();
+			try {
+				generate(world, random, chunkX, chunkZ);
+			} finally {
+				GenerationMetrics.blocks(WorldGeneratorType.WITHER_TREE.getValue(),
+						BlockWriteBuffer.getDirectWrites(world), BlockWriteBuffer.getFallbackWrites(world));
+				GenerationMetrics.time(WorldGeneratorType.WITHER_TREE.getValue(), Stage.POPULATE, start);
+				DeferredPlacementQueue.getInstance().end(world);
+				SurfaceCache.end(world);
+				BlockWriteBuffer.end(world);
+			}
 		}
 	}
 
@@ -174,19 +219,44 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 		int xSpawn = chunkX * 16 + WorldInfo.CHUNK_RADIUS;
 		int zSpawn = chunkZ * 16 + WorldInfo.CHUNK_RADIUS;
 
+		// a planned region replaces the site checks
+		boolean isPlanned = false;
+		SitePlan sitePlan = SitePlan.get(world);
+		if (sitePlan != null && sitePlan.covers(chunkX, chunkZ)) {
+			if (sitePlan.getSite(WorldGeneratorType.WITHER_TREE, chunkX, chunkZ) == null) {
+				GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.CHUNKS);
+				return;
+			}
+			isPlanned = true;
+		}
+
 		// 0. hard check against ocean biomes
 		ICoords coords = new Coords(xSpawn, 0, zSpawn);
 		Biome biome = world.getBiome(coords.toPos());
-		if (biome == Biomes.OCEAN || biome == Biomes.DEEP_OCEAN || biome == Biomes.FROZEN_OCEAN
-				|| BiomeDictionary.hasType(biome, BiomeDictionary.Type.OCEAN)) {
+		if (!isPlanned && !landBiomes.isAllowed(biome)) {
+			GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.BIOME);
 			return;
 		}
 
-		// increment the chunk counts
-		chunksSinceLastTree++;
+		// select the chunk from the placement grid, or increment the chunk counts
+		Integer dimensionID = Integer.valueOf(world.provider.getDimension());
+		boolean isGridPlacement = isPlanned || GridPlacement.isEnabled();
+		int chunksSinceLastTree = 0;
+		boolean isMinChunksMet;
+		if (isPlanned) {
+			isMinChunksMet = true;
+		}
+		else if (isGridPlacement) {
+			isMinChunksMet = GridPlacement.isSelected(world, chunkX, chunkZ, GRID_SALT, TreasureConfig.WITHER_TREE.chunksPerTree,
+					TreasureConfig.CHESTS.surfaceChests.minDistancePerChest);
+		}
+		else {
+			chunksSinceLastTree = chunksSinceLastDimensionTree.merge(dimensionID, 1, Integer::sum);
+			isMinChunksMet = chunksSinceLastTree > TreasureConfig.WITHER_TREE.chunksPerTree;
+		}
 
 		// test if min chunks was met
-		if (chunksSinceLastTree > TreasureConfig.WITHER_TREE.chunksPerTree) {
+		if (isMinChunksMet) {
 
 			// get first surface y (could be leaves, trunk, water, etc)
 			int ySpawn = world.getChunkFromChunkCoords(chunkX, chunkZ).getHeightValue(8, 8);
@@ -199,58 +269,57 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 				return;
 			}
 
-			if (chunksSinceLastTree >= treeConfig.getChunksPerTree()) {
+			if (isGridPlacement || chunksSinceLastTree >= treeConfig.getChunksPerTree()) {
 				// 1. test if correct biome
 				// if not the correct biome, reset the count
-				TreasureBiomeHelper.Result biomeCheck = TreasureBiomeHelper.isBiomeAllowed(biome,
-						treeConfig.getBiomeWhiteList(), treeConfig.getBiomeBlackList());
-				if (biomeCheck == Result.BLACK_LISTED) {
-					chunksSinceLastTree = 0;
-					return;
-				} else if (biomeCheck == Result.OK) {
-					if (!BiomeHelper.isBiomeAllowed(biome, treeConfig.getBiomeTypeWhiteList(),
-							treeConfig.getBiomeTypeBlackList())) {
-						if (Treasure.logger.isDebugEnabled()) {
-							if (WorldInfo.isClientSide(world)) {
-								Treasure.logger.debug("{} is not a valid biome @ {} for Wither Tree",
-										biome.getBiomeName(), coords.toShortString());
-							} else {
-								Treasure.logger.debug("Biome is not valid @ {} for Wither Tree",
-										coords.toShortString());
-							}
-						}
-						chunksSinceLastTree = 0;
-						return;
+				if (!isPlanned && !treeBiomes.isAllowed(biome)) {
+					if (Treasure.logger.isDebugEnabled()) {
+						Treasure.logger.debug("Biome is not valid @ {} for Wither Tree", coords.toShortString());
+					}
+					if (!isGridPlacement) {
+						chunksSinceLastDimensionTree.put(dimensionID, 0);
 					}
+					GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.BIOME);
+					return;
 				}
 
 				// 2. test if well meets the probability criteria
 //				Treasure.logger.debug("wither tree probability: {}", treeConfig.getGenProbability());
-				if (!RandomHelper.checkProbability(random, treeConfig.getGenProbability())) {
+				if (!isPlanned && !RandomHelper.checkProbability(random, treeConfig.getGenProbability())) {
 					Treasure.logger.debug("Wither does not meet generate probability.");
+					GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.PROBABILITY);
 					return;
 				}
 
-				// 3. check against all registered chests
-				if (isRegisteredChestWithinDistance(world, coords,
-						TreasureConfig.CHESTS.surfaceChests.minDistancePerChest)) {
-					Treasure.logger
-							.debug("The distance to the nearest treasure chest is less than the minimun required.");
-					return;
+				// 3. check against all registered chests, and reserve the site in the registry until the tree is built.
+				// a grid site is only registered (see SurfaceChestWorldGenerator)
+				if (isGridPlacement) {
+					ChestRegistry.getInstance().register(dimensionID, coords, Rarity.SCARCE);
 				}
+				else {
+					if (!ChestRegistry.getInstance().registerIfClear(dimensionID, coords, Rarity.SCARCE,
+							TreasureConfig.CHESTS.surfaceChests.minDistancePerChest)) {
+						Treasure.logger
+								.debug("The distance to the nearest treasure chest is less than the minimun required.");
+						GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.DISTANCE);
+						return;
+					}
 
-				// increment chunks since last tree regardless of successful generation - makes
-				// more rare and realistic and configurable generation.
-				chunksSinceLastTree = 0;
+					// increment chunks since last tree regardless of successful generation - makes
+					// more rare and realistic and configurable generation.
+					chunksSinceLastDimensionTree.put(dimensionID, 0);
+				}
 
 				// generate the well
-				Treasure.logger.debug("Attempting to generate a wither tree");
-				GeneratorResult<GeneratorData> result = generate(world, random, coords, treeConfig);
-
-				if (result.isSuccess()) {
-					// add to registry
-					ChestRegistry.getInstance().register(coords.toShortString(), new ChestInfo(Rarity.SCARCE, coords));
-				}
+				NBTTagCompound data = new NBTTagCompound();
+				data.setInteger(X_TAG_NAME, coords.getX());
+				data.setInteger(Y_TAG_NAME, coords.getY());
+				data.setInteger(Z_TAG_NAME, coords.getZ());
+				GenerationScheduler.getInstance().schedule(world, WorldGeneratorType.WITHER_TREE, chunkX, chunkZ,
+						RandomSource.structureSeed(world.getSeed(), coords, WorldGeneratorType.WITHER_TREE.ordinal()), data);
+			}
+			else {
+				GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.CHUNKS);
 			}
 			// save world data
 			GenDataPersistence savedData = GenDataPersistence.get(world);
@@ -258,6 +327,25 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 				savedData.markDirty();
 			}
 		}
+		else {
+			GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.CHUNKS);
+		}
+	}
+
+	/**
+	 * Builds the wither tree reserved by the population, or releases the site.
+	 */
+	@Override
+	public void build(World world, Random random, NBTTagCompound data) {
+		ICoords coords = new Coords(data.getInteger(X_TAG_NAME), data.getInteger(Y_TAG_NAME), data.getInteger(Z_TAG_NAME));
+		Treasure.logger.debug("Attempting to generate a wither tree");
+		GeneratorResult<GeneratorData> result = generate(world, random, coords, TreasureConfig.WITHER_TREE);
+		if (result.isSuccess()) {
+			GenerationMetrics.success(WorldGeneratorType.WITHER_TREE.getValue());
+		}
+		else {
+			ChestRegistry.getInstance().unregister(world.provider.getDimension(), coords);
+		}
 	}
 
 	/**
@@ -277,10 +365,11 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 		ICoords witherTreeCoords = null;
 
 		// 1. determine y-coord of land for markers
-		surfaceCoords = WorldInfo.getDryLandSurfaceCoords(world, coords);
+		surfaceCoords = SurfaceCache.getDryLandSurfaceCoords(world, coords);
 		Treasure.logger.debug("Surface Coords @ {}", surfaceCoords.toShortString());
 		if (surfaceCoords == null || surfaceCoords == WorldInfo.EMPTY_COORDS) {
 			Treasure.logger.debug("Returning due to surface coords == null or EMPTY_COORDS");
+			GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.SURFACE);
 			return result.fail();
 		}
 		witherTreeCoords = surfaceCoords;
@@ -297,6 +386,7 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 				Rarity.SCARCE, witherTreeCoords, TreasureConfig.CHESTS.surfaceChests.scarceChestProperties);
 		Treasure.logger.debug("result -> {}", genResult.toString());
 		if (!genResult.isSuccess()) {
+			GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.STRUCTURE);
 			return result.fail();
 		}
 
@@ -317,36 +407,29 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 //		}
 
 		// determine how many extra "withered" trees to include in the area
-		int numTrees = RandomHelper.randomInt(config.getMinSupportingTrees(), config.getMaxSupportingTrees());
+		int numTrees = RandomHelper.randomInt(random, config.getMinSupportingTrees(), config.getMaxSupportingTrees());
 
 		for (int treeIndex = 0; treeIndex < numTrees; treeIndex++) {
 			// find a random location around a radius from the tree
 			// ie. rand x-radius, rand z-radius = new point (+x,+z), rand degrees of
 			// rotation from origin
-			double xlen = RandomHelper.randomDouble(MIN_RADIUS, MAX_RADIUS);
-			double zlen = RandomHelper.randomDouble(MIN_RADIUS, MAX_RADIUS);
-			int degrees = RandomHelper.randomInt(0, DEGREES);
+			double xlen = MIN_RADIUS + random.nextDouble() * (MAX_RADIUS - MIN_RADIUS);
+			double zlen = MIN_RADIUS + random.nextDouble() * (MAX_RADIUS - MIN_RADIUS);
+			int degrees = RandomHelper.randomInt(random, 0, DEGREES);
 
 			ICoords c = witherTreeCoords.rotate(xlen, zlen, degrees);
 
-			// get the yspawn
-			c = WorldInfo.getDryLandSurfaceCoords(world, c.withY(WorldInfo.getHeightValue(world, c)));
-
-			// add tree if criteria is met
-			if (c != null && c != WorldInfo.EMPTY_COORDS) {
-				if (c.getDistanceSq(witherTreeCoords) > 4) {
-					if (world.getBlockState(c.toPos()).getBlock() != TreasureBlocks.WITHER_LOG) {
-						buildClearing(world, random, c);
-						buildTree(world, random, c, config);
-//						if (TreasureConfig.WORLD_GEN.getGeneralProperties().enablePoisonFog) {
-//							GenUtil.addFog(world, random, c, poisonFogDensity);
-//						}
-						// add tree clearing to the grove size
-						AxisAlignedBB witherTreeClearingSize = new AxisAlignedBB(c.toPos()).expand(CLEARING_RADIUS, 0,
-								CLEARING_RADIUS);
-						witherGroveSize = witherGroveSize.union(witherTreeClearingSize);
-					}
-				}
+			c = c.withY(witherTreeCoords.getY());
+			if (c.getDistanceSq(witherTreeCoords) <= 4) {
+				continue;
+			}
+
+			// the tree is parked if its area is not populated yet
+			if (DeferredPlacementQueue.getInstance().generate(world, random, DeferredFeature.WITHER_SUPPORTING_TREE, c.toPos(), 0)) {
+				// add tree clearing to the grove size
+				AxisAlignedBB witherTreeClearingSize = new AxisAlignedBB(c.toPos()).expand(CLEARING_RADIUS, 0,
+						CLEARING_RADIUS);
+				witherGroveSize = witherGroveSize.union(witherTreeClearingSize);
 			}
 		}
 		Treasure.logger.debug("size of clearing -> {}", witherGroveSize.toString());
@@ -358,12 +441,14 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 		// add chest
 		ICoords chestCoords = genResult.getData().getChestContext().getCoords();
 		if (chestCoords == null) {
+			GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.STRUCTURE);
 			return result.fail();
 		}
 		WitherChestGenerator chestGen = new WitherChestGenerator();
-		GeneratorResult<ChestGeneratorData> chestResult = chestGen.generate(world, random, chestCoords, Rarity.SCARCE,
+		GeneratorResult<ChestGeneratorData> chestResult = SurfaceChestWorldGenerator.generateChest(world, random, chestGen, chestCoords, Rarity.SCARCE,
 				null);
 		if (!chestResult.isSuccess()) {
+			GenerationMetrics.reject(WorldGeneratorType.WITHER_TREE.getValue(), Rejection.CHEST);
 			return result.fail();
 		}
 
@@ -372,28 +457,63 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 		return result.success();
 	}
 
+	/**
+	 * Builds a supporting tree and its clearing at the surface of the coords, if the criteria are met.
+	 * @param world
+	 * @param random
+	 * @param coords the x/z of the tree and the y of the main tree
+	 * @param config
+	 */
+	public void buildSupportingTree(World world, Random random, ICoords coords, IWitherTreeConfig config) {
+		// get the yspawn
+		ICoords c = SurfaceCache.getDryLandSurfaceCoords(world, coords.withY(SurfaceCache.getHeightValue(world, coords)));
+
+		// add tree if criteria is met
+		if (c != null && c != WorldInfo.EMPTY_COORDS) {
+			if (world.getBlockState(c.toPos()).getBlock() != TreasureBlocks.WITHER_LOG) {
+				buildClearing(world, random, c);
+				buildTree(world, random, c, config);
+//				if (TreasureConfig.WORLD_GEN.getGeneralProperties().enablePoisonFog) {
+//					GenUtil.addFog(world, random, c, poisonFogDensity);
+//				}
+			}
+		}
+	}
+
 	private void buildScrub(World world, Random random, AxisAlignedBB witherGroveSize) {
 //		Treasure.logger.debug("adding scrub ...");
 		int width = Math.abs((int) (witherGroveSize.maxX - witherGroveSize.minX));
 		int depth = Math.abs((int) (witherGroveSize.maxZ - witherGroveSize.minZ));
 		ICoords centerCoords = new Coords((int)(witherGroveSize.minX + width * 0.5D), (int)witherGroveSize.minY, (int)(witherGroveSize.minZ + depth * 0.5D));
 
-		for (int scrubIndex = 0; scrubIndex < RandomHelper.randomInt(MIN_SCRUB, MAX_SCRUB); scrubIndex++) {
+		int scrubCount = RandomHelper.randomInt(random, MIN_SCRUB, MAX_SCRUB);
+		for (int scrubIndex = 0; scrubIndex < scrubCount; scrubIndex++) {
 			int xOffset = (int) (random.nextFloat() * width - (width/2));
 			int zOffset = (int) (random.nextFloat() * depth - (depth/2));
 			
-			ICoords surfaceCoords = WorldInfo.getDryLandSurfaceCoords(world, centerCoords.add(xOffset, 0, zOffset).withY(255));
-//			Treasure.logger.debug("adding scrub at -> {}", surfaceCoords.toShortString());
-			// check if current block is a dirt, podzol, coarse dirt or sand
-			Block supportBlock = world.getBlockState(surfaceCoords.down(1).toPos()).getBlock();
-			if (supportBlock == Blocks.DIRT || supportBlock == Blocks.SAND) {
-				// randomize between bush and stump
-				if (RandomHelper.checkProbability(random, 25)) {
-					world.setBlockState(surfaceCoords.toPos(), Blocks.LOG.getDefaultState());
-				}
-				else {
-					world.setBlockState(surfaceCoords.toPos(), Blocks.DEADBUSH.getDefaultState());
-				}
+			DeferredPlacementQueue.getInstance().generate(world, random, DeferredFeature.WITHER_SCRUB,
+					centerCoords.add(xOffset, 0, zOffset).withY(255).toPos(), 0);
+		}
+	}
+
+	/**
+	 * 
+	 * @param world
+	 * @param random
+	 * @param coords
+	 */
+	public void buildScrubColumn(World world, Random random, ICoords coords) {
+		ICoords surfaceCoords = SurfaceCache.getDryLandSurfaceCoords(world, coords);
+//		Treasure.logger.debug("adding scrub at -> {}", surfaceCoords.toShortString());
+		// check if current block is a dirt, podzol, coarse dirt or sand
+		Block supportBlock = world.getBlockState(surfaceCoords.down(1).toPos()).getBlock();
+		if (supportBlock == Blocks.DIRT || supportBlock == Blocks.SAND) {
+			// randomize between bush and stump
+			if (RandomHelper.checkProbability(random, 25)) {
+				BlockWriteBuffer.setBlockState(world, surfaceCoords.toPos(), Blocks.LOG.getDefaultState());
+			}
+			else {
+				BlockWriteBuffer.setBlockState(world, surfaceCoords.toPos(), Blocks.DEADBUSH.getDefaultState());
 			}
 		}
 	}
@@ -404,27 +524,39 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 		int depth = Math.abs((int) (witherGroveSize.maxZ - witherGroveSize.minZ));
 		ICoords centerCoords = new Coords((int)(witherGroveSize.minX + width * 0.5D), (int)witherGroveSize.minY, (int)(witherGroveSize.minZ + depth * 0.5D));
 		
-		for (int rockIndex = 0; rockIndex < RandomHelper.randomInt(MIN_ROCKS, MAX_ROCKS); rockIndex++) {
+		int rockCount = RandomHelper.randomInt(random, MIN_ROCKS, MAX_ROCKS);
+		for (int rockIndex = 0; rockIndex < rockCount; rockIndex++) {
 			// randomize a position within the aabb
 			int xOffset = (int) (random.nextFloat() * width - (width/2));
 			int zOffset = (int) (random.nextFloat() * depth - (depth/2));
 			
-			ICoords rocksCoords = WorldInfo.getDryLandSurfaceCoords(world, centerCoords.add(xOffset, 0, zOffset).withY(255));
-			rocksCoords = rocksCoords.down(1);
+			DeferredPlacementQueue.getInstance().generate(world, random, DeferredFeature.WITHER_ROCKS,
+					centerCoords.add(xOffset, 0, zOffset).withY(255).toPos(), 0);
+		}
+	}
+
+	/**
+	 * 
+	 * @param world
+	 * @param random
+	 * @param coords
+	 */
+	public void buildRock(World world, Random random, ICoords coords) {
+		ICoords rocksCoords = SurfaceCache.getDryLandSurfaceCoords(world, coords);
+		rocksCoords = rocksCoords.down(1);
 //Treasure.logger.debug("adding rocks at -> {}", rocksCoords.toShortString());
-			// check if current block is a tree or any treasure block
-			if (world.getBlockState(rocksCoords.toPos()).getBlock() instanceof ITreasureBlock) {
-				continue;
-			}
+		// check if current block is a tree or any treasure block
+		if (world.getBlockState(rocksCoords.toPos()).getBlock() instanceof ITreasureBlock) {
+			return;
+		}
 
-			// build rock
-			for (int y = 0; y < 2; y++) {
-				for (int z = 0; z < 2; z++) {
-					for (int x = 0; x < 2; x++) {
-						if (RandomHelper.checkProbability(random, 70)) {
-							ICoords spawnCoords = new Coords(rocksCoords).add(x, y, z);
-							world.setBlockState(spawnCoords.toPos(), Blocks.MOSSY_COBBLESTONE.getDefaultState());
-						}
+		// build rock
+		for (int y = 0; y < 2; y++) {
+			for (int z = 0; z < 2; z++) {
+				for (int x = 0; x < 2; x++) {
+					if (RandomHelper.checkProbability(random, 70)) {
+						ICoords spawnCoords = new Coords(rocksCoords).add(x, y, z);
+						BlockWriteBuffer.setBlockState(world, spawnCoords.toPos(), Blocks.MOSSY_COBBLESTONE.getDefaultState());
 					}
 				}
 			}
@@ -437,50 +569,61 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 	 * @param coords
 	 */
 	private void buildClearing(World world, Random random, ICoords coords) {
-		ICoords buildCoords = null;
+		DeferredPlacementQueue queue = DeferredPlacementQueue.getInstance();
 
 		// build clearing
 		for (int xOffset = -(CLEARING_RADIUS); xOffset <= CLEARING_RADIUS; xOffset++) {
 			for (int zOffset = -(CLEARING_RADIUS); zOffset <= CLEARING_RADIUS; zOffset++) {
 				if (Math.abs(xOffset) + Math.abs(zOffset) <= CLEARING_RADIUS) {
+					boolean isPodzol = Math.abs(xOffset) < 4 && Math.abs(zOffset) < 4 && !(Math.abs(xOffset) == 3 && Math.abs(zOffset) == 3);
+					// the column is parked if its chunk is not populated yet
+					queue.generate(world, random, DeferredFeature.WITHER_CLEARING, coords.add(xOffset, 0, zOffset).toPos(), isPodzol ? 1 : 0);
+				}
+			}
+		}
+	}
 
-					// find the first surface
-					int yHeight = WorldInfo.getHeightValue(world, coords.add(xOffset, 255, zOffset));
-					buildCoords = WorldInfo.getDryLandSurfaceCoords(world,
-							new Coords(coords.getX() + xOffset, yHeight, coords.getZ() + zOffset));
-
-					// additional check that it's not a tree and within 2 y-blocks of original
-					if (Math.abs(buildCoords.getY() - coords.getY()) < VERTICAL_MAX_DIFF) {
-						Cube cube = new Cube(world, buildCoords.down(1));
-						if (cube.isLiquid()) {
-							continue;
-						}
-						if (RandomHelper.checkProbability(random, DIRT_REPLACEMENT_PROBABILITY)) {
-							if (Math.abs(xOffset) < 4 && Math.abs(zOffset) < 4 && !(Math.abs(xOffset) == 3 && Math.abs(zOffset) == 3)) {
-								world.setBlockState(buildCoords.add(0, -1, 0).toPos(),
-										Blocks.DIRT.getDefaultState()
-										.withProperty(BlockDirt.VARIANT, BlockDirt.DirtType.PODZOL));
-							} else {
-								world.setBlockState(buildCoords.add(0, -1, 0).toPos(),
-										Blocks.DIRT.getDefaultState()
-										.withProperty(BlockDirt.VARIANT, BlockDirt.DirtType.DIRT));
-							}
-						}
-					}
-
-					Cube cube = new Cube(world, buildCoords);
-					ICoords climbCoords = new Coords(buildCoords);
-					// remove the tree
-					while (cube.equalsBlock(Blocks.LOG) || cube.equalsBlock(Blocks.LOG2)) {
-						// remove log
-						world.setBlockToAir(climbCoords.toPos());
-						// climb upwards
-						climbCoords = climbCoords.add(0, 1, 0);
-						cube = new Cube(world, climbCoords);
-					}
+	/**
+	 * 
+	 * @param world
+	 * @param random
+	 * @param coords the x/z of the column and the y of the clearing
+	 * @param isPodzol
+	 */
+	public void buildClearingColumn(World world, Random random, ICoords coords, boolean isPodzol) {
+		// find the first surface
+		int yHeight = SurfaceCache.getHeightValue(world, coords.add(0, 255, 0));
+		ICoords buildCoords = SurfaceCache.getDryLandSurfaceCoords(world, coords.withY(yHeight));
+
+		// additional check that it's not a tree and within 2 y-blocks of original
+		if (Math.abs(buildCoords.getY() - coords.getY()) < VERTICAL_MAX_DIFF) {
+			Cube cube = new Cube(world, buildCoords.down(1));
+			if (cube.isLiquid()) {
+				return;
+			}
+			if (RandomHelper.checkProbability(random, DIRT_REPLACEMENT_PROBABILITY)) {
+				if (isPodzol) {
+					BlockWriteBuffer.setBlockState(world, buildCoords.add(0, -1, 0).toPos(),
+							Blocks.DIRT.getDefaultState()
+							.withProperty(BlockDirt.VARIANT, BlockDirt.DirtType.PODZOL));
+				} else {
+					BlockWriteBuffer.setBlockState(world, buildCoords.add(0, -1, 0).toPos(),
+							Blocks.DIRT.getDefaultState()
+							.withProperty(BlockDirt.VARIANT, BlockDirt.DirtType.DIRT));
 				}
 			}
 		}
+
+		Cube cube = new Cube(world, buildCoords);
+		ICoords climbCoords = new Coords(buildCoords);
+		// remove the tree
+		while (cube.equalsBlock(Blocks.LOG) || cube.equalsBlock(Blocks.LOG2)) {
+			// remove log
+			world.setBlockToAir(climbCoords.toPos());
+			// climb upwards
+			climbCoords = climbCoords.add(0, 1, 0);
+			cube = new Cube(world, climbCoords);
+		}
 	}
 
 	/**
@@ -499,14 +642,14 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 		for (int y = 0; y < maxSize; y++) {
 			if (y == 0) {
 				if (!hasLifeBeenAdded) {
-					world.setBlockState(coords.add(0, y, 0).toPos(), TreasureBlocks.WITHER_LOG_SOUL.getDefaultState());
+					DeferredPlacementQueue.getInstance().setBlockState(world, coords.add(0, y, 0).toPos(), TreasureBlocks.WITHER_LOG_SOUL.getDefaultState());
 					hasLifeBeenAdded = true;
 					continue;
 				}
 			}
 
 			// add the trunk
-			world.setBlockState(coords.add(0, y, 0).toPos(), TreasureBlocks.WITHER_LOG.getDefaultState());
+			DeferredPlacementQueue.getInstance().setBlockState(world, coords.add(0, y, 0).toPos(), TreasureBlocks.WITHER_LOG.getDefaultState());
 
 			// add the branches/roots
 			if (y == 0) {
@@ -543,7 +686,7 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 				if (trunkIndex == 2 && y == 2) { // TODO <-- select the right index and the face facing in the right
 													// direction
 					if (!hasLifeBeenAdded) {
-						world.setBlockState(trunkCoords[trunkIndex].add(0, y, 0).toPos(),
+						DeferredPlacementQueue.getInstance().setBlockState(world, trunkCoords[trunkIndex].add(0, y, 0).toPos(),
 								TreasureBlocks.WITHER_LOG_SOUL.getDefaultState()
 										.withProperty(WitherLogSoulBlock.APPEARANCE, WitherLogSoulBlock.Appearance.FACE)
 										.withProperty(WitherLogSoulBlock.FACING, EnumFacing.SOUTH));
@@ -553,7 +696,7 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 				}
 
 				// add the trunk
-				world.setBlockState(trunkCoords[trunkIndex].add(0, y, 0).toPos(),
+				DeferredPlacementQueue.getInstance().setBlockState(world, trunkCoords[trunkIndex].add(0, y, 0).toPos(),
 						TreasureBlocks.WITHER_LOG.getDefaultState());
 
 				// add the decorations (branches, roots, top)
@@ -587,7 +730,7 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 			IBlockState state = TreasureBlocks.WITHER_BROKEN_LOG.getDefaultState().withProperty(WitherRootBlock.FACING,
 					direction.toFacing());
 			// add the top log to the world
-			world.setBlockState(coords.add(0, y, 0).toPos(), state);
+			DeferredPlacementQueue.getInstance().setBlockState(world, coords.add(0, y, 0).toPos(), state);
 		}
 	}
 
@@ -614,7 +757,7 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 							.withProperty(WitherRootBlock.ACTIVATED, true);
 
 					// add the branch to the world
-					world.setBlockState(c.toPos(), state);
+					DeferredPlacementQueue.getInstance().setBlockState(world, c.toPos(), state);
 //					 Treasure.logger.debug("Wither Tree building root @ " +  coords.toShortString());					
 				}
 			}
@@ -657,13 +800,13 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 								.withProperty(WitherBranchBlock.FACING, d.toFacing());
 
 						// add the branch to the world
-						world.setBlockState(c.add(0, y, 0).toPos(), state);
+						DeferredPlacementQueue.getInstance().setBlockState(world, c.add(0, y, 0).toPos(), state);
 
 						// add spanish moss
 						if (RandomHelper.checkProbability(random, SPANISH_MOSS_PROBABILITY)) {
 							replaceCube = new Cube(world, c.add(0, y - 1, 0));
 							if (replaceCube.isAir() || replaceCube.isReplaceable()) {
-								world.setBlockState(c.add(0, y - 1, 0).toPos(), TreasureBlocks.SPANISH_MOSS
+								DeferredPlacementQueue.getInstance().setBlockState(world, c.add(0, y - 1, 0).toPos(), TreasureBlocks.SPANISH_MOSS
 										.getDefaultState().withProperty(SpanishMossBlock.ACTIVATED, true));
 							}
 						}
@@ -705,40 +848,38 @@ public class WitherTreeWorldGenerator implements ITreasureWorldGenerator {
 	 * @return
 	 */
 	public boolean isRegisteredChestWithinDistance(World world, ICoords coords, int minDistance) {
+		return ChestRegistry.getInstance().withinDistance(world.provider.getDimension(), coords, minDistance);
+	}
 
-		double minDistanceSq = minDistance * minDistance;
-
-		// get a list of dungeons
-		List<ChestInfo> infos = ChestRegistry.getInstance().getValues();
-
-		if (infos == null || infos.size() == 0) {
-			Treasure.logger
-					.debug("Unable to locate the ChestConfig Registry or the Registry doesn't contain any values");
-			return false;
+	@Override
+	public PlannedSite planSite(long worldSeed, int chunkX, int chunkZ, Biome biome, Random random) {
+		int spacing = GridPlacement.getSpacing(TreasureConfig.WITHER_TREE.chunksPerTree);
+		if (!landBiomes.isAllowed(biome)
+				|| !GridPlacement.isSelected(worldSeed, chunkX, chunkZ, GRID_SALT, spacing, GridPlacement.getSeparation(spacing, getMinDistance()))
+				|| !treeBiomes.isAllowed(biome) || !RandomHelper.checkProbability(random, TreasureConfig.WITHER_TREE.getGenProbability())) {
+			return null;
 		}
+		// registered as a scarce chest
+		return new PlannedSite(WorldGeneratorType.WITHER_TREE, chunkX, chunkZ, Rarity.SCARCE);
+	}
 
-		for (ChestInfo info : infos) {
-			// calculate the distance to the poi
-			double distance = coords.getDistanceSq(info.getCoords());
-			if (distance < minDistanceSq) {
-				return true;
-			}
-		}
-		return false;
+	@Override
+	public int getMinDistance() {
+		return TreasureConfig.CHESTS.surfaceChests.minDistancePerChest;
 	}
 
 	/**
-	 * @return the chunksSinceLastTree
+	 * @return the chunksSinceLastDimensionTree
 	 */
-	public int getChunksSinceLastTree() {
-		return chunksSinceLastTree;
+	public Map<Integer, Integer> getChunksSinceLastDimensionTree() {
+		return chunksSinceLastDimensionTree;
 	}
 
 	/**
 	 * 
-	 * @param chunksSinceLastTree
+	 * @param chunksSinceLastDimensionTree
 	 */
-	public void setChunksSinceLastTree(int chunksSinceLastTree) {
-		this.chunksSinceLastTree = chunksSinceLastTree;
+	public void setChunksSinceLastDimensionTree(Map<Integer, Integer> chunksSinceLastDimensionTree) {
+		this.chunksSinceLastDimensionTree = chunksSinceLastDimensionTree;
 	}
 }
@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.treasure2.generator.pit.SimplePitGenerator;
+import com.someguyssoftware.treasure2.generator.placement.BlockWriteBuffer;
+import com.someguyssoftware.treasure2.testsupport.MemoryWorld;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+import com.someguyssoftware.treasure2.world.gen.structure.TreasureTemplate;
+
+import net.minecraft.block.Block;
+import net.minecraft.init.Biomes;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTUtil;
+import net.minecraft.util.Rotation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.structure.template.PlacementSettings;
+
+/**
+ * Runs a pit generator and a template paste on a MemoryWorld and checks the blocks they leave.
+ */
+public class MemoryWorldGeneratorTest {
+	private static final int SURFACE_Y = 64;
+
+	private MemoryWorld world;
+
+	@BeforeClass
+	public static void bootstrap() {
+		TreasureBootstrap.bootstrap();
+	}
+
+	@Before
+	public void setup() {
+		world = MemoryWorld.flat(42L, Biomes.PLAINS, SURFACE_Y);
+		world.loadChunks(-1, -1, 1, 1);
+	}
+
+	@Test
+	public void simplePit() {
+		Coords surfaceCoords = new Coords(8, SURFACE_Y, 8);
+		Coords spawnCoords = new Coords(8, 40, 8);
+
+		GeneratorResult<ChestGeneratorData> result;
+		BlockWriteBuffer.begin(world);
+		try {
+			result = new SimplePitGenerator().generate(world, new Random(1L), surfaceCoords, spawnCoords);
+		}
+		finally {
+			BlockWriteBuffer.end(world);
+		}
+		assertTrue(result.isSuccess());
+
+		// the chest level and the two layers above it are cleared, then a log and a sand layer
+		assertLayer(Blocks.AIR, 8, 40, 8);
+		assertLayer(Blocks.AIR, 8, 41, 8);
+		assertLayer(Blocks.AIR, 8, 42, 8);
+		assertLayer(Blocks.LOG, 8, 43, 8);
+		assertLayer(Blocks.SAND, 8, 44, 8);
+		// the entrance below the surface
+		assertLayer(Blocks.LOG, 8, SURFACE_Y - 5, 8);
+		assertLayer(Blocks.SAND, 8, SURFACE_Y - 4, 8);
+		assertLayer(Blocks.LOG, 8, SURFACE_Y - 3, 8);
+		// the surface isn't touched
+		assertLayer(Blocks.GRASS, 8, SURFACE_Y, 8);
+	}
+
+	@Test
+	public void templatePaste() {
+		// a 3 x 2 x 3 template: a stone floor and a plank in the middle above it
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setTag("size", ints(3, 2, 3));
+		nbt.setString("author", "test");
+		NBTTagList palette = new NBTTagList();
+		palette.appendTag(NBTUtil.writeBlockState(new NBTTagCompound(), Blocks.STONE.getDefaultState()));
+		palette.appendTag(NBTUtil.writeBlockState(new NBTTagCompound(), Blocks.PLANKS.getDefaultState()));
+		nbt.setTag("palette", palette);
+		NBTTagList blocks = new NBTTagList();
+		for (int x = 0; x < 3; x++) {
+			for (int z = 0; z < 3; z++) {
+				blocks.appendTag(block(x, 0, z, 0));
+			}
+		}
+		blocks.appendTag(block(1, 1, 1, 1));
+		nbt.setTag("blocks", blocks);
+
+		TreasureTemplate template = TreasureTemplate.of(nbt, ArrayListMultimap.create());
+		assertNotNull(template);
+		assertEquals(10, template.getBlockCount());
+
+		BlockPos pos = new BlockPos(8, SURFACE_Y + 1, 8);
+		BlockWriteBuffer.begin(world);
+		try {
+			template.addBlocksToWorld(world, pos, new PlacementSettings().setRotation(Rotation.CLOCKWISE_90), null, null, 2);
+			// every block is written into the sections
+			assertEquals(10, BlockWriteBuffer.getDirectWrites(world));
+			assertEquals(0, BlockWriteBuffer.getFallbackWrites(world));
+		}
+		finally {
+			BlockWriteBuffer.end(world);
+		}
+
+		// rotated clockwise, the template's x runs along +z and its z along -x
+		for (int x = 0; x < 3; x++) {
+			for (int z = 0; z < 3; z++) {
+				assertBlock(Blocks.STONE, pos.getX() - z, pos.getY(), pos.getZ() + x);
+			}
+		}
+		assertBlock(Blocks.PLANKS, pos.getX() - 1, pos.getY() + 1, pos.getZ() + 1);
+		assertBlock(Blocks.AIR, pos.getX(), pos.getY() + 1, pos.getZ());
+		assertBlock(Blocks.AIR, pos.getX() + 1, pos.getY(), pos.getZ());
+		// the height map follows the writes
+		assertEquals(pos.getY() + 2, world.getHeight(pos.getX() - 1, pos.getZ() + 1));
+	}
+
+	private void assertLayer(Block block, int x, int y, int z) {
+		assertBlock(block, x, y, z);
+		assertBlock(block, x + 1, y, z);
+		assertBlock(block, x, y, z + 1);
+		assertBlock(block, x + 1, y, z + 1);
+	}
+
+	private void assertBlock(Block block, int x, int y, int z) {
+		assertEquals("block @ " + x + ", " + y + ", " + z, block, world.getBlockState(new BlockPos(x, y, z)).getBlock());
+	}
+
+	private static NBTTagCompound block(int x, int y, int z, int state) {
+		NBTTagCompound block = new NBTTagCompound();
+		block.setTag("pos", ints(x, y, z));
+		block.setInteger("state", state);
+		return block;
+	}
+
+	private static NBTTagList ints(int... values) {
+		NBTTagList list = new NBTTagList();
+		for (int value : values) {
+			list.appendTag(new NBTTagInt(value));
+		}
+		return list;
+	}
+}
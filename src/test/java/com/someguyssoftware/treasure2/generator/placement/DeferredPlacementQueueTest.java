@@ -0,0 +1,107 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.generator.placement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.someguyssoftware.treasure2.testsupport.MemoryWorld;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+
+import net.minecraft.init.Biomes;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Parks placements into a chunk of a MemoryWorld that isn't generated yet, saves and loads them, and flushes them
+ * when the chunk populates.
+ */
+public class DeferredPlacementQueueTest {
+	private static final int DIMENSION_ID = 0;
+
+	private MemoryWorld world;
+	private DeferredPlacementQueue queue;
+
+	@BeforeClass
+	public static void bootstrap() {
+		TreasureBootstrap.bootstrap();
+	}
+
+	@Before
+	public void setup() {
+		world = MemoryWorld.flat(42L, Biomes.PLAINS, 64);
+		world.loadChunks(0, 0, 1, 1);
+		queue = DeferredPlacementQueue.getInstance();
+		queue.clear();
+	}
+
+	@After
+	public void tearDown() {
+		queue.clear();
+	}
+
+	@Test
+	public void writableChunks() {
+		assertTrue(queue.setBlockState(world, new BlockPos(3, 70, 3), Blocks.PLANKS.getDefaultState()));
+		assertEquals(Blocks.PLANKS, world.getBlockState(new BlockPos(3, 70, 3)).getBlock());
+		assertFalse(queue.isWritable(world, 5, 5));
+		assertEquals(0, queue.size(DIMENSION_ID));
+	}
+
+	@Test
+	public void nbtRoundTrip() {
+		BlockPos pos = new BlockPos(5 * 16 + 3, 70, 5 * 16 + 4);
+		assertFalse(queue.setBlockState(world, pos, Blocks.PLANKS.getDefaultState()));
+		assertFalse(queue.setBlockState(world, pos.up(), Blocks.STONE.getDefaultState()));
+		assertFalse(queue.generate(world, new Random(1L), DeferredFeature.WITHER_SCRUB, new BlockPos(-20, 65, 40), 0));
+		NBTTagCompound build = new NBTTagCompound();
+		build.setString("type", "WITHER_TREE");
+		build.setLong("seed", 99L);
+		queue.parkBuild(world, new ChunkPos(-1, 7), build);
+		assertEquals(3, queue.size(DIMENSION_ID));
+
+		NBTTagList saved = queue.writeToNBT();
+		queue.clear();
+		assertEquals(0, queue.size(DIMENSION_ID));
+
+		queue.readFromNBT(saved);
+		assertEquals(3, queue.size(DIMENSION_ID));
+		assertEquals(saved, queue.writeToNBT());
+	}
+
+	@Test
+	public void flushedWhenThePopulationBegins() {
+		BlockPos pos = new BlockPos(5 * 16 + 3, 70, 5 * 16 + 4);
+		long cascadesAvoided = queue.getCascadesAvoided();
+		assertFalse(queue.setBlockState(world, pos, Blocks.PLANKS.getDefaultState()));
+		// the chunk was never generated
+		assertEquals(cascadesAvoided + 1, queue.getCascadesAvoided());
+
+		// saved and loaded, as after a restart
+		NBTTagList saved = queue.writeToNBT();
+		queue.clear();
+		queue.readFromNBT(saved);
+
+		world.loadChunks(5, 5, 6, 6);
+		queue.begin(world, 5, 5);
+		try {
+			assertEquals(Blocks.PLANKS, world.getBlockState(pos).getBlock());
+			assertEquals(0, queue.size(DIMENSION_ID));
+		}
+		finally {
+			queue.end(world);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.someguyssoftware.gottschcore.positional.Coords;
+
+/**
+ * Checks that the RandomSource streams are reproduced by their seeds and that nextInt() rejects the biased draws.
+ */
+public class RandomSourceTest {
+
+	@Test
+	public void reproducedBySeed() {
+		RandomSource first = new RandomSource(12345L);
+		RandomSource second = new RandomSource(12345L);
+		for (int draw = 0; draw < 1000; draw++) {
+			assertEquals(first.nextLong(), second.nextLong());
+			assertEquals(first.nextInt(17), second.nextInt(17));
+			assertEquals(first.nextDouble(), second.nextDouble(), 0);
+			assertEquals(first.nextBoolean(), second.nextBoolean());
+		}
+
+		// setSeed() restarts the stream
+		RandomSource random = new RandomSource(7L);
+		long expected = random.nextLong();
+		random.nextLong();
+		random.setSeed(7L);
+		assertEquals(expected, random.nextLong());
+	}
+
+	@Test
+	public void structureSeeds() {
+		long worldSeed = 42L;
+		Coords coords = new Coords(100, 64, -200);
+		assertEquals(RandomSource.structureSeed(worldSeed, coords, 1), RandomSource.structureSeed(worldSeed, new Coords(100, 64, -200), 1));
+		assertEquals(new RandomSource(RandomSource.structureSeed(worldSeed, coords, 1)).nextLong(),
+				RandomSource.forStructure(worldSeed, coords, 1).nextLong());
+
+		// the coords, the salt and the world seed select different streams
+		assertNotEquals(RandomSource.structureSeed(worldSeed, coords, 1), RandomSource.structureSeed(worldSeed, coords, 2));
+		assertNotEquals(RandomSource.structureSeed(worldSeed, coords, 1), RandomSource.structureSeed(worldSeed, new Coords(101, 64, -200), 1));
+		assertNotEquals(RandomSource.structureSeed(worldSeed, coords, 1), RandomSource.structureSeed(43L, coords, 1));
+		assertNotEquals(RandomSource.forChest(worldSeed, coords).nextLong(), RandomSource.forStructure(worldSeed, coords, 0).nextLong());
+	}
+
+	@Test
+	public void nextIntWithinBound() {
+		RandomSource random = new RandomSource(1L);
+		int[] bounds = {1, 2, 3, 7, 100, (1 << 30) + 1, 3 << 29, Integer.MAX_VALUE};
+		for (int bound : bounds) {
+			for (int draw = 0; draw < 10000; draw++) {
+				int value = random.nextInt(bound);
+				assertTrue(bound + " -> " + value, value >= 0 && value < bound);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nextIntRefusesZeroBound() {
+		new RandomSource(1L).nextInt(0);
+	}
+
+	@Test
+	public void nextIntRejectsBiasedDraws() {
+		// with a bound of 3, 2^32 mod 3 = 1 low product is biased: the one of the draw 0
+		ScriptedSource random = new ScriptedSource(0L, 0xFFFFFFFFL << 32);
+		assertEquals(2, random.nextInt(3));
+		assertEquals(2, random.draws);
+
+		// an unbiased draw is kept
+		random = new ScriptedSource(1L << 32, 0L);
+		assertEquals(0, random.nextInt(3));
+		assertEquals(1, random.draws);
+	}
+
+	@Test
+	public void nextIntIsUniform() {
+		// with a bound of 3 * 2^29 a quarter of the draws are rejected; without the rejection the values of the
+		// residues 0 and 1 (mod 3) are drawn 3/8 of the time each and those of the residue 2 only 1/4
+		int bound = 3 << 29;
+		int[] counts = new int[3];
+		RandomSource random = new RandomSource(5L);
+		int draws = 300000;
+		for (int draw = 0; draw < draws; draw++) {
+			counts[random.nextInt(bound) % 3]++;
+		}
+		for (int count : counts) {
+			assertEquals(1 / 3D, count / (double) draws, 0.01);
+		}
+	}
+
+	/*
+	 * Draws the given longs.
+	 */
+	private static class ScriptedSource extends RandomSource {
+		private static final long serialVersionUID = 1L;
+		private final long[] values;
+		int draws;
+
+		ScriptedSource(long... values) {
+			super(0L);
+			this.values = values;
+		}
+
+		@Override
+		public long nextLong() {
+			return values[draws++];
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the selections of the WeightedSampler's alias table against the weights.
+ */
+public class WeightedSamplerTest {
+	private static final int DRAWS = 200000;
+
+	@Test
+	public void empty() {
+		WeightedSampler<String> sampler = new WeightedSampler<>();
+		assertNull(sampler.next(new Random(1L)));
+
+		// the weights that aren't positive are ignored
+		sampler.add(0, "zero").add(-1, "negative");
+		assertEquals(0, sampler.size());
+		assertNull(sampler.next(new Random(1L)));
+	}
+
+	@Test
+	public void frequenciesFollowTheWeights() {
+		WeightedSampler<String> sampler = new WeightedSampler<>();
+		sampler.add(1, "a").add(2, "b").add(7, "c").add(0.5, "d");
+		double total = 10.5;
+
+		Map<String, Integer> counts = count(sampler, new Random(42L));
+		assertFrequency(counts, "a", 1 / total);
+		assertFrequency(counts, "b", 2 / total);
+		assertFrequency(counts, "c", 7 / total);
+		assertFrequency(counts, "d", 0.5 / total);
+	}
+
+	@Test
+	public void uniform() {
+		WeightedSampler<String> sampler = WeightedSampler.uniform(Arrays.asList("a", "b", "c"));
+		Map<String, Integer> counts = count(sampler, new Random(7L));
+		for (String item : sampler.getItems()) {
+			assertFrequency(counts, item, 1 / 3D);
+		}
+	}
+
+	@Test
+	public void addRebuildsTheTable() {
+		WeightedSampler<String> sampler = new WeightedSampler<>();
+		sampler.add(1, "a");
+		assertEquals("a", sampler.next(new Random(1L)));
+
+		sampler.add(3, "b");
+		Map<String, Integer> counts = count(sampler, new Random(3L));
+		assertFrequency(counts, "a", 0.25);
+		assertFrequency(counts, "b", 0.75);
+	}
+
+	@Test
+	public void reproducedBySeed() {
+		WeightedSampler<Integer> sampler = new WeightedSampler<>();
+		for (int item = 0; item < 10; item++) {
+			sampler.add(item + 1, item);
+		}
+		Random first = new RandomSource(99L);
+		Random second = new RandomSource(99L);
+		for (int draw = 0; draw < 1000; draw++) {
+			assertEquals(sampler.next(first), sampler.next(second));
+		}
+	}
+
+	private static <T> Map<T, Integer> count(WeightedSampler<T> sampler, Random random) {
+		Map<T, Integer> counts = new HashMap<>();
+		for (int draw = 0; draw < DRAWS; draw++) {
+			counts.merge(sampler.next(random), 1, Integer::sum);
+		}
+		return counts;
+	}
+
+	private static <T> void assertFrequency(Map<T, Integer> counts, T item, double expected) {
+		double frequency = counts.getOrDefault(item, 0) / (double) DRAWS;
+		assertEquals("frequency of " + item, expected, frequency, 0.01);
+	}
+}
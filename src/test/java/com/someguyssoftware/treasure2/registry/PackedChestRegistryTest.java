@@ -0,0 +1,124 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.someguyssoftware.gottschcore.positional.Coords;
+import com.someguyssoftware.gottschcore.positional.ICoords;
+import com.someguyssoftware.treasure2.chest.ChestInfo;
+import com.someguyssoftware.treasure2.enums.Rarity;
+
+/**
+ * Checks the lookups of the PackedChestRegistry after removals (the shifted probe sequences) and its eviction order.
+ */
+public class PackedChestRegistryTest {
+
+	@Test
+	public void registerAndUnregister() {
+		PackedChestRegistry registry = new PackedChestRegistry(8);
+		registry.register(new Coords(0, 64, 0), Rarity.COMMON);
+		registry.register(new Coords(100, 64, 0), Rarity.RARE);
+		registry.register(new Coords(-100, 70, 300), Rarity.EPIC);
+
+		assertEquals(3, registry.size());
+		assertEquals(Rarity.RARE, registry.getRarity(new Coords(100, 64, 0)));
+		assertTrue(registry.unregister(new Coords(100, 64, 0)));
+		assertFalse(registry.unregister(new Coords(100, 64, 0)));
+
+		assertEquals(2, registry.size());
+		assertFalse(registry.isRegistered(new Coords(100, 64, 0)));
+		assertNull(registry.getRarity(new Coords(100, 64, 0)));
+		assertFalse(registry.withinDistance(new Coords(101, 64, 0), 10));
+		assertTrue(registry.isRegistered(new Coords(0, 64, 0)));
+		assertTrue(registry.isRegistered(new Coords(-100, 70, 300)));
+		assertCoords(registry.getValues(), new Coords(0, 64, 0), new Coords(-100, 70, 300));
+
+		// registering again replaces the rarity, not the entry
+		registry.register(new Coords(0, 64, 0), Rarity.SCARCE);
+		assertEquals(2, registry.size());
+		assertEquals(Rarity.SCARCE, registry.getRarity(new Coords(0, 64, 0)));
+	}
+
+	@Test
+	public void removalKeepsTheOtherEntries() {
+		// enough entries to fill the probe sequences of the table
+		int count = 200;
+		PackedChestRegistry registry = new PackedChestRegistry(count);
+		for (int index = 0; index < count; index++) {
+			registry.register(coords(index), Rarity.COMMON);
+		}
+		for (int index = 0; index < count; index += 2) {
+			assertTrue(registry.unregister(coords(index)));
+		}
+
+		assertEquals(count / 2, registry.size());
+		for (int index = 0; index < count; index++) {
+			assertEquals("entry " + index, index % 2 == 1, registry.isRegistered(coords(index)));
+		}
+
+		// the freed slots are reused
+		for (int index = 0; index < count; index += 2) {
+			registry.register(coords(index), Rarity.RARE);
+		}
+		assertEquals(count, registry.size());
+		for (int index = 0; index < count; index++) {
+			assertEquals("entry " + index, index % 2 == 1 ? Rarity.COMMON : Rarity.RARE, registry.getRarity(coords(index)));
+		}
+	}
+
+	@Test
+	public void evictsTheOldest() {
+		PackedChestRegistry registry = new PackedChestRegistry(3);
+		registry.register(coords(0), Rarity.COMMON);
+		registry.register(coords(1), Rarity.COMMON);
+		registry.register(coords(2), Rarity.COMMON);
+		// a removal frees a slot without evicting
+		registry.unregister(coords(1));
+		registry.register(coords(3), Rarity.COMMON);
+		assertCoords(registry.getValues(), coords(0), coords(2), coords(3));
+
+		registry.register(coords(4), Rarity.COMMON);
+		registry.register(coords(5), Rarity.COMMON);
+
+		assertEquals(3, registry.size());
+		assertFalse(registry.isRegistered(coords(0)));
+		assertFalse(registry.isRegistered(coords(2)));
+		assertFalse(registry.withinDistance(coords(0), 1));
+		assertCoords(registry.getValues(), coords(3), coords(4), coords(5));
+	}
+
+	@Test
+	public void withinDistance() {
+		PackedChestRegistry registry = new PackedChestRegistry(8);
+		registry.register(new Coords(0, 64, 0), Rarity.COMMON);
+
+		// strictly within the distance
+		assertTrue(registry.withinDistance(new Coords(9, 64, 0), 10));
+		assertFalse(registry.withinDistance(new Coords(10, 64, 0), 10));
+		assertTrue(registry.withinDistance(new Coords(-5, 60, -5), 10));
+		// a distance spanning more chunks than the entries scans the entries
+		assertTrue(registry.withinDistance(new Coords(200, 64, 0), 300));
+		assertFalse(registry.withinDistance(new Coords(0, 64, 0), 0));
+	}
+
+	private static ICoords coords(int index) {
+		// spread over a few chunks, including the negative ones
+		return new Coords((index % 20) * 7 - 70, 60 + index % 5, (index / 20) * 11 - 50);
+	}
+
+	private static void assertCoords(List<ChestInfo> values, ICoords... expected) {
+		assertEquals(expected.length, values.size());
+		for (int index = 0; index < expected.length; index++) {
+			assertEquals(expected[index].toShortString(), values.get(index).getCoords().toShortString());
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks that the GridPlacement selects a single chunk per region and keeps the selected chunks apart.
+ */
+public class GridPlacementTest {
+	private static final long[] SEEDS = {0L, 42L, -7L, 0x5DEECE66DL};
+
+	@Test
+	public void spacingAndSeparation() {
+		assertEquals(1, GridPlacement.getSpacing(0));
+		assertEquals(1, GridPlacement.getSpacing(1));
+		assertEquals(4, GridPlacement.getSpacing(10));
+		assertEquals(10, GridPlacement.getSpacing(100));
+
+		assertEquals(0, GridPlacement.getSeparation(5, 0));
+		assertEquals(1, GridPlacement.getSeparation(5, 1));
+		assertEquals(2, GridPlacement.getSeparation(5, 32));
+		// limited by the spacing
+		assertEquals(4, GridPlacement.getSeparation(5, 1000));
+	}
+
+	@Test
+	public void singleChunkPerRegion() {
+		int spacing = 5;
+		for (long seed : SEEDS) {
+			for (int regionX = -6; regionX < 6; regionX++) {
+				for (int regionZ = -6; regionZ < 6; regionZ++) {
+					int selected = 0;
+					for (int x = 0; x < spacing; x++) {
+						for (int z = 0; z < spacing; z++) {
+							if (GridPlacement.isSelected(seed, regionX * spacing + x, regionZ * spacing + z, 3, spacing, 2)) {
+								selected++;
+							}
+						}
+					}
+					assertEquals("region " + regionX + ", " + regionZ, 1, selected);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void selectedChunksAreMinDistanceApart() {
+		int[] minDistances = {0, 16, 40, 100};
+		for (long seed : SEEDS) {
+			for (int minDistance : minDistances) {
+				int spacing = GridPlacement.getSpacing(64);
+				int separation = GridPlacement.getSeparation(spacing, minDistance);
+				List<int[]> chunks = select(seed, spacing, separation, 60);
+
+				for (int first = 0; first < chunks.size(); first++) {
+					for (int second = first + 1; second < chunks.size(); second++) {
+						int dx = chunks.get(first)[0] - chunks.get(second)[0];
+						int dz = chunks.get(first)[1] - chunks.get(second)[1];
+						// the sites are at the chunk centers
+						double distance = Math.sqrt(dx * dx + dz * dz) * 16;
+						assertTrue(String.format("seed %d, min. distance %d: %.1f", seed, minDistance, distance), distance >= minDistance);
+						assertTrue(Math.max(Math.abs(dx), Math.abs(dz)) > separation);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void saltSelectsAnotherGrid() {
+		int spacing = 6;
+		int differences = 0;
+		for (int chunkX = 0; chunkX < 60; chunkX++) {
+			for (int chunkZ = 0; chunkZ < 60; chunkZ++) {
+				if (GridPlacement.isSelected(42L, chunkX, chunkZ, 1, spacing, 0) != GridPlacement.isSelected(42L, chunkX, chunkZ, 2, spacing, 0)) {
+					differences++;
+				}
+			}
+		}
+		assertTrue(differences > 0);
+	}
+
+	private static List<int[]> select(long seed, int spacing, int separation, int radius) {
+		List<int[]> chunks = new ArrayList<>();
+		for (int chunkX = -radius; chunkX < radius; chunkX++) {
+			for (int chunkZ = -radius; chunkZ < radius; chunkZ++) {
+				if (GridPlacement.isSelected(seed, chunkX, chunkZ, 11, spacing, separation)) {
+					chunks.add(new int[] {chunkX, chunkZ});
+				}
+			}
+		}
+		return chunks;
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.worldgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.chest.ChestInfo;
+import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+import com.someguyssoftware.treasure2.generator.placement.DeferredPlacementQueue;
+import com.someguyssoftware.treasure2.registry.ChestRegistry;
+import com.someguyssoftware.treasure2.testsupport.MemoryWorld;
+import com.someguyssoftware.treasure2.testsupport.TreasureBootstrap;
+
+import net.minecraft.init.Biomes;
+
+/**
+ * Populates the chunks of a MemoryWorld with the surface chest generator in grid placement, in two orders, and checks
+ * that the same sites are reserved. The builds are left queued (the Treasure! blocks aren't registered).
+ */
+public class SurfaceChestWorldGeneratorTest {
+	private static final long SEED = 42L;
+	private static final int RADIUS = 20;
+
+	private boolean gridPlacement;
+	private int generationTickBudget;
+
+	@BeforeClass
+	public static void bootstrap() {
+		TreasureBootstrap.bootstrap();
+	}
+
+	@Before
+	public void setup() {
+		gridPlacement = TreasureConfig.WORLD_GEN.getGeneralProperties().enableGridPlacement;
+		generationTickBudget = TreasureConfig.WORLD_GEN.getGeneralProperties().generationTickBudget;
+		TreasureConfig.WORLD_GEN.getGeneralProperties().enableGridPlacement = true;
+		// queue the builds
+		TreasureConfig.WORLD_GEN.getGeneralProperties().generationTickBudget = 5;
+		reset();
+	}
+
+	@After
+	public void tearDown() {
+		TreasureConfig.WORLD_GEN.getGeneralProperties().enableGridPlacement = gridPlacement;
+		TreasureConfig.WORLD_GEN.getGeneralProperties().generationTickBudget = generationTickBudget;
+		reset();
+	}
+
+	@Test
+	public void gridSitesDontDependOnTheOrder() {
+		List<long[]> chunks = new ArrayList<>();
+		for (int chunkX = -RADIUS; chunkX < RADIUS; chunkX++) {
+			for (int chunkZ = -RADIUS; chunkZ < RADIUS; chunkZ++) {
+				chunks.add(new long[] {chunkX, chunkZ});
+			}
+		}
+		Set<String> sites = populate(chunks);
+		assertFalse(sites.isEmpty());
+
+		reset();
+		Collections.shuffle(chunks, new Random(7L));
+		assertEquals(sites, populate(chunks));
+	}
+
+	/**
+	 * Populates the chunks of a new world in the order.
+	 * @param chunks
+	 * @return the reserved sites
+	 */
+	private Set<String> populate(List<long[]> chunks) {
+		MemoryWorld world = MemoryWorld.flat(SEED, Biomes.PLAINS, 64);
+		ITreasureWorldGenerator generator = Treasure.WORLD_GENERATORS.get(WorldGeneratorType.SURFACE_CHEST);
+		Random random = new Random();
+		for (long[] chunk : chunks) {
+			int chunkX = (int) chunk[0];
+			int chunkZ = (int) chunk[1];
+			world.loadChunks(chunkX, chunkZ, chunkX + 1, chunkZ + 1);
+			// the random of the chunk's population (see GameRegistry.generateWorld())
+			random.setSeed((chunkX * 341873128712L + chunkZ * 132897987541L) ^ SEED);
+			generator.generate(random, chunkX, chunkZ, world, null, world.getChunkProvider());
+		}
+
+		Set<String> sites = new TreeSet<>();
+		for (ChestInfo info : ChestRegistry.getInstance().getValues(world.provider.getDimension())) {
+			sites.add(info.getCoords().toShortString() + " " + info.getRarity());
+		}
+		assertEquals(sites.size(), GenerationScheduler.getInstance().size(world.provider.getDimension()));
+		return sites;
+	}
+
+	private static void reset() {
+		Treasure.WORLD_GENERATORS.get(WorldGeneratorType.SURFACE_CHEST).init();
+		ChestRegistry.getInstance().clear();
+		DeferredPlacementQueue.getInstance().clear();
+		GenerationScheduler.getInstance().clear();
+		SitePlan.clear();
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.testsupport;
+
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.init.Biomes;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.BiomeProvider;
+
+/**
+ * A biome provider computing the biome of a block from a function, instead of the gen layers.
+ */
+public class MemoryBiomeProvider extends BiomeProvider {
+	private final IBiomeFunction biomeFunction;
+
+	/**
+	 *
+	 * @param biomeFunction
+	 */
+	public MemoryBiomeProvider(IBiomeFunction biomeFunction) {
+		this.biomeFunction = biomeFunction;
+	}
+
+	/**
+	 *
+	 * @param biome
+	 * @return a provider of a single biome
+	 */
+	public static MemoryBiomeProvider of(Biome biome) {
+		return new MemoryBiomeProvider((x, z) -> biome);
+	}
+
+	@Override
+	public Biome getBiome(BlockPos pos) {
+		return getBiome(pos, Biomes.PLAINS);
+	}
+
+	@Override
+	public Biome getBiome(BlockPos pos, Biome defaultBiome) {
+		Biome biome = biomeFunction.getBiome(pos.getX(), pos.getZ());
+		return biome == null ? defaultBiome : biome;
+	}
+
+	@Override
+	public Biome[] getBiomesForGeneration(Biome[] biomes, int x, int z, int width, int height) {
+		// the generation biomes are 1 per 4 x 4 blocks
+		return fill(biomes, x, z, width, height, 4);
+	}
+
+	@Override
+	public Biome[] getBiomes(@Nullable Biome[] biomes, int x, int z, int width, int depth) {
+		return fill(biomes, x, z, width, depth, 1);
+	}
+
+	@Override
+	public Biome[] getBiomes(@Nullable Biome[] biomes, int x, int z, int width, int length, boolean cacheFlag) {
+		return fill(biomes, x, z, width, length, 1);
+	}
+
+	@Override
+	public boolean areBiomesViable(int x, int z, int radius, List<Biome> allowed) {
+		for (int biomeX = x - radius; biomeX <= x + radius; biomeX++) {
+			for (int biomeZ = z - radius; biomeZ <= z + radius; biomeZ++) {
+				if (!allowed.contains(getBiome(new BlockPos(biomeX, 0, biomeZ)))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Nullable
+	@Override
+	public BlockPos findBiomePosition(int x, int z, int range, List<Biome> biomes, Random random) {
+		return null;
+	}
+
+	@Override
+	public void cleanupCache() {
+	}
+
+	private Biome[] fill(Biome[] biomes, int x, int z, int width, int depth, int scale) {
+		if (biomes == null || biomes.length < width * depth) {
+			biomes = new Biome[width * depth];
+		}
+		for (int index = 0; index < width * depth; index++) {
+			Biome biome = biomeFunction.getBiome((x + index % width) * scale, (z + index / width) * scale);
+			biomes[index] = biome == null ? Biomes.PLAINS : biome;
+		}
+		return biomes;
+	}
+
+	/**
+	 * The biome of a block x, z.
+	 */
+	@FunctionalInterface
+	public interface IBiomeFunction {
+		Biome getBiome(int x, int z);
+	}
+}
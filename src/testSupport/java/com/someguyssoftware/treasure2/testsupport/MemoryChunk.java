@@ -0,0 +1,150 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.testsupport;
+
+import java.util.function.IntBinaryOperator;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * A chunk of the MemoryWorld. The terrain is filled from a height function (stone, dirt, grass and water up to the sea level)
+ * into MemorySections. A block state change only updates the section, the height map and the tile entities:
+ * there is no lighting, no block update and no client to notify.
+ */
+public class MemoryChunk extends Chunk {
+	private static final int DIRT_DEPTH = 3;
+
+	/**
+	 *
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 * @param heightFunction the surface y by block x, z
+	 */
+	public MemoryChunk(World world, int chunkX, int chunkZ, IntBinaryOperator heightFunction) {
+		super(world, chunkX, chunkZ);
+		int seaLevel = world.getSeaLevel();
+		for (int x = 0; x < 16; x++) {
+			for (int z = 0; z < 16; z++) {
+				int height = Math.max(1, Math.min(254, heightFunction.applyAsInt((chunkX << 4) + x, (chunkZ << 4) + z)));
+				for (int y = 0; y <= Math.max(height, seaLevel - 1); y++) {
+					IBlockState state;
+					if (y == 0) {
+						state = Blocks.BEDROCK.getDefaultState();
+					}
+					else if (y < height - DIRT_DEPTH) {
+						state = Blocks.STONE.getDefaultState();
+					}
+					else if (y < height) {
+						state = Blocks.DIRT.getDefaultState();
+					}
+					else if (y == height) {
+						state = height < seaLevel - 1 ? Blocks.SAND.getDefaultState() : Blocks.GRASS.getDefaultState();
+					}
+					else {
+						state = Blocks.WATER.getDefaultState();
+					}
+					getSection(y).set(x, y & 15, z, state);
+				}
+			}
+		}
+		for (ExtendedBlockStorage section : getBlockStorageArray()) {
+			if (section instanceof MemorySection) {
+				((MemorySection) section).resetWrites();
+			}
+		}
+		generateHeightMap();
+		setTerrainPopulated(true);
+		setLightPopulated(true);
+	}
+
+	/**
+	 *
+	 * @param y
+	 * @return the section of the y, allocated if needed
+	 */
+	private ExtendedBlockStorage getSection(int y) {
+		ExtendedBlockStorage[] sections = getBlockStorageArray();
+		ExtendedBlockStorage section = sections[y >> 4];
+		if (section == NULL_BLOCK_STORAGE) {
+			section = new MemorySection(y >> 4 << 4);
+			sections[y >> 4] = section;
+		}
+		return section;
+	}
+
+	/**
+	 * The sections created outside of the chunk (ex. by the BlockWriteBuffer) are plain sections above the terrain,
+	 * so all their blocks are counted.
+	 * @return the number of block changes since the terrain fill
+	 */
+	public long getBlocksWritten() {
+		long writes = 0;
+		for (ExtendedBlockStorage section : getBlockStorageArray()) {
+			if (section instanceof MemorySection) {
+				writes += ((MemorySection) section).getWrites();
+			}
+			else if (section != NULL_BLOCK_STORAGE) {
+				for (int index = 0; index < 4096; index++) {
+					if (section.get(index & 15, index >> 8, index >> 4 & 15).getMaterial() != Material.AIR) {
+						writes++;
+					}
+				}
+			}
+		}
+		return writes;
+	}
+
+	@Override
+	public IBlockState setBlockState(BlockPos pos, IBlockState state) {
+		int x = pos.getX() & 15;
+		int y = pos.getY();
+		int z = pos.getZ() & 15;
+		IBlockState oldState = getBlockState(pos);
+		if (oldState == state) {
+			return null;
+		}
+		Block oldBlock = oldState.getBlock();
+		Block block = state.getBlock();
+		if (oldBlock.hasTileEntity(oldState)) {
+			removeTileEntity(pos);
+		}
+		getSection(y).set(x, y & 15, z, state);
+
+		// the height map (the y above the highest opaque block)
+		int[] heightMap = getHeightMap();
+		int height = heightMap[z << 4 | x];
+		if (y >= height && state.getLightOpacity() > 0) {
+			heightMap[z << 4 | x] = y + 1;
+		}
+		else if (y == height - 1 && state.getLightOpacity() == 0) {
+			int top = y;
+			while (top > 0 && getBlockState(x, top - 1, z).getLightOpacity() == 0) {
+				top--;
+			}
+			heightMap[z << 4 | x] = top;
+		}
+
+		if (block.hasTileEntity(state)) {
+			TileEntity tileEntity = getTileEntity(pos, Chunk.EnumCreateEntityType.CHECK);
+			if (tileEntity == null) {
+				tileEntity = block.createTileEntity(getWorld(), state);
+				getWorld().setTileEntity(pos, tileEntity);
+			}
+			else {
+				tileEntity.updateContainingBlockInfo();
+			}
+		}
+		markDirty();
+		return oldState;
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.testsupport;
+
+import java.util.function.IntBinaryOperator;
+
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.IChunkProvider;
+
+/**
+ * Provides the MemoryChunks of a MemoryWorld, creating a chunk on its first request. Nothing is unloaded unless asked.
+ * The chunks ever created are kept, so the generation of a new chunk (ex. a population cascading into it) can be told
+ * from the reload of an unloaded one.
+ */
+public class MemoryChunkProvider implements IChunkProvider {
+	private final World world;
+	private final IntBinaryOperator heightFunction;
+	private final Long2ObjectMap<Chunk> chunks = new Long2ObjectOpenHashMap<>();
+	// the chunks ever created
+	private final LongSet generated = new LongOpenHashSet();
+	// the block changes of the unloaded chunks
+	private long unloadedWrites;
+
+	/**
+	 *
+	 * @param world
+	 * @param heightFunction
+	 */
+	public MemoryChunkProvider(World world, IntBinaryOperator heightFunction) {
+		this.world = world;
+		this.heightFunction = heightFunction;
+	}
+
+	@Nullable
+	@Override
+	public Chunk getLoadedChunk(int x, int z) {
+		return chunks.get(ChunkPos.asLong(x, z));
+	}
+
+	@Override
+	public Chunk provideChunk(int x, int z) {
+		long key = ChunkPos.asLong(x, z);
+		Chunk chunk = chunks.get(key);
+		if (chunk == null) {
+			chunk = new MemoryChunk(world, x, z, heightFunction);
+			chunks.put(key, chunk);
+			generated.add(key);
+		}
+		return chunk;
+	}
+
+	@Override
+	public boolean tick() {
+		return false;
+	}
+
+	@Override
+	public String makeString() {
+		return "MemoryChunkProvider: " + chunks.size();
+	}
+
+	@Override
+	public boolean isChunkGeneratedAt(int x, int z) {
+		return generated.contains(ChunkPos.asLong(x, z));
+	}
+
+	/**
+	 *
+	 * @return the number of chunks
+	 */
+	public int size() {
+		return chunks.size();
+	}
+
+	/**
+	 *
+	 * @return the number of chunks ever created (not counting the reloads)
+	 */
+	public int getGeneratedChunks() {
+		return generated.size();
+	}
+
+	/**
+	 *
+	 * @return the number of block changes since the terrain fill, in all the chunks
+	 */
+	public long getBlocksWritten() {
+		long writes = unloadedWrites;
+		for (Chunk chunk : chunks.values()) {
+			if (chunk instanceof MemoryChunk) {
+				writes += ((MemoryChunk) chunk).getBlocksWritten();
+			}
+		}
+		return writes;
+	}
+
+	/**
+	 * Drops the chunk (a later access creates it again from the terrain), ex. to bound the memory of a long run.
+	 * @param x
+	 * @param z
+	 */
+	public void unload(int x, int z) {
+		Chunk chunk = chunks.remove(ChunkPos.asLong(x, z));
+		if (chunk instanceof MemoryChunk) {
+			unloadedWrites += ((MemoryChunk) chunk).getBlocksWritten();
+		}
+	}
+
+	/**
+	 *
+	 */
+	public void clear() {
+		chunks.clear();
+		generated.clear();
+		unloadedWrites = 0;
+	}
+}
@@ -0,0 +1,35 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.testsupport;
+
+import java.util.UUID;
+
+import com.mojang.authlib.GameProfile;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.world.World;
+
+/**
+ * A survival player without a connection, ex. to run the charms against a MemoryWorld.
+ */
+public class MemoryPlayer extends EntityPlayer {
+
+	/**
+	 *
+	 * @param world
+	 */
+	public MemoryPlayer(World world) {
+		super(world, new GameProfile(UUID.nameUUIDFromBytes("treasure2-memory-player".getBytes()), "MemoryPlayer"));
+	}
+
+	@Override
+	public boolean isSpectator() {
+		return false;
+	}
+
+	@Override
+	public boolean isCreative() {
+		return false;
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.testsupport;
+
+import java.io.File;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.datafix.DataFixesManager;
+import net.minecraft.world.MinecraftException;
+import net.minecraft.world.WorldProvider;
+import net.minecraft.world.chunk.storage.IChunkLoader;
+import net.minecraft.world.gen.structure.template.TemplateManager;
+import net.minecraft.world.storage.IPlayerFileData;
+import net.minecraft.world.storage.ISaveHandler;
+import net.minecraft.world.storage.WorldInfo;
+
+/**
+ * The save handler of a MemoryWorld: the world data (ex. the gen data, the site plans) is written to a directory,
+ * the chunks and the players are not saved.
+ */
+public class MemorySaveHandler implements ISaveHandler {
+	private final File directory;
+	private TemplateManager templateManager;
+
+	/**
+	 *
+	 * @param directory
+	 */
+	public MemorySaveHandler(File directory) {
+		this.directory = directory;
+		new File(directory, "data").mkdirs();
+	}
+
+	@Nullable
+	@Override
+	public WorldInfo loadWorldInfo() {
+		return null;
+	}
+
+	@Override
+	public void checkSessionLock() throws MinecraftException {
+	}
+
+	@Nullable
+	@Override
+	public IChunkLoader getChunkLoader(WorldProvider provider) {
+		return null;
+	}
+
+	@Override
+	public void saveWorldInfoWithPlayer(WorldInfo worldInformation, NBTTagCompound tagCompound) {
+	}
+
+	@Override
+	public void saveWorldInfo(WorldInfo worldInformation) {
+	}
+
+	@Nullable
+	@Override
+	public IPlayerFileData getPlayerNBTManager() {
+		return null;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public File getWorldDirectory() {
+		return directory;
+	}
+
+	@Override
+	public File getMapFileFromName(String mapName) {
+		return new File(new File(directory, "data"), mapName + ".dat");
+	}
+
+	@Override
+	public TemplateManager getStructureTemplateManager() {
+		if (templateManager == null) {
+			templateManager = new TemplateManager(new File(directory, "structures").getPath(), DataFixesManager.createFixer());
+		}
+		return templateManager;
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.testsupport;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * A chunk section of the MemoryWorld: the vanilla block storage, without the sky light (the world has none),
+ * that counts the block changes.
+ */
+public class MemorySection extends ExtendedBlockStorage {
+	// the state changes since the terrain fill
+	private int writes;
+
+	/**
+	 *
+	 * @param y the y of the bottom of the section
+	 */
+	public MemorySection(int y) {
+		super(y, false);
+	}
+
+	@Override
+	public void set(int x, int y, int z, IBlockState state) {
+		if (get(x, y, z) != state) {
+			writes++;
+		}
+		super.set(x, y, z, state);
+	}
+
+	public int getWrites() {
+		return writes;
+	}
+
+	public void resetWrites() {
+		writes = 0;
+	}
+}
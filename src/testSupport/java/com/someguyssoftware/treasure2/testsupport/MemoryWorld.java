@@ -0,0 +1,146 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.testsupport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.function.IntBinaryOperator;
+
+import net.minecraft.init.Bootstrap;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldInfo;
+
+/**
+ * A headless, in-memory stand-in of a server world, to run the generators (pits, ruins, chests, the world generators)
+ * on a plain JVM, ex. in tests and benchmarks. The terrain is a height function over MemoryChunks (write counting sections)
+ * and the biomes come from a MemoryBiomeProvider. The chunks are created on their first access, as populated chunks.
+ * <p>
+ * There is no lighting (and no sky light), no entity or block ticking and no client. The world data is written to a (temporary) directory.
+ * The vanilla registries are bootstrapped on the first world; the Treasure! blocks and items must be registered by
+ * the caller if the generators use them.
+ * </p>
+ */
+public class MemoryWorld extends World {
+	private final IntBinaryOperator heightFunction;
+
+	/**
+	 *
+	 * @param seed
+	 * @param biomeProvider
+	 * @param heightFunction the surface y by block x, z
+	 */
+	public MemoryWorld(long seed, MemoryBiomeProvider biomeProvider, IntBinaryOperator heightFunction) {
+		this(seed, biomeProvider, heightFunction, createDirectory());
+	}
+
+	/**
+	 *
+	 * @param seed
+	 * @param biomeProvider
+	 * @param heightFunction
+	 * @param directory the directory of the world data
+	 */
+	public MemoryWorld(long seed, MemoryBiomeProvider biomeProvider, IntBinaryOperator heightFunction, File directory) {
+		super(new MemorySaveHandler(directory), createWorldInfo(seed), new MemoryWorldProvider(biomeProvider), new Profiler(), false);
+		this.heightFunction = heightFunction;
+		this.provider.setWorld(this);
+		this.chunkProvider = createChunkProvider();
+		this.mapStorage = new MapStorage(saveHandler);
+		this.perWorldStorage = this.mapStorage;
+		this.initCapabilities();
+	}
+
+	/**
+	 *
+	 * @param seed
+	 * @param biome
+	 * @param height
+	 * @return a flat world of a single biome
+	 */
+	public static MemoryWorld flat(long seed, Biome biome, int height) {
+		return new MemoryWorld(seed, MemoryBiomeProvider.of(biome), (x, z) -> height);
+	}
+
+	private static WorldInfo createWorldInfo(long seed) {
+		Bootstrap.register();
+		return new WorldInfo(new WorldSettings(seed, GameType.SURVIVAL, true, false, WorldType.DEFAULT), "memory");
+	}
+
+	private static File createDirectory() {
+		try {
+			File directory = Files.createTempDirectory("treasure2-memory-world").toFile();
+			directory.deleteOnExit();
+			return directory;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Creates the chunks of the area, so that the generators can write into them (see DeferredPlacementQueue).
+	 * @param minChunkX
+	 * @param minChunkZ
+	 * @param maxChunkX
+	 * @param maxChunkZ
+	 */
+	public void loadChunks(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+				chunkProvider.provideChunk(chunkX, chunkZ);
+			}
+		}
+	}
+
+	@Override
+	protected IChunkProvider createChunkProvider() {
+		return new MemoryChunkProvider(this, heightFunction);
+	}
+
+	@Override
+	public MemoryChunkProvider getChunkProvider() {
+		return (MemoryChunkProvider) chunkProvider;
+	}
+
+	@Override
+	protected boolean isChunkLoaded(int x, int z, boolean allowEmpty) {
+		return chunkProvider.getLoadedChunk(x, z) != null;
+	}
+
+	/*
+	 * no lighting
+	 */
+	@Override
+	public boolean checkLightFor(EnumSkyBlock lightType, BlockPos pos) {
+		return true;
+	}
+
+	/**
+	 * The overworld provider over the MemoryBiomeProvider, without the sky light (so the sections have no sky light arrays).
+	 */
+	private static class MemoryWorldProvider extends WorldProviderSurface {
+		private final MemoryBiomeProvider memoryBiomeProvider;
+
+		MemoryWorldProvider(MemoryBiomeProvider biomeProvider) {
+			this.memoryBiomeProvider = biomeProvider;
+		}
+
+		@Override
+		protected void init() {
+			this.hasSkyLight = false;
+			this.biomeProvider = memoryBiomeProvider;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ *
+ */
+package com.someguyssoftware.treasure2.testsupport;
+
+import com.someguyssoftware.treasure2.Treasure;
+import com.someguyssoftware.treasure2.config.TreasureConfig;
+import com.someguyssoftware.treasure2.enums.WorldGeneratorType;
+import com.someguyssoftware.treasure2.worldgen.GemOreWorldGenerator;
+import com.someguyssoftware.treasure2.worldgen.OasisWorldGenerator;
+import com.someguyssoftware.treasure2.worldgen.SubmergedChestWorldGenerator;
+import com.someguyssoftware.treasure2.worldgen.SurfaceChestWorldGenerator;
+import com.someguyssoftware.treasure2.worldgen.WellWorldGenerator;
+import com.someguyssoftware.treasure2.worldgen.WitherTreeWorldGenerator;
+
+import net.minecraft.init.Bootstrap;
+
+/**
+ * Sets up the parts of the mod the headless runs need without Forge: the vanilla registries, the configs
+ * and the world generators (as Treasure.init does).
+ */
+public final class TreasureBootstrap {
+	private static boolean done;
+
+	/**
+	 *
+	 */
+	private TreasureBootstrap() {}
+
+	/**
+	 *
+	 */
+	public static synchronized void bootstrap() {
+		if (done) {
+			return;
+		}
+		Bootstrap.register();
+		TreasureConfig.init();
+		// no resources to expose outside of a mod jar
+		TreasureConfig.MOD.enableDefaultTemplatesCheck = false;
+		if (Treasure.instance == null) {
+			Treasure.instance = new Treasure();
+		}
+
+		Treasure.WORLD_GENERATORS.put(WorldGeneratorType.SURFACE_CHEST, new SurfaceChestWorldGenerator());
+		Treasure.WORLD_GENERATORS.put(WorldGeneratorType.SUBMERGED_CHEST, new SubmergedChestWorldGenerator());
+		Treasure.WORLD_GENERATORS.put(WorldGeneratorType.WELL, new WellWorldGenerator());
+		Treasure.WORLD_GENERATORS.put(WorldGeneratorType.WITHER_TREE, new WitherTreeWorldGenerator());
+		Treasure.WORLD_GENERATORS.put(WorldGeneratorType.GEM, new GemOreWorldGenerator());
+		Treasure.WORLD_GENERATORS.put(WorldGeneratorType.OASIS, new OasisWorldGenerator());
+		done = true;
+	}
+}